@@ -0,0 +1,23 @@
+/* Initialise la table des identifiants à partir des identifiants déjà attribués. Chaque
+   entité y réserve ensuite des blocs de 50 identifiants, ce qui permet d'insérer les lignes
+   par lots. Ce script doit être exécuté une fois sur une base existante, avant que
+   l'application ne crée de nouvelles lignes.
+ */
+
+CREATE TABLE IF NOT EXISTS identifiers
+(
+    entity     VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_value BIGINT
+);
+
+INSERT INTO identifiers (entity, next_value)
+SELECT 'categories', COALESCE(MAX(identifier), 0) + 1 FROM categories
+UNION ALL
+SELECT 'users', COALESCE(MAX(identifier), 0) + 1 FROM users
+UNION ALL
+SELECT 'items', COALESCE(MAX(identifier), 0) + 1 FROM items
+UNION ALL
+SELECT 'images', COALESCE(MAX(identifier), 0) + 1 FROM images
+UNION ALL
+SELECT 'credit_entries', COALESCE(MAX(identifier), 0) + 1 FROM credit_entries
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
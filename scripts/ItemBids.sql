@@ -0,0 +1,10 @@
+/* Initialise le prix courant, le meilleur enchérisseur et le nombre d'enchères de chaque
+   article à partir de ses enchères. Ces colonnes sont ensuite tenues à jour par l'application
+   à chaque enchère. Ce script doit être exécuté une fois, après que l'application a ajouté
+   ces colonnes à la table 'items'.
+ */
+
+UPDATE items i
+SET i.bid_count      = (SELECT COUNT(*) FROM bids b WHERE b.item = i.identifier),
+    i.current_price  = COALESCE((SELECT MAX(b.price) FROM bids b WHERE b.item = i.identifier), 0),
+    i.current_leader = (SELECT b.user FROM bids b WHERE b.item = i.identifier ORDER BY b.price DESC LIMIT 1);
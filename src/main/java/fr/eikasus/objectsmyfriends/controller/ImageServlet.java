@@ -2,6 +2,9 @@ package fr.eikasus.objectsmyfriends.controller;
 
 import com.google.gson.Gson;
 import fr.eikasus.objectsmyfriends.misc.ControllerSupport;
+import fr.eikasus.objectsmyfriends.misc.ImageStore;
+import fr.eikasus.objectsmyfriends.misc.SessionState;
+import fr.eikasus.objectsmyfriends.misc.ThumbnailGenerator;
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
 import org.jetbrains.annotations.NotNull;
@@ -13,35 +16,46 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
-@WebServlet(name = "ImageServlet", value = "/image_handler") @MultipartConfig
+@WebServlet(name = "ImageServlet", value = "/image_handler") @MultipartConfig(maxFileSize = ImageStore.MAX_IMAGE_SIZE, maxRequestSize = ImageStore.MAX_IMAGE_SIZE + 64 * 1024)
 public class ImageServlet extends HttpServlet
 {
+	// Most items whose images can be asked for at once.
+	private static final int MAX_ITEMS = 100;
+
 	@Inject
 	ManagerFactory managerFactory;
 
-	@SuppressWarnings("unchecked")
 	@Override protected void doGet(@NotNull HttpServletRequest request, HttpServletResponse response) throws IOException
 	{
 		try
 		{
+			// The images of several items are asked for at once.
+			if (request.getParameter("items") != null)
+			{
+				sendItemsImages(request, response);
+				return;
+			}
+
 			// Where the image file names will be stored before sending.
 			ArrayList<String> imageFileNames = new ArrayList<>();
 
-			// List of images file name uploaded if exists.
-			ArrayList<String> uploadedImages = (ArrayList<String>) request.getSession().getAttribute("itemImages");
+			// Session state, if any.
+			SessionState state = SessionState.find(request.getSession(false));
+
+			// List of images file name uploaded, empty if none.
+			List<String> uploadedImages = (state != null) ? (state.getImages()) : (new ArrayList<>());
 
 			// Item currently edited if exists.
 			Item currentItem = ControllerSupport.getItemFromSession(managerFactory, request);
 
-			// For convenience, there is always one list, even if it is empty.
-			if (uploadedImages == null) uploadedImages = new ArrayList<>();
-
 			// Retrieve a possible item identifier.
 			long identifier = ControllerSupport.parseLongParameter(request, "identifier");
 
+			// Size of the thumbnails wanted, the images themselves if none.
+			ThumbnailGenerator.Size size = ThumbnailGenerator.Size.fromName(request.getParameter("size"));
+
 			// Find the item to deal with: the one from the database or those that is
 			// currently modified/created.
 			if ((currentItem == null) && (identifier != 0))
@@ -52,10 +66,10 @@ public class ImageServlet extends HttpServlet
 			}
 
 			// Put the uploaded image file names in the list.
-			uploadedImages.forEach(fileName -> imageFileNames.add(ControllerSupport.getUrlImage(request, fileName)));
+			uploadedImages.forEach(fileName -> imageFileNames.add(getUrl(request, fileName, size)));
 
 			// Now, put those of the item if defined.
-			if (currentItem != null) currentItem.getImages().forEach(image -> imageFileNames.add(ControllerSupport.getUrlImage(request, image.getPath())));
+			if (currentItem != null) currentItem.getImages().forEach(image -> imageFileNames.add(getUrl(request, image.getPath(), size)));
 
 			// The response will be in JSON format.
 			response.setContentType("application/json");
@@ -78,29 +92,22 @@ public class ImageServlet extends HttpServlet
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override protected void doPost(HttpServletRequest request, @NotNull HttpServletResponse response) throws IOException
 	{
 		response.setContentType("text/html;charset=UTF-8");
 
 		try
 		{
-			// Retrieve already uploaded image list.
-			ArrayList<String> itemImages = (ArrayList<String>) request.getSession().getAttribute("itemImages");
-
-			// If the list doesn't exist yet, create-it
-			if (itemImages == null)
-			{
-				// Create the list.
-				itemImages = new ArrayList<>();
-
-				// And save-it in the user session.
-				request.getSession().setAttribute("itemImages", itemImages);
-			}
+			// Retrieve the session state.
+			SessionState state = SessionState.get(request);
 
 			// Add the image to the item images list. The list will be scanned for
 			// adding image to the current modified/new item.
-			itemImages.add(ControllerSupport.loadImage(request, "file"));
+			String name = ControllerSupport.loadImage(request, "file");
+
+			// The same image sent again is only held once by the session.
+			if (state.addImage(name)) state.save(request);
+			else ControllerSupport.releaseUploadedImages(managerFactory, request, Collections.singletonList(name));
 
 			// All was fine.
 			response.sendError(HttpServletResponse.SC_OK);
@@ -111,4 +118,70 @@ public class ImageServlet extends HttpServlet
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST);
 		}
 	}
+
+	/**
+	 * Send the image urls of several items.
+	 * <p>
+	 * The identifiers of the items are supplied in the "items" parameter,
+	 * separated by commas. The images of all the items are read by one request
+	 * and sent as a JSON object giving the list of the image urls of each item
+	 * identifier, empty if the item has no image.
+	 *
+	 * @param request  Request to deal with.
+	 * @param response Response to the request.
+	 *
+	 * @throws Exception In case of problem.
+	 */
+
+	private void sendItemsImages(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response) throws Exception
+	{
+		Set<Long> items = new LinkedHashSet<>();
+
+		// Read the identifiers, an invalid one throwing an exception.
+		for (String identifier : request.getParameter("items").split(","))
+			if (!identifier.trim().isEmpty()) items.add(Long.parseLong(identifier.trim()));
+
+		// Too many items are asked for.
+		if (items.size() > MAX_ITEMS) throw new Exception();
+
+		// Size of the thumbnails wanted, the images themselves if none.
+		ThumbnailGenerator.Size size = ThumbnailGenerator.Size.fromName(request.getParameter("size"));
+
+		// Paths of the images of all the items.
+		Map<Long, List<String>> paths = managerFactory.getImageManager().findPaths(items);
+
+		// Urls of the images of each item, in the asked order.
+		Map<Long, List<String>> urls = new LinkedHashMap<>();
+
+		for (Long item : items)
+		{
+			List<String> itemUrls = new ArrayList<>();
+
+			paths.getOrDefault(item, Collections.emptyList()).forEach(path -> itemUrls.add(getUrl(request, path, size)));
+			urls.put(item, itemUrls);
+		}
+
+		// The response will be in JSON format, encoded in UTF-8.
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+
+		// Send the urls.
+		response.getWriter().println(new Gson().toJson(urls));
+		response.getWriter().flush();
+	}
+
+	/**
+	 * Compute the url of an image or of one of its thumbnails.
+	 *
+	 * @param request  Request needed to retrieve context.
+	 * @param fileName Name of the image file.
+	 * @param size     Size of the thumbnail, null for the image.
+	 *
+	 * @return Url to the image or to the thumbnail.
+	 */
+
+	private static @NotNull String getUrl(@NotNull HttpServletRequest request, @NotNull String fileName, ThumbnailGenerator.Size size)
+	{
+		return (size != null) ? (ControllerSupport.getUrlThumbnail(request, fileName, size)) : (ControllerSupport.getUrlImage(request, fileName));
+	}
 }
@@ -1,8 +1,8 @@
 package fr.eikasus.objectsmyfriends.controller;
 
 import fr.eikasus.objectsmyfriends.misc.ControllerSupport;
+import fr.eikasus.objectsmyfriends.misc.SessionState;
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
-import fr.eikasus.objectsmyfriends.model.bo.Bid;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.misc.ModelError;
@@ -14,7 +14,6 @@ import javax.servlet.*;
 import javax.servlet.http.*;
 import javax.servlet.annotation.*;
 import java.io.IOException;
-import java.util.Comparator;
 import java.util.HashMap;
 
 @WebServlet(name = "ItemBidServlet", value = "/item_bid")
@@ -48,6 +47,8 @@ public class ItemBidServlet extends HttpServlet
 		super.init();
 
 		formParameters.put(ModelError.UNABLE_TO_CREATE_BID, "genericError");
+		formParameters.put(ModelError.BID_CONFLICT, "genericError");
+		formParameters.put(ModelError.DATABASE_BUSY, "genericError");
 		formParameters.put(ModelError.INVALID_BID_PRICE, "yourOffer");
 	}
 
@@ -69,20 +70,24 @@ public class ItemBidServlet extends HttpServlet
 		{
 			if ((itemIdentifier = ControllerSupport.parseLongParameter(request, "item")) != 0)
 			{
-				// Read the item from the database.
-				Item item = managerFactory.getItemManager().find(itemIdentifier).get(0);
+				// Read the item from the database, with its current leader.
+				Item item = managerFactory.getItemManager().find(itemIdentifier, Item.GRAPH_BID);
 
-				// Save the item instance to allow doPost method to do his job.
-				request.getSession().setAttribute("item", item);
+				// Save the item identifier to allow doPost method to do his job, only
+				// connected users being able to bid.
+				SessionState state = SessionState.find(request.getSession(false));
 
-				// Read the best bid for the item form the database.
-				Bid bestBid = item.getBids().stream().max(Comparator.comparingInt(Bid::getPrice)).orElse(null);
+				if (state != null)
+				{
+					state.setItem(item.getIdentifier());
+					state.save(request);
+				}
 
-				// Save the bid made on this item to allow doPost method to do his job.
-				request.getSession().setAttribute("bestBid", bestBid);
+				// Give the item and its best bid to the JSP.
+				showItem(request, item);
 
 				// Compute initial offer.
-				int initialOffer = ((bestBid != null) ? (bestBid.getPrice() + 1) : (item.getInitialPrice()));
+				int initialOffer = ((item.getBidCount() != 0) ? (item.getCurrentPrice() + 1) : (item.getInitialPrice()));
 
 				// Save-it in the form.
 				request.setAttribute("yourOffer", initialOffer);
@@ -143,6 +148,9 @@ public class ItemBidServlet extends HttpServlet
 				// Put the error in the form.
 				ControllerSupport.putFormError(me, request, formParameters);
 
+				// Give the item and its best bid to the JSP again.
+				if (item != null) showItem(request, item);
+
 				// Return to the bid page and display errors.
 				RequestDispatcher requestDispatcher = request.getRequestDispatcher("WEB-INF/itemBid.jsp");
 				requestDispatcher.forward(request, response);
@@ -154,4 +162,24 @@ public class ItemBidServlet extends HttpServlet
 			response.sendRedirect(request.getContextPath() + "/welcome");
 		}
 	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Give an item to the bid page.
+	 * <p>
+	 * The item is put in the request attribute "item", used by the JSP, which
+	 * shows its best bid from the current price and leader kept by the item,
+	 * without reading its bids.
+	 *
+	 * @param request Request to deal with.
+	 * @param item    Item bid on.
+	 */
+
+	private void showItem(@NotNull HttpServletRequest request, @NotNull Item item)
+	{
+		request.setAttribute("item", item);
+	}
 }
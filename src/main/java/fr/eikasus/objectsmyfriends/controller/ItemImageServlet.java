@@ -0,0 +1,437 @@
+package fr.eikasus.objectsmyfriends.controller;
+
+import fr.eikasus.objectsmyfriends.misc.ControllerSupport;
+import fr.eikasus.objectsmyfriends.misc.ImageStore;
+import fr.eikasus.objectsmyfriends.misc.ThumbnailGenerator;
+import org.jetbrains.annotations.NotNull;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servlet sending the images of the items.
+ * <p>
+ * The images were sent by the default servlet of the server, which doesn't
+ * tell the browser that they never change, so that they are downloaded again
+ * each time the cards are displayed. The name of an uploaded image is never
+ * given to another content, so the images are sent here with a strong entity
+ * tag computed from their content and a long-lived immutable cache policy.
+ * A browser asking again for an image it already has gets an empty "not
+ * modified" response, and a part of an image can be asked for with a range.
+ * A thumbnail not made yet is replaced by its image, without being kept by the
+ * browser, and its making is asked for. The urls only hold the name of the
+ * images, whose folders in the image store are found here.
+ * <p>
+ * The content of a file is read by its channel into a buffer kept by each
+ * thread, so that nothing is allocated to send it. The response being a stream
+ * and not a channel, {@code transferTo()} can't avoid the copy and allocates a
+ * buffer for each call. The entity tags are kept in memory as long as the file
+ * doesn't change.
+ *
+ * @see #transfer(FileChannel, long, long, OutputStream)
+ * @see #parseRange(String, long)
+ * @see #matches(String, String)
+ * @see #locate(String)
+ */
+
+@WebServlet(name = "ItemImageServlet", value = "/item_images/*")
+public class ItemImageServlet extends HttpServlet
+{
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Entity tag of a file, valid while its size and date are unchanged.
+	 */
+
+	private static class Tag
+	{
+		public final long size;
+		public final long lastModified;
+		public final String value;
+
+		public Tag(long size, long lastModified, String value)
+		{
+			this.size = size;
+			this.lastModified = lastModified;
+			this.value = value;
+		}
+	}
+
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Cache policy of the images, whose content never changes.
+	public static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+	// Size of the buffer of each thread.
+	private static final int BUFFER_SIZE = 8192;
+
+	// Number of bytes of the content digest kept in an entity tag.
+	private static final int TAG_LENGTH = 16;
+
+	// Range given back when the range asked for can't be satisfied.
+	static final long[] UNSATISFIABLE = new long[0];
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Buffer of each thread, so that no buffer is allocated for a request.
+	private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.wrap(new byte[BUFFER_SIZE]));
+
+	// Entity tags of the files sent, by path.
+	private final Map<Path, Tag> tags = new ConcurrentHashMap<>();
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	@Override protected void doGet(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response) throws IOException
+	{
+		send(request, response, true);
+	}
+
+	@Override protected void doHead(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response) throws IOException
+	{
+		send(request, response, false);
+	}
+
+	/**
+	 * Send the content of a file, in whole or in part.
+	 *
+	 * @param channel  Channel of the file.
+	 * @param position Position of the first byte to send.
+	 * @param count    Number of bytes to send.
+	 * @param out      Stream receiving the bytes.
+	 *
+	 * @return Number of bytes sent.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	static long transfer(@NotNull FileChannel channel, long position, long count, @NotNull OutputStream out) throws IOException
+	{
+		ByteBuffer buffer = buffers.get();
+		long sent = 0;
+		int length;
+
+		while (sent < count)
+		{
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), count - sent));
+
+			// Read at a position, so that the channel doesn't allocate anything.
+			if ((length = channel.read(buffer, position + sent)) <= 0) break;
+
+			out.write(buffer.array(), 0, length);
+			sent += length;
+		}
+
+		return sent;
+	}
+
+	/**
+	 * Read the range asked for by a request.
+	 * <p>
+	 * Only a single range is handled. Several ranges or a range which can't be
+	 * read give the whole file, as allowed by the HTTP specification.
+	 *
+	 * @param header Value of the "Range" header, may be null.
+	 * @param size   Size of the file.
+	 *
+	 * @return First and last positions, null for the whole file, or {@code
+	 * UNSATISFIABLE} if the range is beyond the end of the file.
+	 */
+
+	static long[] parseRange(String header, long size)
+	{
+		// No range or several ranges.
+		if ((header == null) || (!header.startsWith("bytes=")) || (header.indexOf(',') != -1)) return null;
+
+		String range = header.substring(6).trim();
+		int dash = range.indexOf('-');
+
+		if (dash == -1) return null;
+
+		try
+		{
+			long start, end;
+
+			if (dash == 0)
+			{
+				// The last bytes of the file.
+				long suffix = Long.parseLong(range.substring(1));
+
+				if (suffix <= 0) return UNSATISFIABLE;
+
+				start = Math.max(0, size - suffix);
+				end = size - 1;
+			}
+			else
+			{
+				// From a position to another one or to the end of the file.
+				start = Long.parseLong(range.substring(0, dash));
+				end = (dash == range.length() - 1) ? (size - 1) : (Math.min(size - 1, Long.parseLong(range.substring(dash + 1))));
+
+				if (end < start) return (start >= size) ? (UNSATISFIABLE) : (null);
+			}
+
+			return (start < size) ? (new long[]{start, end}) : (UNSATISFIABLE);
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Check if an entity tag is one of those sent by the browser.
+	 *
+	 * @param header Value of the "If-None-Match" header.
+	 * @param tag    Entity tag of the file.
+	 *
+	 * @return true if the tag is found.
+	 */
+
+	static boolean matches(@NotNull String header, @NotNull String tag)
+	{
+		for (String value : header.split(","))
+		{
+			value = value.trim();
+
+			// A weak comparison is enough to know if the file is unchanged.
+			if (value.startsWith("W/")) value = value.substring(2);
+
+			if (value.equals("*") || value.equals(tag)) return true;
+		}
+
+		return false;
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Answer a request for an image.
+	 *
+	 * @param request  Request to deal with.
+	 * @param response Response to the request.
+	 * @param body     Whether the content is sent, not for a HEAD request.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	private void send(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, boolean body) throws IOException
+	{
+		String name = request.getPathInfo();
+		String imagePath = ControllerSupport.getImagePath(request);
+
+		// Find the file, which must be in the image folder.
+		Path folder = (imagePath != null) ? (Paths.get(imagePath).toAbsolutePath().normalize()) : (null);
+		Path file = ((folder != null) && (name != null)) ? (folder.resolve(locate(name.substring(1))).normalize()) : (folder);
+
+		if ((file == null) || (!file.startsWith(folder)) || (file.equals(folder)))
+		{
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		// A thumbnail not made yet is replaced by its image, which must not be kept.
+		boolean replaced = false;
+
+		if (!Files.isRegularFile(file))
+		{
+			Path original = findOriginal(folder, file);
+
+			if (original == null)
+			{
+				response.sendError(HttpServletResponse.SC_NOT_FOUND);
+				return;
+			}
+
+			ThumbnailGenerator generator = ThumbnailGenerator.get(getServletContext());
+			if (generator != null) generator.submit(imagePath, folder.relativize(original).toString(), false);
+
+			file = original;
+			replaced = true;
+		}
+
+		long size = Files.size(file);
+		long lastModified = Files.getLastModifiedTime(file).toMillis();
+		String tag = getTag(file, size, lastModified);
+
+		// Headers allowing the browser to keep the image.
+		response.setHeader("ETag", tag);
+		response.setDateHeader("Last-Modified", lastModified);
+		response.setHeader("Cache-Control", (replaced) ? ("no-cache") : (CACHE_CONTROL));
+		response.setHeader("Accept-Ranges", "bytes");
+
+		// The browser already has the image.
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		long ifModifiedSince = (ifNoneMatch == null) ? (request.getDateHeader("If-Modified-Since")) : (-1);
+
+		if (((ifNoneMatch != null) && (matches(ifNoneMatch, tag))) || ((ifModifiedSince != -1) && (lastModified / 1000 <= ifModifiedSince / 1000)))
+		{
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		// A range is only used if the part the browser has is still the same.
+		String ifRange = request.getHeader("If-Range");
+		long[] range = ((ifRange == null) || (ifRange.trim().equals(tag))) ? (parseRange(request.getHeader("Range"), size)) : (null);
+
+		if (range == UNSATISFIABLE)
+		{
+			response.setHeader("Content-Range", "bytes */" + size);
+			response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			return;
+		}
+
+		long start = (range != null) ? (range[0]) : (0);
+		long count = (range != null) ? (range[1] - range[0] + 1) : (size);
+
+		if (range != null)
+		{
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size);
+		}
+
+		String contentType = getServletContext().getMimeType(file.getFileName().toString());
+
+		response.setContentType((contentType != null) ? (contentType) : ("application/octet-stream"));
+		response.setContentLengthLong(count);
+
+		if (body)
+		{
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+			{
+				transfer(channel, start, count, response.getOutputStream());
+			}
+		}
+	}
+
+	/**
+	 * Give the place of an image or of a thumbnail from its url.
+	 * <p>
+	 * The urls only hold the name of the images, the folders spreading the
+	 * images of the store being added here.
+	 *
+	 * @param path Path of the url, relative to the folder of the images.
+	 *
+	 * @return Path of the file relative to the folder of the images.
+	 */
+
+	static @NotNull String locate(@NotNull String path)
+	{
+		int slash = path.indexOf('/');
+
+		// An image.
+		if (slash == -1) return ImageStore.locate(path);
+
+		// A thumbnail, in the folder of its size.
+		if ((path.indexOf('/', slash + 1) == -1) && (ThumbnailGenerator.Size.fromName(path.substring(0, slash)) != null))
+			return path.substring(0, slash + 1) + ImageStore.locate(path.substring(slash + 1));
+
+		return path;
+	}
+
+	/**
+	 * Find the image of a thumbnail.
+	 *
+	 * @param folder Folder of the images.
+	 * @param file   Path of the thumbnail, in the folder.
+	 *
+	 * @return Path of the image, or null if the file is not a thumbnail or if
+	 * its image doesn't exist.
+	 */
+
+	private static Path findOriginal(@NotNull Path folder, @NotNull Path file)
+	{
+		Path relative = folder.relativize(file);
+
+		// A thumbnail is in the folder of its size, under the path of its image.
+		if ((relative.getNameCount() < 2) || (ThumbnailGenerator.Size.fromName(relative.getName(0).toString()) == null)) return null;
+
+		Path original = folder.resolve(relative.subpath(1, relative.getNameCount()));
+
+		return (Files.isRegularFile(original)) ? (original) : (null);
+	}
+
+	/**
+	 * Give the entity tag of a file.
+	 * <p>
+	 * The tag is computed from the content the first time and kept until the
+	 * size or the date of the file changes.
+	 *
+	 * @param file         File to deal with.
+	 * @param size         Size of the file.
+	 * @param lastModified Date of the file.
+	 *
+	 * @return Entity tag, with its quotes.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	private String getTag(@NotNull Path file, long size, long lastModified) throws IOException
+	{
+		Tag tag = tags.get(file);
+
+		if ((tag == null) || (tag.size != size) || (tag.lastModified != lastModified))
+		{
+			tag = new Tag(size, lastModified, computeTag(file));
+			tags.put(file, tag);
+		}
+
+		return tag.value;
+	}
+
+	/**
+	 * Compute the entity tag of a file from its content.
+	 *
+	 * @param file File to deal with.
+	 *
+	 * @return Entity tag, with its quotes.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	static @NotNull String computeTag(@NotNull Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+			// The content is read through a mapping of the file.
+			digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+
+			byte[] hash = digest.digest();
+			StringBuilder value = new StringBuilder("\"");
+
+			for (int index = 0; index < TAG_LENGTH; index++) value.append(String.format("%02x", hash[index]));
+
+			return value.append('"').toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IOException(e);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package fr.eikasus.objectsmyfriends.controller;
 import fr.eikasus.objectsmyfriends.misc.ControllerError;
 import fr.eikasus.objectsmyfriends.misc.ControllerException;
 import fr.eikasus.objectsmyfriends.misc.ControllerSupport;
+import fr.eikasus.objectsmyfriends.misc.SessionState;
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bo.*;
 import fr.eikasus.objectsmyfriends.model.misc.ModelError;
@@ -89,8 +90,11 @@ public class ItemSellServlet extends HttpServlet
 		long itemIdentifier;
 		Item item = null;
 
-		// A get request means a new action, so ensure there is no image.
-		request.getSession().removeAttribute("itemImages");
+		// A get request means a new action, so ensure there is no item nor image.
+		SessionState state = SessionState.get(request);
+		ControllerSupport.releaseUploadedImages(managerFactory, request, state.getImages());
+		state.clearItem();
+		state.save(request);
 
 		try
 		{
@@ -105,7 +109,8 @@ public class ItemSellServlet extends HttpServlet
 
 				// As this is an update, put the item in the session to be further
 				// retrieved by the doPost method.
-				request.getSession().setAttribute("item", item);
+				state.setItem(item.getIdentifier());
+				state.save(request);
 
 				// Fill the form with item information.
 				request.setAttribute("name", item.getName());
@@ -129,7 +134,7 @@ public class ItemSellServlet extends HttpServlet
 			if ((item == null) || (item.getPickupPlace() == null))
 			{
 				// Get the information from the user who is the owner of the item.
-				User user = (User) request.getSession().getAttribute("user");
+				User user = ControllerSupport.getUserFromSession(managerFactory, request);
 
 				request.setAttribute("street", user.getStreet());
 				request.setAttribute("zipCode", user.getZipCode());
@@ -169,7 +174,6 @@ public class ItemSellServlet extends HttpServlet
 	 * the form.
 	 */
 
-	@SuppressWarnings("unchecked")
 	@Override protected void doPost(@NotNull HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
 	{
 		request.setCharacterEncoding("UTF-8");
@@ -188,7 +192,7 @@ public class ItemSellServlet extends HttpServlet
 		if ( (user != null) && (request.getParameter("save") != null) )
 		{
 			// Retrieve the item images from the session if user upload them.
-			List<String> uploadedImages = (List<String>) request.getSession().getAttribute("itemImages");
+			List<String> uploadedImages = SessionState.get(request).getImages();
 
 			// Retrieve the pickup place that belongs to the item if exists.
 			PickupPlace pickupPlace = (item != null) ? (item.getPickupPlace()) : (null);
@@ -276,7 +280,12 @@ public class ItemSellServlet extends HttpServlet
 					ControllerSupport.putFormError(new ControllerException(me, ControllerError.UNATTENDED_ERROR), request, formParameters);
 
 				// Save the item. It was created or updated, but not the pickup place.
-				if (item != null) request.getSession().setAttribute("item", item);
+				if (item != null)
+				{
+					SessionState state = SessionState.get(request);
+					state.setItem(item.getIdentifier());
+					state.save(request);
+				}
 
 				// Return to the item page and display errors.
 				RequestDispatcher requestDispatcher = request.getRequestDispatcher("WEB-INF/itemSell.jsp");
@@ -288,11 +297,11 @@ public class ItemSellServlet extends HttpServlet
 		if (success)
 		{
 			// The item is created or the user canceled the form, so remove-it from the
-			// session.
-			request.getSession().removeAttribute("item");
-
-			// Do the same with images.
-			request.getSession().removeAttribute("itemImages");
+			// session, with its images, those not added to the item being deleted.
+			SessionState state = SessionState.get(request);
+			ControllerSupport.releaseUploadedImages(managerFactory, request, state.getImages());
+			state.clearItem();
+			state.save(request);
 
 			// Return to the welcome page.
 			response.sendRedirect(request.getContextPath() + "/welcome");
@@ -1,14 +1,34 @@
 package fr.eikasus.objectsmyfriends.controller;
 
+import fr.eikasus.objectsmyfriends.misc.ControllerSupport;
+import fr.eikasus.objectsmyfriends.misc.SessionState;
+import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
+
+import javax.inject.Inject;
 import javax.servlet.*;
 import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
-@WebFilter(filterName = "LogInFilter", urlPatterns = {"/*"}, dispatcherTypes = {DispatcherType.REQUEST, DispatcherType.FORWARD})
+/**
+ * Filter checking that the target of a request is reachable by the user.
+ * <p>
+ * Static files are served without looking at the session. For other targets,
+ * the session is only read if it exists, so that visitors who are not
+ * connected don't get one. The state of the session is given to the pages as
+ * a request attribute, since they don't access the session themselves.
+ */
+
+@WebFilter(filterName = "LogInFilter", urlPatterns = {"/*"}, dispatcherTypes = {DispatcherType.REQUEST, DispatcherType.FORWARD}, asyncSupported = true)
 public class LogInFilter implements Filter
 {
+	// Paths of the static files, which don't need the session.
+	private static final String[] STATIC_PATHS = {"/css/", "/javascript/", "/images/", "/item_images/"};
+
+	@Inject
+	ManagerFactory managerFactory;
+
 	public void init(FilterConfig config) throws ServletException
 	{
 	}
@@ -25,8 +45,16 @@ public class LogInFilter implements Filter
 		// URL in lower case.
 		String url = httpServletRequest.getServletPath().toLowerCase();
 
-		// Determine if the current user is connected or not.
-		boolean connected = (httpServletRequest.getSession().getAttribute("user") != null);
+		// Static files are reachable by anyone.
+		if (isStatic(httpServletRequest.getServletPath(), httpServletRequest.getPathInfo()))
+		{
+			chain.doFilter(request, response);
+			return;
+		}
+
+		// Determine if the current user is connected or not, without creating a session.
+		SessionState state = SessionState.find(httpServletRequest.getSession(false));
+		boolean connected = ((state != null) && (state.isConnected()));
 
 		// Determine the target of the request.
 		boolean resource = (url.lastIndexOf(".jsp") != -1);
@@ -41,6 +69,35 @@ public class LogInFilter implements Filter
 		boolean redirect = (connected && (subscribe || login)) || ((!connected) && (logout || itemSell || showProfile || modifyProfile));
 
 		if (redirect) httpServletResponse.sendRedirect(httpServletRequest.getContextPath() + "/welcome");
-		else chain.doFilter(request, response);
+		else
+		{
+			// A page is displayed, so give it the state and the connected user.
+			if ((state != null) && resource) httpServletRequest.setAttribute(SessionState.ATTRIBUTE, state);
+			if (connected && resource) ControllerSupport.getUserFromSession(managerFactory, httpServletRequest);
+
+			chain.doFilter(request, response);
+		}
+	}
+
+	/**
+	 * Tell whether the target of a request is a static file.
+	 * <p>
+	 * The path within the application is made of the servlet path and of the
+	 * path info, since the servlets mapped to a folder, like the one of the
+	 * item images, only get the name of the folder as servlet path.
+	 *
+	 * @param servletPath Servlet path of the request.
+	 * @param pathInfo    Path info of the request, null if there is none.
+	 *
+	 * @return true if the session is not needed.
+	 */
+
+	static boolean isStatic(String servletPath, String pathInfo)
+	{
+		String url = (servletPath + ((pathInfo != null) ? (pathInfo) : (""))).toLowerCase();
+
+		for (String path : STATIC_PATHS) if (url.startsWith(path)) return true;
+
+		return false;
 	}
 }
@@ -1,11 +1,15 @@
 package fr.eikasus.objectsmyfriends.controller;
 
+import fr.eikasus.objectsmyfriends.misc.ControllerSupport;
+import fr.eikasus.objectsmyfriends.misc.SessionState;
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import org.jetbrains.annotations.NotNull;
 
 import javax.inject.Inject;
+import javax.servlet.DispatcherType;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -15,7 +19,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
-@WebServlet(name = "LogInServlet", value = "/login")
+@WebServlet(name = "LogInServlet", value = "/login", asyncSupported = true)
 public class LogInServlet extends HttpServlet
 {
 	/* ******************** */
@@ -51,11 +55,14 @@ public class LogInServlet extends HttpServlet
 	 * Log in a user.
 	 * <p>
 	 * This method try to connect a user whose login information are supplied in
-	 * parameter. If this user is found in the database, its instance is saved in
-	 * the session, otherwise the form is displayed again by calling the doGet
-	 * method. Once connected if the "Remember me" button is checked, his username
-	 * is saved in a cookie. The state of this button always depends on the
-	 * presence of the cookie, and vice versa. Due to the filter servlet, this
+	 * parameter. Because checking the password takes time, it is done apart and
+	 * the request is continued by this method once done. If this user is found
+	 * in the database, its instance is saved in the session, otherwise the form
+	 * is displayed again by calling the doGet method. If too many users log in
+	 * at the same time, the form is displayed again with the delay after which
+	 * to retry. Once connected if the "Remember me" button is checked, his
+	 * username is saved in a cookie. The state of this button always depends on
+	 * the presence of the cookie, and vice versa. Due to the filter servlet, this
 	 * method can't be called when a user is already connected.
 	 */
 
@@ -63,51 +70,83 @@ public class LogInServlet extends HttpServlet
 	{
 		request.setCharacterEncoding("UTF-8");
 
-		// Check if the user confirm the connexion or not.
-		if (request.getParameter("confirm") != null)
+		try
 		{
-			// Retrieve received user information.
-			String input = request.getParameter("pseudo");
-			String password = request.getParameter("password");
-			String username = null;
-			String email = null;
+			// The password is checked, so save it if hashed again and finish the
+			// connexion.
+			if (request.getDispatcherType() == DispatcherType.ASYNC)
+				logIn(request, response, managerFactory.getUserManager().upgrade(ControllerSupport.getResultWhenDone(request)));
 
-			// Determine how the user want to log in (username or email).
-			if (input.indexOf('@') >= 0) email = input;
-			else username = input;
-
-			try
+			// Check if the user confirm the connexion or not.
+			else if (request.getParameter("confirm") != null)
 			{
-				// Try to find the user in the database.
-				User user = managerFactory.getUserManager().find(username, email, password);
-
-				// Success, so save it to the user session.
-				request.getSession().setAttribute("user", user);
-
-				// Create a cookie with user entered identifier.
-				Cookie cookie = new Cookie("username", input);
-
-				// Life cookie should not exceed a few days or be null if not wanted.
-				cookie.setMaxAge((request.getParameter("rememberMe") != null) ? (USERNAME_COOKIE_AGE) : (0));
-
-				// Send the cookie to the browser.
-				response.addCookie(cookie);
-
-				// Return to the welcome page with a connected user.
-				response.sendRedirect(request.getContextPath() + "/welcome");
+				// Retrieve received user information.
+				String input = request.getParameter("pseudo");
+				String password = request.getParameter("password");
+				String username = null;
+				String email = null;
+
+				// Determine how the user want to log in (username or email).
+				if (input.indexOf('@') >= 0) email = input;
+				else username = input;
+
+				// Try to find the user in the database, and wait for his password to
+				// be checked without keeping the thread.
+				ControllerSupport.continueWhenDone(request, managerFactory.getUserManager().findAsync(username, email, password));
 			}
-			catch (ModelException me)
+			else
 			{
-				request.setAttribute("error", "error");
-
-				// Return to the connexion page and display error.
-				doGet(request, response);
+				// Return to the welcome page because the user doesn't connect to.
+				response.sendRedirect(request.getContextPath() + "/welcome");
 			}
 		}
-		else
+		catch (ModelException me)
 		{
-			// Return to the welcome page because the user doesn't connect to.
-			response.sendRedirect(request.getContextPath() + "/welcome");
+			// Too many users log in at the same time.
+			if (me.hasError(ModelError.PASSWORD_HASHER_BUSY))
+			{
+				response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+				response.setIntHeader("Retry-After", managerFactory.getUserManager().getHashingStatistics().getRetryDelay());
+				request.setAttribute("error", "busy");
+			}
+			else request.setAttribute("error", "error");
+
+			// Return to the connexion page and display error.
+			doGet(request, response);
 		}
 	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Connect a user found.
+	 *
+	 * @param request  Request to deal with.
+	 * @param response Response to send.
+	 * @param user     User found.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	private void logIn(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, User user) throws IOException
+	{
+		// Success, so save it to the user session.
+		SessionState state = SessionState.get(request);
+		state.logIn(user);
+		state.save(request);
+
+		// Create a cookie with user entered identifier.
+		Cookie cookie = new Cookie("username", request.getParameter("pseudo"));
+
+		// Life cookie should not exceed a few days or be null if not wanted.
+		cookie.setMaxAge((request.getParameter("rememberMe") != null) ? (USERNAME_COOKIE_AGE) : (0));
+
+		// Send the cookie to the browser.
+		response.addCookie(cookie);
+
+		// Return to the welcome page with a connected user.
+		response.sendRedirect(request.getContextPath() + "/welcome");
+	}
 }
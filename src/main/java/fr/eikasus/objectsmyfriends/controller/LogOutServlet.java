@@ -13,8 +13,9 @@ public class LogOutServlet extends HttpServlet
 	@Override
 	protected void doGet(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response) throws ServletException, IOException
 	{
-		// Invalidate the session to log out the user.
-		request.getSession().invalidate();
+		// Invalidate the session to log out the user, if there is one.
+		HttpSession session = request.getSession(false);
+		if (session != null) session.invalidate();
 
 		// Return to the welcome page.
 		response.sendRedirect(request.getContextPath() + "/welcome");
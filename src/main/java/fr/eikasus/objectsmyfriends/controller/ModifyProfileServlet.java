@@ -47,7 +47,7 @@ public class ModifyProfileServlet extends HttpServlet
 	{
 		// Retrieve the connected user. At this stage, there is always one because
 		// of the filter servlet.
-		User user = (User) request.getSession().getAttribute("user");
+		User user = ControllerSupport.getUserFromSession(managerFactory, request);
 
 		// Fill the form with user information.
 		request.setAttribute("username", user.getUsername());
@@ -70,7 +70,7 @@ public class ModifyProfileServlet extends HttpServlet
 
 		// Retrieve the connected user. At this stage, there is always one because
 		// of the filter servlet.
-		User user = (User) request.getSession().getAttribute("user");
+		User user = ControllerSupport.getUserFromSession(managerFactory, request);
 
 		// Check if the user confirm the update.
 		if (request.getParameter("update") != null)
@@ -111,9 +111,6 @@ public class ModifyProfileServlet extends HttpServlet
 				// Try to update the user.
 				managerFactory.getUserManager().update(user, newProperties);
 
-				// Update the current connected user.
-				request.getSession().setAttribute("user", user);
-
 				// Return to the welcome page with a connected user.
 				response.sendRedirect(request.getContextPath() + "/welcome");
 			}
@@ -0,0 +1,192 @@
+package fr.eikasus.objectsmyfriends.controller;
+
+import fr.eikasus.objectsmyfriends.misc.SessionStatistics;
+import org.jetbrains.annotations.NotNull;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class counting the sessions created per minute.
+ * <p>
+ * Sessions should only be created when a user logs in, subscribes or puts an
+ * item on sale, and not for each visitor or crawler reading the pages. This
+ * class counts them by minute over the last hour, so that the number of
+ * sessions created can be compared with the traffic. The counter is available
+ * to the whole application as a context attribute.
+ *
+ * @see #get(ServletContext)
+ * @see #getStatistics()
+ */
+
+@WebListener
+public class SessionCounter implements HttpSessionListener, ServletContextListener
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Name of the context attribute holding the counter.
+	public static final String ATTRIBUTE = "sessionCounter";
+
+	// Number of complete minutes counted.
+	public static final int MINUTES = 60;
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Minute counted by each slot, the current minute being one of them.
+	private final long[] slotMinutes = new long[MINUTES + 1];
+
+	// Number of sessions created during the minute of each slot.
+	private final long[] slotCounts = new long[MINUTES + 1];
+
+	// Number of sessions created since the start.
+	private long total;
+
+	// Number of sessions not destroyed yet.
+	private long active;
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get the counter of the application.
+	 *
+	 * @param context Context of the application.
+	 *
+	 * @return Counter, or null if not started.
+	 */
+
+	public static SessionCounter get(@NotNull ServletContext context)
+	{
+		return (SessionCounter) context.getAttribute(ATTRIBUTE);
+	}
+
+	/**
+	 * Make the counter available when the application starts.
+	 *
+	 * @param event Event supplying the context.
+	 */
+
+	@Override public void contextInitialized(@NotNull ServletContextEvent event)
+	{
+		event.getServletContext().setAttribute(ATTRIBUTE, this);
+	}
+
+	/**
+	 * Count a session created.
+	 *
+	 * @param event Event supplying the session.
+	 */
+
+	@Override public void sessionCreated(HttpSessionEvent event)
+	{
+		created(currentMinute());
+	}
+
+	/**
+	 * Count a session destroyed.
+	 *
+	 * @param event Event supplying the session.
+	 */
+
+	@Override public synchronized void sessionDestroyed(HttpSessionEvent event)
+	{
+		active--;
+	}
+
+	/**
+	 * Get the statistics of the sessions.
+	 *
+	 * @return Statistics at the current time.
+	 */
+
+	public SessionStatistics getStatistics()
+	{
+		return getStatistics(currentMinute());
+	}
+
+	/**
+	 * Count a session created during a minute.
+	 *
+	 * @param minute Minute of the creation.
+	 */
+
+	synchronized void created(long minute)
+	{
+		int slot = (int) (minute % slotMinutes.length);
+
+		// The slot counted an older minute, so start it again.
+		if (slotMinutes[slot] != minute)
+		{
+			slotMinutes[slot] = minute;
+			slotCounts[slot] = 0;
+		}
+
+		slotCounts[slot]++;
+		total++;
+		active++;
+	}
+
+	/**
+	 * Get the statistics of the sessions at a given minute.
+	 *
+	 * @param minute Current minute.
+	 *
+	 * @return Statistics at this minute.
+	 */
+
+	synchronized SessionStatistics getStatistics(long minute)
+	{
+		long window = 0, peak = 0;
+
+		// Add the complete minutes, the slots not used since being ignored.
+		for (int past = 1; past <= MINUTES; past++)
+		{
+			long count = count(minute - past);
+
+			window += count;
+			peak = Math.max(peak, count);
+		}
+
+		return new SessionStatistics(MINUTES, count(minute), count(minute - 1), peak, window, total, active);
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Give the number of sessions created during a minute.
+	 *
+	 * @param minute Minute to deal with.
+	 *
+	 * @return Sessions created, 0 if the minute is not counted anymore.
+	 */
+
+	private long count(long minute)
+	{
+		int slot = (int) (minute % slotMinutes.length);
+
+		return ((minute > 0) && (slotMinutes[slot] == minute)) ? (slotCounts[slot]) : (0);
+	}
+
+	/**
+	 * Give the current minute.
+	 *
+	 * @return Minutes since the epoch.
+	 */
+
+	private static long currentMinute()
+	{
+		return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+	}
+}
@@ -1,6 +1,7 @@
 package fr.eikasus.objectsmyfriends.controller;
 
 import fr.eikasus.objectsmyfriends.misc.ControllerSupport;
+import fr.eikasus.objectsmyfriends.misc.SessionState;
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
@@ -49,7 +50,7 @@ public class ShowProfileServlet extends HttpServlet
 		else
 		{
 			// Take the current used.
-			user = (User) request.getSession().getAttribute("user");
+			user = ControllerSupport.getUserFromSession(managerFactory, request);
 		}
 
 		// Save the user to be used by the JSP.
@@ -80,9 +81,9 @@ public class ShowProfileServlet extends HttpServlet
 	@Override protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
 	{
 		long identifier = ControllerSupport.parseLongParameter(request, "identifier");
-		User currentUser = (User) request.getSession().getAttribute("user");
+		SessionState state = SessionState.find(request.getSession(false));
 
-		if ((currentUser != null) && ((identifier == 0) || (identifier == currentUser.getIdentifier())) && (request.getParameter("modify") != null))
+		if ((state != null) && (state.isConnected()) && ((identifier == 0) || (identifier == state.getUser())) && (request.getParameter("modify") != null))
 		{
 			// The user want to modify his profile and has the right to do that.
 			response.sendRedirect(request.getContextPath() + "/modify_profile");
@@ -3,6 +3,7 @@ package fr.eikasus.objectsmyfriends.controller;
 import fr.eikasus.objectsmyfriends.misc.ControllerError;
 import fr.eikasus.objectsmyfriends.misc.ControllerException;
 import fr.eikasus.objectsmyfriends.misc.ControllerSupport;
+import fr.eikasus.objectsmyfriends.misc.SessionState;
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.misc.ModelError;
@@ -16,7 +17,7 @@ import javax.servlet.annotation.*;
 import java.io.IOException;
 import java.util.HashMap;
 
-@WebServlet(name = "SubscribeServlet", value = "/subscribe")
+@WebServlet(name = "SubscribeServlet", value = "/subscribe", asyncSupported = true)
 public class SubscribeServlet extends HttpServlet
 {
 	/* ************* */
@@ -56,6 +57,7 @@ public class SubscribeServlet extends HttpServlet
 		formParameters.put(ModelError.INVALID_USER_CITY, "city");
 		formParameters.put(ModelError.INVALID_USER_PASSWORD, "password");
 		formParameters.put(ModelError.INVALID_USER_PASSWORD_TO_LIGHT, "password");
+		formParameters.put(ModelError.PASSWORD_HASHER_BUSY, "genericError");
 		formParameters.put(ControllerError.PASSWORD_DOESNT_MATCH, "confirmPassword");
 	}
 
@@ -77,65 +79,87 @@ public class SubscribeServlet extends HttpServlet
 	 * Subscribe a user.
 	 * <p>
 	 * According to the parameters supplied, this method try to add a user in the
-	 * database. If the operation succeed, the user is automatically login and
-	 * redirected to the welcome page. If an error occurred during the process,
-	 * the doGet method is called to display the form again. Due to the filter
-	 * servlet, this method can't be called when a user is already connected.
+	 * database. Because hashing the password takes time, it is done apart and
+	 * the request is continued by this method once done. If the operation
+	 * succeed, the user is automatically login and redirected to the welcome
+	 * page. If an error occurred during the process, the doGet method is called
+	 * to display the form again. If too many users subscribe at the same time,
+	 * the form is displayed again with the delay after which to retry. Due to
+	 * the filter servlet, this method can't be called when a user is already
+	 * connected.
 	 */
 
 	@Override protected void doPost(@NotNull HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
 	{
 		request.setCharacterEncoding("UTF-8");
 
-		// Check if the user confirm the connexion or not.
-		if (request.getParameter("confirm") != null)
+		try
 		{
-			// Retrieve received user information.
-			String username = request.getParameter("username");
-			String lastName = request.getParameter("lastName");
-			String firstName = request.getParameter("firstName");
-			String email = request.getParameter("email");
-			String phoneNumber = request.getParameter("phoneNumber");
-			String street = request.getParameter("street");
-			String zipCode = request.getParameter("zipCode");
-			String city = request.getParameter("city");
-			String password = request.getParameter("password");
-			String confirmPassword = request.getParameter("confirmPassword");
-
-			try
+			// The password is hashed, so finish the subscription.
+			if (request.getDispatcherType() == DispatcherType.ASYNC)
 			{
-				if (password.compareTo(confirmPassword) != 0)
-					throw new ControllerException(null, ControllerError.PASSWORD_DOESNT_MATCH);
-
-				// Try to create a user.
-				User user = managerFactory.getUserManager().add(username, firstName, lastName, email, phoneNumber, street, zipCode, city, password, 0, false);
+				// Save the user.
+				User user = managerFactory.getUserManager().add(ControllerSupport.<User>getResultWhenDone(request));
 
 				// Success, so save it to the user session.
-				HttpSession session = request.getSession();
-				session.setAttribute("user", user);
+				SessionState state = SessionState.get(request);
+				state.logIn(user);
+				state.save(request);
 
 				// Return to the welcome page with a connected user.
 				response.sendRedirect(request.getContextPath() + "/welcome");
 			}
-			catch (ModelException | ControllerException exc)
+
+			// Check if the user confirm the connexion or not.
+			else if (request.getParameter("confirm") != null)
 			{
-				// Transform parameters to attributes for saving the form.
-				ControllerSupport.saveForm(request, formParameters);
+				// Retrieve received user information.
+				String username = request.getParameter("username");
+				String lastName = request.getParameter("lastName");
+				String firstName = request.getParameter("firstName");
+				String email = request.getParameter("email");
+				String phoneNumber = request.getParameter("phoneNumber");
+				String street = request.getParameter("street");
+				String zipCode = request.getParameter("zipCode");
+				String city = request.getParameter("city");
+				String password = request.getParameter("password");
+				String confirmPassword = request.getParameter("confirmPassword");
 
-				// Put the error in the form.
-				if (exc instanceof ModelException)
-					ControllerSupport.putFormError((ModelException) exc, request, formParameters);
-				else
-					ControllerSupport.putFormError((ControllerException) exc, request, formParameters);
+				if (password.compareTo(confirmPassword) != 0)
+					throw new ControllerException(null, ControllerError.PASSWORD_DOESNT_MATCH);
 
-				// Return to the profile creation page and display errors.
-				doGet(request, response);
+				// Try to create a user, and wait for his password to be hashed without
+				// keeping the thread.
+				ControllerSupport.continueWhenDone(request, managerFactory.getUserManager().prepare(username, firstName, lastName, email, phoneNumber, street, zipCode, city, password, 0, false));
+			}
+			else
+			{
+				// Return to the welcome page because the user doesn't create a profile.
+				response.sendRedirect(request.getContextPath() + "/welcome");
 			}
 		}
-		else
+		catch (ModelException | ControllerException exc)
 		{
-			// Return to the welcome page because the user doesn't create a profile.
-			response.sendRedirect(request.getContextPath() + "/welcome");
+			// Transform parameters to attributes for saving the form.
+			ControllerSupport.saveForm(request, formParameters);
+
+			// Put the error in the form.
+			if (exc instanceof ModelException)
+			{
+				// Too many users subscribe at the same time.
+				if (((ModelException) exc).hasError(ModelError.PASSWORD_HASHER_BUSY))
+				{
+					response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+					response.setIntHeader("Retry-After", managerFactory.getUserManager().getHashingStatistics().getRetryDelay());
+				}
+
+				ControllerSupport.putFormError((ModelException) exc, request, formParameters);
+			}
+			else
+				ControllerSupport.putFormError((ControllerException) exc, request, formParameters);
+
+			// Return to the profile creation page and display errors.
+			doGet(request, response);
 		}
 	}
 }
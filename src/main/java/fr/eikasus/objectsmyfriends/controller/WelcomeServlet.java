@@ -2,12 +2,15 @@ package fr.eikasus.objectsmyfriends.controller;
 
 import com.google.gson.Gson;
 import com.mysql.cj.protocol.a.NativeConstants;
-import com.sun.deploy.net.HttpRequest;
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bo.Category;
-import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.misc.ControllerSupport;
+import fr.eikasus.objectsmyfriends.misc.SessionState;
+import fr.eikasus.objectsmyfriends.misc.ThumbnailGenerator;
+import fr.eikasus.objectsmyfriends.model.bo.ItemCardView;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import fr.eikasus.objectsmyfriends.model.misc.Page;
 import fr.eikasus.objectsmyfriends.model.misc.Search;
 import fr.eikasus.objectsmyfriends.model.misc.UserRole;
 import org.apache.commons.lang3.StringUtils;
@@ -46,6 +49,14 @@ public class WelcomeServlet extends HttpServlet
 
 	private final String SEARCH_TYPE = "searchType";
 
+	private final String PAGE = "page";
+
+	// Header containing the token of the page following the one sent.
+	private final String NEXT_PAGE_HEADER = "X-Next-Page";
+
+	// Number of items sent at once.
+	private final int PAGE_SIZE = 24;
+
 	private final String[] knownParams = {CATEGORY, KEYWORDS, OPENED_BIDS, CURRENT_BIDS, WON_BIDS, MY_CURRENT_SALES, MY_PENDING_SALES, MY_ENDED_SALES, SEARCH_TYPE};
 
 	@Inject ManagerFactory managerFactory;
@@ -57,13 +68,23 @@ public class WelcomeServlet extends HttpServlet
 		String requestedCategory;
 		Category category;
 		List<Category> categories;
+		Page<ItemCardView> page;
+
+		// Token of the requested page, null for the first one.
+		String pageToken = request.getParameter(PAGE);
 
 		// Connected user.
-		User user = (User) request.getSession().getAttribute("user");
+		User user = ControllerSupport.getUserFromSession(managerFactory, request);
 
 		// No item is currently selected. This is necessary for the image handler.
-		request.getSession().removeAttribute("item");
-		request.getSession().removeAttribute("itemImages");
+		// The images uploaded for the item are given up.
+		SessionState state = SessionState.find(request.getSession(false));
+
+		if (state != null)
+		{
+			ControllerSupport.releaseUploadedImages(managerFactory, request, state.getImages());
+			if (state.clearItem()) state.save(request);
+		}
 
 		// Read parameters from request ok cookie.
 		readCriteriaSearch(request, response);
@@ -92,12 +113,29 @@ public class WelcomeServlet extends HttpServlet
 			if (requestedCategory == null) category = null;
 			else category = categories.stream().filter(c -> StringUtils.equalsIgnoreCase(c.getLabel(), requestedCategory)).findFirst().orElse(null);
 
-			request.setAttribute("items", managerFactory.getItemManager().findByCriteria(user, role, searchOptions, category, (String) request.getAttribute(KEYWORDS)));
+			page = managerFactory.getItemManager().findCardsByCriteria(user, role, searchOptions, category, (String) request.getAttribute(KEYWORDS), pageToken, PAGE_SIZE);
+
+			request.setAttribute("items", page.getEntities());
+			request.setAttribute("nextPage", page.getNextToken());
 			//request.setAttribute("items", managerFactory.getItemManager().find(null));
 		}
 		catch (ModelException e)
 		{
-			request.setAttribute("items", new ArrayList<Item>());
+			request.setAttribute("items", new ArrayList<ItemCardView>());
+		}
+
+		// Base of the thumbnail urls, the cards only knowing the image paths.
+		request.setAttribute("imagesUrl", ControllerSupport.getUrlThumbnail(request, "", ThumbnailGenerator.Size.CARD));
+
+		// If a next page is requested, only the item cards are sent.
+		if (pageToken != null)
+		{
+			// The token of the page following this one is sent apart.
+			if (request.getAttribute("nextPage") != null) response.setHeader(NEXT_PAGE_HEADER, (String) request.getAttribute("nextPage"));
+
+			request.getRequestDispatcher("WEB-INF/itemcards.jsp").forward(request, response);
+
+			return;
 		}
 
 		// Go to the welcome page => take search options into account.
@@ -135,7 +173,7 @@ public class WelcomeServlet extends HttpServlet
 		Gson gson = new Gson();
 
 		// Connected user.
-		User user = (User) request.getSession().getAttribute("user");
+		User user = ControllerSupport.getUserFromSession(managerFactory, request);
 
 		// See if known parameters are received from the request.
 		for (String knownParam : knownParams)
@@ -2,7 +2,6 @@ package fr.eikasus.objectsmyfriends.misc;
 
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bll.interfaces.ImageManager;
-import fr.eikasus.objectsmyfriends.model.bo.Image;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.misc.ModelError;
@@ -10,16 +9,20 @@ import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.Part;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
  * Class used to simplify handling HTML form.
@@ -29,9 +32,13 @@ import java.util.List;
  * method for simplify error handling in forms.
  *
  * @see #addUploadedImagesToItem(ManagerFactory, HttpServletRequest, Item, List)
+ * @see #releaseUploadedImages(ManagerFactory, HttpServletRequest, List)
  * @see #loadImage(HttpServletRequest, String)
  * @see #getUrlImage(HttpServletRequest, String)
+ * @see #getUrlThumbnail(HttpServletRequest, String, ThumbnailGenerator.Size)
  * @see #getUrlImageHandler(HttpServletRequest)
+ * @see #getImagePath(HttpServletRequest)
+ * @see #getImageStore(HttpServletRequest)
  * @see #getUrlServlet(HttpServletRequest, String)
  * @see #parseDateParameter(HttpServletRequest, String)
  * @see #parseIntegerParameter(HttpServletRequest, String)
@@ -41,6 +48,8 @@ import java.util.List;
  * @see #putFormError(ControllerException, HttpServletRequest, HashMap)
  * @see #getUserFromSession(ManagerFactory, HttpServletRequest)
  * @see #getItemFromSession(ManagerFactory, HttpServletRequest)
+ * @see #continueWhenDone(HttpServletRequest, CompletableFuture)
+ * @see #getResultWhenDone(HttpServletRequest)
  */
 
 public class ControllerSupport
@@ -53,12 +62,20 @@ public class ControllerSupport
 
 	private static final String IMAGE_HANDLER_NAME = "image_handler";
 
+	// Request attribute holding the result of a work the request waited for.
+	private static final String ASYNC_RESULT = "asyncResult";
+
+	// Request attribute holding the connected user, read from the session.
+	public static final String CONNECTED_USER = "connectedUser";
+
 	/* ************* */
 	/* Class members */
 	/* ************* */
 
 	private static String imagePath = null;
 
+	private static ImageStore imageStore = null;
+
 	/* *************************** */
 	/* Constructors and instancier */
 	/* *************************** */
@@ -80,13 +97,11 @@ public class ControllerSupport
 	 * Add images to the item.
 	 * <p>
 	 * This method add the supplied images to the item. The images list only
-	 * contain file names and those files should be present in the local storage.
-	 * When each image is successfully added to the item, its corresponding image
-	 * file is prefixed by the u letter to indicate that this file is pointed to.
-	 * Then, in a maintenance process, all image file that aren't prefixed can
-	 * then be deleted. If an error occur during the process, all remaining files
-	 * are deleted. If something goes wrong during the process, no error is
-	 * returned.
+	 * contain file names and those files should be present in the image store.
+	 * The images are added at once, and removed from the list if they are. The
+	 * images stay held by the store until they are released, when the session
+	 * forgets them, which deletes those that could not be added. If something
+	 * goes wrong during the process, no error is returned.
 	 *
 	 * @param managerFactory Instance of the manager factory to use.
 	 * @param request        Request used to get context.
@@ -94,75 +109,60 @@ public class ControllerSupport
 	 * @param uploadedImages Images to add to the item.
 	 */
 
-	@SuppressWarnings("ResultOfMethodCallIgnored")
 	public static void addUploadedImagesToItem(@NotNull ManagerFactory managerFactory, @NotNull HttpServletRequest request, @NotNull Item item, List<String> uploadedImages)
 	{
 		ImageManager imageManager = managerFactory.getImageManager();
-		String imagePath = getImagePath(request);
-		Iterator<String> imagesIterator;
-		File oldFile, newFile;
-		Image image;
-		String currentName;
+		ImageStore store = getImageStore(request);
+		List<String> names;
 
 		// If no image file is supplied, do nothing.
-		if (uploadedImages == null) return;
+		if ((uploadedImages == null) || (store == null)) return;
 
 		try
 		{
-			// Iterator used to parse the collection.
-			imagesIterator = uploadedImages.iterator();
-
-			// For each file in the list.
-			while (imagesIterator.hasNext())
-			{
-				// File name to deal with.
-				currentName = imagesIterator.next();
+			// The images refused after their upload are left aside.
+			names = uploadedImages.stream().filter(name -> Files.isRegularFile(store.resolve(name))).collect(Collectors.toList());
 
-				// Add the image to the item.
-				image = imageManager.add(item, "u" + currentName);
+			// Add the images to the item.
+			if (!names.isEmpty()) imageManager.add(item, names);
 
-				// Remove the file to the list to avoid deletion later.
-				imagesIterator.remove();
-
-				// Current file name.
-				oldFile = new File(imagePath + currentName);
-
-				// File will be prefixed because it is now used.
-				newFile = new File(imagePath + "u" + currentName);
-
-				// Rename the file.
-				if (!oldFile.renameTo(newFile))
-				{
-					// Remove the image from the item.
-					imageManager.delete(image);
-
-					// stop the process
-					break;
-				}
-			}
+			// Remove the files from the list, they are now used.
+			uploadedImages.removeAll(names);
 		}
 		catch (Exception e)
 		{
 			// Do nothing.
 		}
+	}
 
-		// Iterator used to parse the collection.
-		imagesIterator = uploadedImages.iterator();
-
-		// Delete the remaining files if they exist.
-		while (imagesIterator.hasNext())
-		{
-			// File name to deal with.
-			currentName = imagesIterator.next();
+	/**
+	 * Release the images uploaded.
+	 * <p>
+	 * This method is called when the session forgets the images uploaded, once
+	 * they are added to the item or given up. The images to which no image of
+	 * the database points are deleted. If something goes wrong during the
+	 * process, no error is returned, the files being left for the maintenance
+	 * process.
+	 *
+	 * @param managerFactory Instance of the manager factory to use.
+	 * @param request        Request used to get context.
+	 * @param uploadedImages Images uploaded.
+	 */
 
-			// Current name.
-			oldFile = new File(imagePath + currentName);
+	public static void releaseUploadedImages(@NotNull ManagerFactory managerFactory, @NotNull HttpServletRequest request, @NotNull List<String> uploadedImages)
+	{
+		ImageStore store = getImageStore(request);
 
-			// Delete the file from the local storage.
-			oldFile.delete();
+		// Nothing to release.
+		if ((uploadedImages.isEmpty()) || (store == null)) return;
 
-			// Done with this file.
-			imagesIterator.remove();
+		try
+		{
+			store.release(uploadedImages, managerFactory.getImageManager());
+		}
+		catch (ModelException me)
+		{
+			// Do nothing.
 		}
 	}
 
@@ -171,7 +171,10 @@ public class ControllerSupport
 	 * <p>
 	 * This method retrieve an image sent via the multipart/form-data request and
 	 * store it in the location returned by the {@code getImagePath} method. Only
-	 * jpg and png file formats are allowed.
+	 * jpg and png file formats are allowed. The image is kept by the image store
+	 * under the name of its content, so that two uploads never overwrite each
+	 * other and the same image sent twice is only stored once. Its format is
+	 * checked and its thumbnails are made in the background.
 	 *
 	 * @param request   Request in which the file was received.
 	 * @param paramName Name of the parameter containing the file
@@ -183,12 +186,12 @@ public class ControllerSupport
 
 	public static @NotNull String loadImage(@NotNull HttpServletRequest request, @NotNull String paramName) throws Exception
 	{
-		int extPos, bytesRed;
-		byte[] bytes = new byte[1024];
+		int extPos;
 
 		Part filePart = request.getPart(paramName);
 
-		String fileIdPart, destName, contentType;
+		String destName, contentType;
+		ImageStore store;
 		String fileName = filePart.getSubmittedFileName();
 
 		// If no name is defined.
@@ -207,21 +210,25 @@ public class ControllerSupport
 		contentType = filePart.getContentType();
 
 		// Only jpg and png file formats are allowed.
-		if ((contentType.compareTo("image/jpeg") != 0) && (contentType.compareTo("image/png") != 0))
+		if ((contentType == null) || ((contentType.compareTo("image/jpeg") != 0) && (contentType.compareTo("image/png") != 0)))
 			throw new Exception();
 
-		// The destination file name is formed with the current date.
-		fileIdPart = String.format("%d", (new Date()).getTime());
+		// Don't read a file announced too big.
+		if (filePart.getSize() > ImageStore.MAX_IMAGE_SIZE) throw new Exception();
 
-		// Destination name of the image.
-		destName = fileIdPart + fileName.substring(extPos);
+		// Store receiving the images.
+		if ((store = getImageStore(request)) == null) throw new Exception();
 
-		try (FileOutputStream fileOutputStream = new FileOutputStream(getImagePath(request) + destName); InputStream inputStream = filePart.getInputStream())
+		// Store the image under the name of its content.
+		try (InputStream inputStream = filePart.getInputStream())
 		{
-			while ((bytesRed = inputStream.read(bytes)) != -1)
-				fileOutputStream.write(bytes, 0, bytesRed);
+			destName = store.store(inputStream, fileName.substring(extPos));
 		}
 
+		// Check the format and make the thumbnails of the image in the background.
+		ThumbnailGenerator thumbnailGenerator = ThumbnailGenerator.get(request.getServletContext());
+		if (thumbnailGenerator != null) thumbnailGenerator.submit(store.getFolder().toString(), ImageStore.locate(destName), true);
+
 		// Return the file name crated.
 		return destName;
 	}
@@ -249,6 +256,25 @@ public class ControllerSupport
 		return urlBase + IMAGES_PATH + fileName;
 	}
 
+	/**
+	 * Compute the url of a thumbnail of an image.
+	 * <p>
+	 * This method is used like {@code getUrlImage()}, for the pages showing the
+	 * images smaller than they are. A thumbnail not made yet is replaced by its
+	 * image when asked for.
+	 *
+	 * @param request  Request needed to retrieve context.
+	 * @param fileName Name of the image file.
+	 * @param size     Size of the thumbnail.
+	 *
+	 * @return Url to the thumbnail.
+	 */
+
+	public static @NotNull String getUrlThumbnail(@NotNull HttpServletRequest request, @NotNull String fileName, @NotNull ThumbnailGenerator.Size size)
+	{
+		return getUrlImage(request, size.getFolder() + "/" + fileName);
+	}
+
 	/**
 	 * Compute the url of the image handler.
 	 * <p>
@@ -455,35 +481,38 @@ public class ControllerSupport
 	/**
 	 * Read the user stored in the session.
 	 * <p>
-	 * This method read the user that is stored in a session attribute. Because
-	 * the hibernate session was closed after the user was saved in a previous
-	 * http request, it is necessary to read it again from the database, because
-	 * it is not in the persistence context anymore. No exception is generated and
-	 * null is returned if none is found or in case of problem.
+	 * This method read the user whose identifier is stored in the session
+	 * state. Because the user may have been changed by another http request
+	 * since he logged in, he is read again by the user manager, which only reads
+	 * him from the database if he was changed. He is then kept in the request
+	 * attribute "connectedUser", used by the JSPs, and read only once for the
+	 * request. No exception is generated and null is returned if none is found
+	 * or in case of problem.
 	 *
 	 * @param managerFactory Instance of the manager factpry to use.
 	 * @param request        Request to deal with.
 	 *
-	 * @return User found and present in the persistence context or null if none.
+	 * @return Current state of the user or null if none.
 	 */
 
 	public static User getUserFromSession(ManagerFactory managerFactory, @NotNull HttpServletRequest request)
 	{
-		// Retrieve the user from the request.
-		User user = (User) request.getSession().getAttribute("user");
+		// Retrieve the user already read for the request.
+		User user = (User) request.getAttribute(CONNECTED_USER);
+
+		// Retrieve the state of the session.
+		SessionState state = SessionState.find(request.getSession(false));
 
 		try
 		{
-			// If a user is found, read-it again from the database and update his
-			// session attribute or do nothing if it doesn't exist in the database
-			// yet.
-			if ( (user != null) && (user.getIdentifier() != 0) )
+			// If a user is connected, read-it again and save it for the request.
+			if ( (user == null) && (state != null) && (state.isConnected()) )
 			{
-				// Read the user by its identifier.
-				user = managerFactory.getUserManager().find(user.getIdentifier()).get(0);
+				// Read the user again if he was changed.
+				user = managerFactory.getUserManager().refresh(state.getUser());
 
-				// Update his corresponding session attribute.
-				request.setAttribute("user", user);
+				// Update his corresponding request attribute.
+				request.setAttribute(CONNECTED_USER, user);
 			}
 		}
 		catch (ModelException me)
@@ -498,11 +527,12 @@ public class ControllerSupport
 	/**
 	 * Read the item stored in the session.
 	 * <p>
-	 * This method read the item that is stored in a session attribute. Because
-	 * the hibernate session was closed after the item was saved in a previous
-	 * http request, it is necessary to read it again from the database, because
-	 * it is not in the persistence context anymore. No exception is generated and
-	 * null is returned if none is found or in case of problem.
+	 * This method read the item whose identifier is stored in the session
+	 * state, that is the item being edited or bid on. Because only its
+	 * identifier is kept between http requests, it is read again from the
+	 * database and kept in the request attribute "item" for the JSPs. No
+	 * exception is generated and null is returned if none is found or in case of
+	 * problem.
 	 *
 	 * @param managerFactory Instance of the manager factpry to use.
 	 * @param request        Request to deal with.
@@ -512,20 +542,21 @@ public class ControllerSupport
 
 	public static Item getItemFromSession(ManagerFactory managerFactory, @NotNull HttpServletRequest request)
 	{
-		// Retrieve the item from the request.
-		Item item = (Item) request.getSession().getAttribute("item");
+		Item item = null;
+
+		// Retrieve the state of the session.
+		SessionState state = SessionState.find(request.getSession(false));
 
 		try
 		{
 			// If an item is found, read-it again from the database and update his
-			// session attribute or do nothing if it doesn't exist in the database
-			// yet.
-			if ( (item != null) && (item.getIdentifier() != 0) )
+			// request attribute.
+			if ( (state != null) && (state.getItem() != 0) )
 			{
 				// Read the item by its identifier.
-				item = managerFactory.getItemManager().find(item.getIdentifier()).get(0);
+				item = managerFactory.getItemManager().find(state.getItem()).get(0);
 
-				// Update his corresponding session attribute.
+				// Update his corresponding request attribute.
 				request.setAttribute("item", item);
 			}
 		}
@@ -538,6 +569,60 @@ public class ControllerSupport
 		return item;
 	}
 
+	/**
+	 * Continue a request once a work is done.
+	 * <p>
+	 * This method releases the thread handling the request until the supplied
+	 * work is done, so that it can handle other requests meanwhile. Once done,
+	 * the request is given again to the same servlet, with a dispatcher type of
+	 * ASYNC, which reads the result of the work by {@code getResultWhenDone()}.
+	 * The servlet, and the filters before it, must support asynchronous
+	 * requests.
+	 *
+	 * @param request Request to deal with.
+	 * @param future  Future result of the work.
+	 */
+
+	public static void continueWhenDone(@NotNull HttpServletRequest request, @NotNull CompletableFuture<?> future)
+	{
+		AsyncContext asyncContext = request.startAsync();
+
+		future.whenComplete((result, exception) ->
+		{
+			// Keep the result or the exception for the servlet.
+			asyncContext.getRequest().setAttribute(ASYNC_RESULT, (exception != null) ? (exception) : (result));
+
+			// And give it the request again.
+			asyncContext.dispatch();
+		});
+	}
+
+	/**
+	 * Read the result of a work the request waited for.
+	 *
+	 * @param request Request to deal with.
+	 * @param <T>     Type of the result.
+	 *
+	 * @return Result of the work.
+	 *
+	 * @throws ModelException The exception thrown by the work.
+	 */
+
+	@SuppressWarnings("unchecked")
+	public static <T> T getResultWhenDone(@NotNull HttpServletRequest request) throws ModelException
+	{
+		Object result = request.getAttribute(ASYNC_RESULT);
+
+		// Exceptions may be wrapped by the future.
+		if (result instanceof CompletionException) result = ((CompletionException) result).getCause();
+
+		if (result instanceof ModelException) throw (ModelException) result;
+
+		if (result instanceof Exception) throw new ModelException((Exception) result, ModelError.UNKNOWN_ERROR_CODE);
+
+		return (T) result;
+	}
+
 	/* ************** */
 	/* Helper methods */
 	/* ************** */
@@ -580,10 +665,10 @@ public class ControllerSupport
 	 *
 	 * @param request Request used to access context.
 	 *
-	 * @return Path to the item images.
+	 * @return Path to the item images, or null if it can't be created.
 	 */
 
-	private static synchronized String getImagePath(HttpServletRequest request)
+	public static synchronized String getImagePath(@NotNull HttpServletRequest request)
 	{
 		if (imagePath == null)
 		{
@@ -603,4 +688,24 @@ public class ControllerSupport
 		// Location to put the uploaded item images.
 		return imagePath;
 	}
+
+	/**
+	 * Give the store of the item images.
+	 * <p>
+	 * The store keeps the images in the folder returned by the
+	 * {@code getImagePath} method.
+	 *
+	 * @param request Request used to access context.
+	 *
+	 * @return Store of the item images, or null if its folder can't be created.
+	 */
+
+	public static synchronized ImageStore getImageStore(@NotNull HttpServletRequest request)
+	{
+		String folder = getImagePath(request);
+
+		if ((imageStore == null) && (folder != null)) imageStore = new ImageStore(Paths.get(folder));
+
+		return imageStore;
+	}
 }
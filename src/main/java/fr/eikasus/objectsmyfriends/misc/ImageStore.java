@@ -0,0 +1,331 @@
+package fr.eikasus.objectsmyfriends.misc;
+
+import fr.eikasus.objectsmyfriends.model.bll.interfaces.ImageManager;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Class storing the item image files under the digest of their content.
+ * <p>
+ * An uploaded image is named after the SHA-256 digest of its content followed
+ * by its extension, so that the same image sent again, even by another seller,
+ * is only stored once. The files are spread over two levels of folders named
+ * after the first characters of their digest, so that no folder holds too many
+ * files. The images stored before keep their name at the root of the folder.
+ * The urls of the images don't show those folders, which are found again from
+ * the name by the item image servlet.
+ * <p>
+ * An image file is shared by all the images of the database having its name as
+ * path, and is deleted when none of them is left. An uploaded image not yet
+ * attached to an item is held by the store meanwhile, so that it is not
+ * deleted because another user gave up the same image.
+ *
+ * @see #store(InputStream, String)
+ * @see #locate(String)
+ * @see #resolve(String)
+ * @see #release(Collection, ImageManager)
+ * @see #collect(ImageManager)
+ */
+
+public class ImageStore
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Maximum size of an uploaded image.
+	public static final long MAX_IMAGE_SIZE = 8L * 1024 * 1024;
+
+	// Size of the buffer an uploaded image is streamed through.
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	// Name of an image stored under the digest of its content.
+	private static final Pattern NAME = Pattern.compile("^[0-9a-f]{64}\\.[a-z]{3}$");
+
+	// Name of a folder spreading the images.
+	private static final Pattern FOLDER = Pattern.compile("^[0-9a-f]{2}$");
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Direct buffer of each thread receiving images.
+	private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+	// Folder of the images.
+	private final Path folder;
+
+	// Number of uploads holding each image not attached yet.
+	private final Map<String, Integer> holds = new HashMap<>();
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Constructor of the class.
+	 *
+	 * @param folder Folder of the images.
+	 */
+
+	public ImageStore(@NotNull Path folder)
+	{
+		this.folder = folder;
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Give the folder of the images.
+	 *
+	 * @return Folder of the images.
+	 */
+
+	public @NotNull Path getFolder()
+	{
+		return folder;
+	}
+
+	/**
+	 * Give the place of an image file in the folder of the images.
+	 *
+	 * @param name Name of the image file, as stored in the database.
+	 *
+	 * @return Path of the file relative to the folder of the images.
+	 */
+
+	public static @NotNull String locate(@NotNull String name)
+	{
+		return (NAME.matcher(name).matches()) ? (name.substring(0, 2) + "/" + name.substring(2, 4) + "/" + name) : (name);
+	}
+
+	/**
+	 * Give the path of an image file.
+	 *
+	 * @param name Name of the image file, as stored in the database.
+	 *
+	 * @return Path of the file, which may not exist.
+	 */
+
+	public @NotNull Path resolve(@NotNull String name)
+	{
+		return folder.resolve(locate(name));
+	}
+
+	/**
+	 * Store an uploaded image.
+	 * <p>
+	 * The image is streamed through a direct buffer of the thread into a
+	 * temporary file, its digest being computed on the way, then moved to its
+	 * place. The copy stops as soon as the image is too big. If the same image is
+	 * already stored, the copy is dropped. The image is held until it is
+	 * released.
+	 *
+	 * @param in        Stream supplying the image.
+	 * @param extension Extension of the image file, with its dot.
+	 *
+	 * @return Name of the image file.
+	 *
+	 * @throws IOException In case of problem, or if the image is empty or too big.
+	 */
+
+	public @NotNull String store(@NotNull InputStream in, @NotNull String extension) throws IOException
+	{
+		MessageDigest digest;
+		ByteBuffer buffer = buffers.get();
+		long size = 0;
+
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IOException(e);
+		}
+
+		Path temporary = Files.createTempFile(folder, "upload", ".tmp");
+
+		try
+		{
+			try (ReadableByteChannel source = Channels.newChannel(in); FileChannel target = FileChannel.open(temporary, StandardOpenOption.WRITE))
+			{
+				buffer.clear();
+
+				while (source.read(buffer) != -1)
+				{
+					buffer.flip();
+
+					// The image is refused as soon as it is too big.
+					if ((size += buffer.remaining()) > MAX_IMAGE_SIZE) throw new IOException("Image too big");
+
+					// The digest consumes the bytes, which are then written.
+					digest.update(buffer);
+					buffer.rewind();
+
+					while (buffer.hasRemaining()) target.write(buffer);
+
+					buffer.clear();
+				}
+			}
+
+			// Nothing was sent.
+			if (size == 0) throw new IOException("Empty image");
+
+			StringBuilder name = new StringBuilder();
+			for (byte b : digest.digest()) name.append(String.format("%02x", b));
+			name.append(extension.toLowerCase());
+
+			Path destination = resolve(name.toString());
+			Files.createDirectories(destination.getParent());
+
+			synchronized (this)
+			{
+				// The same image is already stored.
+				if (!Files.exists(destination)) Files.move(temporary, destination, StandardCopyOption.ATOMIC_MOVE);
+
+				holds.merge(name.toString(), 1, Integer::sum);
+			}
+
+			return name.toString();
+		}
+		finally
+		{
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Release uploaded images.
+	 * <p>
+	 * This method is called when the images uploaded by a user are attached to
+	 * an item or given up. Each image which is not held anymore and to which no
+	 * image of the database points is deleted, with its thumbnails.
+	 *
+	 * @param names        Names of the image files.
+	 * @param imageManager Manager counting the images pointing to the files.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public synchronized void release(@NotNull Collection<String> names, @NotNull ImageManager imageManager) throws ModelException
+	{
+		for (String name : names)
+			holds.computeIfPresent(name, (key, count) -> (count > 1) ? (count - 1) : (null));
+
+		purge(names, imageManager);
+	}
+
+	/**
+	 * Delete the image files no image points to.
+	 * <p>
+	 * This method is a maintenance process, deleting the images left by the
+	 * items deleted and by the uploads never released, such as those of the
+	 * sessions which expired before the application was stopped.
+	 *
+	 * @param imageManager Manager counting the images pointing to the files.
+	 *
+	 * @return Number of files deleted.
+	 *
+	 * @throws IOException    In case of problem while reading the folder.
+	 * @throws ModelException In case of problem.
+	 */
+
+	public int collect(@NotNull ImageManager imageManager) throws IOException, ModelException
+	{
+		List<String> names;
+
+		// Only the images stored under their digest are looked for.
+		try (Stream<Path> paths = Files.walk(folder, 3))
+		{
+			names = paths.filter(path -> isStored(folder.relativize(path))).map(path -> path.getFileName().toString()).collect(Collectors.toList());
+		}
+
+		synchronized (this)
+		{
+			return purge(names, imageManager);
+		}
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Delete the images not held to which no image of the database points.
+	 *
+	 * @param names        Names of the image files.
+	 * @param imageManager Manager counting the images pointing to the files.
+	 *
+	 * @return Number of files deleted.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	private int purge(@NotNull Collection<String> names, @NotNull ImageManager imageManager) throws ModelException
+	{
+		int deleted = 0;
+
+		// The images stored before are never deleted.
+		Set<String> candidates = names.stream().filter(name -> (NAME.matcher(name).matches()) && (!holds.containsKey(name))).collect(Collectors.toSet());
+
+		// Nothing to check.
+		if (candidates.isEmpty()) return deleted;
+
+		Map<String, Long> references = imageManager.countReferences(candidates);
+
+		for (String name : candidates)
+		{
+			if (references.getOrDefault(name, 0L) != 0) continue;
+
+			try
+			{
+				if (Files.deleteIfExists(resolve(name))) deleted++;
+			}
+			catch (IOException e)
+			{
+				// Left for the next maintenance process.
+			}
+
+			ThumbnailGenerator.delete(folder.toString(), locate(name));
+		}
+
+		return deleted;
+	}
+
+	/**
+	 * Tell whether a file is an image stored under its digest.
+	 *
+	 * @param relative Path of the file relative to the folder of the images.
+	 *
+	 * @return true if the file is in the folders of its digest.
+	 */
+
+	private static boolean isStored(@NotNull Path relative)
+	{
+		if (relative.getNameCount() != 3) return false;
+
+		String name = relative.getFileName().toString();
+
+		return (FOLDER.matcher(relative.getName(0).toString()).matches()) && (NAME.matcher(name).matches()) && (locate(name).equals(relative.toString().replace('\\', '/')));
+	}
+}
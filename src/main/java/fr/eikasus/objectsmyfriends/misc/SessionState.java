@@ -0,0 +1,263 @@
+package fr.eikasus.objectsmyfriends.misc;
+
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import org.jetbrains.annotations.NotNull;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class representing what is kept in the session of a user.
+ * <p>
+ * Only the identifiers of the connected user and of the item being edited or
+ * bid on are kept, with the names of the images uploaded but not saved yet.
+ * Entities are read again through the managers when a request needs them,
+ * which costs nothing for the connected user who is kept in memory by the user
+ * manager. This keeps the session small, so that it can be saved or sent to
+ * another server at low cost, with an encoding of its own instead of the
+ * default serialization of the entities.
+ * <p>
+ * A session can be used by several requests at the same time, so the methods
+ * of this class are synchronized.
+ *
+ * @see #get(HttpServletRequest)
+ * @see #find(HttpSession)
+ * @see #logIn(User)
+ * @see #setItem(long)
+ * @see #addImage(String)
+ * @see #clearItem()
+ */
+
+public class SessionState implements Externalizable
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	private static final long serialVersionUID = 1L;
+
+	// Name of the session attribute holding the state.
+	public static final String ATTRIBUTE = "state";
+
+	// Version of the encoding, written first.
+	private static final byte ENCODING_VERSION = 1;
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Identifier of the connected user, 0 if none.
+	private long user;
+
+	// Whether the connected user is an administrator.
+	private boolean admin;
+
+	// Identifier of the item being edited or bid on, 0 if none.
+	private long item;
+
+	// Names of the images uploaded for the item, not saved yet.
+	private final List<String> images = new ArrayList<>();
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create an empty state, also used to decode a state.
+	 */
+
+	public SessionState()
+	{
+	}
+
+	/**
+	 * Get the state of the session of a request.
+	 * <p>
+	 * The session and its state are created if they don't exist yet.
+	 *
+	 * @param request Request to deal with.
+	 *
+	 * @return State of the session.
+	 */
+
+	public static SessionState get(@NotNull HttpServletRequest request)
+	{
+		HttpSession session = request.getSession();
+		SessionState state = find(session);
+
+		// The first time, create it.
+		if (state == null) session.setAttribute(ATTRIBUTE, (state = new SessionState()));
+
+		return state;
+	}
+
+	/**
+	 * Find the state of a session.
+	 *
+	 * @param session Session to deal with, may be null.
+	 *
+	 * @return State of the session, or null if none.
+	 */
+
+	public static SessionState find(HttpSession session)
+	{
+		return (session != null) ? ((SessionState) session.getAttribute(ATTRIBUTE)) : (null);
+	}
+
+	/* *************** */
+	/* Getters/setters */
+	/* *************** */
+
+	public synchronized long getUser()
+	{
+		return user;
+	}
+
+	public synchronized boolean isConnected()
+	{
+		return (user != 0);
+	}
+
+	public synchronized boolean isAdmin()
+	{
+		return admin;
+	}
+
+	public synchronized long getItem()
+	{
+		return item;
+	}
+
+	public synchronized void setItem(long item)
+	{
+		this.item = item;
+	}
+
+	public synchronized List<String> getImages()
+	{
+		return new ArrayList<>(images);
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Connect a user.
+	 *
+	 * @param user User connected.
+	 */
+
+	public synchronized void logIn(@NotNull User user)
+	{
+		this.user = user.getIdentifier();
+		this.admin = user.isAdmin();
+	}
+
+	/**
+	 * Add an image uploaded for the item.
+	 * <p>
+	 * The images being named after their content, an image sent again is only
+	 * kept once.
+	 *
+	 * @param name Name of the image file.
+	 *
+	 * @return true if the image was not already there.
+	 */
+
+	public synchronized boolean addImage(@NotNull String name)
+	{
+		if (images.contains(name)) return false;
+
+		images.add(name);
+
+		return true;
+	}
+
+	/**
+	 * Forget the item and its images.
+	 *
+	 * @return true if there was something to forget.
+	 */
+
+	public synchronized boolean clearItem()
+	{
+		boolean changed = ((item != 0) || (!images.isEmpty()));
+
+		item = 0;
+		images.clear();
+
+		return changed;
+	}
+
+	/**
+	 * Save the state into a session.
+	 * <p>
+	 * This method must be called after the state is changed, so that the
+	 * server knows that the session has to be saved again.
+	 *
+	 * @param request Request to deal with.
+	 */
+
+	public void save(@NotNull HttpServletRequest request)
+	{
+		request.getSession().setAttribute(ATTRIBUTE, this);
+	}
+
+	/**
+	 * Encode the state.
+	 *
+	 * @param out Stream receiving the state.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	@Override public synchronized void writeExternal(@NotNull ObjectOutput out) throws IOException
+	{
+		out.writeByte(ENCODING_VERSION);
+		out.writeLong(user);
+		out.writeBoolean(admin);
+		out.writeLong(item);
+		out.writeShort(images.size());
+
+		for (String image : images) out.writeUTF(image);
+	}
+
+	/**
+	 * Decode the state.
+	 *
+	 * @param in Stream supplying the state.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	@Override public synchronized void readExternal(@NotNull ObjectInput in) throws IOException
+	{
+		// A state encoded differently can't be read.
+		if (in.readByte() != ENCODING_VERSION) throw new InvalidObjectException("Unknown session state encoding");
+
+		user = in.readLong();
+		admin = in.readBoolean();
+		item = in.readLong();
+
+		for (int count = in.readShort(); count > 0; count--) images.add(in.readUTF());
+	}
+
+	/**
+	 * Get a string representation of the state.
+	 *
+	 * @return String representing the object.
+	 */
+
+	@Override public synchronized String toString()
+	{
+		return "SessionState{" + "user=" + user + ", admin=" + admin + ", item=" + item + ", images=" + images + '}';
+	}
+}
@@ -0,0 +1,118 @@
+package fr.eikasus.objectsmyfriends.misc;
+
+/**
+ * Class representing the creation of the sessions.
+ * <p>
+ * Sessions are counted by minute over a window of the last minutes, the
+ * current minute not being complete yet. The total and active numbers of
+ * sessions are accumulated since the application was started.
+ */
+
+public class SessionStatistics
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Number of complete minutes in the window.
+	private final int minutes;
+
+	// Number of sessions created during the current minute.
+	private final long currentMinute;
+
+	// Number of sessions created during the last complete minute.
+	private final long lastMinute;
+
+	// Largest number of sessions created during a minute of the window.
+	private final long peakMinute;
+
+	// Number of sessions created during the complete minutes of the window.
+	private final long window;
+
+	// Number of sessions created since the start.
+	private final long total;
+
+	// Number of sessions not destroyed yet.
+	private final long active;
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create the statistics of the sessions.
+	 *
+	 * @param minutes       Number of complete minutes in the window.
+	 * @param currentMinute Sessions created during the current minute.
+	 * @param lastMinute    Sessions created during the last complete minute.
+	 * @param peakMinute    Most sessions created during a minute.
+	 * @param window        Sessions created during the complete minutes.
+	 * @param total         Sessions created since the start.
+	 * @param active        Sessions not destroyed yet.
+	 */
+
+	public SessionStatistics(int minutes, long currentMinute, long lastMinute, long peakMinute, long window, long total, long active)
+	{
+		this.minutes = minutes;
+		this.currentMinute = currentMinute;
+		this.lastMinute = lastMinute;
+		this.peakMinute = peakMinute;
+		this.window = window;
+		this.total = total;
+		this.active = active;
+	}
+
+	/* ******* */
+	/* Getters */
+	/* ******* */
+
+	public int getMinutes()
+	{
+		return minutes;
+	}
+
+	public long getCurrentMinute()
+	{
+		return currentMinute;
+	}
+
+	public long getLastMinute()
+	{
+		return lastMinute;
+	}
+
+	public long getPeakMinute()
+	{
+		return peakMinute;
+	}
+
+	public double getAveragePerMinute()
+	{
+		return (minutes != 0) ? ((double) window / minutes) : (0);
+	}
+
+	public long getTotal()
+	{
+		return total;
+	}
+
+	public long getActive()
+	{
+		return active;
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get a string representation of the statistics.
+	 *
+	 * @return String representing the object.
+	 */
+
+	@Override public String toString()
+	{
+		return "SessionStatistics{" + "minutes=" + minutes + ", currentMinute=" + currentMinute + ", lastMinute=" + lastMinute + ", peakMinute=" + peakMinute + ", window=" + window + ", total=" + total + ", active=" + active + '}';
+	}
+}
@@ -0,0 +1,477 @@
+package fr.eikasus.objectsmyfriends.misc;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Class generating the thumbnails of the item images.
+ * <p>
+ * The cards and the bid page only show small images, so a reduced copy of each
+ * image is made for each size, in a folder of the size under the image folder.
+ * The thumbnails of an uploaded image are made by a worker thread once the
+ * image is received. Those of the images received before are made the first
+ * time they are asked for, the image itself being sent meanwhile. The worker
+ * also checks that an uploaded image really has the format of its name, and
+ * deletes it otherwise, so that the request receiving it does not wait.
+ * <p>
+ * An image is given by its path relative to the folder of the images, which
+ * is its name unless the image store spreads it into folders. The generator
+ * is available to the whole application as a context attribute.
+ * A thumbnail is written into a temporary file first, so that a thumbnail
+ * being made is never sent.
+ *
+ * @see #get(ServletContext)
+ * @see #submit(String, String, boolean)
+ * @see #checkFormat(Path)
+ * @see #getThumbnail(String, String, Size)
+ * @see #generate(String, String)
+ */
+
+@WebListener
+public class ThumbnailGenerator implements ServletContextListener
+{
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Sizes of the thumbnails.
+	 */
+
+	public enum Size
+	{
+		// Twice the size of the images of the cards, for high density screens.
+		CARD("card", 256),
+
+		// Twice the size of the images of the bid and sell pages.
+		DETAIL("detail", 384);
+
+		private final String folder;
+		private final int dimension;
+
+		Size(String folder, int dimension)
+		{
+			this.folder = folder;
+			this.dimension = dimension;
+		}
+
+		public String getFolder() {return folder;}
+
+		public int getDimension() {return dimension;}
+
+		/**
+		 * Give the size of a name.
+		 *
+		 * @param name Name of the size, may be null.
+		 *
+		 * @return Size found, or null if unknown.
+		 */
+
+		public static Size fromName(String name)
+		{
+			for (Size size : values())
+				if (size.folder.equalsIgnoreCase(name)) return size;
+
+			return null;
+		}
+	}
+
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Name of the context attribute holding the generator.
+	public static final String ATTRIBUTE = "thumbnailGenerator";
+
+	// Number of images waiting for their thumbnails.
+	private static final int QUEUE_SIZE = 1000;
+
+	// Quality of the JPEG thumbnails.
+	private static final float JPEG_QUALITY = 0.85f;
+
+	// First bytes of the JPEG and PNG files.
+	private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+	private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Worker making the thumbnails.
+	private ExecutorService executor;
+
+	// Images waiting for their thumbnails, so that they are not submitted twice.
+	private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get the generator of the application.
+	 *
+	 * @param context Context of the application.
+	 *
+	 * @return Generator, or null if not started.
+	 */
+
+	public static ThumbnailGenerator get(@NotNull ServletContext context)
+	{
+		return (ThumbnailGenerator) context.getAttribute(ATTRIBUTE);
+	}
+
+	/**
+	 * Start the worker when the application starts.
+	 *
+	 * @param event Event supplying the context.
+	 */
+
+	@Override public void contextInitialized(@NotNull ServletContextEvent event)
+	{
+		executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable ->
+		{
+			Thread thread = new Thread(runnable, "thumbnail-generator");
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		event.getServletContext().setAttribute(ATTRIBUTE, this);
+	}
+
+	/**
+	 * Stop the worker when the application stops.
+	 *
+	 * @param event Event supplying the context.
+	 */
+
+	@Override public void contextDestroyed(@NotNull ServletContextEvent event)
+	{
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Make the thumbnails of an image in the background.
+	 * <p>
+	 * Nothing is done if the image is already waiting. If too many images are
+	 * waiting, the image is forgotten and will be submitted again the next time
+	 * one of its thumbnails is asked for. An uploaded image is checked first,
+	 * and deleted with its thumbnails if it is not a JPEG or PNG image matching
+	 * its name, or if it can't be read.
+	 *
+	 * @param folder Folder of the images.
+	 * @param name   Name of the image file.
+	 * @param check  Whether the format of the image is checked.
+	 */
+
+	public void submit(@NotNull String folder, @NotNull String name, boolean check)
+	{
+		Path source = Paths.get(folder, name);
+
+		if (!pending.add(source)) return;
+
+		try
+		{
+			executor.execute(() ->
+			{
+				try
+				{
+					// An image sent by a user is only kept if it is what it claims.
+					if ((check) && (!checkFormat(source))) throw new IOException("Wrong format of " + source);
+
+					if (Files.exists(source)) generate(folder, name);
+				}
+				catch (IOException e)
+				{
+					// An uploaded image is refused, the others are sent as they are.
+					if (check) discard(folder, name);
+				}
+				finally
+				{
+					pending.remove(source);
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			pending.remove(source);
+		}
+	}
+
+	/**
+	 * Give the path of a thumbnail of an image.
+	 *
+	 * @param folder Folder of the images.
+	 * @param name   Name of the image file.
+	 * @param size   Size of the thumbnail.
+	 *
+	 * @return Path of the thumbnail, which may not exist yet.
+	 */
+
+	public static @NotNull Path getThumbnail(@NotNull String folder, @NotNull String name, @NotNull Size size)
+	{
+		return Paths.get(folder, size.getFolder(), name);
+	}
+
+	/**
+	 * Rename the thumbnails of an image, when the image is renamed.
+	 *
+	 * @param folder  Folder of the images.
+	 * @param oldName Former name of the image file.
+	 * @param newName New name of the image file.
+	 */
+
+	public static void rename(@NotNull String folder, @NotNull String oldName, @NotNull String newName)
+	{
+		for (Size size : Size.values())
+		{
+			try
+			{
+				Path source = getThumbnail(folder, oldName, size);
+
+				if (Files.exists(source)) Files.move(source, getThumbnail(folder, newName, size), StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (IOException e)
+			{
+				// The thumbnail will be made again when asked for.
+			}
+		}
+	}
+
+	/**
+	 * Delete the thumbnails of an image, when the image is deleted.
+	 *
+	 * @param folder Folder of the images.
+	 * @param name   Name of the image file.
+	 */
+
+	public static void delete(@NotNull String folder, @NotNull String name)
+	{
+		for (Size size : Size.values())
+		{
+			try
+			{
+				Files.deleteIfExists(getThumbnail(folder, name, size));
+			}
+			catch (IOException e)
+			{
+				// Left for the maintenance process.
+			}
+		}
+	}
+
+	/**
+	 * Check that the content of an image matches the extension of its name.
+	 * <p>
+	 * Only the first bytes of the file are read, the image being fully read when
+	 * its thumbnails are made.
+	 *
+	 * @param image Path of the image file.
+	 *
+	 * @return true if the image is a JPEG or PNG file named after its format.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	public static boolean checkFormat(@NotNull Path image) throws IOException
+	{
+		String name = image.getFileName().toString().toLowerCase();
+		byte[] signature = (name.endsWith(".png")) ? (PNG_SIGNATURE) : ((name.endsWith(".jpg")) ? (JPEG_SIGNATURE) : (null));
+
+		// The format is not allowed.
+		if (signature == null) return false;
+
+		byte[] header = new byte[signature.length];
+
+		try (InputStream in = Files.newInputStream(image))
+		{
+			int length, read = 0;
+
+			while ((read < header.length) && ((length = in.read(header, read, header.length - read)) != -1))
+				read += length;
+		}
+
+		return Arrays.equals(header, signature);
+	}
+
+	/**
+	 * Make the thumbnails of an image.
+	 * <p>
+	 * The image is read once and reduced to fit each size, from the largest to
+	 * the smallest, keeping its proportions. An image already smaller is only
+	 * written again. The thumbnails have the format of the image, given by the
+	 * extension of its name.
+	 *
+	 * @param folder Folder of the images.
+	 * @param name   Name of the image file.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	public static void generate(@NotNull String folder, @NotNull String name) throws IOException
+	{
+		Path source = Paths.get(folder, name);
+		BufferedImage image = ImageIO.read(source.toFile());
+
+		// The format of the image is not known.
+		if (image == null) throw new IOException("Unable to read " + source);
+
+		boolean jpeg = !name.toLowerCase().endsWith(".png");
+
+		// The sizes are declared from the smallest.
+		Size[] sizes = Size.values();
+
+		for (int index = sizes.length - 1; index >= 0; index--)
+		{
+			Path target = getThumbnail(folder, name, sizes[index]);
+
+			image = scale(image, sizes[index].getDimension(), jpeg);
+
+			Files.createDirectories(target.getParent());
+			Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+			try
+			{
+				write(image, temporary, jpeg);
+
+				// The thumbnail only appears once complete.
+				Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			finally
+			{
+				Files.deleteIfExists(temporary);
+			}
+		}
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Delete an image refused, with its thumbnails.
+	 *
+	 * @param folder Folder of the images.
+	 * @param name   Name of the image file.
+	 */
+
+	private static void discard(@NotNull String folder, @NotNull String name)
+	{
+		try
+		{
+			Files.deleteIfExists(Paths.get(folder, name));
+		}
+		catch (IOException e)
+		{
+			// Left for the maintenance process.
+		}
+
+		delete(folder, name);
+	}
+
+	/**
+	 * Reduce an image to fit a square.
+	 * <p>
+	 * The image is halved as long as it is more than twice too big, which keeps
+	 * the quality of a bilinear interpolation for large reductions.
+	 *
+	 * @param image     Image to reduce.
+	 * @param dimension Side of the square.
+	 * @param opaque    Whether the transparency is dropped, for JPEG.
+	 *
+	 * @return Reduced image.
+	 */
+
+	private static @NotNull BufferedImage scale(@NotNull BufferedImage image, int dimension, boolean opaque)
+	{
+		double ratio = Math.min(1.0, Math.min((double) dimension / image.getWidth(), (double) dimension / image.getHeight()));
+		int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+		int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+		int type = (opaque) ? (BufferedImage.TYPE_INT_RGB) : (BufferedImage.TYPE_INT_ARGB);
+
+		BufferedImage current = image;
+
+		do
+		{
+			int stepWidth = Math.max(width, current.getWidth() / 2);
+			int stepHeight = Math.max(height, current.getHeight() / 2);
+
+			BufferedImage step = new BufferedImage(stepWidth, stepHeight, type);
+			Graphics2D graphics = step.createGraphics();
+
+			try
+			{
+				graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+			}
+			finally
+			{
+				graphics.dispose();
+			}
+
+			current = step;
+		}
+		while ((current.getWidth() != width) || (current.getHeight() != height));
+
+		return current;
+	}
+
+	/**
+	 * Write a thumbnail.
+	 *
+	 * @param thumbnail Thumbnail to write.
+	 * @param target    Path of the file.
+	 * @param jpeg      Whether the JPEG format is used, PNG otherwise.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	private static void write(@NotNull BufferedImage thumbnail, @NotNull Path target, boolean jpeg) throws IOException
+	{
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName((jpeg) ? ("jpeg") : ("png"));
+
+		if (!writers.hasNext()) throw new IOException("No writer for " + target);
+
+		ImageWriter writer = writers.next();
+		ImageWriteParam parameters = writer.getDefaultWriteParam();
+
+		if (jpeg)
+		{
+			parameters.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			parameters.setCompressionQuality(JPEG_QUALITY);
+		}
+
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile()))
+		{
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(thumbnail, null, null), parameters);
+		}
+		finally
+		{
+			writer.dispose();
+		}
+	}
+}
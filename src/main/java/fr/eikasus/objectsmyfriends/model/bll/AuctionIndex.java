@@ -0,0 +1,1024 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.bo.Category;
+import fr.eikasus.objectsmyfriends.model.bo.Image;
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.ItemCardView;
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.dal.DAOFactory;
+import fr.eikasus.objectsmyfriends.model.misc.*;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.control.RequestContextController;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Class indexing in memory the items waiting or active.
+ * <p>
+ * Each of these items takes a slot, and the values shown by its card are kept
+ * in columns indexed by that slot, primitive arrays for the prices, the dates
+ * and the identifiers. The slots are grouped in bit sets by state, by category,
+ * by seller and by bidder, which match the criteria of the searches. So a
+ * search on those items is answered by combining a few bit sets and sorting
+ * the slots found, without accessing the database. The searches on the items
+ * sold or canceled still go to the database, since these items are not kept.
+ * <p>
+ * The index is built from the database the first time it is used, then kept up
+ * to date by the managers each time an item is created, updated or deleted, a
+ * bid is made, an image is added or removed and the state of items changes.
+ * Changes whose items are unknown invalidate it. It is built apart, without
+ * locking it, then replaces the previous content at once. The changes made
+ * meanwhile are recorded and made again on the new content, so none of them
+ * is lost.
+ * <p>
+ * On one server, the index follows every change. When several servers share
+ * the database, as told by the servers setting of the persistence unit, the
+ * bids and changes made by the others are not reported to it, so the index is
+ * built again every few seconds by a thread of its own, the searches going on
+ * with the current content meanwhile. Until then, the cards may show prices,
+ * leaders and states a bit late, but bids are always checked against the
+ * database.
+ *
+ * @see #add(Item)
+ * @see #update(Item)
+ * @see #remove(long)
+ * @see #bid(long, long, int)
+ * @see #image(Item)
+ * @see #transition(List, ItemState, ItemState, Date)
+ * @see #covers(User, UserRole, Search)
+ * @see #findCards(User, UserRole, Search, Category, Collection, String, int)
+ * @see #rebuild(Collection, Map, Map, Map)
+ * @see #invalidate()
+ */
+
+@ApplicationScoped
+public class AuctionIndex
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Number of slots reserved at first.
+	private static final int INITIAL_CAPACITY = 256;
+
+	// Maximum number of items whose bids and images are read by one request.
+	private static final int BATCH_SIZE = 512;
+
+	// Price of an item without bid.
+	private static final int NO_BID = -1;
+
+	// Category of an item without category.
+	private static final long NO_CATEGORY = 0;
+
+	// Bidders of an item without bid.
+	private static final long[] NO_BIDDER = new long[0];
+
+	// Number of servers sharing the database, 1 if not given.
+	public static final String SERVERS = "objectsmyfriends.servers";
+
+	// Period after which the index is built again, to see the changes made by
+	// other servers, in seconds.
+	private static final long REFRESH_PERIOD = 15;
+
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Change made to the items indexed.
+	 */
+
+	private interface Change
+	{
+		/**
+		 * Make the change.
+		 *
+		 * @param content Items to change.
+		 *
+		 * @return false if the items indexed are not enough to make it.
+		 */
+
+		boolean apply(@NotNull Content content);
+	}
+
+	/**
+	 * Items indexed.
+	 * <p>
+	 * The index replaces its content at once when it is built again.
+	 */
+
+	private static class Content
+	{
+		// Slot of each item indexed.
+		private final HashMap<Long, Integer> slots = new HashMap<>();
+
+		// Slots taken by an item.
+		private final BitSet used = new BitSet();
+
+		// Slots of the active items.
+		private final BitSet active = new BitSet();
+
+		// Slots of the waiting items.
+		private final BitSet waiting = new BitSet();
+
+		// Slots of the items of each category.
+		private final HashMap<Long, BitSet> byCategory = new HashMap<>();
+
+		// Slots of the items of each seller.
+		private final HashMap<Long, BitSet> bySeller = new HashMap<>();
+
+		// Slots of the items on which each user made a bid.
+		private final HashMap<Long, BitSet> byBidder = new HashMap<>();
+
+		// Columns of the items, indexed by their slot.
+		private long[] identifiers = new long[INITIAL_CAPACITY];
+		private int[] bestPrices = new int[INITIAL_CAPACITY];
+		private int[] initialPrices = new int[INITIAL_CAPACITY];
+		private long[] biddingStarts = new long[INITIAL_CAPACITY];
+		private long[] biddingEnds = new long[INITIAL_CAPACITY];
+		private long[] sellers = new long[INITIAL_CAPACITY];
+		private long[] categories = new long[INITIAL_CAPACITY];
+		private long[][] bidders = new long[INITIAL_CAPACITY][];
+		private String[] names = new String[INITIAL_CAPACITY];
+		private String[] sellerNames = new String[INITIAL_CAPACITY];
+		private String[] categoryLabels = new String[INITIAL_CAPACITY];
+		private String[] imagePaths = new String[INITIAL_CAPACITY];
+
+		/**
+		 * Index a new item, which has neither bid nor image yet.
+		 *
+		 * @param item Item to index.
+		 */
+
+		public void add(@NotNull Item item)
+		{
+			if ((item.isActive()) || (item.isWaiting())) store(item, NO_BID, NO_BIDDER, null);
+		}
+
+		/**
+		 * Index an updated item.
+		 *
+		 * @param item Item to index.
+		 *
+		 * @return false if the item becomes waiting or active without being
+		 * indexed, since its bids and images are unknown.
+		 */
+
+		public boolean update(@NotNull Item item)
+		{
+			Integer slot = slots.get(item.getIdentifier());
+
+			// An item no more searched is removed.
+			if ((!item.isActive()) && (!item.isWaiting())) free(item.getIdentifier());
+
+			// An item not indexed yet needs its bids and images.
+			else if (slot == null) return false;
+
+			// Otherwise, it keeps its price, bidders and image.
+			else store(item, bestPrices[slot], bidders[slot], imagePaths[slot]);
+
+			return true;
+		}
+
+		/**
+		 * Take a new bid into account.
+		 *
+		 * @param identifier Identifier of the item.
+		 * @param user       Identifier of the user who made the bid.
+		 * @param price      Price of the bid.
+		 */
+
+		public void bid(long identifier, long user, int price)
+		{
+			Integer slot = slots.get(identifier);
+
+			// Only items waiting or active are indexed.
+			if (slot == null) return;
+
+			bestPrices[slot] = Math.max(bestPrices[slot], price);
+
+			// The user becomes a bidder of the item.
+			if (byBidder.computeIfAbsent(user, key -> new BitSet()).get(slot)) return;
+
+			byBidder.get(user).set(slot);
+
+			bidders[slot] = Arrays.copyOf(bidders[slot], bidders[slot].length + 1);
+			bidders[slot][bidders[slot].length - 1] = user;
+		}
+
+		/**
+		 * Change the image shown by the card of an item.
+		 *
+		 * @param identifier Identifier of the item.
+		 * @param path       Path of its first image, null if there is none.
+		 */
+
+		public void image(long identifier, String path)
+		{
+			Integer slot = slots.get(identifier);
+
+			// Only items waiting or active are indexed.
+			if (slot != null) imagePaths[slot] = path;
+		}
+
+		/**
+		 * Change the state of items.
+		 *
+		 * @param items    Identifiers of the items to change.
+		 * @param oldState State the items should have.
+		 * @param newState State the items will have.
+		 * @param date     Date of the change.
+		 */
+
+		public void transition(@NotNull List<Long> items, @NotNull ItemState oldState, @NotNull ItemState newState, @NotNull Date date)
+		{
+			BitSet from = (oldState == ItemState.WT) ? (waiting) : (active);
+
+			for (long identifier : items)
+			{
+				Integer slot = slots.get(identifier);
+
+				// Only the items in the expected state change.
+				if ((slot == null) || (!from.get(slot))) continue;
+
+				// Waiting items depend on their start date, others on their end date.
+				if (((oldState == ItemState.WT) ? (biddingStarts[slot]) : (biddingEnds[slot])) > date.getTime()) continue;
+
+				from.clear(slot);
+
+				if (newState == ItemState.AC) active.set(slot);
+				else if (newState == ItemState.WT) waiting.set(slot);
+				else free(identifier);
+			}
+		}
+
+		/**
+		 * Search the slots of the items of a page.
+		 *
+		 * @param user       User for which the search is done.
+		 * @param role       Role of the supplied user (seller or buyer)
+		 * @param search     Searching criteria.
+		 * @param category   Category of items searched.
+		 * @param candidates Identifiers of the items to search among, null for
+		 *                   all.
+		 * @param position   Position of the page to read.
+		 * @param limit      Maximum number of slots given.
+		 *
+		 * @return Slots found, in the order of the pages.
+		 */
+
+		public List<Integer> find(User user, UserRole role, @NotNull Search search, Category category, Collection<Long> candidates, @NotNull PagePosition position, int limit)
+		{
+			BitSet found = new BitSet();
+
+			if (role == UserRole.BUYER)
+			{
+				// The available items.
+				if (search.isOpenedBids()) found.or(active);
+
+				// The available items on which the user made a bid.
+				if (search.isMyCurrentBids()) found.or(intersect(active, byBidder.get(user.getIdentifier())));
+			}
+			else
+			{
+				// The items currently sold.
+				if (search.isMyCurrentSales()) found.or(active);
+
+				// The items waiting for being sold.
+				if (search.isMyWaitingSales()) found.or(waiting);
+
+				// Only those of the user.
+				found.and(bySeller.getOrDefault(user.getIdentifier(), new BitSet()));
+			}
+
+			// If a category is required.
+			if (category != null) found.and(byCategory.getOrDefault(category.getIdentifier(), new BitSet()));
+
+			// If the items are searched among some.
+			if (candidates != null) found.and(slotsOf(candidates));
+
+			long end = (position.biddingEnd != null) ? (position.biddingEnd.getTime()) : (Long.MIN_VALUE);
+
+			return found.stream()
+					.filter(slot -> (biddingEnds[slot] > end) || ((biddingEnds[slot] == end) && (identifiers[slot] > position.identifier)))
+					.boxed()
+					.sorted(Comparator.<Integer>comparingLong(slot -> biddingEnds[slot]).thenComparingLong(slot -> identifiers[slot]))
+					.limit(limit)
+					.collect(Collectors.toList());
+		}
+
+		/**
+		 * Give the card of the item of a slot.
+		 *
+		 * @param slot Slot of the item.
+		 *
+		 * @return Card of the item.
+		 */
+
+		public @NotNull ItemCardView card(int slot)
+		{
+			return new ItemCardView(identifiers[slot], names[slot], (bestPrices[slot] == NO_BID) ? (null) : (bestPrices[slot]), initialPrices[slot], new Date(biddingEnds[slot]), sellers[slot], sellerNames[slot], categoryLabels[slot], imagePaths[slot]);
+		}
+
+		/**
+		 * Put an item into a slot.
+		 * <p>
+		 * The slot previously taken by the item, if any, is freed first.
+		 *
+		 * @param item       Item to store.
+		 * @param bestPrice  Highest bid price of the item.
+		 * @param itemBidder Identifiers of the users having bid on the item.
+		 * @param imagePath  Path of the first image of the item.
+		 */
+
+		public void store(@NotNull Item item, int bestPrice, long @NotNull [] itemBidder, String imagePath)
+		{
+			free(item.getIdentifier());
+
+			int slot = used.nextClearBit(0);
+
+			// All the slots are taken.
+			if (slot == identifiers.length) grow();
+
+			used.set(slot);
+			slots.put(item.getIdentifier(), slot);
+
+			identifiers[slot] = item.getIdentifier();
+			bestPrices[slot] = bestPrice;
+			initialPrices[slot] = item.getInitialPrice();
+			biddingStarts[slot] = item.getBiddingStart().getTime();
+			biddingEnds[slot] = item.getBiddingEnd().getTime();
+			sellers[slot] = item.getSeller().getIdentifier();
+			categories[slot] = (item.getCategory() != null) ? (item.getCategory().getIdentifier()) : (NO_CATEGORY);
+			bidders[slot] = itemBidder;
+			names[slot] = item.getName();
+			sellerNames[slot] = item.getSeller().getUsername();
+			categoryLabels[slot] = (item.getCategory() != null) ? (item.getCategory().getLabel()) : (null);
+			imagePaths[slot] = imagePath;
+
+			((item.isActive()) ? (active) : (waiting)).set(slot);
+
+			byCategory.computeIfAbsent(categories[slot], key -> new BitSet()).set(slot);
+			bySeller.computeIfAbsent(sellers[slot], key -> new BitSet()).set(slot);
+			for (long bidder : itemBidder) byBidder.computeIfAbsent(bidder, key -> new BitSet()).set(slot);
+		}
+
+		/**
+		 * Free the slot of an item.
+		 *
+		 * @param identifier Identifier of the item.
+		 */
+
+		public void free(long identifier)
+		{
+			Integer slot = slots.remove(identifier);
+
+			// If the item is not indexed.
+			if (slot == null) return;
+
+			used.clear(slot);
+			active.clear(slot);
+			waiting.clear(slot);
+
+			clear(byCategory, categories[slot], slot);
+			clear(bySeller, sellers[slot], slot);
+			for (long bidder : bidders[slot]) clear(byBidder, bidder, slot);
+
+			// The values are not needed anymore.
+			bidders[slot] = null;
+			names[slot] = null;
+			sellerNames[slot] = null;
+			categoryLabels[slot] = null;
+			imagePaths[slot] = null;
+		}
+
+		/**
+		 * Double the number of slots.
+		 */
+
+		private void grow()
+		{
+			int capacity = identifiers.length * 2;
+
+			identifiers = Arrays.copyOf(identifiers, capacity);
+			bestPrices = Arrays.copyOf(bestPrices, capacity);
+			initialPrices = Arrays.copyOf(initialPrices, capacity);
+			biddingStarts = Arrays.copyOf(biddingStarts, capacity);
+			biddingEnds = Arrays.copyOf(biddingEnds, capacity);
+			sellers = Arrays.copyOf(sellers, capacity);
+			categories = Arrays.copyOf(categories, capacity);
+			bidders = Arrays.copyOf(bidders, capacity);
+			names = Arrays.copyOf(names, capacity);
+			sellerNames = Arrays.copyOf(sellerNames, capacity);
+			categoryLabels = Arrays.copyOf(categoryLabels, capacity);
+			imagePaths = Arrays.copyOf(imagePaths, capacity);
+		}
+
+		/**
+		 * Give the slots of items.
+		 *
+		 * @param items Identifiers of the items.
+		 *
+		 * @return Slots of the items indexed.
+		 */
+
+		private @NotNull BitSet slotsOf(@NotNull Collection<Long> items)
+		{
+			BitSet result = new BitSet();
+
+			for (Long identifier : items)
+			{
+				Integer slot = slots.get(identifier);
+
+				if (slot != null) result.set(slot);
+			}
+
+			return result;
+		}
+	}
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// DAO factory used to access DAOs objects
+	@Inject private DAOFactory daoFactory;
+
+	// Items indexed, replaced when the index is built again.
+	private Content content = new Content();
+
+	// Changes made while the index is built, null if it is not.
+	private List<Change> changes = null;
+
+	// Lock allowing searches to be done at the same time.
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Whether the index was built from the database.
+	private volatile boolean loaded = false;
+
+	// Number of times the index was invalidated.
+	private final AtomicLong invalidations = new AtomicLong();
+
+	// Request context of the thread building the index again.
+	@Inject private RequestContextController requestContextController;
+
+	// Thread building the index again, null if there is only one server.
+	private ScheduledExecutorService refresher;
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Stop the thread building the index again.
+	 */
+
+	@PreDestroy
+	public synchronized void shutdown()
+	{
+		if (refresher != null) refresher.shutdownNow();
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Index a new item.
+	 * <p>
+	 * This method should be called each time an item is created, which has
+	 * neither bid nor image yet.
+	 *
+	 * @param item Item to index.
+	 */
+
+	public void add(@NotNull Item item)
+	{
+		change(indexed ->
+		{
+			indexed.add(item);
+
+			return true;
+		});
+	}
+
+	/**
+	 * Index an updated item.
+	 * <p>
+	 * The values of the supplied item replace those indexed before, except its
+	 * bids and images which are not changed by an update. If the item is neither
+	 * active nor waiting anymore, it is removed. If it becomes so without being
+	 * indexed, its bids and images are unknown, so the index is built again the
+	 * next time it is used.
+	 *
+	 * @param item Item to index.
+	 */
+
+	public void update(@NotNull Item item)
+	{
+		change(indexed -> indexed.update(item));
+	}
+
+	/**
+	 * Remove an item from the index.
+	 *
+	 * @param identifier Identifier of the item to remove.
+	 */
+
+	public void remove(long identifier)
+	{
+		change(indexed ->
+		{
+			indexed.free(identifier);
+
+			return true;
+		});
+	}
+
+	/**
+	 * Take a new bid into account.
+	 * <p>
+	 * The price of the bid becomes the best price of the item, and the user is
+	 * added to its bidders. This method should be called once the bid is saved.
+	 *
+	 * @param identifier Identifier of the item.
+	 * @param user       Identifier of the user who made the bid.
+	 * @param price      Price of the bid.
+	 */
+
+	public void bid(long identifier, long user, int price)
+	{
+		change(indexed ->
+		{
+			indexed.bid(identifier, user, price);
+
+			return true;
+		});
+	}
+
+	/**
+	 * Take the images of an item into account.
+	 * <p>
+	 * The first image of the item, shown by its card, is looked for again. This
+	 * method should be called each time an image is added to or removed from an
+	 * item.
+	 *
+	 * @param item Item whose images changed.
+	 */
+
+	public void image(@NotNull Item item)
+	{
+		String path = firstImage(item);
+
+		change(indexed ->
+		{
+			indexed.image(item.getIdentifier(), path);
+
+			return true;
+		});
+	}
+
+	/**
+	 * Change the state of items.
+	 * <p>
+	 * This method follows the changes made in the database: only the items in
+	 * the old state whose bidding start, for waiting items, or end, for active
+	 * ones, is reached change. Items neither active nor waiting anymore are
+	 * removed.
+	 *
+	 * @param identifiers Identifiers of the items to change.
+	 * @param oldState    State the items should have.
+	 * @param newState    State the items will have.
+	 * @param date        Date of the change.
+	 */
+
+	public void transition(@NotNull List<Long> identifiers, @NotNull ItemState oldState, @NotNull ItemState newState, @NotNull Date date)
+	{
+		change(indexed ->
+		{
+			indexed.transition(identifiers, oldState, newState, date);
+
+			return true;
+		});
+	}
+
+	/**
+	 * Tell whether a search can be answered by the index.
+	 * <p>
+	 * As a buyer, the items won can't be, nor the current bids without user. As
+	 * a seller, the items sold or canceled can't be.
+	 *
+	 * @param user   User for which the search is done.
+	 * @param role   Role of the supplied user (seller or buyer)
+	 * @param search Searching criteria.
+	 *
+	 * @return true if all the items searched are indexed.
+	 */
+
+	public boolean covers(User user, UserRole role, @NotNull Search search)
+	{
+		if (role == UserRole.BUYER)
+			return (search.asBuyer()) && (!search.isMyWonBids()) && ((user != null) || (!search.isMyCurrentBids()));
+
+		return (user != null) && (search.asSeller()) && (!search.isMyEndedSales()) && (!search.isMyCanceledSales());
+	}
+
+	/**
+	 * Search a page of item cards.
+	 * <p>
+	 * This method gives the same pages as the database would, items being
+	 * sorted by bidding end date then by identifier, and the page tokens of both
+	 * can be mixed. It should only be called for the searches the index covers.
+	 *
+	 * @param user        User for which the search is done.
+	 * @param role        Role of the supplied user (seller or buyer)
+	 * @param search      Searching criteria.
+	 * @param category    Category of items searched.
+	 * @param candidates  Identifiers of the items to search among, null for
+	 *                    all.
+	 * @param pageToken   Token of the page to read, null for the first one.
+	 * @param pageSize    Maximum number of items in the page.
+	 *
+	 * @return Page of item cards found.
+	 *
+	 * @throws ModelException In case of problem while building the index.
+	 * @see #covers(User, UserRole, Search)
+	 */
+
+	public Page<ItemCardView> findCards(User user, UserRole role, @NotNull Search search, Category category, Collection<Long> candidates, String pageToken, int pageSize) throws ModelException
+	{
+		List<ItemCardView> cards = new ArrayList<>();
+		List<Integer> page;
+
+		// Locate the page to read.
+		PagePosition position = PagePosition.decode(pageToken);
+
+		// Build the index the first time, or once invalidated.
+		if (!loaded) load(false);
+
+		lock.readLock().lock();
+
+		try
+		{
+			// One more item than the size of the page is taken, to know whether a
+			// next page exists.
+			page = content.find(user, role, search, category, candidates, position, pageSize + 1);
+
+			for (int slot : page.subList(0, Math.min(page.size(), pageSize))) cards.add(content.card(slot));
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+
+		// If this is the last page.
+		if (page.size() <= pageSize) return new Page<>(cards, null);
+
+		// Return the page with the token of the next one.
+		ItemCardView last = cards.get(pageSize - 1);
+
+		return new Page<>(cards, PagePosition.encode(last.getBiddingEnd(), last.getIdentifier()));
+	}
+
+	/**
+	 * Build the index from items.
+	 * <p>
+	 * The content of the index is replaced by the supplied items which are
+	 * waiting or active, the others being ignored. The index is only locked to
+	 * replace its content.
+	 *
+	 * @param items      Items to index.
+	 * @param bestPrices Highest bid price by item identifier.
+	 * @param bidders    Users having bid by item identifier.
+	 * @param paths      Paths of the images by item identifier, the first one
+	 *                   being shown by the card.
+	 */
+
+	public void rebuild(@NotNull Collection<Item> items, @NotNull Map<Long, Integer> bestPrices, @NotNull Map<Long, List<Long>> bidders, @NotNull Map<Long, List<String>> paths)
+	{
+		long invalidated = record();
+
+		try
+		{
+			install(build(items, bestPrices, bidders, paths), invalidated);
+		}
+		finally
+		{
+			stopRecording();
+		}
+	}
+
+	/**
+	 * Invalidate the index.
+	 * <p>
+	 * The index will be built again from the database the next time it is used.
+	 * This method should be called when items, their bids or the values shown
+	 * by their cards are modified without knowing which ones.
+	 */
+
+	public void invalidate()
+	{
+		invalidations.incrementAndGet();
+
+		loaded = false;
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Build the index from the database.
+	 * <p>
+	 * The values shown by the cards of the waiting and active items are read by
+	 * one request, then their bidders and images by batch. The index is not
+	 * locked meanwhile, the changes made at the same time being recorded. The
+	 * first time, the index starts to be built again regularly if several
+	 * servers share the database.
+	 *
+	 * @param again Whether the index is built again even if it is valid.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	private synchronized void load(boolean again) throws ModelException
+	{
+		Map<Long, Integer> itemPrices = new HashMap<>();
+		Map<Long, List<Long>> itemBidders = new HashMap<>();
+		Map<Long, List<String>> itemPaths = new HashMap<>();
+
+		// The index may have been built while waiting.
+		if ((loaded) && (!again)) return;
+
+		long invalidated = record();
+
+		try
+		{
+			List<Item> items = daoFactory.getItemDAO().findSummaries(Arrays.asList(ItemState.WT, ItemState.AC));
+
+			List<Long> ids = items.stream().map(Item::getIdentifier).collect(Collectors.toList());
+
+			// The items keep the price of their best bid.
+			for (Item item : items) if (item.getBidCount() != 0) itemPrices.put(item.getIdentifier(), item.getCurrentPrice());
+
+			for (int index = 0; index < ids.size(); index += BATCH_SIZE)
+			{
+				List<Long> batch = ids.subList(index, Math.min(index + BATCH_SIZE, ids.size()));
+
+				itemBidders.putAll(daoFactory.getBidDAO().findBidders(batch));
+				itemPaths.putAll(daoFactory.getImageDAO().findPaths(batch));
+			}
+
+			install(build(items, itemPrices, itemBidders, itemPaths), invalidated);
+		}
+		finally
+		{
+			stopRecording();
+		}
+
+		// The changes made by other servers are seen by building it again.
+		if ((refresher == null) && (servers() > 1))
+		{
+			refresher = Executors.newSingleThreadScheduledExecutor(runnable ->
+			{
+				Thread thread = new Thread(runnable, "auction-index-refresher");
+
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
+			refresher.scheduleWithFixedDelay(this::refresh, REFRESH_PERIOD, REFRESH_PERIOD, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Build the index again.
+	 * <p>
+	 * This method is run by the thread of the index, in a request context of
+	 * its own to access the database. The searches go on with the current
+	 * content meanwhile.
+	 */
+
+	private void refresh()
+	{
+		requestContextController.activate();
+
+		try
+		{
+			load(true);
+		}
+		catch (ModelException | RuntimeException e)
+		{
+			// Try again next time.
+		}
+		finally
+		{
+			requestContextController.deactivate();
+		}
+	}
+
+	/**
+	 * Give the number of servers sharing the database.
+	 *
+	 * @return Number of servers given by the persistence unit, 1 if none.
+	 */
+
+	private int servers()
+	{
+		String value = daoFactory.getSetting(SERVERS);
+
+		return (value != null) ? (Integer.parseInt(value.trim())) : (1);
+	}
+
+	/**
+	 * Build a content from items.
+	 *
+	 * @param items      Items to index.
+	 * @param bestPrices Highest bid price by item identifier.
+	 * @param bidders    Users having bid by item identifier.
+	 * @param paths      Paths of the images by item identifier.
+	 *
+	 * @return Content built.
+	 */
+
+	private static @NotNull Content build(@NotNull Collection<Item> items, @NotNull Map<Long, Integer> bestPrices, @NotNull Map<Long, List<Long>> bidders, @NotNull Map<Long, List<String>> paths)
+	{
+		Content built = new Content();
+
+		for (Item item : items)
+		{
+			if ((!item.isActive()) && (!item.isWaiting())) continue;
+
+			long identifier = item.getIdentifier();
+			List<String> itemPaths = paths.get(identifier);
+
+			built.store(item, bestPrices.getOrDefault(identifier, NO_BID), bidders.getOrDefault(identifier, Collections.emptyList()).stream().mapToLong(Long::longValue).toArray(), ((itemPaths == null) || (itemPaths.isEmpty())) ? (null) : (itemPaths.get(0)));
+		}
+
+		return built;
+	}
+
+	/**
+	 * Change the items indexed.
+	 * <p>
+	 * If the index is being built, the change is recorded to be made again on
+	 * the new content. A change that the items indexed are not enough to make
+	 * invalidates the index, unless the new content can make it.
+	 *
+	 * @param change Change to make.
+	 */
+
+	private void change(@NotNull Change change)
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			if ((!change.apply(content)) && (changes == null)) invalidate();
+
+			if (changes != null) changes.add(change);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Start recording the changes made while the index is built.
+	 *
+	 * @return Number of times the index was invalidated before.
+	 */
+
+	private long record()
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			changes = new ArrayList<>();
+
+			return invalidations.get();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Stop recording the changes made while the index is built.
+	 */
+
+	private void stopRecording()
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			changes = null;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Replace the content of the index.
+	 * <p>
+	 * The changes recorded while the new content was built are made on it
+	 * first. The index stays invalid if it was invalidated meanwhile, or if one
+	 * of these changes can't be made.
+	 *
+	 * @param built       New content.
+	 * @param invalidated Number of times the index was invalidated when it
+	 *                    started to be built.
+	 */
+
+	private void install(@NotNull Content built, long invalidated)
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			boolean valid = true;
+
+			for (Change change : changes) valid &= change.apply(built);
+
+			content = built;
+
+			loaded = (valid) && (invalidations.get() == invalidated);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a slot from a group of slots.
+	 * <p>
+	 * A group without slot is not needed anymore.
+	 *
+	 * @param groups Groups of slots by key.
+	 * @param key    Key of the group.
+	 * @param slot   Slot to remove.
+	 */
+
+	private static void clear(@NotNull HashMap<Long, BitSet> groups, long key, int slot)
+	{
+		BitSet group = groups.get(key);
+
+		// If the group doesn't exist.
+		if (group == null) return;
+
+		group.clear(slot);
+
+		if (group.isEmpty()) groups.remove(key);
+	}
+
+	/**
+	 * Give the slots belonging to two groups.
+	 *
+	 * @param first  First group.
+	 * @param second Second group, null if it is empty.
+	 *
+	 * @return New group of the slots found in both.
+	 */
+
+	private static @NotNull BitSet intersect(@NotNull BitSet first, BitSet second)
+	{
+		BitSet result = (BitSet) first.clone();
+
+		result.and((second != null) ? (second) : (new BitSet()));
+
+		return result;
+	}
+
+	/**
+	 * Give the path of the first image of an item.
+	 *
+	 * @param item Item whose images are looked at.
+	 *
+	 * @return Path of the image with the lowest identifier, null if there is
+	 * none.
+	 */
+
+	private static String firstImage(@NotNull Item item)
+	{
+		if (item.getImages() == null) return null;
+
+		return item.getImages().stream().min(Comparator.comparingLong(Image::getIdentifier)).map(Image::getPath).orElse(null);
+	}
+}
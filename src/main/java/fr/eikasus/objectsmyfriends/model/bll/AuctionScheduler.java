@@ -0,0 +1,201 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.dal.DAOFactory;
+import fr.eikasus.objectsmyfriends.model.misc.ItemState;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.*;
+
+/**
+ * Class handling the auction states of the items.
+ * <p>
+ * The state of an item depends on the current date: a waiting item becomes
+ * active when its bidding starts, and an active item becomes sold when its
+ * bidding ends. This class keeps the dates of the next transitions in a
+ * priority queue, so checking if something has to be done only costs a look
+ * at the head of that queue. When transitions fall due, they are applied to
+ * the database with one update request per kind of transition, then to the
+ * auction index.
+ * <p>
+ * The queue is filled from the database the first time it is used, then kept
+ * up to date by the item manager each time an item is created or updated.
+ *
+ * @see #schedule(Item)
+ * @see #applyDueTransitions()
+ */
+
+@ApplicationScoped
+public class AuctionScheduler
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Maximum number of items changed by one request.
+	private static final int BATCH_SIZE = 512;
+
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Transition of an item from one state to another at a given date.
+	 */
+
+	private static class Transition
+	{
+		public final long date;
+		public final long identifier;
+		public final ItemState oldState;
+		public final ItemState newState;
+
+		public Transition(long date, long identifier, ItemState oldState, ItemState newState)
+		{
+			this.date = date;
+			this.identifier = identifier;
+			this.oldState = oldState;
+			this.newState = newState;
+		}
+	}
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// DAO factory used to access DAOs objects
+	@Inject private DAOFactory daoFactory;
+
+	// Index of the items waiting or active, following their states.
+	@Inject private AuctionIndex auctionIndex;
+
+	// Pending transitions, the nearest first.
+	private final PriorityQueue<Transition> transitions = new PriorityQueue<>(Comparator.comparingLong(t -> t.date));
+
+	// Whether the pending transitions were read from the database.
+	private boolean loaded = false;
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Schedule the transitions of an item.
+	 * <p>
+	 * This method registers the next transitions of the supplied item according
+	 * to its current state and bidding dates. It should be called each time an
+	 * item is created or its dates are modified. Transitions registered before
+	 * for the same item don't need to be removed, because a transition is only
+	 * applied if the item is still in the expected state at the expected date.
+	 *
+	 * @param item Item to schedule.
+	 */
+
+	public synchronized void schedule(@NotNull Item item)
+	{
+		// A waiting item will become active when its bidding starts.
+		if (item.isWaiting())
+			transitions.add(new Transition(item.getBiddingStart().getTime(), item.getIdentifier(), ItemState.WT, ItemState.AC));
+
+		// A waiting or active item will be sold when its bidding ends.
+		if ((item.isWaiting()) || (item.isActive()))
+			transitions.add(new Transition(item.getBiddingEnd().getTime(), item.getIdentifier(), ItemState.AC, ItemState.SD));
+	}
+
+	/**
+	 * Apply the transitions that fall due.
+	 * <p>
+	 * This method changes the state of all the items whose transition date is
+	 * reached. Waiting items are activated first, so an item whose bidding
+	 * started and ended since the last call is sold in the same call. If nothing
+	 * has to be done, the database is not accessed at all. In case of problem,
+	 * transitions are kept to be applied next time.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public synchronized void applyDueTransitions() throws ModelException
+	{
+		List<Transition> dueTransitions = new ArrayList<>();
+		List<Long> activated = new ArrayList<>();
+		List<Long> sold = new ArrayList<>();
+		Date current = new Date();
+
+		// Read the pending transitions the first time.
+		if (!loaded) load();
+
+		// Take all the transitions whose date is reached.
+		while ((!transitions.isEmpty()) && (transitions.peek().date <= current.getTime()))
+		{
+			Transition transition = transitions.poll();
+
+			dueTransitions.add(transition);
+
+			if (transition.newState == ItemState.AC) activated.add(transition.identifier);
+			else sold.add(transition.identifier);
+		}
+
+		try
+		{
+			// Waiting items become active.
+			updateState(activated, ItemState.WT, ItemState.AC, current);
+
+			// Active items become sold.
+			updateState(sold, ItemState.AC, ItemState.SD, current);
+		}
+		catch (ModelException me)
+		{
+			// Try again next time.
+			transitions.addAll(dueTransitions);
+
+			throw me;
+		}
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Read the pending transitions from the database.
+	 * <p>
+	 * Only the identifiers, states and bidding dates of the waiting and active
+	 * items are read, by one request, to schedule their transitions.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	private void load() throws ModelException
+	{
+		for (Item item : daoFactory.getItemDAO().findDates(Arrays.asList(ItemState.WT, ItemState.AC))) schedule(item);
+
+		loaded = true;
+	}
+
+	/**
+	 * Change the state of items by batch.
+	 *
+	 * @param identifiers Identifiers of the items to change.
+	 * @param oldState    State the items should have.
+	 * @param newState    State the items will have.
+	 * @param date        Date of the change.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	private void updateState(@NotNull List<Long> identifiers, ItemState oldState, ItemState newState, Date date) throws ModelException
+	{
+		for (int index = 0; index < identifiers.size(); index += BATCH_SIZE)
+		{
+			List<Long> batch = identifiers.subList(index, Math.min(index + BATCH_SIZE, identifiers.size()));
+
+			daoFactory.getItemDAO().updateState(batch, oldState, newState, date);
+
+			// The index follows the changes made.
+			auctionIndex.transition(batch, oldState, newState, date);
+		}
+	}
+}
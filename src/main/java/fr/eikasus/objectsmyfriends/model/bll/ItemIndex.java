@@ -0,0 +1,453 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.dal.DAOFactory;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Class indexing the words of the items.
+ * <p>
+ * The names and descriptions of the items are split into words, without case
+ * nor accents, and each word is associated to the items containing it. Words
+ * are sorted, so all the words starting with a keyword are found at once,
+ * which gives prefix matching without scanning the items. Searching keywords
+ * then gives the identifiers of the candidate items, the most relevant first,
+ * that the database only has to filter by state, category and user.
+ * <p>
+ * The index is built from the database the first time it is used, items being
+ * read as a stream, then kept up to date by the item manager each time an item
+ * is created, updated or deleted. It is built apart, without locking it, then
+ * replaces the previous content at once. The changes made meanwhile are
+ * recorded and made again on the new content, so none of them is lost.
+ *
+ * @see #add(Item)
+ * @see #remove(long)
+ * @see #search(String)
+ * @see #rebuild(Stream)
+ * @see #invalidate()
+ */
+
+@ApplicationScoped
+public class ItemIndex
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Number of items read from the database at once when building the index.
+	private static final int FETCH_SIZE = 256;
+
+	// Weight of a word found in the name of an item.
+	private static final int NAME_WEIGHT = 4;
+
+	// Weight of a word found in the description of an item.
+	private static final int DESCRIPTION_WEIGHT = 1;
+
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Relevance of an item for a search.
+	 */
+
+	private static class Score
+	{
+		public final long identifier;
+		public int keywords;
+		public int weight;
+
+		public Score(long identifier)
+		{
+			this.identifier = identifier;
+		}
+	}
+
+	/**
+	 * Words of the items.
+	 * <p>
+	 * The index replaces its content at once when it is built again.
+	 */
+
+	private static class Content
+	{
+		// Items containing each word, with the weight of the word in the item.
+		public final TreeMap<String, HashMap<Long, Integer>> words = new TreeMap<>();
+
+		// Words of each item, used to remove it from the index.
+		public final HashMap<Long, Set<String>> items = new HashMap<>();
+
+		/**
+		 * Add the words of an item.
+		 *
+		 * @param item Item to index.
+		 */
+
+		public void addWords(@NotNull Item item)
+		{
+			HashMap<String, Integer> weights = new HashMap<>();
+
+			// Each occurrence of a word adds its weight.
+			for (String word : split(item.getName())) weights.merge(word, NAME_WEIGHT, Integer::sum);
+			for (String word : split(item.getDescription())) weights.merge(word, DESCRIPTION_WEIGHT, Integer::sum);
+
+			// Associate the words to the item.
+			weights.forEach((word, weight) -> words.computeIfAbsent(word, w -> new HashMap<>()).put(item.getIdentifier(), weight));
+
+			// Remember the words of the item.
+			items.put(item.getIdentifier(), weights.keySet());
+		}
+
+		/**
+		 * Remove the words of an item.
+		 *
+		 * @param identifier Identifier of the item.
+		 */
+
+		public void removeWords(long identifier)
+		{
+			Set<String> itemWords = items.remove(identifier);
+
+			// If the item is not indexed.
+			if (itemWords == null) return;
+
+			for (String word : itemWords)
+			{
+				HashMap<Long, Integer> wordItems = words.get(word);
+
+				wordItems.remove(identifier);
+
+				// A word without item is not needed anymore.
+				if (wordItems.isEmpty()) words.remove(word);
+			}
+		}
+
+		/**
+		 * Index an item again, or remove it.
+		 *
+		 * @param identifier Identifier of the item.
+		 * @param item       Item to index, null to remove it.
+		 */
+
+		public void replace(long identifier, Item item)
+		{
+			// Forget the previous words of the item.
+			removeWords(identifier);
+
+			// Then add the current ones.
+			if (item != null) addWords(item);
+		}
+	}
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// DAO factory used to access DAOs objects
+	@Inject private DAOFactory daoFactory;
+
+	// Words of the items, replaced when the index is built again.
+	private Content content = new Content();
+
+	// Items changed while the index is built, null if it is not. A null item
+	// means that it was removed.
+	private Map<Long, Item> changes = null;
+
+	// Lock allowing searches to be done at the same time.
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Whether the index was built from the database.
+	private volatile boolean loaded = false;
+
+	// Number of times the index was invalidated.
+	private final AtomicLong invalidations = new AtomicLong();
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Index an item.
+	 * <p>
+	 * The words of the supplied item replace those indexed before for it, if
+	 * any. This method should be called each time an item is created or its name
+	 * or description is modified.
+	 *
+	 * @param item Item to index.
+	 */
+
+	public void add(@NotNull Item item)
+	{
+		change(item.getIdentifier(), item);
+	}
+
+	/**
+	 * Remove an item from the index.
+	 *
+	 * @param identifier Identifier of the item to remove.
+	 */
+
+	public void remove(long identifier)
+	{
+		change(identifier, null);
+	}
+
+	/**
+	 * Search items containing keywords.
+	 * <p>
+	 * This method returns the identifiers of the items whose name or description
+	 * contains a word starting with one of the supplied keywords. Items are
+	 * sorted by relevance: first by the number of keywords found, then by the
+	 * weight of the words found, a word of the name weighing more than a word of
+	 * the description and a whole word more than a prefix.
+	 *
+	 * @param keywords Keywords separated by spaces.
+	 *
+	 * @return Identifiers of the items found, the most relevant first.
+	 *
+	 * @throws ModelException In case of problem while building the index.
+	 */
+
+	public List<Long> search(@NotNull String keywords) throws ModelException
+	{
+		HashMap<Long, Score> scores = new HashMap<>();
+
+		// Build the index the first time.
+		if (!loaded) load();
+
+		lock.readLock().lock();
+
+		try
+		{
+			// Each keyword is searched once.
+			for (String keyword : new LinkedHashSet<>(split(keywords)))
+			{
+				// Items already counted for this keyword.
+				Set<Long> found = new HashSet<>();
+
+				// All the words starting with the keyword.
+				for (Map.Entry<String, HashMap<Long, Integer>> entry : content.words.subMap(keyword, true, keyword + Character.MAX_VALUE, false).entrySet())
+				{
+					// A whole word is more relevant than a prefix.
+					int factor = (entry.getKey().length() == keyword.length()) ? (2) : (1);
+
+					entry.getValue().forEach((identifier, weight) ->
+					{
+						Score score = scores.computeIfAbsent(identifier, Score::new);
+
+						if (found.add(identifier)) score.keywords++;
+
+						score.weight += weight * factor;
+					});
+				}
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+
+		// Sort the items by relevance.
+		return scores.values().stream()
+				.sorted(Comparator.<Score>comparingInt(s -> -s.keywords).thenComparingInt(s -> -s.weight).thenComparingLong(s -> s.identifier))
+				.map(s -> s.identifier)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Build the index from items.
+	 * <p>
+	 * The content of the index is replaced by the words of the supplied items.
+	 * The index is only locked to replace its content, so it is searched and
+	 * changed as usual while the items are read.
+	 *
+	 * @param stream Items to index.
+	 */
+
+	public void rebuild(@NotNull Stream<Item> stream)
+	{
+		long invalidated = record();
+
+		try
+		{
+			Content built = new Content();
+
+			stream.forEach(built::addWords);
+
+			install(built, invalidated);
+		}
+		finally
+		{
+			stopRecording();
+		}
+	}
+
+	/**
+	 * Invalidate the index.
+	 * <p>
+	 * The index will be built again from the database the next time it is used.
+	 * This method should be called when items are modified without knowing
+	 * which ones.
+	 */
+
+	public void invalidate()
+	{
+		invalidations.incrementAndGet();
+
+		loaded = false;
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Build the index from the database.
+	 * <p>
+	 * Items are read as a stream, so they are not all loaded in memory at once.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	private synchronized void load() throws ModelException
+	{
+		// The index may have been built while waiting.
+		if (loaded) return;
+
+		try (Stream<Item> stream = daoFactory.getItemDAO().stream(FETCH_SIZE))
+		{
+			rebuild(stream);
+		}
+	}
+
+	/**
+	 * Change the words of an item.
+	 * <p>
+	 * If the index is being built, the change is recorded to be made again on
+	 * the new content.
+	 *
+	 * @param identifier Identifier of the item.
+	 * @param item       Item to index, null to remove it.
+	 */
+
+	private void change(long identifier, Item item)
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			content.replace(identifier, item);
+
+			if (changes != null) changes.put(identifier, item);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Start recording the changes made while the index is built.
+	 *
+	 * @return Number of times the index was invalidated before.
+	 */
+
+	private long record()
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			changes = new LinkedHashMap<>();
+
+			return invalidations.get();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Stop recording the changes made while the index is built.
+	 */
+
+	private void stopRecording()
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			changes = null;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Replace the content of the index.
+	 * <p>
+	 * The changes recorded while the new content was built are made on it
+	 * first. The index stays invalid if it was invalidated meanwhile.
+	 *
+	 * @param built       New content.
+	 * @param invalidated Number of times the index was invalidated when it
+	 *                    started to be built.
+	 */
+
+	private void install(@NotNull Content built, long invalidated)
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			changes.forEach(built::replace);
+
+			content = built;
+
+			loaded = (invalidations.get() == invalidated);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Split a text into words.
+	 * <p>
+	 * Words are put in lower case and their accents are removed, so that they
+	 * can be compared whatever the way they were typed.
+	 *
+	 * @param text Text to split.
+	 *
+	 * @return Words of the text.
+	 */
+
+	private static @NotNull List<String> split(String text)
+	{
+		List<String> result = new ArrayList<>();
+
+		// If there is no text.
+		if (text == null) return result;
+
+		// Remove the accents and the case.
+		String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+
+		for (String word : normalized.split("[^\\p{L}\\p{N}]+")) if (!word.isEmpty()) result.add(word);
+
+		return result;
+	}
+}
@@ -0,0 +1,147 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.misc.LockStatistics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class locking objects by their identifier.
+ * <p>
+ * Keeping a lock per object would need to create and forget locks as objects
+ * come and go. Instead, a fixed number of locks is used, each identifier being
+ * always given the same lock. Two threads working on different objects only
+ * wait for each other when their objects share a lock, which is rare with
+ * enough locks. One lock gives back a single global lock.
+ * <p>
+ * Several identifiers can be locked at once, the locks being always taken in
+ * the same order so that two threads can't wait for each other forever. The
+ * contention of the locks is measured and can be read at any time.
+ *
+ * @see #lock(long...)
+ * @see #unlock(long...)
+ * @see #getStatistics()
+ */
+
+public class LockStripes
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Locks shared by the identifiers.
+	private final ReentrantLock[] locks;
+
+	// Statistics counters.
+	private final LongAdder acquisitions = new LongAdder();
+	private final LongAdder contended = new LongAdder();
+	private final LongAdder waitTime = new LongAdder();
+	private final AtomicLong maximumWaitTime = new AtomicLong();
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create the locks.
+	 *
+	 * @param count Number of locks, one for a global lock.
+	 */
+
+	public LockStripes(int count)
+	{
+		locks = new ReentrantLock[count];
+
+		for (int index = 0; index < count; index++) locks[index] = new ReentrantLock();
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Lock objects.
+	 * <p>
+	 * This method waits until the locks of all the supplied identifiers are
+	 * held by the current thread. Each call must be followed by a call to
+	 * {@code unlock()} with the same identifiers.
+	 *
+	 * @param identifiers Identifiers of the objects to lock.
+	 */
+
+	public void lock(long @NotNull ... identifiers)
+	{
+		for (int index : indexesOf(identifiers))
+		{
+			ReentrantLock lock = locks[index];
+
+			acquisitions.increment();
+
+			// If the lock is held by another thread.
+			if (!lock.tryLock())
+			{
+				long start = System.nanoTime();
+
+				lock.lock();
+
+				long wait = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+				contended.increment();
+				waitTime.add(wait);
+				maximumWaitTime.accumulateAndGet(wait, Math::max);
+			}
+		}
+	}
+
+	/**
+	 * Unlock objects.
+	 *
+	 * @param identifiers Identifiers of the objects to unlock.
+	 */
+
+	public void unlock(long @NotNull ... identifiers)
+	{
+		int[] indexes = indexesOf(identifiers);
+
+		// Released in the reverse order.
+		for (int index = indexes.length - 1; index >= 0; index--) locks[indexes[index]].unlock();
+	}
+
+	/**
+	 * Get the contention of the locks.
+	 *
+	 * @return Current statistics.
+	 */
+
+	public LockStatistics getStatistics()
+	{
+		return new LockStatistics(locks.length, acquisitions.sum(), contended.sum(), waitTime.sum(), maximumWaitTime.get());
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Give the locks of identifiers.
+	 *
+	 * @param identifiers Identifiers of the objects.
+	 *
+	 * @return Indexes of the locks, sorted and without duplicates.
+	 */
+
+	private int @NotNull [] indexesOf(long @NotNull [] identifiers)
+	{
+		int[] indexes = new int[identifiers.length];
+
+		// Spread the identifiers, which often follow each other.
+		for (int index = 0; index < identifiers.length; index++)
+			indexes[index] = Math.floorMod(Long.hashCode(identifiers[index] * 0x9E3779B97F4A7C15L), locks.length);
+
+		return Arrays.stream(indexes).sorted().distinct().toArray();
+	}
+}
@@ -34,6 +34,8 @@ public class ManagerFactory
 
 	@Inject @BidManagerDB private BidManager bidManager;
 
+	@Inject @CreditManagerDB private CreditManager creditManager;
+
 	/* ************ */
 	/* Constructors */
 	/* ************ */
@@ -47,6 +49,7 @@ public class ManagerFactory
 		pickupManager.setManagerFactory(this);
 		imageManager.setManagerFactory(this);
 		bidManager.setManagerFactory(this);
+		creditManager.setManagerFactory(this);
 	}
 
 	/* *************************** */
@@ -82,4 +85,9 @@ public class ManagerFactory
 	{
 		return bidManager;
 	}
+
+	public CreditManager getCreditManager()
+	{
+		return creditManager;
+	}
 }
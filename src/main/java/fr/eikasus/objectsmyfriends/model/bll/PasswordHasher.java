@@ -0,0 +1,286 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.dal.misc.ResultObject;
+import fr.eikasus.objectsmyfriends.model.misc.HashingStatistics;
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class hashing passwords apart from the requests.
+ * <p>
+ * Hashing a password takes a lot of processor time on purpose. Done by the
+ * threads handling the requests, many log in at the same time would keep all
+ * of them busy and no other page could be served. Instead, passwords are
+ * hashed by as many threads as processors, the others waiting in a queue of
+ * limited size. When this queue is full, the request is rejected at once with
+ * the time after which it should be made again, rather than waiting.
+ * <p>
+ * The cost of the hashing is calibrated when the application starts: the
+ * number of iterations is chosen so that a password takes about the target
+ * time to be hashed on this computer, never less than the least number of
+ * iterations of the users. Passwords hashed with less iterations are hashed
+ * again when their users log in.
+ * <p>
+ * The time spent hashing and waiting is measured and can be read at any time.
+ *
+ * @see #getIterations()
+ * @see #submit(ResultObject)
+ * @see #await(CompletableFuture)
+ * @see #getStatistics()
+ */
+
+@ApplicationScoped
+public class PasswordHasher
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Number of passwords waiting for each thread at most.
+	private static final int QUEUE_SIZE = 16;
+
+	// Time that hashing a password should take, in milliseconds.
+	private static final long TARGET_HASHING_TIME = 100;
+
+	// Number of iterations and hashes used to measure the speed of the hashing.
+	private static final int CALIBRATION_ITERATIONS = 16384;
+	private static final int CALIBRATION_ROUNDS = 5;
+
+	// The number of iterations is a multiple of this value, so that small
+	// changes of speed between two starts don't make all passwords stale.
+	private static final int ITERATIONS_STEP = 16384;
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Threads hashing the passwords.
+	private ThreadPoolExecutor executor;
+
+	// Number of iterations used to hash the passwords.
+	private int iterations;
+
+	// Statistics counters.
+	private final LongAdder hashes = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder hashingTime = new LongAdder();
+	private final LongAdder waitTime = new LongAdder();
+	private final AtomicLong maximumHashingTime = new AtomicLong();
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Calibrate the hashing and start the threads.
+	 */
+
+	@PostConstruct
+	public void initialize()
+	{
+		iterations = calibrate();
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		AtomicInteger count = new AtomicInteger();
+
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads * QUEUE_SIZE), runnable ->
+		{
+			Thread thread = new Thread(runnable, "password-hasher-" + count.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+	}
+
+	/**
+	 * Create the hasher when the application starts.
+	 * <p>
+	 * The calibration takes some time, which would otherwise delay the first
+	 * log in.
+	 *
+	 * @param event Application context started.
+	 */
+
+	public void startup(@Observes @Initialized(ApplicationScoped.class) Object event)
+	{
+		// Nothing to do, being called creates the hasher.
+	}
+
+	/**
+	 * Stop the threads.
+	 */
+
+	@PreDestroy
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get the number of iterations to use for hashing passwords.
+	 *
+	 * @return Number of iterations found by the calibration.
+	 */
+
+	public int getIterations()
+	{
+		return iterations;
+	}
+
+	/**
+	 * Hash passwords apart from the current thread.
+	 * <p>
+	 * The supplied work, which hashes passwords, is executed by one of the
+	 * threads of the hasher. The returned future gives its result once done, or
+	 * the exception it has thrown. The work must not access the database,
+	 * because the threads of the hasher don't handle any request.
+	 *
+	 * @param work Work to execute.
+	 * @param <T>  Type of the result.
+	 *
+	 * @return Future result of the work.
+	 *
+	 * @throws ModelException With PASSWORD_HASHER_BUSY if too many passwords
+	 *                        are already waiting.
+	 */
+
+	public <T> CompletableFuture<T> submit(@NotNull ResultObject<T> work) throws ModelException
+	{
+		CompletableFuture<T> future = new CompletableFuture<>();
+		long submitted = System.nanoTime();
+
+		try
+		{
+			executor.execute(() ->
+			{
+				long start = System.nanoTime();
+
+				try
+				{
+					future.complete(work.execute());
+				}
+				catch (Exception e)
+				{
+					future.completeExceptionally(e);
+				}
+
+				long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+				hashes.increment();
+				hashingTime.add(time);
+				waitTime.add(TimeUnit.NANOSECONDS.toMillis(start - submitted));
+				maximumHashingTime.accumulateAndGet(time, Math::max);
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			rejected.increment();
+
+			throw new ModelException(e, ModelError.PASSWORD_HASHER_BUSY);
+		}
+
+		return future;
+	}
+
+	/**
+	 * Wait for the result of a work.
+	 *
+	 * @param future Future result of the work.
+	 * @param <T>    Type of the result.
+	 *
+	 * @return Result of the work.
+	 *
+	 * @throws ModelException The exception thrown by the work.
+	 */
+
+	public static <T> T await(@NotNull CompletableFuture<T> future) throws ModelException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof ModelException) throw (ModelException) e.getCause();
+
+			throw new ModelException(e, ModelError.UNABLE_TO_HASH_USER_PASSWORD);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+
+			throw new ModelException(e, ModelError.UNABLE_TO_HASH_USER_PASSWORD);
+		}
+	}
+
+	/**
+	 * Get the activity of the hasher.
+	 *
+	 * @return Current statistics.
+	 */
+
+	public HashingStatistics getStatistics()
+	{
+		return new HashingStatistics(iterations, executor.getMaximumPoolSize(), executor.getQueue().size(), hashes.sum(), rejected.sum(), hashingTime.sum(), maximumHashingTime.get(), waitTime.sum());
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Find the number of iterations needed to reach the target hashing time.
+	 * <p>
+	 * A password is hashed several times with a known number of iterations,
+	 * the fastest time being kept because the first ones are slowed down while
+	 * the code is compiled. The time being proportional to the number of
+	 * iterations, the result is then scaled to the target time.
+	 *
+	 * @return Number of iterations.
+	 */
+
+	private int calibrate()
+	{
+		long fastest = Long.MAX_VALUE;
+
+		try
+		{
+			for (int round = 0; round < CALIBRATION_ROUNDS; round++)
+			{
+				User user = new User().setPlainPassword("calibration");
+				long start = System.nanoTime();
+
+				user.hashPassword(CALIBRATION_ITERATIONS);
+
+				fastest = Math.min(fastest, System.nanoTime() - start);
+			}
+		}
+		catch (ModelException me)
+		{
+			// Hashing will fail anyway, keep the least number of iterations.
+			return User.HASH_ITERATIONS;
+		}
+
+		// Scale to the target time, with the least allowed.
+		long scaled = CALIBRATION_ITERATIONS * TimeUnit.MILLISECONDS.toNanos(TARGET_HASHING_TIME) / Math.max(fastest, 1);
+
+		return (int) Math.max(User.HASH_ITERATIONS, Math.min(Integer.MAX_VALUE - ITERATIONS_STEP, scaled) / ITERATIONS_STEP * ITERATIONS_STEP);
+	}
+}
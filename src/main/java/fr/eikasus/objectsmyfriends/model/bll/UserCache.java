@@ -0,0 +1,185 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import org.jetbrains.annotations.NotNull;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class keeping the users in memory.
+ * <p>
+ * The user stored in the session of each request needs to be read again,
+ * because he may have been changed by another request. Instead of reading him
+ * from the database each time, a copy is kept here, which is dropped by the
+ * user manager each time a user is updated or deleted.
+ * <p>
+ * Each user has a generation, incremented each time he is dropped. A user
+ * read from the database is only kept if his generation didn't change
+ * meanwhile, so that a user read before a change can't replace the changed
+ * one.
+ * <p>
+ * The changes made by other servers are not seen here, so a user kept for a
+ * while is only given again once the version of his row in the database is
+ * found to be the one of the copy kept.
+ *
+ * @see #getGeneration(long)
+ * @see #get(long)
+ * @see #isExpired(long)
+ * @see #confirm(long, Integer)
+ * @see #put(User, long)
+ * @see #invalidate(long)
+ */
+
+@ApplicationScoped
+public class UserCache
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Time after which the version of a user kept is checked, in nanoseconds.
+	private static final long MAX_AGE = TimeUnit.SECONDS.toNanos(5);
+
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Copy of a user at a given generation.
+	 */
+
+	private static class Entry
+	{
+		public final long generation;
+		public final User user;
+		public volatile long checkedAt;
+
+		public Entry(long generation, User user)
+		{
+			this.generation = generation;
+			this.user = user;
+			this.checkedAt = System.nanoTime();
+		}
+	}
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Users kept, by identifier, the user being null once dropped.
+	private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get the current generation of a user.
+	 * <p>
+	 * This method must be called before reading the user from the database,
+	 * and the generation given to {@code put()} once read.
+	 *
+	 * @param identifier Identifier of the user.
+	 *
+	 * @return Current generation.
+	 */
+
+	public long getGeneration(long identifier)
+	{
+		Entry entry = entries.get(identifier);
+
+		return (entry != null) ? (entry.generation) : (0);
+	}
+
+	/**
+	 * Get a user.
+	 *
+	 * @param identifier Identifier of the user.
+	 *
+	 * @return Copy of the user, or null if not kept.
+	 */
+
+	public User get(long identifier)
+	{
+		Entry entry = entries.get(identifier);
+
+		// If the user is not kept.
+		if ((entry == null) || (entry.user == null)) return null;
+
+		// A copy, so that the caller can change it.
+		return new User(entry.user);
+	}
+
+	/**
+	 * Check whether a user kept needs to be checked again.
+	 *
+	 * @param identifier Identifier of the user.
+	 *
+	 * @return true if the version of the user was checked too long ago.
+	 */
+
+	public boolean isExpired(long identifier)
+	{
+		Entry entry = entries.get(identifier);
+
+		return (entry == null) || (System.nanoTime() - entry.checkedAt > MAX_AGE);
+	}
+
+	/**
+	 * Check a user kept against the version of his row.
+	 * <p>
+	 * The user is kept for a while more if his version is the one read from
+	 * the database, otherwise he needs to be read again.
+	 *
+	 * @param identifier Identifier of the user.
+	 * @param version    Version of the user in the database, null if he no
+	 *                   longer exists.
+	 *
+	 * @return true if the user kept is still the one of the database.
+	 */
+
+	public boolean confirm(long identifier, Integer version)
+	{
+		Entry entry = entries.get(identifier);
+
+		// If the user is not kept or was changed.
+		if ((entry == null) || (entry.user == null) || (version == null) || (entry.user.getVersion() != version)) return false;
+
+		entry.checkedAt = System.nanoTime();
+
+		return true;
+	}
+
+	/**
+	 * Keep a user read from the database.
+	 * <p>
+	 * The user is not kept if he was dropped since his generation was read.
+	 *
+	 * @param user       User read.
+	 * @param generation Generation of the user before reading him.
+	 */
+
+	public void put(@NotNull User user, long generation)
+	{
+		User copy = new User(user);
+
+		entries.compute(user.getIdentifier(), (identifier, entry) -> (((entry != null) ? (entry.generation) : (0)) == generation) ? (new Entry(generation, copy)) : (entry));
+	}
+
+	/**
+	 * Drop a user.
+	 * <p>
+	 * This method must be called once a change of the user is saved into the
+	 * database, so that he is read again.
+	 *
+	 * @param identifier Identifier of the user.
+	 */
+
+	public void invalidate(long identifier)
+	{
+		entries.compute(identifier, (key, entry) -> new Entry(((entry != null) ? (entry.generation) : (0)) + 1, null));
+	}
+}
@@ -1,18 +1,24 @@
 package fr.eikasus.objectsmyfriends.model.bll.implementations;
 
+import fr.eikasus.objectsmyfriends.model.bll.AuctionIndex;
+import fr.eikasus.objectsmyfriends.model.bll.LockStripes;
 import fr.eikasus.objectsmyfriends.model.bll.annotations.BidManagerDB;
 import fr.eikasus.objectsmyfriends.model.bll.interfaces.BidManager;
+import fr.eikasus.objectsmyfriends.model.bll.interfaces.CreditManager;
 import fr.eikasus.objectsmyfriends.model.bo.Bid;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
 import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.LockStatistics;
 import fr.eikasus.objectsmyfriends.model.misc.ModelError;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import org.jetbrains.annotations.NotNull;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Bid manager class.
@@ -23,14 +29,44 @@ import java.util.List;
  * forbidden. There is no method to retrieve bids from the database because they
  * are contained in the item itself. Retrieving an item allow then access to its
  * bids.
+ * <p>
+ * A bid is only recorded if the best bid of the item is still the one it was
+ * checked against, so that bids made at the same time on the same item, even
+ * by different servers, can't both win. The loser is checked again against
+ * the new best bid, a few times at most. Bids on the same item made by this
+ * server are also made one after the other, so that they don't make each
+ * other fail. Bids on different items are made at the same time, the credits
+ * of the users being changed through the credit manager, whose changes can't
+ * overwrite each other.
  *
  * @see #add(User, Item, int)
  * @see #delete(User)
+ * @see #getLockStatistics()
  */
 
 @ApplicationScoped @BidManagerDB
 public class BidManagerImpl extends GenericManagerImpl implements BidManager
 {
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Number of locks shared by the items.
+	private static final int LOCK_STRIPES = 64;
+
+	// Number of times a bid is tried when other bids are recorded meanwhile.
+	private static final int MAX_BID_ATTEMPTS = 3;
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Locks of the items on which bids are made.
+	private final LockStripes itemLocks = new LockStripes(LOCK_STRIPES);
+
+	// Index of the items waiting or active.
+	@Inject private AuctionIndex auctionIndex;
+
 	/* ******************* */
 	/* Methods implemented */
 	/* ******************* */
@@ -41,6 +77,13 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 	 * This method is used to create a bid made by a user on an item with the
 	 * supplied price. There are some reasons why this operation can't be done.
 	 * See the {@code validate()} method for more details.
+	 * <p>
+	 * The item is locked while its best bid is read and the new one is saved.
+	 * The price of the bid is reserved on the credit of the bidder, and the one
+	 * of the beaten bid is given back to its user. The current price, leader and
+	 * number of bids of the item are changed in the same transaction. If another
+	 * server recorded a bid on the item meanwhile, the bid is checked and tried
+	 * again, and refused with BID_CONFLICT if it still can't be recorded.
 	 *
 	 * @param user  User that make the bid.
 	 * @param item  Item on which the bid is made.
@@ -51,7 +94,7 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 	 * @throws ModelException In case of problem.
 	 */
 
-	public synchronized Bid add(@NotNull User user, @NotNull Item item, int price) throws ModelException
+	public Bid add(@NotNull User user, @NotNull Item item, int price) throws ModelException
 	{
 		// Create a new bid.
 		Bid newBid = new Bid(user, null, new Date(), price);
@@ -61,27 +104,25 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 
 		try
 		{
-			// Check the validity of the bid
-			Bid oldBid = validate(newBid);
+			// Without user or item, the bid is refused at once.
+			if ((user == null) || (item == null)) validate(newBid, null);
 
-			// Save it into the database.
-			daoFactory.getBidDAO().save(newBid);
+			// The best bid of the item can only be changed by another server until
+			// the new one is saved.
+			itemLocks.lock(item.getIdentifier());
 
-			HashMap<String, Object> properties = new HashMap<>();
+			try
+			{
+				int attempt = 1;
 
-			// Refund the previous winner if there is one.
-			if (oldBid != null)
+				// Try again while other servers record bids meanwhile.
+				while (!addLocked(newBid))
+					if (attempt++ == MAX_BID_ATTEMPTS) throw new ModelException(null, ModelError.BID_CONFLICT);
+			}
+			finally
 			{
-				properties.put("credit", oldBid.getUser().getCredit() + oldBid.getPrice());
-				managerFactory.getUserManager().update(oldBid.getUser(), properties);
+				itemLocks.unlock(item.getIdentifier());
 			}
-
-			// Reduce the price bid to the new winner credit.
-			properties.put("credit", newBid.getUser().getCredit() - newBid.getPrice());
-			managerFactory.getUserManager().update(newBid.getUser(), properties);
-
-			// Update the item to finish the operation by adding the new bid to it.
-			newBid.getItem().addBid(newBid);
 		}
 		catch (ModelException me)
 		{
@@ -92,6 +133,17 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 		return newBid;
 	}
 
+	/**
+	 * Get the contention of the item locks.
+	 *
+	 * @return Current statistics.
+	 */
+
+	public LockStatistics getLockStatistics()
+	{
+		return itemLocks.getStatistics();
+	}
+
 	/**
 	 * Delete bids.
 	 * <p>
@@ -105,6 +157,7 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 	public void delete(@NotNull User user) throws ModelException
 	{
 		List<Bid> bids;
+		Set<Long> items = new HashSet<>();
 
 		try
 		{
@@ -118,15 +171,24 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 
 		try
 		{
-			// For each found bid.
+			// Delete them from the database at once.
+			daoFactory.getBidDAO().deleteAll(bids);
+
+			// For each deleted bid.
 			for (Bid bid : bids)
 			{
-				// Delete if from the database.
-				daoFactory.getBidDAO().delete(bid);
-
-				// And remove the bid from the item bid list.
+				// Remove the bid from the item bid list.
 				bid.getItem().removeBid(bid);
+
+				items.add(bid.getItem().getIdentifier());
 			}
+
+			// The best bids of the items may have been deleted.
+			daoFactory.getItemDAO().recountBids(items);
+
+			// The best prices of the items are unknown, so the index needs to be
+			// built again.
+			auctionIndex.invalidate();
 		}
 		catch (ModelException me)
 		{
@@ -138,6 +200,75 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 	/* Helper methods */
 	/* ************** */
 
+	/**
+	 * Make a bid on a locked item.
+	 * <p>
+	 * The credit of the bidder is checked against the one kept in memory, then
+	 * reserved by the database, which refuses it if it is not enough. The bid
+	 * and the credit changes are saved in one unit of work, so either all of
+	 * them are committed at once or none of them. The item is changed first,
+	 * so that nothing else is done if its best bid is no more the one read.
+	 *
+	 * @param newBid Bid to make.
+	 *
+	 * @return true if the bid is made, false if another bid was recorded on the
+	 * item meanwhile.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	private boolean addLocked(@NotNull Bid newBid) throws ModelException
+	{
+		CreditManager creditManager = managerFactory.getCreditManager();
+
+		// Retrieve the maximum bid made on the item, whose user will be refunded.
+		Bid oldBid = daoFactory.getBidDAO().findBestBid(newBid.getItem());
+
+		// Check the validity of the bid
+		validate(newBid, oldBid);
+
+		try
+		{
+			daoFactory.transaction(() ->
+			{
+				// It becomes the best bid of the item, unless another one was recorded
+				// since the maximum bid was read.
+				if (!daoFactory.getItemDAO().recordBid(newBid.getItem(), newBid.getUser(), newBid.getPrice(), (oldBid != null) ? (oldBid.getPrice()) : (0)))
+					throw new ModelException(null, ModelError.BID_CONFLICT);
+
+				// Reserve the price of the bid on the new winner credit.
+				creditManager.hold(newBid.getUser(), newBid.getItem(), newBid.getPrice());
+
+				// Save it into the database.
+				daoFactory.getBidDAO().save(newBid);
+
+				// Refund the previous winner if there is one.
+				if (oldBid != null) creditManager.release(oldBid.getUser(), oldBid.getItem(), oldBid.getPrice());
+			});
+		}
+		catch (ModelException me)
+		{
+			// The credits kept in memory may have been changed.
+			creditManager.forget(newBid.getUser());
+			if (oldBid != null) creditManager.forget(oldBid.getUser());
+
+			// The bid is checked again against the new best bid.
+			if (me.hasError(ModelError.BID_CONFLICT)) return false;
+
+			throw me;
+		}
+
+		// Update the item to finish the operation like the database, without reading
+		// its bids.
+		Item item = newBid.getItem();
+		item.setCurrentPrice(newBid.getPrice()).setCurrentLeader(newBid.getUser()).setBidCount(item.getBidCount() + 1);
+
+		// The card of the item shows the new price.
+		auctionIndex.bid(newBid.getItem().getIdentifier(), newBid.getUser().getIdentifier(), newBid.getPrice());
+
+		return true;
+	}
+
 	/**
 	 * Verify a bid.
 	 * <p>
@@ -148,17 +279,17 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 	 * made on the item, or at least equal to the item initial price if no bid is
 	 * already made. Of course, a user can't make a higher bid on him.
 	 *
-	 * @param bid Bid to verify.
-	 *
-	 * @return Highest bid of the item related to the bid supplied.
+	 * @param bid    Bid to verify.
+	 * @param maxBid Highest bid of the item related to the bid supplied, null
+	 *               if there is none.
 	 *
 	 * @throws ModelException In case of wrong information.
 	 */
 
-	private Bid validate(@NotNull Bid bid) throws ModelException
+	private void validate(@NotNull Bid bid, Bid maxBid) throws ModelException
 	{
+		CreditManager creditManager = managerFactory.getCreditManager();
 		ModelException exception = new ModelException();
-		Bid maxBid;
 
 		try
 		{
@@ -177,15 +308,21 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 			// Check the validity of the bid price.
 			if (bid.getPrice() < 0) throw exception.add(ModelError.INVALID_BID_PRICE);
 
-			// Check if the user has really the necessary credit.
-			if (bid.getPrice() > bid.getUser().getCredit())
-				throw exception.add(ModelError.INVALID_BID_PRICE);
+			// Check if the user has really the necessary credit, read again before
+			// refusing the bid, as another server may have given him credit.
+			if (bid.getPrice() > creditManager.getBalance(bid.getUser()))
+			{
+				creditManager.forget(bid.getUser());
 
-			// Retrieve the maximum bid made on this item and check it if exists.
-			if ((maxBid = daoFactory.getBidDAO().findBestBid(bid.getItem())) != null)
+				if (bid.getPrice() > creditManager.getBalance(bid.getUser()))
+					throw exception.add(ModelError.INVALID_BID_PRICE);
+			}
+
+			// Check the maximum bid made on this item if exists.
+			if (maxBid != null)
 			{
-				// A user can't bid on him.
-				if (maxBid.getUser() == bid.getUser())
+				// A user can't bid on him, the users being possibly different copies.
+				if (maxBid.getUser().getIdentifier() == bid.getUser().getIdentifier())
 					throw exception.add(ModelError.INVALID_BID_USER);
 
 				// Check if the bid is high enough if this is not the first.
@@ -211,8 +348,5 @@ public class BidManagerImpl extends GenericManagerImpl implements BidManager
 			// Generate exception.
 			throw exception;
 		}
-
-		// Return the highest bid for that item for further operations.
-		return maxBid;
 	}
 }
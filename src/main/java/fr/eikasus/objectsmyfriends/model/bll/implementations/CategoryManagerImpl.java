@@ -1,5 +1,6 @@
 package fr.eikasus.objectsmyfriends.model.bll.implementations;
 
+import fr.eikasus.objectsmyfriends.model.bll.AuctionIndex;
 import fr.eikasus.objectsmyfriends.model.bll.annotations.CategoryManagerDB;
 import fr.eikasus.objectsmyfriends.model.bll.interfaces.CategoryManager;
 import fr.eikasus.objectsmyfriends.model.bo.Category;
@@ -8,6 +9,7 @@ import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import org.jetbrains.annotations.NotNull;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -42,6 +44,9 @@ public class CategoryManagerImpl extends GenericManagerImpl implements CategoryM
 
 	private final Pattern labelCheck;
 
+	// Index of the items waiting or active.
+	@Inject private AuctionIndex auctionIndex;
+
 	/* *************************** */
 	/* Constructors and instancier */
 	/* *************************** */
@@ -161,6 +166,9 @@ public class CategoryManagerImpl extends GenericManagerImpl implements CategoryM
 
 			// Update the category into the database.
 			daoFactory.getCategoryDAO().update(updatedCategory);
+
+			// The label is shown by the cards of its items.
+			auctionIndex.invalidate();
 		}
 		catch (ModelException me)
 		{
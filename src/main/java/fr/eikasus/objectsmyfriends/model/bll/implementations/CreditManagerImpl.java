@@ -0,0 +1,246 @@
+package fr.eikasus.objectsmyfriends.model.bll.implementations;
+
+import fr.eikasus.objectsmyfriends.model.bll.annotations.CreditManagerDB;
+import fr.eikasus.objectsmyfriends.model.bll.interfaces.CreditManager;
+import fr.eikasus.objectsmyfriends.model.bo.CreditEntry;
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.CreditOperation;
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credit manager class.
+ * <p>
+ * This class is used to manage the credit of the users according to the
+ * business logic. Each change is recorded by a line of the credit ledger, then
+ * added to the credit in the database by one request, which refuses to make
+ * it negative. So a change costs one insert and one update, whatever the other
+ * changes made at the same time, and the user itself is neither read nor
+ * written.
+ * <p>
+ * The available credit of each user is also kept in memory, to refuse bids
+ * that are too high without accessing the database and to show it. The
+ * database stays the reference: a credit reserved is refused by it if it is
+ * not enough, whatever is kept in memory. Because the changes made by other
+ * servers are not seen here, a credit kept is read again after a few seconds,
+ * and should be forgotten before refusing something because of it.
+ *
+ * @see #hold(User, Item, int)
+ * @see #release(User, Item, int)
+ * @see #transfer(User, Item, int)
+ * @see #adjust(User, int)
+ * @see #getBalance(User)
+ * @see #forget(User)
+ */
+
+@ApplicationScoped @CreditManagerDB
+public class CreditManagerImpl extends GenericManagerImpl implements CreditManager
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Time after which a credit kept is read again, in nanoseconds.
+	private static final long MAX_AGE = TimeUnit.SECONDS.toNanos(5);
+
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Available credit of a user, and when it was read from the database.
+	 */
+
+	private static class Balance
+	{
+		public final int credit;
+		public final long readAt;
+
+		public Balance(int credit, long readAt)
+		{
+			this.credit = credit;
+			this.readAt = readAt;
+		}
+	}
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Available credit of the users, by identifier.
+	private final Map<Long, Balance> balances = new ConcurrentHashMap<>();
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Reserve credit for a bid.
+	 * <p>
+	 * The price of the bid is taken from the credit of the user, unless his
+	 * credit is not enough.
+	 *
+	 * @param user   User that makes the bid.
+	 * @param item   Item on which the bid is made.
+	 * @param amount Price of the bid.
+	 *
+	 * @throws ModelException In case of problem, or if the credit is not
+	 *                        enough.
+	 */
+
+	public void hold(@NotNull User user, @NotNull Item item, int amount) throws ModelException
+	{
+		move(user, item, CreditOperation.HD, -amount);
+	}
+
+	/**
+	 * Give back the credit reserved for a bid.
+	 *
+	 * @param user   User that made the bid.
+	 * @param item   Item on which the bid was made.
+	 * @param amount Price of the bid.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public void release(@NotNull User user, @NotNull Item item, int amount) throws ModelException
+	{
+		move(user, item, CreditOperation.RL, amount);
+	}
+
+	/**
+	 * Give the credit reserved for a bid to the seller.
+	 *
+	 * @param seller Seller of the item.
+	 * @param item   Item sold.
+	 * @param amount Price of the winning bid.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public void transfer(@NotNull User seller, @NotNull Item item, int amount) throws ModelException
+	{
+		move(seller, item, CreditOperation.TR, amount);
+	}
+
+	/**
+	 * Change the credit of a user outside of bids.
+	 *
+	 * @param user   User whose credit changes.
+	 * @param amount Amount added to the credit, negative to take credit.
+	 *
+	 * @throws ModelException In case of problem, or if the credit would become
+	 *                        negative.
+	 */
+
+	public void adjust(@NotNull User user, int amount) throws ModelException
+	{
+		move(user, null, CreditOperation.AD, amount);
+	}
+
+	/**
+	 * Get the available credit of a user.
+	 * <p>
+	 * The credit is read from the database the first time, then kept in memory
+	 * for a few seconds. The supplied user is updated with it.
+	 *
+	 * @param user User to search for.
+	 *
+	 * @return Available credit.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public int getBalance(@NotNull User user) throws ModelException
+	{
+		Balance kept = balances.get(user.getIdentifier()), balance = kept;
+
+		// Read it from the database the first time, or if it may have been changed
+		// by another server.
+		if ((kept == null) || (System.nanoTime() - kept.readAt > MAX_AGE))
+		{
+			Balance read = new Balance(daoFactory.getCreditDAO().findCredit(user), System.nanoTime());
+
+			// Unless another change was kept meanwhile.
+			balance = balances.merge(user.getIdentifier(), read, (current, fresh) -> (current == kept) ? (fresh) : (current));
+		}
+
+		// The user may have been read before the last changes.
+		user.setCredit(balance.credit);
+
+		return balance.credit;
+	}
+
+	/**
+	 * Forget the credit of a user kept in memory.
+	 * <p>
+	 * This method must be called when changes made to the credit are rolled
+	 * back, or before refusing something because of the credit, so that it is
+	 * read again from the database.
+	 *
+	 * @param user User to forget.
+	 */
+
+	public void forget(@NotNull User user)
+	{
+		balances.remove(user.getIdentifier());
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Change the credit of a user.
+	 * <p>
+	 * The change is recorded in the ledger and added to the credit in the
+	 * database. If the credit would become negative, nothing is done. Otherwise
+	 * the credit kept in memory and the one of the supplied user are changed,
+	 * once the unit of work the change is part of is committed.
+	 *
+	 * @param user      User whose credit changes.
+	 * @param item      Item that causes the change, null if none.
+	 * @param operation Kind of change.
+	 * @param amount    Amount added to the credit.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	private void move(@NotNull User user, Item item, CreditOperation operation, int amount) throws ModelException
+	{
+		try
+		{
+			daoFactory.transaction(() ->
+			{
+				// Change the credit, unless it is not enough.
+				if (!daoFactory.getCreditDAO().addCredit(user, amount))
+					throw new ModelException(null, ModelError.INVALID_USER_CREDITS);
+
+				// And record the change.
+				daoFactory.getCreditDAO().save(new CreditEntry(user, item, operation, amount));
+
+				// Report the change to what is kept in memory, once it is saved.
+				daoFactory.afterCommit(() ->
+				{
+					Balance balance = balances.computeIfPresent(user.getIdentifier(), (identifier, kept) -> new Balance(kept.credit + amount, kept.readAt));
+
+					user.setCredit((balance != null) ? (balance.credit) : (user.getCredit() + amount));
+				});
+			});
+		}
+		catch (ModelException me)
+		{
+			// What is kept in memory may be wrong.
+			forget(user);
+
+			throw me.add(ModelError.UNABLE_TO_MOVE_CREDIT);
+		}
+	}
+}
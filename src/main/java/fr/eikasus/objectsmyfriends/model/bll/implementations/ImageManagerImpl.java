@@ -1,5 +1,6 @@
 package fr.eikasus.objectsmyfriends.model.bll.implementations;
 
+import fr.eikasus.objectsmyfriends.model.bll.AuctionIndex;
 import fr.eikasus.objectsmyfriends.model.bll.annotations.ImageManagerDB;
 import fr.eikasus.objectsmyfriends.model.bll.interfaces.ImageManager;
 import fr.eikasus.objectsmyfriends.model.bo.Image;
@@ -9,6 +10,11 @@ import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import org.jetbrains.annotations.NotNull;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -19,10 +25,14 @@ import java.util.regex.Pattern;
  * so. The access of one of data access object method by the controllers is
  * strictly forbidden. There is no method to retrieve images from the database
  * because they are contained in the item itself. Retrieving an item allow then
- * access to its images.
+ * access to its images. Only the paths of the images of several items can be
+ * retrieved at once, for the pages showing many items.
  *
  * @see #add(Item, String)
+ * @see #add(Item, List)
  * @see #delete(Image)
+ * @see #findPaths(Collection)
+ * @see #countReferences(Collection)
  */
 
 @ApplicationScoped @ImageManagerDB
@@ -40,6 +50,9 @@ public class ImageManagerImpl extends GenericManagerImpl implements ImageManager
 
 	private final Pattern pathCheck;
 
+	// Index of the items waiting or active.
+	@Inject private AuctionIndex auctionIndex;
+
 	/* *************************** */
 	/* Constructors and instancier */
 	/* *************************** */
@@ -92,6 +105,9 @@ public class ImageManagerImpl extends GenericManagerImpl implements ImageManager
 
 			// Add the image to the corresponding item.
 			item.addImage(newImage);
+
+			// It may be shown by the card of the item.
+			auctionIndex.image(item);
 		}
 		catch (ModelException me)
 		{
@@ -103,6 +119,59 @@ public class ImageManagerImpl extends GenericManagerImpl implements ImageManager
 		return newImage;
 	}
 
+	/**
+	 * Create several item images.
+	 * <p>
+	 * This method works like the one creating one image, but the images are all
+	 * checked before any is created, then inserted by batches in one
+	 * transaction, so either all of them are created or none of them.
+	 *
+	 * @param item  Item that the new images belong to.
+	 * @param paths Paths to the image files.
+	 *
+	 * @return The newly created images.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public List<Image> add(Item item, @NotNull List<String> paths) throws ModelException
+	{
+		List<Image> newImages = new ArrayList<>(paths.size());
+
+		try
+		{
+			for (String path : paths)
+			{
+				Image newImage = new Image(null, path);
+
+				// This is necessary to not update the item before this image is created.
+				newImage.setItem(item);
+
+				// Check the validity of the image
+				validate(newImage);
+
+				newImages.add(newImage);
+			}
+
+			// Save the images into the database.
+			daoFactory.getImageDAO().saveAll(newImages);
+
+			// Add the images to the corresponding item.
+			newImages.forEach(item::addImage);
+
+			// One of them may be shown by the card of the item.
+			auctionIndex.image(item);
+		}
+		catch (ModelException me)
+		{
+			// Throw a generic error too.
+			throw me.add(ModelError.UNABLE_TO_CREATE_IMAGE);
+		}
+
+		// Return the newly created images.
+		return newImages;
+	}
+
 	/**
 	 * Delete an image.
 	 * <p>
@@ -115,13 +184,18 @@ public class ImageManagerImpl extends GenericManagerImpl implements ImageManager
 
 	public void delete(@NotNull Image image) throws ModelException
 	{
+		Item item = image.getItem();
+
 		try
 		{
 			// Remove it from the item.
-			image.getItem().removeImage(image);
+			item.removeImage(image);
 
 			// Delete the image from the database.
 			daoFactory.getImageDAO().delete(image);
+
+			// It may have been shown by the card of the item.
+			auctionIndex.image(item);
 		}
 		catch (ModelException me)
 		{
@@ -130,6 +204,43 @@ public class ImageManagerImpl extends GenericManagerImpl implements ImageManager
 		}
 	}
 
+	/**
+	 * Find the paths of the images of several items.
+	 * <p>
+	 * This method reads the paths of the images of all the supplied items from
+	 * the database by one request, without reading the items.
+	 *
+	 * @param items Identifiers of the items.
+	 *
+	 * @return Paths of the images by item identifier, items without image being
+	 * absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public Map<Long, List<String>> findPaths(@NotNull Collection<Long> items) throws ModelException
+	{
+		return daoFactory.getImageDAO().findPaths(items);
+	}
+
+	/**
+	 * Count the images pointing to several image files.
+	 * <p>
+	 * This method counts the images whose path is one of the supplied paths from
+	 * the database by one request.
+	 *
+	 * @param paths Paths of the image files.
+	 *
+	 * @return Number of images by path, paths without image being absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public Map<String, Long> countReferences(@NotNull Collection<String> paths) throws ModelException
+	{
+		return daoFactory.getImageDAO().countReferences(paths);
+	}
+
 	/* ************** */
 	/* Helper methods */
 	/* ************** */
@@ -1,19 +1,21 @@
 package fr.eikasus.objectsmyfriends.model.bll.implementations;
 
+import fr.eikasus.objectsmyfriends.model.bll.AuctionIndex;
+import fr.eikasus.objectsmyfriends.model.bll.AuctionScheduler;
+import fr.eikasus.objectsmyfriends.model.bll.ItemIndex;
 import fr.eikasus.objectsmyfriends.model.bll.annotations.ItemManagerDB;
 import fr.eikasus.objectsmyfriends.model.bll.interfaces.ItemManager;
 import fr.eikasus.objectsmyfriends.model.bo.Category;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.ItemCardView;
 import fr.eikasus.objectsmyfriends.model.bo.PickupPlace;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.misc.*;
 import org.jetbrains.annotations.NotNull;
 
 import javax.enterprise.context.ApplicationScoped;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
+import javax.inject.Inject;
+import java.util.*;
 import java.util.regex.Pattern;
 
 /**
@@ -26,7 +28,10 @@ import java.util.regex.Pattern;
  *
  * @see #add(String, String, Date, Date, int, User, Category)
  * @see #find(Long)
+ * @see #find(long, String)
  * @see #findByCriteria(User, UserRole, Search, Category, String)
+ * @see #findByCriteria(User, UserRole, Search, Category, String, String, int)
+ * @see #findCardsByCriteria(User, UserRole, Search, Category, String, String, int)
  * @see #update(Item, HashMap)
  * @see #delete(List)
  * @see #deleteByCriteria(User, UserRole, Search, Category, String)
@@ -43,6 +48,10 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 	private static final String VALIDATE_DESCRIPTION = "^[0-9A-Za-zéèëêùàÉÈËÊÙÀ'+ -]+$";
 	private static final long SCALE_FACTOR = 60 * 1000;
 
+	// Maximum number of items found by the item index that the database searches
+	// among, beyond which the keywords are searched by the database itself.
+	private static final int MAX_CANDIDATES = 1000;
+
 	/* ********************** */
 	/* Methods used as macros */
 	/* ********************** */
@@ -56,6 +65,15 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 	private final Pattern nameCheck;
 	private final Pattern descriptionCheck;
 
+	// Scheduler keeping the item states up to date.
+	@Inject private AuctionScheduler auctionScheduler;
+
+	// Index of the words of the items.
+	@Inject private ItemIndex itemIndex;
+
+	// Index of the items waiting or active.
+	@Inject private AuctionIndex auctionIndex;
+
 	/* *************************** */
 	/* Constructors and instancier */
 	/* *************************** */
@@ -108,6 +126,15 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 
 			// Add the item to the database.
 			daoFactory.getItemDAO().save(item);
+
+			// Its state will change with its bidding dates.
+			auctionScheduler.schedule(item);
+
+			// Its words can be searched.
+			itemIndex.add(item);
+
+			// Its card can be searched.
+			auctionIndex.add(item);
 		}
 		catch (ModelException me)
 		{
@@ -124,7 +151,8 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 	 * <p>
 	 * Search a specific item in the database whose identifier is the one supplied
 	 * in parameter. If this supplied parameter is null, then all items are
-	 * returned by this method.
+	 * returned by this method. A specific item is read with the associations of
+	 * its detailed view.
 	 *
 	 * @param identifier Item identifier or null for all.
 	 *
@@ -139,9 +167,12 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 
 		try
 		{
+			// Bring item states up to date before reading them.
+			auctionScheduler.applyDueTransitions();
+
 			// Find a specific item or all.
 			if (identifier == null) items = daoFactory.getItemDAO().find();
-			else items.add(daoFactory.getItemDAO().find(identifier));
+			else items.add(daoFactory.getItemDAO().find(identifier, Item.GRAPH_DETAIL));
 		}
 		catch (ModelException me)
 		{
@@ -153,11 +184,47 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 		return items;
 	}
 
+	/**
+	 * Search a specific item for a view.
+	 * <p>
+	 * Search a specific item in the database whose identifier is the one
+	 * supplied in parameter, with the associations needed by the view given by
+	 * the name of an entity graph of the item.
+	 *
+	 * @param identifier Item identifier.
+	 * @param graph      Name of the entity graph of the view.
+	 *
+	 * @return Item found, null if none.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	public Item find(long identifier, String graph) throws ModelException
+	{
+		try
+		{
+			// Bring item states up to date before reading them.
+			auctionScheduler.applyDueTransitions();
+
+			// Find the item with the associations of the view.
+			return daoFactory.getItemDAO().find(identifier, graph);
+		}
+		catch (ModelException me)
+		{
+			// Add generic error.
+			throw me.add(ModelError.ITEM_NOT_FOUND);
+		}
+	}
+
 	/**
 	 * Search items using criteria.
 	 * <p>
 	 * Search items in the database thar are related to the supplied user. His
-	 * role determine the nature of the search criteria.
+	 * role determine the nature of the search criteria. Keywords are searched in
+	 * the item index, as prefixes of the words of the item names and
+	 * descriptions, and the items found are sorted by relevance. If the index
+	 * finds too many items, the keywords are searched in the item names by the
+	 * database, and the items found there but not by the index come last.
 	 *
 	 * @param user     User to search for.
 	 * @param role     Role of the supplied user (seller or buyer)
@@ -174,8 +241,123 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 	{
 		try
 		{
-			// Find items that belong to supplied criteria.
-			return daoFactory.getItemDAO().findByCriteria(user, role, search, category, keywords);
+			// Bring item states up to date before reading them.
+			auctionScheduler.applyDueTransitions();
+
+			// Without keywords, the database does all the work.
+			if (isBlank(keywords)) return daoFactory.getItemDAO().findByCriteria(user, role, search, category, null);
+
+			// Items containing the keywords, the most relevant first.
+			List<Long> candidates = itemIndex.search(keywords);
+
+			// Find among them items that belong to supplied criteria, unless they are
+			// too many to be sent to the database.
+			List<Item> items = (candidates.size() <= MAX_CANDIDATES) ?
+					(daoFactory.getItemDAO().findByCriteria(user, role, search, category, null, candidates)) :
+					(daoFactory.getItemDAO().findByCriteria(user, role, search, category, keywords));
+
+			// Put the items found in the order of relevance.
+			HashMap<Long, Integer> ranks = new HashMap<>();
+			for (int rank = 0; rank < candidates.size(); rank++) ranks.put(candidates.get(rank), rank);
+			items.sort(Comparator.comparingInt(item -> ranks.getOrDefault(item.getIdentifier(), Integer.MAX_VALUE)));
+
+			return items;
+		}
+		catch (ModelException me)
+		{
+			// Add generic error.
+			throw me.add(ModelError.ITEM_NOT_FOUND);
+		}
+	}
+
+	/**
+	 * Search a page of items using criteria.
+	 * <p>
+	 * Search items like the non paginated method, but only return a page of them,
+	 * sorted by bidding end date instead of relevance. The first page is obtained
+	 * with a null token, the next ones with the token of the previous page. Like
+	 * for the non paginated method, too many items found by the index make the
+	 * database search the keywords.
+	 *
+	 * @param user      User to search for.
+	 * @param role      Role of the supplied user (seller or buyer)
+	 * @param search    Searching criteria.
+	 * @param category  Category of items searched.
+	 * @param keywords  Keywords on item name.
+	 * @param pageToken Token of the page to read, null for the first one.
+	 * @param pageSize  Maximum number of items in the page.
+	 *
+	 * @return Page of items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	public Page<Item> findByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords, String pageToken, int pageSize) throws ModelException
+	{
+		try
+		{
+			// Bring item states up to date before reading them.
+			auctionScheduler.applyDueTransitions();
+
+			// Items containing the keywords, if any.
+			List<Long> candidates = (isBlank(keywords)) ? (null) : (itemIndex.search(keywords));
+
+			// Too many items are searched by their keywords instead.
+			if ((candidates != null) && (candidates.size() > MAX_CANDIDATES))
+				return daoFactory.getItemDAO().findByCriteria(user, role, search, category, keywords, null, pageToken, pageSize);
+
+			// Find the requested page of items that belong to supplied criteria.
+			return daoFactory.getItemDAO().findByCriteria(user, role, search, category, null, candidates, pageToken, pageSize);
+		}
+		catch (ModelException me)
+		{
+			// Add generic error.
+			throw me.add(ModelError.ITEM_NOT_FOUND);
+		}
+	}
+
+	/**
+	 * Search a page of item cards using criteria.
+	 * <p>
+	 * Search items like the paginated method, but return read only views of them
+	 * holding what is shown in the item cards. These views are read by one
+	 * request, without loading the items. When only items waiting or active are
+	 * searched, they are read from the auction index without any request, which
+	 * searches among any number of items found by the item index.
+	 *
+	 * @param user      User to search for.
+	 * @param role      Role of the supplied user (seller or buyer)
+	 * @param search    Searching criteria.
+	 * @param category  Category of items searched.
+	 * @param keywords  Keywords on item name.
+	 * @param pageToken Token of the page to read, null for the first one.
+	 * @param pageSize  Maximum number of items in the page.
+	 *
+	 * @return Page of item cards found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	public Page<ItemCardView> findCardsByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords, String pageToken, int pageSize) throws ModelException
+	{
+		try
+		{
+			// Bring item states up to date before reading them.
+			auctionScheduler.applyDueTransitions();
+
+			// Items containing the keywords, if any.
+			List<Long> candidates = (isBlank(keywords)) ? (null) : (itemIndex.search(keywords));
+
+			// The cards of the items waiting or active are found in memory.
+			if (auctionIndex.covers(user, role, search))
+				return auctionIndex.findCards(user, role, search, category, candidates, pageToken, pageSize);
+
+			// Too many items are searched by their keywords instead.
+			if ((candidates != null) && (candidates.size() > MAX_CANDIDATES))
+				return daoFactory.getItemDAO().findCardsByCriteria(user, role, search, category, keywords, null, pageToken, pageSize);
+
+			// Find the requested page of item cards that belong to supplied criteria.
+			return daoFactory.getItemDAO().findCardsByCriteria(user, role, search, category, null, candidates, pageToken, pageSize);
 		}
 		catch (ModelException me)
 		{
@@ -294,6 +476,15 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 
 			// Update the user into the database.
 			daoFactory.getItemDAO().update(updatedItem);
+
+			// Its bidding dates may have changed.
+			auctionScheduler.schedule(updatedItem);
+
+			// Its name or description may have changed.
+			itemIndex.add(updatedItem);
+
+			// Its card or state may have changed.
+			auctionIndex.update(updatedItem);
 		}
 		catch (ModelException me)
 		{
@@ -318,8 +509,17 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 	{
 		try
 		{
-			// Delete each items.
-			for (Item item : items) daoFactory.getItemDAO().delete(item);
+			// Delete the items at once.
+			daoFactory.getItemDAO().deleteAll(items);
+
+			for (Item item : items)
+			{
+				// Its words can't be searched anymore.
+				itemIndex.remove(item.getIdentifier());
+
+				// Nor its card.
+				auctionIndex.remove(item.getIdentifier());
+			}
 		}
 		catch (ModelException me)
 		{
@@ -350,6 +550,10 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 		{
 			// Delete items that belong to supplied criteria.
 			daoFactory.getItemDAO().deleteByCriteria(user, role, search, category, keywords);
+
+			// Deleted items are unknown, so the indexes need to be built again.
+			itemIndex.invalidate();
+			auctionIndex.invalidate();
 		}
 		catch (ModelException me)
 		{
@@ -362,6 +566,19 @@ public class ItemManagerImpl extends GenericManagerImpl implements ItemManager
 	/* Helper methods */
 	/* ************** */
 
+	/**
+	 * Check whether keywords are supplied.
+	 *
+	 * @param keywords Keywords to check.
+	 *
+	 * @return True if there is no keyword.
+	 */
+
+	private static boolean isBlank(String keywords)
+	{
+		return ((keywords == null) || (keywords.trim().isEmpty()));
+	}
+
 	/**
 	 * Verify the validity of the supplied item.
 	 * <p>
@@ -1,10 +1,14 @@
 package fr.eikasus.objectsmyfriends.model.bll.implementations;
 
+import fr.eikasus.objectsmyfriends.model.bll.AuctionIndex;
+import fr.eikasus.objectsmyfriends.model.bll.PasswordHasher;
+import fr.eikasus.objectsmyfriends.model.bll.UserCache;
 import fr.eikasus.objectsmyfriends.model.bll.annotations.UserManagerDB;
 import fr.eikasus.objectsmyfriends.model.bll.interfaces.ItemManager;
 import fr.eikasus.objectsmyfriends.model.bll.interfaces.UserManager;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
 import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.HashingStatistics;
 import fr.eikasus.objectsmyfriends.model.misc.ModelError;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import fr.eikasus.objectsmyfriends.model.misc.Search;
@@ -12,10 +16,11 @@ import fr.eikasus.objectsmyfriends.model.misc.UserRole;
 import org.jetbrains.annotations.NotNull;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
 /**
@@ -28,9 +33,16 @@ import java.util.regex.Pattern;
  *
  * @see #add(String, String, String, String, String, String, String, String,
  * String, int, boolean)
+ * @see #prepare(String, String, String, String, String, String, String,
+ * String, String, int, boolean)
+ * @see #add(User)
  * @see #find(String, String, String)
+ * @see #findAsync(String, String, String)
+ * @see #upgrade(User)
+ * @see #refresh(long)
  * @see #update(User, HashMap)
  * @see #delete(User, boolean)
+ * @see #getHashingStatistics()
  */
 
 @ApplicationScoped @UserManagerDB
@@ -61,6 +73,15 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 	private final Pattern zipcodeCheck;
 	private final Pattern cityCheck;
 
+	// Threads hashing the passwords.
+	@Inject private PasswordHasher passwordHasher;
+
+	// Users kept in memory.
+	@Inject private UserCache userCache;
+
+	// Index of the items waiting or active.
+	@Inject private AuctionIndex auctionIndex;
+
 	/* *************************** */
 	/* Constructors and instancier */
 	/* *************************** */
@@ -117,6 +138,39 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 	 */
 
 	public User add(String username, String firstName, String lastName, String email, String phoneNumber, String street, String zipCode, String city, String plainPassword, int credit, boolean admin) throws ModelException
+	{
+		// Wait for the password to be hashed, then save the user.
+		return add(PasswordHasher.await(prepare(username, firstName, lastName, email, phoneNumber, street, zipCode, city, plainPassword, credit, admin)));
+	}
+
+	/**
+	 * Prepare a user.
+	 * <p>
+	 * This method works like {@code add()}, but the password is hashed apart
+	 * from the current thread and the user is not saved. The returned future
+	 * gives the user once its password is hashed, which can then be saved by
+	 * {@code add(User)}.
+	 *
+	 * @param username      User pseudo.
+	 * @param firstName     User firstname.
+	 * @param lastName      User lastname.
+	 * @param email         User mail.
+	 * @param phoneNumber   User phone number.
+	 * @param street        User street address.
+	 * @param zipCode       User zip code address.
+	 * @param city          User city address.
+	 * @param plainPassword User plain password.
+	 * @param credit        User credit number.
+	 * @param admin         Is the user an admin ?
+	 *
+	 * @return Future user, not saved yet.
+	 *
+	 * @throws ModelException In case of wrong information supplied, or with
+	 *                        PASSWORD_HASHER_BUSY if too many passwords are
+	 *                        already being hashed.
+	 */
+
+	public CompletableFuture<User> prepare(String username, String firstName, String lastName, String email, String phoneNumber, String street, String zipCode, String city, String plainPassword, int credit, boolean admin) throws ModelException
 	{
 		// Create a new user with supplied values.
 		User user = new User(username, firstName, lastName, email, phoneNumber, street, zipCode, city, plainPassword, credit, admin);
@@ -127,8 +181,31 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 			validate(user);
 
 			// Hash password and create salt.
-			user.hashPassword();
+			return passwordHasher.submit(() -> hash(user, ModelError.UNABLE_TO_CREATE_USER));
+		}
+		catch (ModelException me)
+		{
+			// Add generic error.
+			throw me.add(ModelError.UNABLE_TO_CREATE_USER);
+		}
+	}
+
+	/**
+	 * Create a prepared user.
+	 * <p>
+	 * This method saves a user returned by {@code prepare()} into the database.
+	 *
+	 * @param user User prepared.
+	 *
+	 * @return The supplied user.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
 
+	public User add(@NotNull User user) throws ModelException
+	{
+		try
+		{
 			// Save the user into the database.
 			daoFactory.getUserDAO().save(user);
 		}
@@ -150,7 +227,8 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 	 * username. If the email parameter is not null, it will find the user by its
 	 * email. If both parameters are null, an exception is thrown. Once a user is
 	 * found, its password is checked. If it doesn't match, an exception is thrown
-	 * too.
+	 * too. If the password was hashed with older parameters, it is hashed again
+	 * and saved.
 	 *
 	 * @param username      Name of the user to search.
 	 * @param email         Email of the user to search.
@@ -163,7 +241,32 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 
 	public User find(String username, String email, String plainPassword) throws ModelException
 	{
-		User user, userForPassword;
+		// Wait for the password to be checked, then save it if hashed again.
+		return upgrade(PasswordHasher.await(findAsync(username, email, plainPassword)));
+	}
+
+	/**
+	 * Try to find a user without waiting for his password to be checked.
+	 * <p>
+	 * This method works like {@code find()}, but the password is checked apart
+	 * from the current thread. The returned future gives the user once done, or
+	 * fails with a ModelException if the password doesn't match. A password
+	 * hashed again is not saved, which should then be done by {@code upgrade()}
+	 * once the future is done.
+	 *
+	 * @param username      Name of the user to search.
+	 * @param email         Email of the user to search.
+	 * @param plainPassword User password in plain text.
+	 *
+	 * @return Future user found related to criteria.
+	 *
+	 * @throws ModelException In case of problem, or with PASSWORD_HASHER_BUSY
+	 *                        if too many passwords are already being hashed.
+	 */
+
+	public CompletableFuture<User> findAsync(String username, String email, String plainPassword) throws ModelException
+	{
+		User user;
 
 		try
 		{
@@ -172,23 +275,70 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 			else if (email != null) user = daoFactory.getUserDAO().findByEmail(email);
 			else throw new ModelException();
 
-			// Create a temporary user object to hash password supplied.
-			userForPassword = new User();
-			// The salt should be the same as the supplied user.
-			userForPassword.setPlainPassword(plainPassword).setSalt(user.getSalt());
-			// Compute the hashed password.
-			userForPassword.hashPassword();
-
-			// Is the supplied password correct ?
-			if (!Arrays.equals(user.getPassword(), userForPassword.getPassword()))
-				throw new ModelException();
+			return passwordHasher.submit(() ->
+			{
+				try
+				{
+					// Is the supplied password correct ?
+					if (!user.checkPassword(plainPassword)) throw new ModelException();
+
+					// Hash it again if it was hashed with older parameters.
+					if (user.isPasswordStale(passwordHasher.getIterations()))
+					{
+						// Hash it apart so that the user is unchanged in case of problem.
+						User upgradedUser = new User().setPlainPassword(plainPassword);
+						upgradedUser.hashPassword(passwordHasher.getIterations());
+
+						user.setPassword(upgradedUser.getPassword()).setSalt(upgradedUser.getSalt()).setRehashed(true);
+					}
+				}
+				catch (ModelException me)
+				{
+					throw me.add(ModelError.USER_NOT_FOUND);
+				}
+
+				// return tue found user.
+				return user;
+			});
 		}
 		catch (ModelException me)
 		{
 			throw me.add(ModelError.USER_NOT_FOUND);
 		}
+	}
+
+	/**
+	 * Save the password of a user hashed again.
+	 * <p>
+	 * This method saves the password of a user returned by {@code findAsync()}
+	 * if it was hashed again with the current parameters. Nothing is done
+	 * otherwise. Failing to save it doesn't prevent the user from logging in,
+	 * because his old password still works.
+	 *
+	 * @param user User found.
+	 *
+	 * @return The supplied user.
+	 */
+
+	public User upgrade(@NotNull User user)
+	{
+		// If the password was not hashed again.
+		if (!user.isRehashed()) return user;
+
+		try
+		{
+			// Save only the password and the salt.
+			daoFactory.getUserDAO().updatePassword(user);
+			userCache.invalidate(user.getIdentifier());
+
+			user.setRehashed(false);
+		}
+		catch (ModelException me)
+		{
+			// The old password is still in the database, it will be hashed again
+			// at the next log in.
+		}
 
-		// return tue found user.
 		return user;
 	}
 
@@ -226,6 +376,57 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 		return users;
 	}
 
+	/**
+	 * Read again a user.
+	 * <p>
+	 * This method gives the current state of a user whose identifier is kept
+	 * by the caller, like the one stored in the session. It is read from the
+	 * database only if it was changed since the last time, otherwise a copy kept
+	 * in memory is given. Because other servers may change it too, the version
+	 * of a copy kept for a while is read again, and the user is read again if
+	 * it is not the one of the copy. The credit is taken from the credit
+	 * manager.
+	 *
+	 * @param identifier Identifier of the user to read again.
+	 *
+	 * @return Current state of the user.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public User refresh(long identifier) throws ModelException
+	{
+		// Generation read before the user, in case he is changed meanwhile.
+		long generation = userCache.getGeneration(identifier);
+		User foundUser = userCache.get(identifier);
+
+		try
+		{
+			// The copy kept for a while is given again only if the user was not
+			// changed by another server.
+			if ((foundUser != null) && (userCache.isExpired(identifier)) && (!userCache.confirm(identifier, daoFactory.getUserDAO().findVersion(identifier))))
+				foundUser = null;
+
+			// Read it from the database if not kept in memory.
+			if (foundUser == null)
+			{
+				if ((foundUser = daoFactory.getUserDAO().find(identifier)) == null) throw new ModelException();
+
+				userCache.put(foundUser, generation);
+			}
+
+			// The credit changes without changing the user.
+			managerFactory.getCreditManager().getBalance(foundUser);
+		}
+		catch (ModelException me)
+		{
+			// Add generic error.
+			throw me.add(ModelError.USER_NOT_FOUND);
+		}
+
+		return foundUser;
+	}
+
 	/**
 	 * Update user properties.
 	 * <p>
@@ -233,7 +434,8 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 	 * value should be supplied as a pair of key/value, a key representing the
 	 * exact name or the user property, including case. If a key as an undefined
 	 * property name, an exception is generated. Note that the username can't be
-	 * modified.
+	 * modified, and that a change of the credit is recorded in the credit
+	 * ledger.
 	 *
 	 * @param user       User to be updated.
 	 * @param properties User properties to update.
@@ -310,14 +512,35 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 			// Check the user validity.
 			validate(updatedUser);
 
-			// Hash password and create salt.
-			updatedUser.hashPassword();
+			// Hash password and create salt, if it is changed.
+			if (updatedUser.getPlainPassword() != null)
+				PasswordHasher.await(passwordHasher.submit(() -> hash(updatedUser, ModelError.UNABLE_TO_UPDATE_USER)));
+
+			// Change of the credit from its current value, read from the database as
+			// another server may have changed it.
+			if (integer != null) managerFactory.getCreditManager().forget(user);
+			int credit = (integer != null) ? (integer - managerFactory.getCreditManager().getBalance(user)) : (0);
 
-			// Update the user into the database.
-			daoFactory.getUserDAO().update(updatedUser);
+			daoFactory.transaction(() ->
+			{
+				// The credit is only changed through the ledger.
+				if (credit != 0) managerFactory.getCreditManager().adjust(user, credit);
+
+				// Update the user into the database.
+				daoFactory.getUserDAO().update(updatedUser);
+			});
+
+			// The user kept in memory is changed.
+			userCache.invalidate(user.getIdentifier());
+
+			// The username is shown by the cards of its items.
+			if (!updatedUser.getUsername().equals(user.getUsername())) auctionIndex.invalidate();
 		}
 		catch (ModelException me)
 		{
+			// The credit kept in memory may have been changed.
+			if (integer != null) managerFactory.getCreditManager().forget(user);
+
 			// Add generic error.
 			throw me.add(ModelError.UNABLE_TO_UPDATE_USER);
 		}
@@ -381,12 +604,56 @@ public class UserManagerImpl extends GenericManagerImpl implements UserManager
 		{
 			throw me.add(ModelError.UNABLE_TO_DELETE_USER);
 		}
+		finally
+		{
+			// The user kept in memory is changed, even partially.
+			userCache.invalidate(user.getIdentifier());
+		}
+	}
+
+	/**
+	 * Get the activity of the password hasher.
+	 *
+	 * @return Current statistics.
+	 */
+
+	public HashingStatistics getHashingStatistics()
+	{
+		return passwordHasher.getStatistics();
 	}
 
 	/* ************** */
 	/* Helper methods */
 	/* ************** */
 
+	/**
+	 * Hash the password of a user.
+	 * <p>
+	 * This method is executed by the password hasher.
+	 *
+	 * @param user  User whose password is hashed.
+	 * @param error Generic error added in case of problem.
+	 *
+	 * @return The supplied user.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	private User hash(@NotNull User user, ModelError error) throws ModelException
+	{
+		try
+		{
+			// Hash password and create salt.
+			user.hashPassword(passwordHasher.getIterations());
+		}
+		catch (ModelException me)
+		{
+			throw me.add(error);
+		}
+
+		return user;
+	}
+
 	/**
 	 * Verify a user.
 	 * <p>
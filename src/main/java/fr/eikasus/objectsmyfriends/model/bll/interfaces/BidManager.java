@@ -4,6 +4,7 @@ import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bo.Bid;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
 import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.LockStatistics;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import org.jetbrains.annotations.NotNull;
 
@@ -20,6 +21,7 @@ import org.jetbrains.annotations.NotNull;
  *
  * @see #add(User, Item, int)
  * @see #delete(User)
+ * @see #getLockStatistics()
  */
 
 public interface BidManager
@@ -63,4 +65,15 @@ public interface BidManager
 	 */
 
 	void delete(@NotNull User user) throws ModelException;
+
+	/**
+	 * Get the contention of the item locks.
+	 * <p>
+	 * Bids on the same item are made one after the other. These statistics tell
+	 * how often and how long bids waited for another one on the same item.
+	 *
+	 * @return Current statistics.
+	 */
+
+	LockStatistics getLockStatistics();
 }
@@ -0,0 +1,118 @@
+package fr.eikasus.objectsmyfriends.model.bll.interfaces;
+
+import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Interface used for implementing credit manager class.
+ * <p>
+ * This interface defines all the specific methods that must be implemented to
+ * manage the credit of the users. Each change is recorded in a ledger and
+ * applied to the credit in the database at once. Methods present in the
+ * interface implementation are allowed to use as many as data access objects
+ * required to accomplish their goal. The access of one of data access object
+ * method by the controllers is strictly forbidden.
+ *
+ * @see #hold(User, Item, int)
+ * @see #release(User, Item, int)
+ * @see #transfer(User, Item, int)
+ * @see #adjust(User, int)
+ * @see #getBalance(User)
+ * @see #forget(User)
+ */
+
+public interface CreditManager
+{
+	/**
+	 * Set the manager factory.
+	 * <p>
+	 * This method retrieves the manager factory to allow the instance methods to
+	 * access others managers.
+	 *
+	 * @param managerFactory Manager factory instance.
+	 */
+
+	void setManagerFactory(ManagerFactory managerFactory);
+
+	/**
+	 * Reserve credit for a bid.
+	 * <p>
+	 * The price of the bid is taken from the credit of the user, unless his
+	 * credit is not enough.
+	 *
+	 * @param user   User that makes the bid.
+	 * @param item   Item on which the bid is made.
+	 * @param amount Price of the bid.
+	 *
+	 * @throws ModelException In case of problem, or if the credit is not
+	 *                        enough.
+	 */
+
+	void hold(@NotNull User user, @NotNull Item item, int amount) throws ModelException;
+
+	/**
+	 * Give back the credit reserved for a bid.
+	 *
+	 * @param user   User that made the bid.
+	 * @param item   Item on which the bid was made.
+	 * @param amount Price of the bid.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	void release(@NotNull User user, @NotNull Item item, int amount) throws ModelException;
+
+	/**
+	 * Give the credit reserved for a bid to the seller.
+	 *
+	 * @param seller Seller of the item.
+	 * @param item   Item sold.
+	 * @param amount Price of the winning bid.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	void transfer(@NotNull User seller, @NotNull Item item, int amount) throws ModelException;
+
+	/**
+	 * Change the credit of a user outside of bids.
+	 *
+	 * @param user   User whose credit changes.
+	 * @param amount Amount added to the credit, negative to take credit.
+	 *
+	 * @throws ModelException In case of problem, or if the credit would become
+	 *                        negative.
+	 */
+
+	void adjust(@NotNull User user, int amount) throws ModelException;
+
+	/**
+	 * Get the available credit of a user.
+	 * <p>
+	 * The credit is read from the database the first time, then kept in memory
+	 * for a few seconds. The supplied user is updated with it.
+	 *
+	 * @param user User to search for.
+	 *
+	 * @return Available credit.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	int getBalance(@NotNull User user) throws ModelException;
+
+	/**
+	 * Forget the credit of a user kept in memory.
+	 * <p>
+	 * This method must be called when changes made to the credit are rolled
+	 * back, or before refusing something because of the credit, so that it is
+	 * read again from the database.
+	 *
+	 * @param user User to forget.
+	 */
+
+	void forget(@NotNull User user);
+}
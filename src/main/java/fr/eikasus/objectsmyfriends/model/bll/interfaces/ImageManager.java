@@ -6,6 +6,10 @@ import fr.eikasus.objectsmyfriends.model.bo.Item;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Interface used for implementing image manager class.
  * <p>
@@ -15,10 +19,15 @@ import org.jetbrains.annotations.NotNull;
  * goal. The access of one of data access object method by the controllers is
  * strictly forbidden. There is no method to retrieve images because they are
  * contained in the item itself. Retrieving an item allow then access to its
- * images.
+ * images. Only the paths of the images of several items can be retrieved at
+ * once, for the pages showing many items, and the images pointing to a file
+ * can be counted, for the files shared by several images.
  *
  * @see #add(Item, String)
+ * @see #add(Item, List)
  * @see #delete(Image)
+ * @see #findPaths(Collection)
+ * @see #countReferences(Collection)
  */
 
 public interface ImageManager
@@ -51,6 +60,22 @@ public interface ImageManager
 
 	Image add(Item item, String path) throws ModelException;
 
+	/**
+	 * Create several item images.
+	 * <p>
+	 * This method works like the one creating one image, but the images are all
+	 * created at once, or none of them if one is invalid.
+	 *
+	 * @param item  Item that the new images belong to.
+	 * @param paths Paths to the image files.
+	 *
+	 * @return The newly created images.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	List<Image> add(Item item, List<String> paths) throws ModelException;
+
 	/**
 	 * Delete an image.
 	 * <p>
@@ -63,4 +88,35 @@ public interface ImageManager
 	 */
 
 	void delete(@NotNull Image image) throws ModelException;
+
+	/**
+	 * Find the paths of the images of several items.
+	 * <p>
+	 * This method reads the paths of the images of all the supplied items at
+	 * once, without reading the items.
+	 *
+	 * @param items Identifiers of the items.
+	 *
+	 * @return Paths of the images by item identifier, items without image being
+	 * absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	Map<Long, List<String>> findPaths(@NotNull Collection<Long> items) throws ModelException;
+
+	/**
+	 * Count the images pointing to several image files.
+	 * <p>
+	 * This method counts the images whose path is one of the supplied paths. An
+	 * image file may only be deleted when no image points to it anymore.
+	 *
+	 * @param paths Paths of the image files.
+	 *
+	 * @return Number of images by path, paths without image being absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	Map<String, Long> countReferences(@NotNull Collection<String> paths) throws ModelException;
 }
@@ -3,8 +3,10 @@ package fr.eikasus.objectsmyfriends.model.bll.interfaces;
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bo.Category;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.ItemCardView;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import fr.eikasus.objectsmyfriends.model.misc.Page;
 import fr.eikasus.objectsmyfriends.model.misc.Search;
 import fr.eikasus.objectsmyfriends.model.misc.UserRole;
 import org.jetbrains.annotations.NotNull;
@@ -24,7 +26,10 @@ import java.util.List;
  *
  * @see #add(String, String, Date, Date, int, User, Category)
  * @see #find(Long)
+ * @see #find(long, String)
  * @see #findByCriteria(User, UserRole, Search, Category, String)
+ * @see #findByCriteria(User, UserRole, Search, Category, String, String, int)
+ * @see #findCardsByCriteria(User, UserRole, Search, Category, String, String, int)
  * @see #update(Item, HashMap)
  * @see #delete(List)
  * @see #deleteByCriteria(User, UserRole, Search, Category, String)
@@ -70,7 +75,8 @@ public interface ItemManager
 	 * <p>
 	 * Search a specific item in the persistence unit whose identifier is the one
 	 * supplied in parameter. If this supplied parameter is null, then all items
-	 * are returned by this method.
+	 * are returned by this method. A specific item is read with the associations
+	 * of its detailed view.
 	 *
 	 * @param identifier Item identifier or null for all.
 	 *
@@ -81,11 +87,34 @@ public interface ItemManager
 
 	List<Item> find(Long identifier) throws ModelException;
 
+	/**
+	 * Search a specific item for a view.
+	 * <p>
+	 * Search a specific item in the persistence unit whose identifier is the one
+	 * supplied in parameter, with the associations needed by the view given by
+	 * the name of an entity graph of the item.
+	 *
+	 * @param identifier Item identifier.
+	 * @param graph      Name of the entity graph of the view.
+	 *
+	 * @return Item found, null if none.
+	 *
+	 * @throws ModelException In case of pb.
+	 *
+	 * @see Item#GRAPH_LIST
+	 * @see Item#GRAPH_DETAIL
+	 * @see Item#GRAPH_BID
+	 */
+
+	Item find(long identifier, String graph) throws ModelException;
+
 	/**
 	 * Search items using criteria.
 	 * <p>
 	 * Search items in the persistence unit that are related to the supplied user.
-	 * His role determine the nature of the search criteria.
+	 * His role determine the nature of the search criteria. Keywords are searched
+	 * as prefixes of the words of the item names and descriptions, and the items
+	 * found are sorted by relevance.
 	 *
 	 * @param user     User to search for.
 	 * @param role     Role of the supplied user (seller or buyer)
@@ -100,6 +129,50 @@ public interface ItemManager
 
 	List<Item> findByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords) throws ModelException;
 
+	/**
+	 * Search a page of items using criteria.
+	 * <p>
+	 * Search items like the non paginated method, but only return a page of them,
+	 * sorted by bidding end date instead of relevance. The first page is obtained
+	 * with a null token, the next ones with the token of the previous page.
+	 *
+	 * @param user      User to search for.
+	 * @param role      Role of the supplied user (seller or buyer)
+	 * @param search    Searching criteria.
+	 * @param category  Category of items searched.
+	 * @param keywords  Keywords on item name.
+	 * @param pageToken Token of the page to read, null for the first one.
+	 * @param pageSize  Maximum number of items in the page.
+	 *
+	 * @return Page of items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	Page<Item> findByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords, String pageToken, int pageSize) throws ModelException;
+
+	/**
+	 * Search a page of item cards using criteria.
+	 * <p>
+	 * Search items like the paginated method, but return read only views of them
+	 * holding what is shown in the item cards. These views are read by one
+	 * request, without loading the items.
+	 *
+	 * @param user      User to search for.
+	 * @param role      Role of the supplied user (seller or buyer)
+	 * @param search    Searching criteria.
+	 * @param category  Category of items searched.
+	 * @param keywords  Keywords on item name.
+	 * @param pageToken Token of the page to read, null for the first one.
+	 * @param pageSize  Maximum number of items in the page.
+	 *
+	 * @return Page of item cards found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	Page<ItemCardView> findCardsByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords, String pageToken, int pageSize) throws ModelException;
+
 	/**
 	 * Update item properties.
 	 * <p>
@@ -2,11 +2,13 @@ package fr.eikasus.objectsmyfriends.model.bll.interfaces;
 
 import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
 import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.HashingStatistics;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface used for implementing user manager class.
@@ -19,9 +21,16 @@ import java.util.List;
  *
  * @see #add(String, String, String, String, String, String, String, String,
  * String, int, boolean)
+ * @see #prepare(String, String, String, String, String, String, String,
+ * String, String, int, boolean)
+ * @see #add(User)
  * @see #find(String, String, String)
+ * @see #findAsync(String, String, String)
+ * @see #upgrade(User)
+ * @see #refresh(long)
  * @see #update(User, HashMap)
  * @see #delete(User, boolean)
+ * @see #getHashingStatistics()
  */
 
 public interface UserManager
@@ -67,6 +76,50 @@ public interface UserManager
 
 	User add(String username, String firstName, String lastName, String email, String phoneNumber, String street, String zipCode, String city, String plainPassword, int credit, boolean admin) throws ModelException;
 
+	/**
+	 * Prepare a user.
+	 * <p>
+	 * This method works like {@code add()}, but the password is hashed apart
+	 * from the current thread and the user is not saved. The returned future
+	 * gives the user once its password is hashed, which can then be saved by
+	 * {@code add(User)}.
+	 *
+	 * @param username      User pseudo.
+	 * @param firstName     User firstname.
+	 * @param lastName      User lastname.
+	 * @param email         User mail.
+	 * @param phoneNumber   User phone number.
+	 * @param street        User street address.
+	 * @param zipCode       User zip code address.
+	 * @param city          User city address.
+	 * @param plainPassword User plain password.
+	 * @param credit        User credit number.
+	 * @param admin         Is the user an admin ?
+	 *
+	 * @return Future user, not saved yet.
+	 *
+	 * @throws ModelException In case of wrong information supplied, or with
+	 *                        PASSWORD_HASHER_BUSY if too many passwords are
+	 *                        already being hashed.
+	 */
+
+	CompletableFuture<User> prepare(String username, String firstName, String lastName, String email, String phoneNumber, String street, String zipCode, String city, String plainPassword, int credit, boolean admin) throws ModelException;
+
+	/**
+	 * Create a prepared user.
+	 * <p>
+	 * This method saves a user returned by {@code prepare()} into the
+	 * persistence unit.
+	 *
+	 * @param user User prepared.
+	 *
+	 * @return The supplied user.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	User add(@NotNull User user) throws ModelException;
+
 	/**
 	 * Try to find a user.
 	 * <p>
@@ -75,7 +128,8 @@ public interface UserManager
 	 * username. If the email parameter is not null, it will find the user by its
 	 * email. If both parameters are null, an exception is thrown. Once a user is
 	 * found, its password is checked. If it doesn't match, an exception is thrown
-	 * too.
+	 * too. If the password was hashed with older parameters, it is hashed again
+	 * and saved.
 	 *
 	 * @param username      Name of the user to search.
 	 * @param email         Email of the user to search.
@@ -88,6 +142,42 @@ public interface UserManager
 
 	User find(String username, String email, String plainPassword) throws ModelException;
 
+	/**
+	 * Try to find a user without waiting for his password to be checked.
+	 * <p>
+	 * This method works like {@code find()}, but the password is checked apart
+	 * from the current thread. The returned future gives the user once done, or
+	 * fails with a ModelException if the password doesn't match. A password
+	 * hashed again is not saved, which should then be done by {@code upgrade()}
+	 * once the future is done.
+	 *
+	 * @param username      Name of the user to search.
+	 * @param email         Email of the user to search.
+	 * @param plainPassword User password in plain text.
+	 *
+	 * @return Future user found related to criteria.
+	 *
+	 * @throws ModelException In case of problem, or with PASSWORD_HASHER_BUSY
+	 *                        if too many passwords are already being hashed.
+	 */
+
+	CompletableFuture<User> findAsync(String username, String email, String plainPassword) throws ModelException;
+
+	/**
+	 * Save the password of a user hashed again.
+	 * <p>
+	 * This method saves the password of a user returned by {@code findAsync()}
+	 * if it was hashed again with the current parameters. Nothing is done
+	 * otherwise. Failing to save it doesn't prevent the user from logging in,
+	 * because his old password still works.
+	 *
+	 * @param user User found.
+	 *
+	 * @return The supplied user.
+	 */
+
+	User upgrade(@NotNull User user);
+
 	/**
 	 * Search a specific user.
 	 * <p>
@@ -104,6 +194,24 @@ public interface UserManager
 
 	List<User> find(Long identifier) throws ModelException;
 
+	/**
+	 * Read again a user.
+	 * <p>
+	 * This method gives the current state of a user whose identifier is kept
+	 * by the caller, like the one stored in the session. It is read from the
+	 * database only if it was changed since the last time, otherwise a copy kept
+	 * in memory is given. The credit is taken from the credit manager, which follows each
+	 * change of it.
+	 *
+	 * @param identifier Identifier of the user to read again.
+	 *
+	 * @return Current state of the user.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	User refresh(long identifier) throws ModelException;
+
 	/**
 	 * Update user properties.
 	 * <p>
@@ -137,4 +245,16 @@ public interface UserManager
 	 */
 
 	void delete(User user, boolean archived) throws ModelException;
+
+	/**
+	 * Get the activity of the password hasher.
+	 * <p>
+	 * Passwords are hashed by a limited number of threads. These statistics
+	 * tell how long it takes and how many requests were rejected because too
+	 * many passwords were waiting.
+	 *
+	 * @return Current statistics.
+	 */
+
+	HashingStatistics getHashingStatistics();
 }
@@ -1,5 +1,6 @@
 package fr.eikasus.objectsmyfriends.model.bo;
 
+import org.hibernate.annotations.BatchSize;
 import org.jetbrains.annotations.NotNull;
 
 import javax.persistence.*;
@@ -10,7 +11,7 @@ import java.util.Objects;
  * Class representing an item category.
  */
 
-@Entity @Table(name = "categories")
+@Entity @Table(name = "categories") @BatchSize(size = 32)
 public class Category implements Serializable
 {
 	/* ******************************* */
@@ -27,7 +28,8 @@ public class Category implements Serializable
 	/* Class members */
 	/* ************* */
 
-	@Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Id @GeneratedValue(strategy = GenerationType.TABLE, generator = "categories")
+	@TableGenerator(name = "categories", table = "identifiers", pkColumnName = "entity", valueColumnName = "next_value", pkColumnValue = "categories", allocationSize = 50)
 	private long identifier;
 
 	@Column(name = "label", nullable = false, length = MAX_LENGTH_LABEL, unique = true)
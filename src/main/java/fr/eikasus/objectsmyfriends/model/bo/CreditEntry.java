@@ -0,0 +1,144 @@
+package fr.eikasus.objectsmyfriends.model.bo;
+
+import fr.eikasus.objectsmyfriends.model.misc.CreditOperation;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Class representing a line of the credit ledger.
+ * <p>
+ * Each change of the credit of a user is recorded by one line, which is never
+ * modified afterwards. The amount is added to the credit of the user, so it is
+ * negative when credit is taken from him.
+ */
+
+@Entity(name = "CreditEntry") @Table(name = "credit_entries")
+public class CreditEntry implements Serializable
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	private static final long serialVersionUID = 1L;
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Identifier of the line, the lines of a bid being inserted together.
+	@Id @GeneratedValue(strategy = GenerationType.TABLE, generator = "credit_entries")
+	@TableGenerator(name = "credit_entries", table = "identifiers", pkColumnName = "entity", valueColumnName = "next_value", pkColumnValue = "credit_entries", allocationSize = 50)
+	private long identifier;
+
+	// User whose credit changed.
+	@ManyToOne @JoinColumn(name = "user", nullable = false) @OnDelete(action = OnDeleteAction.CASCADE)
+	private User user;
+
+	// Item that caused the change, if any.
+	@ManyToOne @JoinColumn(name = "item") @OnDelete(action = OnDeleteAction.CASCADE)
+	private Item item;
+
+	// Date of the change.
+	@Column(nullable = false) @Temporal(TemporalType.TIMESTAMP)
+	private Date date;
+
+	// Kind of change.
+	@Column(nullable = false, length = 2) @Enumerated(EnumType.STRING)
+	private CreditOperation operation;
+
+	// Amount added to the credit.
+	@Column(nullable = false)
+	private int amount;
+
+	/* ******* */
+	/* Getters */
+	/* ******* */
+
+	public long getIdentifier()
+	{
+		return identifier;
+	}
+
+	public User getUser()
+	{
+		return user;
+	}
+
+	public Item getItem()
+	{
+		return item;
+	}
+
+	public Date getDate()
+	{
+		return date;
+	}
+
+	public CreditOperation getOperation()
+	{
+		return operation;
+	}
+
+	public int getAmount()
+	{
+		return amount;
+	}
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create an empty line, used by the persistence provider.
+	 */
+
+	protected CreditEntry()
+	{
+	}
+
+	/**
+	 * Create a line of the ledger.
+	 *
+	 * @param user      User whose credit changes.
+	 * @param item      Item that causes the change, null if none.
+	 * @param operation Kind of change.
+	 * @param amount    Amount added to the credit.
+	 */
+
+	public CreditEntry(User user, Item item, CreditOperation operation, int amount)
+	{
+		this.user = user;
+		this.item = item;
+		this.date = new Date();
+		this.operation = operation;
+		this.amount = amount;
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Create a string containing the instance description.
+	 */
+
+	@Override public String toString()
+	{
+		StringBuffer sb = new StringBuffer();
+
+		sb.append("{");
+		sb.append(" identifier = '").append(identifier).append("', ");
+		sb.append(" user = '").append((user == null) ? (0) : (user.getIdentifier())).append("', ");
+		sb.append(" item = '").append((item == null) ? (0) : (item.getIdentifier())).append("', ");
+		sb.append(" date = '").append(date).append("', ");
+		sb.append(" operation = '").append(operation).append("', ");
+		sb.append(" amount = '").append(amount).append("' ");
+		sb.append("}");
+
+		return sb.toString();
+	}
+}
@@ -22,8 +22,9 @@ public class Image implements Serializable
 	/* Class members */
 	/* ************* */
 
-	// Identifier of the image.
-	@Id @GeneratedValue(strategy = GenerationType.IDENTITY) @Column (name = "identifier")
+	// Identifier of the image, the images of an item being inserted together.
+	@Id @GeneratedValue(strategy = GenerationType.TABLE, generator = "images") @Column (name = "identifier")
+	@TableGenerator(name = "images", table = "identifiers", pkColumnName = "entity", valueColumnName = "next_value", pkColumnValue = "images", allocationSize = 50)
 	private long identifier;
 
 	// Item that this image belongs to.
@@ -1,6 +1,7 @@
 package fr.eikasus.objectsmyfriends.model.bo;
 
 import fr.eikasus.objectsmyfriends.model.misc.ItemState;
+import org.hibernate.annotations.BatchSize;
 import org.jetbrains.annotations.NotNull;
 
 import javax.persistence.*;
@@ -12,21 +13,55 @@ import java.util.Objects;
 
 /**
  * Class representing an item being sold.
+ * <p>
+ * The associations of an item are loaded with it according to the view it is
+ * read for, each view having its entity graph: the list view only needs the
+ * single valued associations, the detail view adds the images and the bid view
+ * the current leader. Loading them in the same request avoids reading
+ * each of them separately.
+ * <p>
+ * An item is versioned, so that two servers can't overwrite the changes made
+ * by each other. Its best bid is not part of the version, bids being recorded
+ * by a request that checks the current price instead.
+ *
+ * @see #GRAPH_LIST
+ * @see #GRAPH_DETAIL
+ * @see #GRAPH_BID
  */
 
-@NamedStoredProcedureQuery(
-	name = "CheckItems",
-	procedureName = "check_items",
-	parameters = {
-		@StoredProcedureParameter(name = "asked_item", type = long.class, mode = ParameterMode.IN),
-		@StoredProcedureParameter(name = "trace", type = boolean.class, mode = ParameterMode.IN),
-		@StoredProcedureParameter(name = "simulate", type = boolean.class, mode = ParameterMode.IN),
-		@StoredProcedureParameter(name = "append", type = boolean.class, mode = ParameterMode.IN),
-		@StoredProcedureParameter(name = "result", type = boolean.class, mode = ParameterMode.OUT)
-	}
-)
-
-@Entity(name="Item") @Table(name = "items")
+@NamedEntityGraphs({
+	@NamedEntityGraph(
+		name = Item.GRAPH_LIST,
+		attributeNodes = {
+			@NamedAttributeNode("seller"),
+			@NamedAttributeNode("buyer"),
+			@NamedAttributeNode("category"),
+			@NamedAttributeNode("pickupPlace")
+		}
+	),
+	@NamedEntityGraph(
+		name = Item.GRAPH_DETAIL,
+		attributeNodes = {
+			@NamedAttributeNode("seller"),
+			@NamedAttributeNode("buyer"),
+			@NamedAttributeNode("category"),
+			@NamedAttributeNode("pickupPlace"),
+			@NamedAttributeNode("images")
+		}
+	),
+	@NamedEntityGraph(
+		name = Item.GRAPH_BID,
+		attributeNodes = {
+			@NamedAttributeNode("seller"),
+			@NamedAttributeNode("buyer"),
+			@NamedAttributeNode("category"),
+			@NamedAttributeNode("pickupPlace"),
+			@NamedAttributeNode("currentLeader")
+		}
+	)
+})
+
+@Entity(name="Item") @Table(name = "items") @BatchSize(size = 32)
 public class Item implements Serializable
 {
 	/* ******************************* */
@@ -40,12 +75,23 @@ public class Item implements Serializable
 
 	private static final String UNDEFINED_FIELD = "undefined";
 
+	// Entity graph used to show items in a list.
+	public static final String GRAPH_LIST = "Item.list";
+
+	// Entity graph used to show or modify one item.
+	public static final String GRAPH_DETAIL = "Item.detail";
+
+	// Entity graph used to bid on an item, with its current leader.
+	public static final String GRAPH_BID = "Item.bid";
+
 	/* ************* */
 	/* Class members */
 	/* ************* */
 
-	// Item identifier
-	@Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+	// Item identifier, taken from a block of identifiers reserved at once in the
+	// 'identifiers' table, so that several items can be inserted by one batch.
+	@Id @GeneratedValue(strategy = GenerationType.TABLE, generator = "items")
+	@TableGenerator(name = "items", table = "identifiers", pkColumnName = "entity", valueColumnName = "next_value", pkColumnValue = "items", allocationSize = 50)
 	private long identifier;
 
 	// Item name
@@ -76,6 +122,25 @@ public class Item implements Serializable
 	@Column(nullable = false, length = 2) @Enumerated(EnumType.STRING)
 	private ItemState state;
 
+	// Price of the best bid, 0 if there is none. Like the two next columns, it
+	// is only changed by the requests recording the bids, so that an update of
+	// the item made with older values doesn't overwrite it.
+	@Column(name = "current_price", nullable = false, updatable = false)
+	private int currentPrice;
+
+	// User who made the best bid.
+	@ManyToOne(fetch = FetchType.LAZY) @JoinColumn(name = "current_leader", updatable = false)
+	private User currentLeader;
+
+	// Number of bids made on the item.
+	@Column(name = "bid_count", nullable = false, updatable = false)
+	private int bidCount;
+
+	// Version of the item, increased by each update and by each change of its
+	// state, so that an update made with older values is refused.
+	@Version @Column(nullable = false)
+	private int version;
+
 	// Seller of the item.
 	@ManyToOne @JoinColumn(name = "seller")
 	private User seller;
@@ -94,7 +159,8 @@ public class Item implements Serializable
 	private List<Image> images;
 
 	// Pickup place for that item.
-	// OneToOne => EAGER.
+	// OneToOne => EAGER, and read by a request per item unless joined by an
+	// entity graph, because the item doesn't hold its key.
 	@OneToOne(cascade = {CascadeType.PERSIST, CascadeType.REMOVE, CascadeType.DETACH}, targetEntity = PickupPlace.class, mappedBy = "item")
 	private PickupPlace pickupPlace;
 
@@ -203,6 +269,47 @@ public class Item implements Serializable
 		return this;
 	}
 
+	public int getCurrentPrice()
+	{
+		return currentPrice;
+	}
+
+	public Item setCurrentPrice(int currentPrice)
+	{
+		this.currentPrice = currentPrice;
+
+		return this;
+	}
+
+	public User getCurrentLeader()
+	{
+		return currentLeader;
+	}
+
+	public Item setCurrentLeader(User currentLeader)
+	{
+		this.currentLeader = currentLeader;
+
+		return this;
+	}
+
+	public int getBidCount()
+	{
+		return bidCount;
+	}
+
+	public Item setBidCount(int bidCount)
+	{
+		this.bidCount = bidCount;
+
+		return this;
+	}
+
+	public int getVersion()
+	{
+		return version;
+	}
+
 	public User getSeller()
 	{
 		return seller;
@@ -308,6 +415,10 @@ public class Item implements Serializable
 		this.initialPrice = model.getInitialPrice();
 		this.finalPrice = model.getFinalPrice();
 		this.state = model.getState();
+		this.currentPrice = model.getCurrentPrice();
+		this.currentLeader = model.getCurrentLeader();
+		this.bidCount = model.getBidCount();
+		this.version = model.getVersion();
 		this.seller = model.getSeller();
 		this.buyer = model.getBuyer();
 		this.category = model.getCategory();
@@ -340,6 +451,9 @@ public class Item implements Serializable
 		this.initialPrice = initialPrice;
 		this.finalPrice = 0;
 		this.state = state;
+		this.currentPrice = 0;
+		this.currentLeader = null;
+		this.bidCount = 0;
 		this.seller = seller;
 		this.buyer = buyer;
 		this.category = category;
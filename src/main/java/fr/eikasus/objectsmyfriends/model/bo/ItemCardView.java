@@ -0,0 +1,138 @@
+package fr.eikasus.objectsmyfriends.model.bo;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Read only view of an item, as shown in the item cards.
+ * <p>
+ * This class is not an entity: it only holds the few values needed to show an
+ * item in a list, read by one request that doesn't load the item entities nor
+ * their associations, and isn't tracked by the persistence context.
+ */
+
+public class ItemCardView implements Serializable
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	private static final long serialVersionUID = 1L;
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Identifier of the item.
+	private final long identifier;
+
+	// Short name of the item.
+	private final String name;
+
+	// Best bid price, or initial price if there is no bid.
+	private final int price;
+
+	// End of the bidding.
+	private final Date biddingEnd;
+
+	// Identifier of the seller.
+	private final long sellerIdentifier;
+
+	// Username of the seller.
+	private final String sellerUsername;
+
+	// Label of the item category.
+	private final String categoryLabel;
+
+	// Path of the first image of the item, null if there is none.
+	private final String imagePath;
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Constructor used by the constructor expression of the request.
+	 *
+	 * @param identifier       Identifier of the item.
+	 * @param name             Short name of the item.
+	 * @param bestPrice        Best bid price, null if there is no bid.
+	 * @param initialPrice     Initial price of the item.
+	 * @param biddingEnd       End of the bidding.
+	 * @param sellerIdentifier Identifier of the seller.
+	 * @param sellerUsername   Username of the seller.
+	 * @param categoryLabel    Label of the item category.
+	 * @param imagePath        Path of the first image of the item.
+	 */
+
+	public ItemCardView(long identifier, String name, Integer bestPrice, int initialPrice, Date biddingEnd, long sellerIdentifier, String sellerUsername, String categoryLabel, String imagePath)
+	{
+		this.identifier = identifier;
+		this.name = name;
+		this.price = (bestPrice != null) ? (bestPrice) : (initialPrice);
+		this.biddingEnd = biddingEnd;
+		this.sellerIdentifier = sellerIdentifier;
+		this.sellerUsername = sellerUsername;
+		this.categoryLabel = categoryLabel;
+		this.imagePath = imagePath;
+	}
+
+	/* ******* */
+	/* Getters */
+	/* ******* */
+
+	public long getIdentifier()
+	{
+		return identifier;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public int getPrice()
+	{
+		return price;
+	}
+
+	public Date getBiddingEnd()
+	{
+		return biddingEnd;
+	}
+
+	public long getSellerIdentifier()
+	{
+		return sellerIdentifier;
+	}
+
+	public String getSellerUsername()
+	{
+		return sellerUsername;
+	}
+
+	public String getCategoryLabel()
+	{
+		return categoryLabel;
+	}
+
+	public String getImagePath()
+	{
+		return imagePath;
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get a string representation of the item card.
+	 *
+	 * @return String representing the object.
+	 */
+
+	@Override public String toString()
+	{
+		return "ItemCardView{" + "identifier=" + identifier + ", name='" + name + '\'' + ", price=" + price + ", biddingEnd=" + biddingEnd + ", seller='" + sellerUsername + '\'' + ", category='" + categoryLabel + '\'' + '}';
+	}
+}
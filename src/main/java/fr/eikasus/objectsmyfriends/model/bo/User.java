@@ -1,16 +1,22 @@
 package fr.eikasus.objectsmyfriends.model.bo;
 
+import fr.eikasus.objectsmyfriends.model.misc.HashAlgorithm;
 import fr.eikasus.objectsmyfriends.model.misc.ModelError;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.hibernate.annotations.BatchSize;
 import org.jetbrains.annotations.NotNull;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 import javax.persistence.*;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.security.spec.KeySpec;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -21,11 +27,19 @@ import java.util.Objects;
  * This method is part of the User class instead of Business Logic Layer because
  * the hashing process is more specific to the class implementation. See
  * {@code hashPassword()} for more details.
+ * <p>
+ * The algorithm and the number of iterations used are stored at the beginning
+ * of the hashed password, so that they can be changed without preventing the
+ * users from logging in. Passwords hashed before were all hashed the same way
+ * and are stored without them.
  *
  * @see #hashPassword()
+ * @see #hashPassword(int)
+ * @see #checkPassword(String)
+ * @see #isPasswordStale(int)
  */
 
-@Entity @Table(name = "users")
+@Entity @Table(name = "users") @BatchSize(size = 32)
 public class User implements Serializable
 {
 	/* ******************************* */
@@ -48,12 +62,30 @@ public class User implements Serializable
 
 	private static final String UNDEFINED_FIELD = "undefined";
 
+	// Algorithm used to hash the passwords, and the least number of iterations.
+	public static final HashAlgorithm HASH_ALGORITHM = HashAlgorithm.SHA256;
+	public static final int HASH_ITERATIONS = 65536;
+
+	// Parameters of the passwords stored without them.
+	private static final HashAlgorithm LEGACY_HASH_ALGORITHM = HashAlgorithm.SHA1;
+	private static final int LEGACY_HASH_ITERATIONS = 65536;
+
+	// Size of the algorithm identifier and iterations stored before the hash.
+	private static final int HASH_HEADER_LENGTH = 1 + Integer.BYTES;
+
+	// Key factories, which can't be shared by threads, one for each thread.
+	private static final ThreadLocal<Map<HashAlgorithm, SecretKeyFactory>> factories = ThreadLocal.withInitial(() -> new EnumMap<>(HashAlgorithm.class));
+
+	// Generator of the salts, shared by all threads.
+	private static final SecureRandom random = new SecureRandom();
+
 	/* ************* */
 	/* Class members */
 	/* ************* */
 
-	// Identifier of the user.
-	@Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+	// Identifier of the user, taken from a block like the item ones.
+	@Id @GeneratedValue(strategy = GenerationType.TABLE, generator = "users")
+	@TableGenerator(name = "users", table = "identifiers", pkColumnName = "entity", valueColumnName = "next_value", pkColumnValue = "users", allocationSize = 50)
 	private long identifier;
 
 	// Name used for login.
@@ -89,8 +121,9 @@ public class User implements Serializable
 	@Column(nullable = false, length = MAX_LENGTH_SALT)
 	private byte[] salt;
 
-	// Number of token the user has to by items.
-	@Column(nullable = false)
+	// Number of token the user has to by items, only changed by the credit
+	// ledger once the user is created.
+	@Column(nullable = false, updatable = false)
 	private int credit;
 
 	// Determine whether the user is an administrator or not.
@@ -101,10 +134,19 @@ public class User implements Serializable
 	@Column(name = "is_archived", nullable = false)
 	private boolean isArchived;
 
+	// Version of the user, increased by each update, so that an update made
+	// with older values is refused. The credit is not part of it.
+	@Version @Column(nullable = false)
+	private int version;
+
 	// Password not hashed.
 	@Transient
 	private String plainPassword;
 
+	// Whether the password was hashed again since the user was read.
+	@Transient
+	private boolean rehashed;
+
 	/* *************** */
 	/* Getters/setters */
 	/* *************** */
@@ -277,6 +319,11 @@ public class User implements Serializable
 		return this;
 	}
 
+	public int getVersion()
+	{
+		return version;
+	}
+
 	public String getPlainPassword()
 	{
 		return plainPassword;
@@ -289,6 +336,18 @@ public class User implements Serializable
 		return this;
 	}
 
+	public boolean isRehashed()
+	{
+		return rehashed;
+	}
+
+	public User setRehashed(boolean rehashed)
+	{
+		this.rehashed = rehashed;
+
+		return this;
+	}
+
 	/* ************ */
 	/* Constructors */
 	/* ************ */
@@ -326,6 +385,7 @@ public class User implements Serializable
 		this.credit = model.getCredit();
 		this.isAdmin = model.isAdmin();
 		this.isArchived = model.isArchived();
+		this.version = model.getVersion();
 		this.plainPassword = model.getPlainPassword();
 	}
 
@@ -417,41 +477,144 @@ public class User implements Serializable
 	 * specific to this user is created. Be aware that after the method succeed,
 	 * the plain password property of the user is emptied. The user can have an
 	 * already defined salt. In that case, it is used instead of created again.
+	 * <p>
+	 * This takes a lot of processor time on purpose, so it should be done by
+	 * the password hasher rather than by the threads handling the requests.
 	 *
 	 * @throws ModelException In case of error
 	 */
 
 	public void hashPassword() throws ModelException
+	{
+		hashPassword(HASH_ITERATIONS);
+	}
+
+	/**
+	 * Hash the plain password with a given cost.
+	 * <p>
+	 * This method works like {@code hashPassword()}, but the number of
+	 * iterations of the algorithm is supplied. It is stored with the hashed
+	 * password, as well as the algorithm used.
+	 *
+	 * @param iterations Number of iterations, at least {@code HASH_ITERATIONS}.
+	 *
+	 * @throws ModelException In case of error
+	 */
+
+	public void hashPassword(int iterations) throws ModelException
 	{
 		// If no password is defined to be hashed.
 		if (plainPassword == null) return;
 
-		KeySpec spec;
-		SecretKeyFactory factory;
-		SecureRandom rnd = new SecureRandom();
+		// Never less iterations than the least allowed.
+		int cost = Math.max(iterations, HASH_ITERATIONS);
 
 		// Create the salt if it doesn't already exist.
-		if (salt == null) rnd.nextBytes((salt = new byte[User.MAX_LENGTH_SALT]));
+		if (salt == null) random.nextBytes((salt = new byte[User.MAX_LENGTH_SALT]));
+
+		byte[] hash = hash(HASH_ALGORITHM, cost, plainPassword);
+
+		// Store the parameters before the hash.
+		password = ByteBuffer.allocate(HASH_HEADER_LENGTH + hash.length).put((byte) HASH_ALGORITHM.getIdentifier()).putInt(cost).put(hash).array();
 
+		// If the resulting hash is too long to be saved in the database.
+		if (password.length > User.MAX_LENGTH_PASSWORD_DB)
+			throw new ModelException(null, ModelError.UNABLE_TO_HASH_USER_PASSWORD);
+
+		// Because the password is hashed, clear his plain form.
+		plainPassword = null;
+	}
+
+	/**
+	 * Check a password.
+	 * <p>
+	 * The supplied password is hashed with the salt and the parameters stored
+	 * with the password of the user, then compared to it. Like hashing, this
+	 * takes a lot of processor time.
+	 *
+	 * @param plainPassword Password to check.
+	 *
+	 * @return true if the password is the one of the user.
+	 *
+	 * @throws ModelException In case of error
+	 */
+
+	public boolean checkPassword(String plainPassword) throws ModelException
+	{
+		// No password can match a user without password.
+		if ((plainPassword == null) || (password == null) || (salt == null)) return false;
+
+		// Passwords stored without their parameters.
+		if (password.length == LEGACY_HASH_ALGORITHM.getLength() / 8)
+			return MessageDigest.isEqual(password, hash(LEGACY_HASH_ALGORITHM, LEGACY_HASH_ITERATIONS, plainPassword));
+
+		// Parameters without the hash.
+		if (password.length <= HASH_HEADER_LENGTH) throw new ModelException(null, ModelError.UNABLE_TO_HASH_USER_PASSWORD);
+
+		ByteBuffer buffer = ByteBuffer.wrap(password);
+		HashAlgorithm algorithm = HashAlgorithm.fromIdentifier(buffer.get());
+		int iterations = buffer.getInt();
+
+		// Unknown algorithm, or hash shorter than the one it gives.
+		if ((algorithm == null) || (password.length < HASH_HEADER_LENGTH + algorithm.getLength() / 8))
+			throw new ModelException(null, ModelError.UNABLE_TO_HASH_USER_PASSWORD);
+
+		return MessageDigest.isEqual(Arrays.copyOfRange(password, HASH_HEADER_LENGTH, password.length), hash(algorithm, iterations, plainPassword));
+	}
+
+	/**
+	 * Tell if the password should be hashed again.
+	 * <p>
+	 * A password should be hashed again if it is hashed with another algorithm
+	 * than the current one, or with less iterations than supplied. This can
+	 * only be done when the user logs in, with his plain password.
+	 *
+	 * @param iterations Number of iterations currently used.
+	 *
+	 * @return true if the password is stale.
+	 */
+
+	public boolean isPasswordStale(int iterations)
+	{
+		// Passwords stored without their parameters, whatever their first bytes.
+		if ((password == null) || (password.length == LEGACY_HASH_ALGORITHM.getLength() / 8) || (password.length < HASH_HEADER_LENGTH))
+			return true;
+
+		ByteBuffer buffer = ByteBuffer.wrap(password);
+
+		return (buffer.get() != HASH_ALGORITHM.getIdentifier()) || (buffer.getInt() < iterations);
+	}
+
+	/**
+	 * Hash a password.
+	 *
+	 * @param algorithm     Algorithm to use.
+	 * @param iterations    Number of iterations.
+	 * @param plainPassword Password to hash.
+	 *
+	 * @return Hashed password, without its parameters.
+	 *
+	 * @throws ModelException In case of error
+	 */
+
+	private byte[] hash(@NotNull HashAlgorithm algorithm, int iterations, @NotNull String plainPassword) throws ModelException
+	{
 		try
 		{
-			spec = new PBEKeySpec(plainPassword.toCharArray(), salt, 65536, 128);
+			KeySpec spec = new PBEKeySpec(plainPassword.toCharArray(), salt, iterations, algorithm.getLength());
+
+			// Factory of the algorithm for the current thread.
+			SecretKeyFactory factory = factories.get().get(algorithm);
 
-			factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+			if (factory == null)
+				factories.get().put(algorithm, (factory = SecretKeyFactory.getInstance(algorithm.getValue())));
 
-			password = factory.generateSecret(spec).getEncoded();
+			return factory.generateSecret(spec).getEncoded();
 		}
 		catch (Exception e)
 		{
 			throw new ModelException(e, ModelError.UNABLE_TO_HASH_USER_PASSWORD);
 		}
-
-		// If the resulting hash is too long to be saved in the database.
-		if (password.length > User.MAX_LENGTH_PASSWORD_DB)
-			throw new ModelException(null, ModelError.UNABLE_TO_HASH_USER_PASSWORD);
-
-		// Because the password is hashed, clear his plain form.
-		plainPassword = null;
 	}
 
 	/**
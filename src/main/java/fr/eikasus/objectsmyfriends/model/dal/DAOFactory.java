@@ -1,16 +1,37 @@
 package fr.eikasus.objectsmyfriends.model.dal;
 
 import fr.eikasus.objectsmyfriends.model.dal.annotations.*;
+import fr.eikasus.objectsmyfriends.model.dal.implementations.GenericDAOImpl;
 import fr.eikasus.objectsmyfriends.model.dal.interfaces.*;
+import fr.eikasus.objectsmyfriends.model.dal.misc.EntityManagerRequestScoped;
+import fr.eikasus.objectsmyfriends.model.dal.misc.ResultObject;
+import fr.eikasus.objectsmyfriends.model.dal.misc.ResultVoid;
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class handling Data Access objects.
  * <p>
  * This class is used to retrieve a particular data access object. By default,
  * implementation of the data access object class are for database.
+ * <p>
+ * This class also allows several operations of data access objects to be
+ * grouped in a unit of work, done in one transaction: either all of them are
+ * saved by one commit, or none of them if one fails. A unit of work failed by
+ * a deadlock or a lock wait timeout is done again from its beginning.
+ *
+ * @see #transaction(ResultVoid)
+ * @see #transaction(ResultObject)
+ * @see #afterCommit(Runnable)
+ * @see #getSetting(String)
  */
 
 @ApplicationScoped
@@ -32,6 +53,14 @@ public class DAOFactory
 
 	@Inject @BidDAODB private BidDAO bidDAO;
 
+	@Inject @CreditDAODB private CreditDAO creditDAO;
+
+	// Entity manager shared by the data access objects.
+	@Inject @EntityManagerRequestScoped private EntityManager entityManager;
+
+	// Actions to do once the unit of work of the thread is committed.
+	private final ThreadLocal<List<Runnable>> committed = new ThreadLocal<>();
+
 	/* ****************************** */
 	/* Getters for data access object */
 	/* ****************************** */
@@ -65,4 +94,176 @@ public class DAOFactory
 	{
 		return bidDAO;
 	}
-}
\ No newline at end of file
+
+	public CreditDAO getCreditDAO()
+	{
+		return creditDAO;
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Execute a unit of work.
+	 * <p>
+	 * The supplied work is executed inside one transaction. All the operations
+	 * of data access objects it does join this transaction instead of starting
+	 * their own, so they are committed together at the end of the work. If one
+	 * of them fails, all of them are rolled back and the exception of the work
+	 * is thrown as is. A unit of work started inside another one is part of it.
+	 * <p>
+	 * If the database fails the work because of a deadlock or because a lock
+	 * was not obtained in time, the work is rolled back, the entities held by
+	 * the entity manager are detached, then the work is done again after a
+	 * delay, like the actions of the data access objects. So the work must give
+	 * the same result when done twice: it reads again what it changes, and
+	 * keeps in memory what it changes through {@code afterCommit()}. The works
+	 * done again and given up are counted with UNABLE_TO_COMPLETE_TRANSACTION.
+	 *
+	 * @param work Operations to execute.
+	 *
+	 * @throws ModelException In case of problem, the exception of the work or
+	 *                        one with UNABLE_TO_COMPLETE_TRANSACTION if the
+	 *                        commit failed, and DATABASE_BUSY if it failed
+	 *                        because of a deadlock or a lock wait timeout.
+	 */
+
+	public void transaction(@NotNull ResultVoid work) throws ModelException
+	{
+		transaction(() ->
+		{
+			work.execute();
+
+			return null;
+		});
+	}
+
+	/**
+	 * Execute a unit of work returning a result.
+	 * <p>
+	 * This method works like the one without result.
+	 *
+	 * @param work Operations to execute.
+	 * @param <T>  Type of the result.
+	 *
+	 * @return Result of the work.
+	 *
+	 * @throws ModelException In case of problem, the exception of the work or
+	 *                        one with UNABLE_TO_COMPLETE_TRANSACTION if the
+	 *                        commit failed.
+	 */
+
+	public <T> T transaction(@NotNull ResultObject<T> work) throws ModelException
+	{
+		EntityTransaction entityTransaction = entityManager.getTransaction();
+
+		// Inside another unit of work, it is the one that commits.
+		if (entityTransaction.isActive()) return work.execute();
+
+		for (int attempt = 1; ; attempt++)
+		{
+			List<Runnable> actions = new ArrayList<>();
+			T result;
+
+			committed.set(actions);
+			entityTransaction.begin();
+
+			try
+			{
+				// Do all the operations.
+				result = work.execute();
+
+				// Then save them at once.
+				entityTransaction.commit();
+			}
+			catch (Exception e)
+			{
+				rollback(entityTransaction);
+
+				// The work itself is wrong.
+				if (!GenericDAOImpl.isTransient(e)) throw wrap(e);
+
+				// The entities changed by the work are read again by the next try.
+				entityManager.clear();
+
+				// Wait for the database to be less busy, unless it was the last try.
+				if (!GenericDAOImpl.tryAgain(ModelError.UNABLE_TO_COMPLETE_TRANSACTION, attempt))
+					throw (e instanceof ModelException) ? ((ModelException) e) : (wrap(e).add(ModelError.DATABASE_BUSY));
+
+				continue;
+			}
+			finally
+			{
+				committed.remove();
+			}
+
+			// What is kept in memory follows what is saved.
+			actions.forEach(Runnable::run);
+
+			return result;
+		}
+	}
+
+	/**
+	 * Do an action once the current unit of work is committed.
+	 * <p>
+	 * This is used to change what is kept in memory as the database, so that
+	 * nothing is changed by a unit of work rolled back or changed twice by one
+	 * done again. Outside of a unit of work, the action is done at once.
+	 *
+	 * @param action Action to do.
+	 */
+
+	public void afterCommit(@NotNull Runnable action)
+	{
+		List<Runnable> actions = committed.get();
+
+		if (actions != null) actions.add(action);
+		else action.run();
+	}
+
+	/**
+	 * Read a setting of the persistence unit.
+	 *
+	 * @param name Name of the setting.
+	 *
+	 * @return Value of the setting, null if it is not given.
+	 */
+
+	public String getSetting(@NotNull String name)
+	{
+		Object value = entityManager.getEntityManagerFactory().getProperties().get(name);
+
+		return (value != null) ? (value.toString()) : (null);
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Roll back a transaction if it is still active.
+	 *
+	 * @param entityTransaction Transaction to roll back.
+	 */
+
+	private void rollback(@NotNull EntityTransaction entityTransaction)
+	{
+		if (entityTransaction.isActive()) entityTransaction.rollback();
+	}
+
+	/**
+	 * Give the exception of a failed unit of work.
+	 *
+	 * @param exception Exception thrown by the work or by its commit.
+	 *
+	 * @return The exception of the work as is, or one with
+	 * UNABLE_TO_COMPLETE_TRANSACTION if the commit failed.
+	 */
+
+	private ModelException wrap(@NotNull Exception exception)
+	{
+		return (exception instanceof ModelException) ? ((ModelException) exception) : (new ModelException(exception, ModelError.UNABLE_TO_COMPLETE_TRANSACTION));
+	}
+}
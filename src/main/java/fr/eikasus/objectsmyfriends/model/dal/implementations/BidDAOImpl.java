@@ -7,10 +7,15 @@ import fr.eikasus.objectsmyfriends.model.dal.interfaces.BidDAO;
 import fr.eikasus.objectsmyfriends.model.misc.BidId;
 import fr.eikasus.objectsmyfriends.model.misc.ModelError;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class used to implement the bid data access object.
@@ -22,6 +27,7 @@ import java.util.List;
  * This is the implementation for database.
  *
  * @see #findBestBid(Item)
+ * @see #findBidders(Collection)
  */
 
 @ApplicationScoped @BidDAODB
@@ -31,7 +37,12 @@ public class BidDAOImpl extends GenericDAOImpl<Bid, BidId> implements BidDAO
 	/* Constants defined for the class */
 	/* ******************************* */
 
-	private final static String JPQL_FIND_BID = "SELECT b FROM Bid b WHERE b.item = :i ORDER BY b.price DESC";
+	// The best bid is the one of the current leader at the current price of the
+	// item, found by its key instead of sorting the bids.
+	private final static String JPQL_FIND_BID = "SELECT b FROM Bid b JOIN b.item i WHERE i = :i AND b.user = i.currentLeader AND b.price = i.currentPrice";
+
+	// Request for reading the users having bid on several items.
+	private final static String JPQL_SELECT1 = "SELECT DISTINCT b.item.identifier, b.user.identifier FROM Bid b WHERE b.item.identifier IN :p1";
 
 	/* ************ */
 	/* Constructors */
@@ -54,7 +65,8 @@ public class BidDAOImpl extends GenericDAOImpl<Bid, BidId> implements BidDAO
 	 * Find the highest bid on an item.
 	 * <p>
 	 * This method find the highest bed made on the item supplied in parameter.
-	 * With the bid, it is then possible to access the user who made it.
+	 * With the bid, it is then possible to access the user who made it. The bid
+	 * is located from the current price and leader kept by the item.
 	 *
 	 * @param item Item to search for.
 	 *
@@ -73,9 +85,6 @@ public class BidDAOImpl extends GenericDAOImpl<Bid, BidId> implements BidDAO
 			// Item to deal with.
 			query.setParameter("i", item);
 
-			// Only one, the highest.
-			query.setMaxResults(1);
-
 			// Retrieve the highest bid.
 			List<Bid> bids = query.getResultList();
 
@@ -87,4 +96,38 @@ public class BidDAOImpl extends GenericDAOImpl<Bid, BidId> implements BidDAO
 			throw new ModelException(exc, ModelError.UNABLE_TO_RETRIEVE_ENTITY);
 		}
 	}
+
+	/**
+	 * Find the users having bid on several items.
+	 * <p>
+	 * This method reads by one request the identifiers of the users who made at
+	 * least one bid on each of the supplied items.
+	 *
+	 * @param items Identifiers of the items.
+	 *
+	 * @return Identifiers of the bidders by item identifier, items without bid
+	 * being absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@Override public Map<Long, List<Long>> findBidders(@NotNull Collection<Long> items) throws ModelException
+	{
+		Map<Long, List<Long>> bidders = new HashMap<>();
+
+		// Nothing to read.
+		if (items.isEmpty()) return bidders;
+
+		execute(false, ModelError.BID_NOT_FOUND, () ->
+		{
+			TypedQuery<Object[]> query = entityManager.createQuery(JPQL_SELECT1, Object[].class);
+
+			query.setParameter("p1", items);
+
+			for (Object[] row : query.getResultList())
+				bidders.computeIfAbsent((Long) row[0], item -> new ArrayList<>()).add((Long) row[1]);
+		});
+
+		return bidders;
+	}
 }
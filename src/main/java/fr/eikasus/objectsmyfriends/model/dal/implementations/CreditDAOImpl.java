@@ -0,0 +1,123 @@
+package fr.eikasus.objectsmyfriends.model.dal.implementations;
+
+import fr.eikasus.objectsmyfriends.model.bo.CreditEntry;
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.dal.annotations.CreditDAODB;
+import fr.eikasus.objectsmyfriends.model.dal.interfaces.CreditDAO;
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+/**
+ * Class used to implement the credit data access object.
+ * <p>
+ * This class supplies all the necessary methods to handle the credit ledger
+ * and the credit of the users within the data access layer. It is supplied by
+ * the DAO factory object and used by its corresponding manager.
+ * <p>
+ * The credit of a user is never written from the user object, whose credit is
+ * not updatable, but only incremented by requests of this class. So two
+ * changes made at the same time can't overwrite each other.
+ * <p>
+ * This is the implementation for database.
+ *
+ * @see #findCredit(User)
+ * @see #addCredit(User, int)
+ */
+
+@ApplicationScoped @CreditDAODB
+public class CreditDAOImpl extends GenericDAOImpl<CreditEntry, Long> implements CreditDAO
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Request for reading the credit of a user.
+	private final static String JPQL_SELECT1 = "SELECT u.credit FROM User u WHERE u.identifier = :p1";
+
+	// Request for changing the credit of a user, unless it becomes negative.
+	private final static String JPQL_UPDATE1 = "UPDATE User u SET u.credit = u.credit + :p2 WHERE u.identifier = :p1 AND u.credit + :p2 >= 0";
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Constructor of the class used to pass object type to the upper constructor.
+	 */
+
+	public CreditDAOImpl()
+	{
+		super(CreditEntry.class);
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Find the credit of a user.
+	 * <p>
+	 * This method reads the current credit of the supplied user from the
+	 * database, without reading the user itself.
+	 *
+	 * @param user User to search for.
+	 *
+	 * @return Credit of the user.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@Override public int findCredit(@NotNull User user) throws ModelException
+	{
+		int[] credit = {0};
+
+		execute(false, ModelError.USER_NOT_FOUND, () ->
+		{
+			TypedQuery<Integer> query = entityManager.createQuery(JPQL_SELECT1, Integer.class);
+
+			query.setParameter("p1", user.getIdentifier());
+
+			credit[0] = query.getSingleResult();
+		});
+
+		return credit[0];
+	}
+
+	/**
+	 * Add an amount to the credit of a user.
+	 * <p>
+	 * This method changes the credit of the supplied user in the database by
+	 * one request, so that changes made at the same time are all kept. The
+	 * amount can be negative, but the credit is not changed if it would become
+	 * negative. The user object itself is not changed.
+	 *
+	 * @param user   User whose credit changes.
+	 * @param amount Amount to add to the credit.
+	 *
+	 * @return true if the credit is changed, false if it is not enough.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@Override public boolean addCredit(@NotNull User user, int amount) throws ModelException
+	{
+		int[] updated = {0};
+
+		execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () ->
+		{
+			Query query = entityManager.createQuery(JPQL_UPDATE1);
+
+			query.setParameter("p1", user.getIdentifier());
+			query.setParameter("p2", amount);
+
+			updated[0] = query.executeUpdate();
+		});
+
+		return (updated[0] == 1);
+	}
+}
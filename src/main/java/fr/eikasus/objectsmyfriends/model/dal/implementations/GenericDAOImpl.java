@@ -4,9 +4,20 @@ import fr.eikasus.objectsmyfriends.model.dal.misc.*;
 import fr.eikasus.objectsmyfriends.model.misc.ModelError;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.jetbrains.annotations.NotNull;
+
 import javax.inject.Inject;
 import javax.persistence.*;
-import java.util.List;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Support for Data Access Objects.
@@ -16,18 +27,27 @@ import java.util.List;
  * class also provide methods for accessible objects from database that are
  * common for all entities.
  * <p>
- * This is the implementation for database.
+ * This is the implementation for database. Actions failed by a deadlock or a
+ * lock wait timeout are tried again, unless they change the entities of the
+ * persistence context.
  *
  * @see #findByProperty(String, Object)
  * @see #find()
+ * @see #stream(int)
  * @see #find(Object)
+ * @see #find(Object, String)
  * @see #save(Object)
+ * @see #saveAll(Collection)
  * @see #update(Object)
+ * @see #updateAll(Collection)
  * @see #refresh(Object)
  * @see #detach(Object)
  * @see #deleteByProperty(String, Object)
  * @see #delete(Object)
+ * @see #deleteAll(Collection)
  * @see #deleteById(Object)
+ * @see #getRetryStatistics()
+ * @see #tryAgain(ModelError, int)
  */
 
 public abstract class GenericDAOImpl<T, U>
@@ -40,6 +60,26 @@ public abstract class GenericDAOImpl<T, U>
 
 	private final static String JPQL_SELECT2 = "DELETE o FROM %s o WHERE o.%s = :p1";
 
+	// Hint giving the associations to load with the entities.
+	private final static String LOAD_GRAPH = "javax.persistence.loadgraph";
+
+	// Number of times an action is tried when the database is busy.
+	private final static int MAX_ATTEMPTS = 4;
+
+	// Delay before trying an action again, in milliseconds, doubled each time.
+	private final static int RETRY_DELAY = 20;
+
+	// MySQL errors of a deadlock and of a lock not obtained in time.
+	private final static int ER_LOCK_DEADLOCK = 1213;
+	private final static int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+	// SQL state of a transaction rolled back by the database.
+	private final static String SQL_STATE_ROLLBACK = "40001";
+
+	// Number of actions tried again and given up, by error code.
+	private final static Map<ModelError, LongAdder> retries = new ConcurrentHashMap<>();
+	private final static Map<ModelError, LongAdder> abandons = new ConcurrentHashMap<>();
+
 	/* ************* */
 	/* Class members */
 	/* ************* */
@@ -126,6 +166,27 @@ public abstract class GenericDAOImpl<T, U>
 		return execute(false, ModelError.UNABLE_TO_RETRIEVE_ENTITIES, () -> entityManager.createQuery("from " + className, entityClass).getResultList());
 	}
 
+	/**
+	 * Retrieve all the entities as a stream.
+	 * <p>
+	 * This method is used to go through all the entities of the database without
+	 * loading them in memory at once. Entities are read by blocks whose size is
+	 * supplied in parameter, and each entity is detached when the next one is
+	 * read, so lazy relations of already consumed entities can't be loaded
+	 * anymore. The returned stream must be closed after use.
+	 *
+	 * @param fetchSize Number of entities read from the database at once.
+	 *
+	 * @return Stream of entities.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public Stream<T> stream(int fetchSize) throws ModelException
+	{
+		return stream(entityManager.createQuery("from " + className, entityClass), fetchSize);
+	}
+
 	/**
 	 * Retrieve one entity.
 	 * <p>
@@ -144,6 +205,26 @@ public abstract class GenericDAOImpl<T, U>
 		return execute(false, ModelError.UNABLE_TO_RETRIEVE_ENTITY, () -> entityManager.find(entityClass, identifier));
 	}
 
+	/**
+	 * Retrieve one entity with its associations.
+	 * <p>
+	 * This method is used to retrieve an entity form the database whose
+	 * identifier is supplied in parameter, together with the associations of the
+	 * entity graph whose name is also supplied, in the same request.
+	 *
+	 * @param identifier Identifier of the entity to find.
+	 * @param graph      Name of the entity graph to load.
+	 *
+	 * @return Asked entity.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public T find(U identifier, String graph) throws ModelException
+	{
+		return execute(false, ModelError.UNABLE_TO_RETRIEVE_ENTITY, () -> entityManager.find(entityClass, identifier, Collections.singletonMap(LOAD_GRAPH, entityManager.getEntityGraph(graph))));
+	}
+
 	/**
 	 * Save an entity into the database.
 	 * <p>
@@ -157,7 +238,25 @@ public abstract class GenericDAOImpl<T, U>
 
 	public void save(T entity) throws ModelException
 	{
-		execute(true, ModelError.UNABLE_TO_CREATE_ENTITY, () -> entityManager.persist(entity));
+		executeOnce(true, ModelError.UNABLE_TO_CREATE_ENTITY, () -> entityManager.persist(entity));
+	}
+
+	/**
+	 * Save entities into the database.
+	 * <p>
+	 * The entities supplied in parameter are stored in the database in one
+	 * transaction. Their identifiers being taken by blocks, their rows are only
+	 * inserted at the commit, by batches instead of one request each. Their
+	 * identifiers should be zero, otherwise an error occurs.
+	 *
+	 * @param entities The entities to save into the database.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public void saveAll(@NotNull Collection<T> entities) throws ModelException
+	{
+		executeOnce(true, ModelError.UNABLE_TO_CREATE_ENTITY, () -> entities.forEach(entityManager::persist));
 	}
 
 	/**
@@ -173,7 +272,23 @@ public abstract class GenericDAOImpl<T, U>
 
 	public void update(T entity) throws ModelException
 	{
-		execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () -> entityManager.merge(entity));
+		executeOnce(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () -> entityManager.merge(entity));
+	}
+
+	/**
+	 * Update entities into the database.
+	 * <p>
+	 * The entities supplied in parameter are updated in the database in one
+	 * transaction, their rows being updated at the commit by batches.
+	 *
+	 * @param entities The entities to update into the database.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public void updateAll(@NotNull Collection<T> entities) throws ModelException
+	{
+		executeOnce(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () -> entities.forEach(entityManager::merge));
 	}
 
 	/**
@@ -250,7 +365,23 @@ public abstract class GenericDAOImpl<T, U>
 
 	public void delete(T entity) throws ModelException
 	{
-		execute(true, ModelError.UNABLE_TO_DELETE_ENTITY, () -> entityManager.remove(entity));
+		executeOnce(true, ModelError.UNABLE_TO_DELETE_ENTITY, () -> entityManager.remove(entity));
+	}
+
+	/**
+	 * Delete entities from the database.
+	 * <p>
+	 * The entities supplied in parameter are deleted from the database in one
+	 * transaction, their rows being deleted at the commit by batches.
+	 *
+	 * @param entities Entities to delete from the database.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	public void deleteAll(@NotNull Collection<T> entities) throws ModelException
+	{
+		executeOnce(true, ModelError.UNABLE_TO_DELETE_ENTITY, () -> entities.forEach(entityManager::remove));
 	}
 
 	/**
@@ -266,7 +397,7 @@ public abstract class GenericDAOImpl<T, U>
 
 	public void deleteById(U identifier) throws ModelException
 	{
-		execute(true, ModelError.UNABLE_TO_DELETE_ENTITY, () ->
+		executeOnce(true, ModelError.UNABLE_TO_DELETE_ENTITY, () ->
 		{
 			T entity = entityManager.find(entityClass, identifier);
 
@@ -278,12 +409,111 @@ public abstract class GenericDAOImpl<T, U>
 	/* Helper methods */
 	/* ************** */
 
+	/**
+	 * Load associations with the result of a query.
+	 * <p>
+	 * The associations of the entity graph whose name is supplied are read by
+	 * the query itself, instead of one request for each entity returned.
+	 *
+	 * @param query Query to complete.
+	 * @param graph Name of the entity graph to load.
+	 *
+	 * @return The supplied query.
+	 */
+
+	protected <R> TypedQuery<R> useGraph(@NotNull TypedQuery<R> query, String graph)
+	{
+		return query.setHint(LOAD_GRAPH, entityManager.getEntityGraph(graph));
+	}
+
+	/**
+	 * Execute a query and return its result as a stream.
+	 * <p>
+	 * This method scrolls through the result of the supplied query instead of
+	 * loading it at once. Rows are read from the database by blocks whose size is
+	 * supplied in parameter, and each entity is detached from the persistence
+	 * context when the next one is read, so memory consumption doesn't depend on
+	 * the number of entities. The returned stream must be closed after use to
+	 * release the database cursor.
+	 *
+	 * @param query     Query to execute.
+	 * @param fetchSize Number of entities read from the database at once.
+	 *
+	 * @return Stream of entities.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@SuppressWarnings("unchecked")
+	protected Stream<T> stream(@NotNull TypedQuery<T> query, int fetchSize) throws ModelException
+	{
+		ScrollableResults results;
+
+		try
+		{
+			// Read the rows by blocks and only forward, so they can be released as soon as they are consumed.
+			results = query.unwrap(org.hibernate.query.Query.class).setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY);
+		}
+		catch (Exception e)
+		{
+			throw new ModelException(e, ModelError.UNABLE_TO_RETRIEVE_ENTITIES);
+		}
+
+		// Give the entities one by one to the stream.
+		Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL)
+		{
+			// Last entity given to the stream.
+			private T previous = null;
+
+			@Override public boolean tryAdvance(Consumer<? super T> action)
+			{
+				// The previous entity is not needed anymore by the persistence context.
+				if (previous != null) entityManager.detach(previous);
+
+				// If there is no more entity.
+				if (!results.next()) return false;
+
+				// Give the next entity to the stream.
+				previous = (T) results.get(0);
+				action.accept(previous);
+
+				return true;
+			}
+		};
+
+		// The database cursor is released when the stream is closed.
+		return StreamSupport.stream(spliterator, false).onClose(results::close);
+	}
+
+	/**
+	 * Get the retries of the actions tried again because the database was busy.
+	 *
+	 * @return Current statistics.
+	 */
+
+	public static RetryStatistics getRetryStatistics()
+	{
+		Map<ModelError, Long> retried = new EnumMap<>(ModelError.class);
+		Map<ModelError, Long> abandoned = new EnumMap<>(ModelError.class);
+
+		retries.forEach((code, count) -> retried.put(code, count.sum()));
+		abandons.forEach((code, count) -> abandoned.put(code, count.sum()));
+
+		return new RetryStatistics(retried, abandoned);
+	}
+
 	/**
 	 * Execute an action related to the database.
 	 * <p>
 	 * This method is used whenever an action need to be performed with the
 	 * database. The action represent the code that will be executed inside a
-	 * transaction or not. This method is used to avoid redondance in code.
+	 * transaction or not. This method is used to avoid redondance in code. If a
+	 * transaction is already started by a unit of work, the action joins it and
+	 * the unit of work commits or rolls back all its actions at once.
+	 * <p>
+	 * The action is tried again a few times if the database was too busy to do
+	 * it, so it must give the same result when done twice. See the
+	 * {@code attempt()} method for more details.
 	 *
 	 * @param transaction Whether to use a transaction to perform the desired
 	 *                    action.
@@ -297,41 +527,18 @@ public abstract class GenericDAOImpl<T, U>
 
 	protected void execute(boolean transaction, ModelError errorCode, ResultVoid action) throws ModelException
 	{
-		EntityTransaction entityTransaction = null;
-
-		try
+		attempt(transaction, true, errorCode, () ->
 		{
-			// If the action need to be performed inside a transaction.
-			if (transaction)
-			{
-				// Obtain an entity transaction for possible rollback.
-				entityTransaction = entityManager.getTransaction();
-
-				// After that, an undo is possible in case of problem.
-				entityTransaction.begin();
-			}
-
-			// Execute the supplied function.
 			action.execute();
 
-			// All worked fine, so validate changes.
-			if (entityTransaction != null) entityTransaction.commit();
-		}
-		catch (Exception e)
-		{
-			// Rollback because there was a problem.
-			if (entityTransaction != null) entityTransaction.rollback();
-
-			throw new ModelException(e, errorCode);
-		}
+			return null;
+		});
 	}
 
 	/**
 	 * Execute an action related to the database.
 	 * <p>
-	 * This method is used whenever an action need to be performed with the
-	 * database. The action represent the code that will be executed inside a
-	 * transaction or not. This method is used to avoid redondance in code.
+	 * This method works like the one without result.
 	 *
 	 * @param transaction Whether to use a transaction to perform the desired
 	 *                    action.
@@ -347,51 +554,77 @@ public abstract class GenericDAOImpl<T, U>
 
 	protected T execute(boolean transaction, ModelError errorCode, ResultObject<T> action) throws ModelException
 	{
-		EntityTransaction entityTransaction = null;
-		T result;
+		return attempt(transaction, true, errorCode, action);
+	}
 
-		try
-		{
-			// If the action need to be performed inside a transaction.
-			if (transaction)
-			{
-				// Obtain an entity transaction for possible rollback.
-				entityTransaction = entityManager.getTransaction();
+	/**
+	 * Execute an action related to the database.
+	 * <p>
+	 * This method works like the one without result.
+	 *
+	 * @param transaction Whether to use a transaction to perform the desired
+	 *                    action.
+	 * @param errorCode   Error returned with the ModelException object in case of
+	 *                    problem.
+	 * @param action      Action to realize.
+	 *
+	 * @return Result of the operation, depending on the action performed.
+	 *
+	 * @throws ModelException In case of problem, contain the error code supplied
+	 *                        in parameter.
+	 */
 
-				// After that, an undo is possible in case of problem.
-				entityTransaction.begin();
-			}
+	protected List<T> execute(boolean transaction, ModelError errorCode, ResultList<T> action) throws ModelException
+	{
+		return attempt(transaction, true, errorCode, action::execute);
+	}
 
-			// Execute the supplied function.
-			result = action.execute();
+	/**
+	 * Execute an action on an entity related to the database.
+	 * <p>
+	 * This method works like the one without result, but the action is never
+	 * tried again. Once rolled back, the entities it changed are not in the
+	 * state they were before, so doing it again could save nothing.
+	 *
+	 * @param transaction Whether to use a transaction to perform the desired
+	 *                    action.
+	 * @param errorCode   Error returned with the ModelException object in case of
+	 *                    problem.
+	 * @param action      Action to realize.
+	 *
+	 * @throws ModelException In case of problem, contain the error code supplied
+	 *                        in parameter.
+	 */
 
-			// All worked fine, so validate changes.
-			if (entityTransaction != null) entityTransaction.commit();
-		}
-		catch (Exception e)
+	protected void executeOnce(boolean transaction, ModelError errorCode, ResultVoid action) throws ModelException
+	{
+		attempt(transaction, false, errorCode, () ->
 		{
-			// Rollback because there was a problem.
-			if (entityTransaction != null) entityTransaction.rollback();
-
-			throw new ModelException(e, errorCode);
-		}
+			action.execute();
 
-		// Return the result of the operation.
-		return result;
+			return null;
+		});
 	}
 
 	/**
-	 * Execute an action related to the database.
+	 * Try an action related to the database until it is done.
 	 * <p>
-	 * This method is used whenever an action need to be performed with the
-	 * database. The action represent the code that will be executed inside a
-	 * transaction or not. This method is used to avoid redondance in code.
+	 * If the database fails the action because of a deadlock or because a lock
+	 * was not obtained in time, the action is rolled back and tried again after
+	 * a delay, doubled each time and partly random, so that the actions that
+	 * failed together are not tried again together. An action that is part of a
+	 * unit of work is not, because the whole unit of work is rolled back and
+	 * done again. After the last try, the exception contains DATABASE_BUSY after
+	 * the error code supplied. The actions tried again and given up are counted
+	 * by error code.
 	 *
 	 * @param transaction Whether to use a transaction to perform the desired
 	 *                    action.
+	 * @param retry       Whether the action can be tried again.
 	 * @param errorCode   Error returned with the ModelException object in case of
 	 *                    problem.
 	 * @param action      Action to realize.
+	 * @param <R>         Type of the result.
 	 *
 	 * @return Result of the operation, depending on the action performed.
 	 *
@@ -399,38 +632,147 @@ public abstract class GenericDAOImpl<T, U>
 	 *                        in parameter.
 	 */
 
-	protected List<T> execute(boolean transaction, ModelError errorCode, ResultList<T> action) throws ModelException
+	private <R> R attempt(boolean transaction, boolean retry, ModelError errorCode, ResultObject<R> action) throws ModelException
 	{
-		EntityTransaction entityTransaction = null;
-		List<T> result;
+		// Inside a unit of work, it is the one that is done again.
+		boolean unitOfWork = entityManager.getTransaction().isActive();
+		int attempts = (retry) ? (MAX_ATTEMPTS) : (1);
 
-		try
+		for (int attempt = 1; ; attempt++)
 		{
-			// If the action need to be performed inside a transaction.
-			if (transaction)
+			EntityTransaction entityTransaction = null;
+			R result;
+
+			try
 			{
-				// Obtain an entity transaction for possible rollback.
-				entityTransaction = entityManager.getTransaction();
+				// If the action need to be performed inside a transaction, unless it is
+				// part of a unit of work whose transaction is already started.
+				if ((transaction) && (!entityManager.getTransaction().isActive()))
+				{
+					// Obtain an entity transaction for possible rollback.
+					entityTransaction = entityManager.getTransaction();
+
+					// After that, an undo is possible in case of problem.
+					entityTransaction.begin();
+				}
+
+				// Execute the supplied function.
+				result = action.execute();
 
-				// After that, an undo is possible in case of problem.
-				entityTransaction.begin();
+				// All worked fine, so validate changes.
+				if (entityTransaction != null) entityTransaction.commit();
+
+				// Return the result of the operation.
+				return result;
 			}
+			catch (Exception e)
+			{
+				// Rollback because there was a problem, unless the commit already did.
+				if ((entityTransaction != null) && (entityTransaction.isActive())) entityTransaction.rollback();
 
-			// Execute the supplied function.
-			result = action.execute();
+				// The action itself is wrong.
+				if (!isTransient(e)) throw new ModelException(e, errorCode);
 
-			// All worked fine, so validate changes.
-			if (entityTransaction != null) entityTransaction.commit();
+				// The unit of work counts its own tries.
+				if ((unitOfWork) || (!tryAgain(errorCode, attempt, attempts)))
+					throw new ModelException(e, errorCode).add(ModelError.DATABASE_BUSY);
+			}
 		}
-		catch (Exception e)
+	}
+
+	/**
+	 * Wait before doing again something failed because the database was busy.
+	 * <p>
+	 * This is used by the units of work, which are tried like the actions. The
+	 * tries done again and given up are counted with the supplied error code.
+	 *
+	 * @param errorCode Error telling what was failed.
+	 * @param attempt   Number of times it was tried.
+	 *
+	 * @return True if it can be tried again, false if it must be given up.
+	 */
+
+	public static boolean tryAgain(ModelError errorCode, int attempt)
+	{
+		return tryAgain(errorCode, attempt, MAX_ATTEMPTS);
+	}
+
+	/**
+	 * Determine if an action failed only because the database was busy.
+	 * <p>
+	 * The SQL exception is looked for in the causes of the supplied exception,
+	 * or the exception is one given up by an action of the same unit of work.
+	 * This is also used by the units of work whose commit failed.
+	 *
+	 * @param exception Exception thrown by the action.
+	 *
+	 * @return True if the action can succeed when tried again, false otherwise.
+	 */
+
+	public static boolean isTransient(Throwable exception)
+	{
+		for (Throwable cause = exception; cause != null; cause = cause.getCause())
 		{
-			// Rollback because there was a problem.
-			if (entityTransaction != null) entityTransaction.rollback();
+			// An action done before by the same unit of work gave up.
+			if (cause instanceof ModelException) return ((ModelException) cause).hasError(ModelError.DATABASE_BUSY);
+
+			if (cause instanceof SQLException)
+			{
+				SQLException sqlException = (SQLException) cause;
 
-			throw new ModelException(e, errorCode);
+				if ((sqlException.getErrorCode() == ER_LOCK_DEADLOCK) || (sqlException.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) || (SQL_STATE_ROLLBACK.equals(sqlException.getSQLState())))
+					return true;
+			}
 		}
 
-		// Return the result of the operation.
-		return result;
+		return false;
+	}
+
+	/**
+	 * Wait before trying something again, unless it was the last try.
+	 *
+	 * @param errorCode Error telling what was failed.
+	 * @param attempt   Number of times it was tried.
+	 * @param attempts  Number of times it can be tried.
+	 *
+	 * @return True if it can be tried again, false if it must be given up.
+	 */
+
+	private static boolean tryAgain(ModelError errorCode, int attempt, int attempts)
+	{
+		// Wait for the database to be less busy, unless it was the last try.
+		boolean again = (attempt < attempts) && (pause(attempt));
+
+		((again) ? (retries) : (abandons)).computeIfAbsent(errorCode, code -> new LongAdder()).increment();
+
+		return again;
+	}
+
+	/**
+	 * Wait before trying an action again.
+	 *
+	 * @param attempt Number of times the action was tried.
+	 *
+	 * @return True if the action can be tried again, false if the thread was
+	 * interrupted.
+	 */
+
+	private static boolean pause(int attempt)
+	{
+		long delay = (long) RETRY_DELAY << (attempt - 1);
+
+		try
+		{
+			// Between the half and the whole delay.
+			Thread.sleep(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+
+			return true;
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+
+			return false;
+		}
 	}
 }
@@ -3,8 +3,13 @@ package fr.eikasus.objectsmyfriends.model.dal.implementations;
 import fr.eikasus.objectsmyfriends.model.bo.Image;
 import fr.eikasus.objectsmyfriends.model.dal.annotations.ImageDAODB;
 import fr.eikasus.objectsmyfriends.model.dal.interfaces.ImageDAO;
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import org.jetbrains.annotations.NotNull;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.TypedQuery;
+import java.util.*;
 
 /**
  * Class used to implement the image data access object.
@@ -14,11 +19,24 @@ import javax.enterprise.context.ApplicationScoped;
  * its corresponding manager.
  * <p>
  * This is the implementation for database.
+ *
+ * @see #findPaths(Collection)
+ * @see #countReferences(Collection)
  */
 
 @ApplicationScoped @ImageDAODB
 public class ImageDAOImpl extends GenericDAOImpl<Image, Long> implements ImageDAO
 {
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Request for reading the paths of the images of several items.
+	private final static String JPQL_SELECT1 = "SELECT i.item.identifier, i.path FROM Image i WHERE i.item.identifier IN :p1 ORDER BY i.item.identifier, i.identifier";
+
+	// Request for counting the images pointing to several image files.
+	private final static String JPQL_SELECT2 = "SELECT i.path, COUNT(i) FROM Image i WHERE i.path IN :p1 GROUP BY i.path";
+
 	/* ************ */
 	/* Constructors */
 	/* ************ */
@@ -31,4 +49,75 @@ public class ImageDAOImpl extends GenericDAOImpl<Image, Long> implements ImageDA
 	{
 		super(Image.class);
 	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Find the paths of the images of several items.
+	 * <p>
+	 * This method reads the paths of the images of all the supplied items by
+	 * one request, without reading the items nor the images themselves.
+	 *
+	 * @param items Identifiers of the items.
+	 *
+	 * @return Paths of the images by item identifier, items without image being
+	 * absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@Override public Map<Long, List<String>> findPaths(@NotNull Collection<Long> items) throws ModelException
+	{
+		Map<Long, List<String>> paths = new LinkedHashMap<>();
+
+		// Nothing to read.
+		if (items.isEmpty()) return paths;
+
+		execute(false, ModelError.IMAGE_NOT_FOUND, () ->
+		{
+			TypedQuery<Object[]> query = entityManager.createQuery(JPQL_SELECT1, Object[].class);
+
+			query.setParameter("p1", items);
+
+			for (Object[] row : query.getResultList())
+				paths.computeIfAbsent((Long) row[0], item -> new ArrayList<>()).add((String) row[1]);
+		});
+
+		return paths;
+	}
+
+	/**
+	 * Count the images pointing to several image files.
+	 * <p>
+	 * This method counts by one request the images whose path is one of the
+	 * supplied paths, without reading the images themselves.
+	 *
+	 * @param paths Paths of the image files.
+	 *
+	 * @return Number of images by path, paths without image being absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@Override public Map<String, Long> countReferences(@NotNull Collection<String> paths) throws ModelException
+	{
+		Map<String, Long> references = new HashMap<>();
+
+		// Nothing to count.
+		if (paths.isEmpty()) return references;
+
+		execute(false, ModelError.IMAGE_NOT_FOUND, () ->
+		{
+			TypedQuery<Object[]> query = entityManager.createQuery(JPQL_SELECT2, Object[].class);
+
+			query.setParameter("p1", paths);
+
+			for (Object[] row : query.getResultList())
+				references.put((String) row[0], (Long) row[1]);
+		});
+
+		return references;
+	}
 }
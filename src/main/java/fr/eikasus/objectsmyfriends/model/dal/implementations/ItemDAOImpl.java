@@ -2,6 +2,7 @@ package fr.eikasus.objectsmyfriends.model.dal.implementations;
 
 import fr.eikasus.objectsmyfriends.model.bo.Category;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.ItemCardView;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.dal.annotations.ItemDAODB;
 import fr.eikasus.objectsmyfriends.model.dal.interfaces.ItemDAO;
@@ -11,7 +12,14 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.persistence.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Class used to implement the item data access object.
@@ -21,9 +29,28 @@ import java.util.List;
  * its corresponding manager.
  * <p>
  * This is the implementation for database.
+ * <p>
+ * Searching requests only depend on the shape of the search (criteria, category
+ * presence, number of keywords rounded to a power of two and pagination), all
+ * values being bound as parameters. So a given shape always gives the same
+ * request, which is built once and whose plan is then reused by Hibernate and
+ * by the database driver. Keywords are searched by these requests only when
+ * items are deleted by criteria, or when the item index finds too many items
+ * for the database to search among them.
  *
+ * @see #find()
+ * @see #stream(int)
  * @see #findByCriteria(User, UserRole, Search, Category, String)
+ * @see #findByCriteria(User, UserRole, Search, Category, String, Collection)
+ * @see #findByCriteria(User, UserRole, Search, Category, String, Collection, String, int)
+ * @see #findCardsByCriteria(User, UserRole, Search, Category, String, Collection, String, int)
+ * @see #streamByCriteria(User, UserRole, Search, Category, String, int)
  * @see #deleteByCriteria(User, UserRole, Search, Category, String)
+ * @see #findDates(Collection)
+ * @see #findSummaries(Collection)
+ * @see #updateState(List, ItemState, ItemState, Date)
+ * @see #recordBid(Item, User, int, int)
+ * @see #recountBids(Collection)
  */
 
 @ApplicationScoped @ItemDAODB
@@ -36,27 +63,22 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 	// As a seller, all cases.
 	private final static String JPQL_SELECT1 = "WHERE (i.seller = :p1 AND (";
 
-	// As a buyer, common part of the request for not wanted bids.
+	// As a buyer, common part of the request.
 	private final static String JPQL_SELECT2 = "WHERE (";
 
-	// As a buyer, common part of the request for wanted bids.
-	private final static String JPQL_SELECT3 = "JOIN Bid b ON b.item = i WHERE (";
-
 	// As a buyer, the items I bought.
 	private final static String JPQL_SELECT4 = "(i.buyer = :p1)";
 
 	// As buyer, the items that are available.
 	private final static String JPQL_SELECT5 = "(i.state = '" + ItemState.AC + "')";
 
-	// As buyer, the items I did a bid.
-	private final static String JPQL_SELECT6 = "(i.state = '" + ItemState.AC + "' AND b.user = :p2)";
+	// As buyer, the items I did a bid, without joining the bids so that each
+	// item is found once and its associations can be joined.
+	private final static String JPQL_SELECT6 = "(i.state = '" + ItemState.AC + "' AND EXISTS (SELECT b FROM Bid b WHERE b.item = i AND b.user = :p2))";
 
 	// If a category is required.
 	private final static String JPQL_SELECT7 = " AND (i.category = :p3)";
 
-	// If wanted bids need to be retrieved.
-	private final static String JPQL_SELECT8 = " GROUP BY i";
-
 	// Criteria for seller.
 	private final static String JPQL_SELECT9 = "(i.state = :c%d)";
 
@@ -66,6 +88,56 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 	// Request start.
 	private final static String JPQL_SELECT11 = "DELETE FROM Item i ";
 
+	// Request start for item cards, with the best bid price and the first image.
+	private final static String JPQL_SELECT16 = "SELECT NEW " + ItemCardView.class.getName() + "(i.identifier, i.name, " +
+			"NULLIF(i.currentPrice, 0), i.initialPrice, i.biddingEnd, s.identifier, s.username, c.label, " +
+			"(SELECT im.path FROM Image im WHERE im.identifier = (SELECT MIN(fi.identifier) FROM Image fi WHERE fi.item = i))) " +
+			"FROM Item i JOIN i.seller s LEFT JOIN i.category c ";
+
+	// Items after the last one of the previous page.
+	private final static String JPQL_SELECT12 = " AND (i.biddingEnd > :k1 OR (i.biddingEnd = :k1 AND i.identifier > :k2))";
+
+	// Order of the items in the pages.
+	private final static String JPQL_SELECT13 = " ORDER BY i.biddingEnd, i.identifier";
+
+	// Keyword searched in the item name, whose wildcards are escaped.
+	private final static String JPQL_SELECT14 = "(i.name LIKE :w%d ESCAPE '!')";
+
+	// If the items are chosen among some.
+	private final static String JPQL_SELECT15 = " AND (i.identifier IN :p4)";
+
+	// Bidding dates of the items in some states.
+	private final static String JPQL_SELECT17 = "SELECT i.identifier, i.state, i.biddingStart, i.biddingEnd FROM Item i WHERE i.state IN :p1";
+
+	// Values shown by the cards of the items in some states.
+	private final static String JPQL_SELECT18 = "SELECT i.identifier, i.name, i.initialPrice, i.currentPrice, i.bidCount, i.biddingStart, i.biddingEnd, i.state, " +
+			"s.identifier, s.username, c.identifier, c.label FROM Item i JOIN i.seller s LEFT JOIN i.category c WHERE i.state IN :p1";
+
+	// Maximum number of keywords taken into account.
+	private final static int MAX_KEYWORDS = 32;
+
+	// Items whose bidding started, whose version is increased like by an update.
+	private final static String JPQL_UPDATE1 = "UPDATE VERSIONED Item i SET i.state = :p1 WHERE i.identifier IN :p2 AND i.state = :p3 AND i.biddingStart <= :p4";
+
+	// Items whose bidding ended, whose version is increased like by an update.
+	private final static String JPQL_UPDATE2 = "UPDATE VERSIONED Item i SET i.state = :p1 WHERE i.identifier IN :p2 AND i.state = :p3 AND i.biddingEnd <= :p4";
+
+	// New best bid on an item, unless its best bid changed meanwhile.
+	private final static String JPQL_UPDATE3 = "UPDATE Item i SET i.currentPrice = :p1, i.currentLeader = :p2, i.bidCount = i.bidCount + 1 WHERE i.identifier = :p3 AND i.currentPrice = :p4";
+
+	// Best bid and number of bids read from the bids of items.
+	private final static String JPQL_UPDATE4 = "UPDATE Item i SET i.bidCount = (SELECT COUNT(b) FROM Bid b WHERE b.item = i), " +
+			"i.currentPrice = COALESCE((SELECT MAX(b.price) FROM Bid b WHERE b.item = i), 0), " +
+			"i.currentLeader = (SELECT b.user FROM Bid b WHERE b.item = i AND b.price = (SELECT MAX(bb.price) FROM Bid bb WHERE bb.item = i)) " +
+			"WHERE i.identifier IN :p1";
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Requests already built, by shape.
+	private final ConcurrentHashMap<String, String> requests = new ConcurrentHashMap<>();
+
 	/* ************ */
 	/* Constructors */
 	/* ************ */
@@ -83,6 +155,38 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 	/* Methods implemented */
 	/* ******************* */
 
+	/**
+	 * Retrieve all the items.
+	 * <p>
+	 * Items are read with the associations shown in item lists.
+	 *
+	 * @return List of items.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@Override public List<Item> find() throws ModelException
+	{
+		return execute(false, ModelError.UNABLE_TO_RETRIEVE_ENTITIES, () -> useGraph(entityManager.createQuery(JPQL_SELECT10, Item.class), Item.GRAPH_LIST).getResultList());
+	}
+
+	/**
+	 * Retrieve all the items as a stream.
+	 * <p>
+	 * Items are read with the associations shown in item lists.
+	 *
+	 * @param fetchSize Number of items read from the database at once.
+	 *
+	 * @return Stream of items.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@Override public Stream<Item> stream(int fetchSize) throws ModelException
+	{
+		return stream(useGraph(entityManager.createQuery(JPQL_SELECT10, Item.class), Item.GRAPH_LIST), fetchSize);
+	}
+
 	/**
 	 * Search items using criteria.
 	 * <p>
@@ -102,31 +206,48 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 	 */
 
 	@Override public List<Item> findByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords) throws ModelException
+	{
+		return findByCriteria(user, role, search, category, keywords, null);
+	}
+
+	/**
+	 * Search items using criteria among some.
+	 * <p>
+	 * This method works like the one without identifiers, but only the items
+	 * whose identifiers are supplied can be found.
+	 *
+	 * @param user        User to search for.
+	 * @param role        Role of the supplied user (seller or buyer)
+	 * @param search      Searching criteria.
+	 * @param category    Category of items searched.
+	 * @param keywords    Keywords on item name.
+	 * @param identifiers Identifiers of the items to search among, null for
+	 *                    all.
+	 *
+	 * @return List of items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	@Override public List<Item> findByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords, Collection<Long> identifiers) throws ModelException
 	{
 		List<Item> result;
 		TypedQuery<Item> query;
 
-		// Create the call of the check procedure.
-		StoredProcedureQuery storedProcedureQuery = entityManager.createNamedStoredProcedureQuery("CheckItems")
-			.setParameter("asked_item", 0L)
-			.setParameter("trace", true)
-			.setParameter("simulate", false)
-			.setParameter("append", true);
-
-		// Scan items to check their state against the current date.
-		storedProcedureQuery.execute();
+		// Nothing can be found among no item.
+		if ((identifiers != null) && (identifiers.isEmpty())) return new ArrayList<>();
 
 		// Create the request for searching requested items.
-		if (role == UserRole.BUYER) query = createJPQLForBuyer(JPQL_SELECT10, user, search, category, keywords);
-		else query = createJPQLForSeller(JPQL_SELECT10, user, search, category, keywords);
+		if (role == UserRole.BUYER) query = createJPQLForBuyer(JPQL_SELECT10, Item.class, user, search, category, keywords, identifiers, null);
+		else query = createJPQLForSeller(JPQL_SELECT10, Item.class, user, search, category, keywords, identifiers, null);
 
 		// If an error occurred while generating the query.
 		if (query == null) throw new ModelException(null, ModelError.UNABLE_TO_DELETE_ENTITY);
 
 		try
 		{
-			// Retrieve the requested items
-			result = query.getResultList();
+			// Retrieve the requested items with their associations.
+			result = useGraph(query, Item.GRAPH_LIST).getResultList();
 		}
 		catch (Exception e)
 		{
@@ -138,6 +259,123 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 		return result;
 	}
 
+	/**
+	 * Search a page of items using criteria.
+	 * <p>
+	 * This method works like the non paginated one, but only returns a page of
+	 * the items found, sorted by bidding end date then by identifier. The next
+	 * page is obtained by supplying the token of the page returned, the first one
+	 * with a null token. Pages are located from the last item read and not from
+	 * an offset, so reading a page costs the same whatever its position.
+	 *
+	 * @param user        User to search for.
+	 * @param role        Role of the supplied user (seller or buyer)
+	 * @param search      Searching criteria.
+	 * @param category    Category of items searched.
+	 * @param keywords    Keywords on item name.
+	 * @param identifiers Identifiers of the items to search among, null for
+	 *                    all.
+	 * @param pageToken   Token of the page to read, null for the first one.
+	 * @param pageSize    Maximum number of items in the page.
+	 *
+	 * @return Page of items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	@Override public Page<Item> findByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords, Collection<Long> identifiers, String pageToken, int pageSize) throws ModelException
+	{
+		TypedQuery<Item> query;
+
+		// Locate the page to read.
+		PagePosition position = PagePosition.decode(pageToken);
+
+		// Nothing can be found among no item.
+		if ((identifiers != null) && (identifiers.isEmpty())) return new Page<>(new ArrayList<>(), null);
+
+		// Create the request for searching requested items.
+		if (role == UserRole.BUYER) query = createJPQLForBuyer(JPQL_SELECT10, Item.class, user, search, category, keywords, identifiers, position);
+		else query = createJPQLForSeller(JPQL_SELECT10, Item.class, user, search, category, keywords, identifiers, position);
+
+		// Read the page, with the associations of the items.
+		return readPage((query != null) ? (useGraph(query, Item.GRAPH_LIST)) : (null), pageSize, item -> PagePosition.encode(item.getBiddingEnd(), item.getIdentifier()));
+	}
+
+	/**
+	 * Search a page of item cards using criteria.
+	 * <p>
+	 * This method works like the paginated search of items, but returns read only
+	 * views of the items found instead of entities. All the values of a card,
+	 * including the best bid price and the first image, are read by one request
+	 * and nothing is added to the persistence context.
+	 *
+	 * @param user        User to search for.
+	 * @param role        Role of the supplied user (seller or buyer)
+	 * @param search      Searching criteria.
+	 * @param category    Category of items searched.
+	 * @param keywords    Keywords on item name.
+	 * @param identifiers Identifiers of the items to search among, null for
+	 *                    all.
+	 * @param pageToken   Token of the page to read, null for the first one.
+	 * @param pageSize    Maximum number of items in the page.
+	 *
+	 * @return Page of item cards found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	@Override public Page<ItemCardView> findCardsByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords, Collection<Long> identifiers, String pageToken, int pageSize) throws ModelException
+	{
+		TypedQuery<ItemCardView> query;
+
+		// Locate the page to read.
+		PagePosition position = PagePosition.decode(pageToken);
+
+		// Nothing can be found among no item.
+		if ((identifiers != null) && (identifiers.isEmpty())) return new Page<>(new ArrayList<>(), null);
+
+		// Create the request for searching requested items.
+		if (role == UserRole.BUYER) query = createJPQLForBuyer(JPQL_SELECT16, ItemCardView.class, user, search, category, keywords, identifiers, position);
+		else query = createJPQLForSeller(JPQL_SELECT16, ItemCardView.class, user, search, category, keywords, identifiers, position);
+
+		// Read the page.
+		return readPage(query, pageSize, card -> PagePosition.encode(card.getBiddingEnd(), card.getIdentifier()));
+	}
+
+	/**
+	 * Search items using criteria as a stream.
+	 * <p>
+	 * This method works like the non paginated search, but the items found are
+	 * read from the database by blocks instead of at once. The returned stream
+	 * must be closed after use.
+	 *
+	 * @param user      User to search for.
+	 * @param role      Role of the supplied user (seller or buyer)
+	 * @param search    Searching criteria.
+	 * @param category  Category of items searched.
+	 * @param keywords  Keywords on item name.
+	 * @param fetchSize Number of items read from the database at once.
+	 *
+	 * @return Stream of items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	@Override public Stream<Item> streamByCriteria(User user, UserRole role, @NotNull Search search, Category category, String keywords, int fetchSize) throws ModelException
+	{
+		TypedQuery<Item> query;
+
+		// Create the request for searching requested items.
+		if (role == UserRole.BUYER) query = createJPQLForBuyer(JPQL_SELECT10, Item.class, user, search, category, keywords, null, null);
+		else query = createJPQLForSeller(JPQL_SELECT10, Item.class, user, search, category, keywords, null, null);
+
+		// If an error occurred while generating the query.
+		if (query == null) throw new ModelException(null, ModelError.UNABLE_TO_RETRIEVE_ENTITIES);
+
+		// Return the items as they are read, with their associations.
+		return stream(useGraph(query, Item.GRAPH_LIST), fetchSize);
+	}
+
 	/**
 	 * Delete items using criteria.
 	 * <p>
@@ -161,8 +399,8 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 		Query query;
 
 		// Create the request for searching requested items.
-		if (role == UserRole.BUYER) query = createJPQLForBuyer(JPQL_SELECT11, user, search, category, keywords);
-		else query = createJPQLForSeller(JPQL_SELECT11, user, search, category, keywords);
+		if (role == UserRole.BUYER) query = createJPQLForBuyer(JPQL_SELECT11, Item.class, user, search, category, keywords, null, null);
+		else query = createJPQLForSeller(JPQL_SELECT11, Item.class, user, search, category, keywords, null, null);
 
 		// If an error occurred while generating the query.
 		if (query == null) throw new ModelException(null, ModelError.UNABLE_TO_DELETE_ENTITY);
@@ -170,6 +408,185 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 		execute(true, ModelError.UNABLE_TO_DELETE_ENTITY, query::executeUpdate);
 	}
 
+	/**
+	 * Find the bidding dates of items.
+	 * <p>
+	 * This method reads in one request the identifier, the state and the
+	 * bidding dates of the items in the supplied states, without their
+	 * associations nor anything else. The items given are not managed and only
+	 * hold these properties.
+	 *
+	 * @param states States of the items to read.
+	 *
+	 * @return Items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	@Override public List<Item> findDates(@NotNull Collection<ItemState> states) throws ModelException
+	{
+		List<Item> items = new ArrayList<>();
+
+		execute(false, ModelError.UNABLE_TO_RETRIEVE_ENTITIES, () ->
+		{
+			TypedQuery<Object[]> query = entityManager.createQuery(JPQL_SELECT17, Object[].class);
+
+			query.setParameter("p1", states);
+
+			for (Object[] row : query.getResultList())
+				items.add(new Item().setIdentifier((Long) row[0]).setState((ItemState) row[1]).setBiddingStart((Date) row[2]).setBiddingEnd((Date) row[3]));
+		});
+
+		return items;
+	}
+
+	/**
+	 * Find the values shown by the cards of items.
+	 * <p>
+	 * This method reads in one request the items in the supplied states with
+	 * the identifier and username of their seller and the identifier and label
+	 * of their category, without anything else. The items given are not
+	 * managed and only hold these properties, their prices, dates, states and
+	 * numbers of bids.
+	 *
+	 * @param states States of the items to read.
+	 *
+	 * @return Items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	@Override public List<Item> findSummaries(@NotNull Collection<ItemState> states) throws ModelException
+	{
+		List<Item> items = new ArrayList<>();
+
+		execute(false, ModelError.UNABLE_TO_RETRIEVE_ENTITIES, () ->
+		{
+			TypedQuery<Object[]> query = entityManager.createQuery(JPQL_SELECT18, Object[].class);
+
+			query.setParameter("p1", states);
+
+			for (Object[] row : query.getResultList())
+			{
+				Item item = new Item().setIdentifier((Long) row[0]).setName((String) row[1]).setInitialPrice((Integer) row[2]);
+
+				item.setCurrentPrice((Integer) row[3]).setBidCount((Integer) row[4]);
+				item.setBiddingStart((Date) row[5]).setBiddingEnd((Date) row[6]).setState((ItemState) row[7]);
+				item.setSeller(new User().setIdentifier((Long) row[8]).setUsername((String) row[9]));
+				item.setCategory((row[10] != null) ? (new Category((String) row[11]).setIdentifier((Long) row[10])) : (null));
+
+				items.add(item);
+			}
+		});
+
+		return items;
+	}
+
+	/**
+	 * Change the state of items.
+	 * <p>
+	 * This method changes in one request the state of the items whose
+	 * identifiers are supplied in parameter. Only items that are still in the old
+	 * state are changed, and only if the date supplied is after the start of
+	 * their bidding (waiting items) or after the end of their bidding (other
+	 * items). Items that don't respect these conditions are left untouched, so
+	 * calling this method with outdated identifiers is harmless. The version of
+	 * the changed items is increased, so that an update made with their old
+	 * state is refused.
+	 *
+	 * @param identifiers Identifiers of the items to change.
+	 * @param oldState    State the items should have.
+	 * @param newState    State the items will have.
+	 * @param date        Date to compare the bidding dates to.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	@Override public void updateState(@NotNull List<Long> identifiers, @NotNull ItemState oldState, @NotNull ItemState newState, @NotNull Date date) throws ModelException
+	{
+		// Nothing to do if there is no item.
+		if (identifiers.isEmpty()) return;
+
+		execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () ->
+		{
+			// Waiting items depend on their start date, others on their end date.
+			Query query = entityManager.createQuery((oldState == ItemState.WT) ? (JPQL_UPDATE1) : (JPQL_UPDATE2));
+
+			query.setParameter("p1", newState);
+			query.setParameter("p2", identifiers);
+			query.setParameter("p3", oldState);
+			query.setParameter("p4", date, TemporalType.TIMESTAMP);
+
+			query.executeUpdate();
+		});
+	}
+
+	/**
+	 * Record a new best bid on an item.
+	 * <p>
+	 * This method changes in one request the current price and leader of the
+	 * supplied item, and counts one more bid. It should be called in the same
+	 * transaction as the one saving the bid. The item is only changed if its
+	 * current price is still the one the bid was checked against, so that two
+	 * bids made at the same time, even by different servers, can't both win.
+	 *
+	 * @param item     Item bid on.
+	 * @param leader   User who made the bid.
+	 * @param price    Price of the bid.
+	 * @param expected Current price the item should have, 0 if there is no bid.
+	 *
+	 * @return true if the bid is recorded, false if the item received another
+	 * bid meanwhile.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	@Override public boolean recordBid(@NotNull Item item, @NotNull User leader, int price, int expected) throws ModelException
+	{
+		int[] updated = {0};
+
+		execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () ->
+		{
+			Query query = entityManager.createQuery(JPQL_UPDATE3);
+
+			query.setParameter("p1", price);
+			query.setParameter("p2", leader);
+			query.setParameter("p3", item.getIdentifier());
+			query.setParameter("p4", expected);
+
+			updated[0] = query.executeUpdate();
+		});
+
+		return (updated[0] == 1);
+	}
+
+	/**
+	 * Compute again the current price, leader and number of bids of items.
+	 * <p>
+	 * This method reads the bids of the items whose identifiers are supplied in
+	 * parameter, and should be called when bids are deleted or saved without
+	 * being recorded.
+	 *
+	 * @param identifiers Identifiers of the items.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	@Override public void recountBids(@NotNull Collection<Long> identifiers) throws ModelException
+	{
+		// Nothing to do if there is no item.
+		if (identifiers.isEmpty()) return;
+
+		execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () ->
+		{
+			Query query = entityManager.createQuery(JPQL_UPDATE4);
+
+			query.setParameter("p1", identifiers);
+
+			query.executeUpdate();
+		});
+	}
+
 	/* ************** */
 	/* Helper methods */
 	/* ************** */
@@ -182,24 +599,93 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 	 * instead.
 	 *
 	 * @param clauseStart Start of the clause.
+	 * @param resultClass Class of the objects returned by the query.
 	 * @param user        User for which a search is related to.
 	 * @param search      Search criteria.
 	 * @param category    Category of items searched.
 	 * @param keywords    Keywords for name items
+	 * @param identifiers Identifiers of the items to search among, null for
+	 *                    all.
+	 * @param position    Position of the page to read, null if the request is
+	 *                    not paginated.
 	 *
 	 * @return Query used to process the request.
 	 */
 
-	@SuppressWarnings({"StringBufferMayBeStringBuilder", "unchecked"})
-	private @Nullable TypedQuery<Item> createJPQLForSeller(String clauseStart, @NotNull User user, @NotNull Search search, Category category, String keywords)
+	@SuppressWarnings("unchecked")
+	private <R> @Nullable TypedQuery<R> createJPQLForSeller(String clauseStart, Class<R> resultClass, @NotNull User user, @NotNull Search search, Category category, String keywords, Collection<Long> identifiers, PagePosition position)
 	{
-		StringBuffer request = new StringBuffer();
 		Query query;
-		int nbrCriteria = 0;
+		int nbrCriteria = 1;
 
 		// If no criterion is defined for a seller.
 		if (!search.asSeller()) return null;
 
+		// Keywords to search for.
+		String[] words = splitKeywords(keywords);
+
+		// Retrieve the request of this shape, building it the first time.
+		String request = requests.computeIfAbsent(shapeOf(clauseStart, UserRole.SELLER, search, category, words, identifiers != null, position), shape -> requestForSeller(clauseStart, search, category, words, identifiers != null, position));
+
+		// Create the query.
+		if (clauseStart.indexOf("SELECT") == 0) query = entityManager.createQuery(request, resultClass);
+		else query = entityManager.createQuery(request);
+
+		// Add the user to the request.
+		query.setParameter("p1", user);
+
+		// If items currently sell need to be retrieved.
+		if (search.isMyCurrentSales())
+			query.setParameter(String.format("c%d", nbrCriteria++), ItemState.AC);
+
+		// If items waiting for selling need to be retrieved.
+		if (search.isMyWaitingSales())
+			query.setParameter(String.format("c%d", nbrCriteria++), ItemState.WT);
+
+		// If items sold need to be retrieved.
+		if (search.isMyEndedSales())
+			query.setParameter(String.format("c%d", nbrCriteria++), ItemState.SD);
+
+		// If items canceled need to be retrieved.
+		if (search.isMyCanceledSales())
+			query.setParameter(String.format("c%d", nbrCriteria), ItemState.CA);
+
+		// Add the category if required.
+		if (category != null) query.setParameter("p3", category);
+
+		// Add the keywords if required.
+		setKeywords(query, words);
+
+		// Add the items to search among if required.
+		if (identifiers != null) query.setParameter("p4", identifiers);
+
+		// Add the position of the page if required.
+		setPosition(query, position);
+
+		// Return the found items.
+		return (TypedQuery<R>) query;
+	}
+
+	/**
+	 * Build a request to search for items as a seller.
+	 *
+	 * @param clauseStart Start of the clause.
+	 * @param search      Search criteria.
+	 * @param category    Category of items searched.
+	 * @param words       Keywords for name items, null if there is none.
+	 * @param among       Whether the items are searched among some.
+	 * @param position    Position of the page to read, null if the request is
+	 *                    not paginated.
+	 *
+	 * @return Request built.
+	 */
+
+	@SuppressWarnings("StringBufferMayBeStringBuilder")
+	private @NotNull String requestForSeller(String clauseStart, @NotNull Search search, Category category, String[] words, boolean among, PagePosition position)
+	{
+		StringBuffer request = new StringBuffer();
+		int nbrCriteria = 0;
+
 		// First part of the request.
 		request.append(clauseStart).append(JPQL_SELECT1);
 
@@ -226,42 +712,21 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 		if (category != null) request.append(JPQL_SELECT7);
 
 		// If keywords are supplied, add them.
-		if (keywords != null) request.append(addKeywords(keywords));
-
-		// Close the request
-		request.append(")");
-
-		// Create the query.
-		if (clauseStart.indexOf("SELECT") == 0) query = entityManager.createQuery(request.toString(), Item.class);
-		else query = entityManager.createQuery(request.toString());
-
-		// First used parameter.
-		nbrCriteria = 1;
-
-		// Add the user to the request.
-		query.setParameter("p1", user);
+		if (words != null) request.append(addKeywords(words));
 
-		// If items currently sell need to be retrieved.
-		if (search.isMyCurrentSales())
-			query.setParameter(String.format("c%d", nbrCriteria++), ItemState.AC);
+		// If the items are searched among some, complete the request.
+		if (among) request.append(JPQL_SELECT15);
 
-		// If items waiting for selling need to be retrieved.
-		if (search.isMyWaitingSales())
-			query.setParameter(String.format("c%d", nbrCriteria++), ItemState.WT);
+		// If the page doesn't start at the first item.
+		if ((position != null) && (position.biddingEnd != null)) request.append(JPQL_SELECT12);
 
-		// If items sold need to be retrieved.
-		if (search.isMyEndedSales())
-			query.setParameter(String.format("c%d", nbrCriteria++), ItemState.SD);
-
-		// If items canceled need to be retrieved.
-		if (search.isMyCanceledSales())
-			query.setParameter(String.format("c%d", nbrCriteria), ItemState.CA);
+		// Close the request
+		request.append(")");
 
-		// Add the category if required.
-		if (category != null) query.setParameter("p3", category);
+		// Pages need the items to be sorted.
+		if (position != null) request.append(JPQL_SELECT13);
 
-		// Return the found items.
-		return (TypedQuery<Item>) query;
+		return request.toString();
 	}
 
 	/**
@@ -272,28 +737,73 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 	 * instead.
 	 *
 	 * @param clauseStart Start of the clause.
+	 * @param resultClass Class of the objects returned by the query.
 	 * @param user        User for which a search is related to.
 	 * @param search      Search criteria.
 	 * @param category    Category of items searched.
 	 * @param keywords    Keywords for name items
+	 * @param identifiers Identifiers of the items to search among, null for
+	 *                    all.
+	 * @param position    Position of the page to read, null if the request is
+	 *                    not paginated.
 	 *
 	 * @return Query used to process the request.
 	 */
 
-	@SuppressWarnings("StringBufferMayBeStringBuilder")
-	private @Nullable TypedQuery<Item> createJPQLForBuyer(String clauseStart, User user, @NotNull Search search, Category category, String keywords)
+	private <R> @Nullable TypedQuery<R> createJPQLForBuyer(String clauseStart, Class<R> resultClass, User user, @NotNull Search search, Category category, String keywords, Collection<Long> identifiers, PagePosition position)
 	{
-		StringBuffer request = new StringBuffer();
-		boolean addOr = false;
-
 		// If no criterion is defined for a buyer.
 		if (!search.asBuyer()) return null;
 
 		// User can be null, but in that case all criteria aren't allowed.
 		if ( (user == null) && ((search.isMyWonBids()) || (search.isMyCurrentBids())) ) return null;
 
+		// Keywords to search for.
+		String[] words = splitKeywords(keywords);
+
+		// Retrieve the request of this shape, building it the first time.
+		String request = requests.computeIfAbsent(shapeOf(clauseStart, UserRole.BUYER, search, category, words, identifiers != null, position), shape -> requestForBuyer(clauseStart, search, category, words, identifiers != null, position));
+
+		// Create the query.
+		TypedQuery<R> query = entityManager.createQuery(request, resultClass);
+
+		if (search.isMyWonBids()) query.setParameter("p1", user);
+
+		if (search.isMyCurrentBids()) query.setParameter("p2", user);
+
+		if (category != null) query.setParameter("p3", category);
+
+		setKeywords(query, words);
+
+		if (identifiers != null) query.setParameter("p4", identifiers);
+
+		setPosition(query, position);
+
+		return query;
+	}
+
+	/**
+	 * Build a request to search for items as a buyer.
+	 *
+	 * @param clauseStart Start of the clause.
+	 * @param search      Search criteria.
+	 * @param category    Category of items searched.
+	 * @param words       Keywords for name items, null if there is none.
+	 * @param among       Whether the items are searched among some.
+	 * @param position    Position of the page to read, null if the request is
+	 *                    not paginated.
+	 *
+	 * @return Request built.
+	 */
+
+	@SuppressWarnings("StringBufferMayBeStringBuilder")
+	private @NotNull String requestForBuyer(String clauseStart, @NotNull Search search, Category category, String[] words, boolean among, PagePosition position)
+	{
+		StringBuffer request = new StringBuffer();
+		boolean addOr = false;
+
 		// First part of the request.
-		request.append(clauseStart).append((search.isMyCurrentBids()) ? (JPQL_SELECT3) : (JPQL_SELECT2));
+		request.append(clauseStart).append(JPQL_SELECT2);
 
 		// If the items that the supplied user bought need to be retrieved.
 		if (search.isMyWonBids())
@@ -335,46 +845,195 @@ public class ItemDAOImpl extends GenericDAOImpl<Item, Long> implements ItemDAO
 		if (category != null) request.append(JPQL_SELECT7);
 
 		// If keywords are supplied, add them.
-		if (keywords != null) request.append(addKeywords(keywords));
+		if (words != null) request.append(addKeywords(words));
 
-		// If an aggregation need to be used.
-		if (search.isMyCurrentBids()) request.append(JPQL_SELECT8);
+		// If the items are searched among some, complete the request.
+		if (among) request.append(JPQL_SELECT15);
 
-		// Create the query.
-		TypedQuery<Item> query = entityManager.createQuery(request.toString(), Item.class);
+		// If the page doesn't start at the first item.
+		if ((position != null) && (position.biddingEnd != null)) request.append(JPQL_SELECT12);
 
-		if (search.isMyWonBids()) query.setParameter("p1", user);
+		// Pages need the items to be sorted.
+		if (position != null) request.append(JPQL_SELECT13);
 
-		if (search.isMyCurrentBids()) query.setParameter("p2", user);
+		return request.toString();
+	}
 
-		if (category != null) query.setParameter("p3", category);
+	/**
+	 * Read a page of results.
+	 * <p>
+	 * One more result than the size of the page is read, to know whether a next
+	 * page exists. In that case, the token of the next page is computed from the
+	 * last result of the page.
+	 *
+	 * @param query    Query giving the results, null if it couldn't be created.
+	 * @param pageSize Maximum number of results in the page.
+	 * @param token    Function computing the token of the next page.
+	 * @param <R>      Type of the results.
+	 *
+	 * @return Page read.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
 
-		return query;
+	private <R> @NotNull Page<R> readPage(TypedQuery<R> query, int pageSize, @NotNull Function<R, String> token) throws ModelException
+	{
+		List<R> result;
+
+		// If an error occurred while generating the query.
+		if (query == null) throw new ModelException(null, ModelError.UNABLE_TO_RETRIEVE_ENTITIES);
+
+		try
+		{
+			// One more result is read to know whether a next page exists.
+			result = query.setMaxResults(pageSize + 1).getResultList();
+		}
+		catch (Exception e)
+		{
+			// If something goes wrong.
+			throw new ModelException(e, ModelError.UNABLE_TO_RETRIEVE_ENTITIES);
+		}
+
+		// If this is the last page.
+		if (result.size() <= pageSize) return new Page<>(result, null);
+
+		// Remove the extra result, which is the first of the next page.
+		result = new ArrayList<>(result.subList(0, pageSize));
+
+		// Return the page with the token of the next one.
+		return new Page<>(result, token.apply(result.get(pageSize - 1)));
+	}
+
+	/**
+	 * Add the position of a page to a query.
+	 * <p>
+	 * Nothing is done if the query is not paginated or if the first page is
+	 * requested.
+	 *
+	 * @param query    Query to complete.
+	 * @param position Position of the page to read.
+	 */
+
+	private void setPosition(@NotNull Query query, PagePosition position)
+	{
+		if ((position == null) || (position.biddingEnd == null)) return;
+
+		query.setParameter("k1", position.biddingEnd, TemporalType.TIMESTAMP);
+		query.setParameter("k2", position.identifier);
+	}
+
+	/**
+	 * Determine the shape of a search.
+	 * <p>
+	 * Two searches of the same shape use the same request, only the values of
+	 * their parameters differ.
+	 *
+	 * @param clauseStart Start of the clause.
+	 * @param role        Role of the user.
+	 * @param search      Search criteria.
+	 * @param category    Category of items searched.
+	 * @param words       Keywords for name items, null if there is none.
+	 * @param among       Whether the items are searched among some.
+	 * @param position    Position of the page to read, null if the request is
+	 *                    not paginated.
+	 *
+	 * @return Key identifying the shape.
+	 */
+
+	private @NotNull String shapeOf(String clauseStart, UserRole role, @NotNull Search search, Category category, String[] words, boolean among, PagePosition position)
+	{
+		// Pagination: none, first page or next page.
+		char paging = (position == null) ? ('-') : ((position.biddingEnd == null) ? ('F') : ('N'));
+
+		return String.format("%s/%s/%x/%b/%d/%b/%c", clauseStart, role, search.getValue(), category != null, (words == null) ? (0) : (bucketOf(words.length)), among, paging);
+	}
+
+	/**
+	 * Split the keywords searched.
+	 * <p>
+	 * Keywords are separated by spaces. Only the first ones are kept if there are
+	 * too many of them.
+	 *
+	 * @param keywords Keywords to split.
+	 *
+	 * @return Keywords found or null if there is none.
+	 */
+
+	private static String @Nullable [] splitKeywords(String keywords)
+	{
+		// If no keyword is supplied.
+		if ((keywords == null) || (keywords.trim().isEmpty())) return null;
+
+		String[] words = keywords.trim().split("\\s+");
+
+		return (words.length > MAX_KEYWORDS) ? (Arrays.copyOf(words, MAX_KEYWORDS)) : (words);
+	}
+
+	/**
+	 * Determine the number of keyword parameters of a request.
+	 * <p>
+	 * The number of keywords is rounded up to the next power of two, so that only
+	 * a few request shapes exist whatever the number of keywords searched.
+	 *
+	 * @param count Number of keywords.
+	 *
+	 * @return Number of keyword parameters.
+	 */
+
+	private static int bucketOf(int count)
+	{
+		int bucket = 1;
+
+		while (bucket < count) bucket <<= 1;
+
+		return bucket;
 	}
 
 	/**
 	 * Create a string to add to the database request.
+	 * <p>
+	 * Keywords are not put in the request but bound as parameters, whose number
+	 * is rounded up to a power of two.
 	 *
-	 * @param keywords Keywords to add to the request.
+	 * @param words Keywords to add to the request.
 	 *
 	 * @return String to add to the database request.
 	 */
 
 	@SuppressWarnings("StringBufferMayBeStringBuilder")
-	private @NotNull String addKeywords(@NotNull String keywords)
+	private @NotNull String addKeywords(String @NotNull [] words)
 	{
 		StringBuffer sb = new StringBuffer();
-		String[] splitKeyWords = keywords.split(" ");
+		int bucket = bucketOf(words.length);
 
 		sb.append(" AND (");
 
-		for (int i = 0; i < splitKeyWords.length; i++)
+		for (int i = 1; i <= bucket; i++)
 		{
-			sb.append("(i.name LIKE '%").append(splitKeyWords[i]).append("%')");
+			sb.append(String.format(JPQL_SELECT14, i));
 
-			if (i != (splitKeyWords.length - 1)) sb.append(" OR ");
+			if (i != bucket) sb.append(" OR ");
 		}
 
 		return sb.append(")").toString();
 	}
+
+	/**
+	 * Bind the keywords to a query.
+	 * <p>
+	 * The extra parameters of the request receive the last keyword again, which
+	 * doesn't change the result of the search. The wildcards of the keywords are
+	 * escaped, so that they are searched as they are.
+	 *
+	 * @param query Query to complete.
+	 * @param words Keywords to bind, null if there is none.
+	 */
+
+	private void setKeywords(@NotNull Query query, String[] words)
+	{
+		if (words == null) return;
+
+		for (int i = 1; i <= bucketOf(words.length); i++)
+			query.setParameter(String.format("w%d", i), "%" + words[Math.min(i, words.length) - 1].replaceAll("([!%_])", "!$1") + "%");
+	}
 }
@@ -8,7 +8,10 @@ import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import org.jetbrains.annotations.NotNull;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class used to implement the user data access object.
@@ -21,6 +24,8 @@ import javax.persistence.TypedQuery;
  *
  * @see #findByUsername(String)
  * @see #findByEmail(String)
+ * @see #findVersion(long)
+ * @see #updatePassword(User)
  */
 
 @ApplicationScoped @UserDAODB
@@ -36,6 +41,13 @@ public class UserDAOImpl extends GenericDAOImpl<User, Long> implements UserDAO
 	// Request for searching one user by its email.
 	private final static String JPQL_SELECT2 = "SELECT u FROM User u WHERE u.email = :p1";
 
+	// Request for reading the version of one user.
+	private final static String JPQL_SELECT3 = "SELECT u.version FROM User u WHERE u.identifier = :p1";
+
+	// Request for changing the password of a user, whose version is increased
+	// like by an update.
+	private final static String JPQL_UPDATE1 = "UPDATE VERSIONED User u SET u.password = :p2, u.salt = :p3 WHERE u.identifier = :p1";
+
 	/* ************ */
 	/* Constructors */
 	/* ************ */
@@ -108,4 +120,61 @@ public class UserDAOImpl extends GenericDAOImpl<User, Long> implements UserDAO
 		// Return the result.
 		return foundUser;
 	}
+
+	/**
+	 * Find the version of a user.
+	 * <p>
+	 * This method only reads the version of the user whose identifier is
+	 * supplied, to know whether a copy of him is still the one of the database.
+	 *
+	 * @param identifier Identifier of the user.
+	 *
+	 * @return Version of the user, or null if he doesn't exist.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@Override public Integer findVersion(long identifier) throws ModelException
+	{
+		List<Integer> versions = new ArrayList<>();
+
+		execute(false, ModelError.USER_NOT_FOUND, () ->
+		{
+			// Create the query for reading the version of the user.
+			TypedQuery<Integer> query = entityManager.createQuery(JPQL_SELECT3, Integer.class);
+			query.setParameter("p1", identifier);
+
+			versions.addAll(query.getResultList());
+		});
+
+		// Return the result.
+		return (versions.isEmpty()) ? (null) : (versions.get(0));
+	}
+
+	/**
+	 * Update the password of a user.
+	 * <p>
+	 * This method only writes the hashed password and the salt of the supplied
+	 * user into the database, leaving his other properties as they are. His
+	 * version is increased, so that an update of the user read before is
+	 * refused instead of overwriting the password.
+	 *
+	 * @param user User whose password is updated.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	@Override public void updatePassword(@NotNull User user) throws ModelException
+	{
+		execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () ->
+		{
+			Query query = entityManager.createQuery(JPQL_UPDATE1);
+
+			query.setParameter("p1", user.getIdentifier());
+			query.setParameter("p2", user.getPassword());
+			query.setParameter("p3", user.getSalt());
+
+			query.executeUpdate();
+		});
+	}
 }
@@ -5,6 +5,10 @@ import fr.eikasus.objectsmyfriends.model.bo.Item;
 import fr.eikasus.objectsmyfriends.model.misc.BidId;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Interface used for implementing the bid data access object.
  * <p>
@@ -14,6 +18,7 @@ import fr.eikasus.objectsmyfriends.model.misc.ModelException;
  * implements too, implements the methods commun to all data access objects.
  *
  * @see #findBestBid(Item)
+ * @see #findBidders(Collection)
  */
 
 public interface BidDAO extends GenericDAO<Bid, BidId>
@@ -32,4 +37,20 @@ public interface BidDAO extends GenericDAO<Bid, BidId>
 	 */
 
 	Bid findBestBid(Item item) throws ModelException;
+
+	/**
+	 * Find the users having bid on several items.
+	 * <p>
+	 * This method reads by one request the identifiers of the users who made at
+	 * least one bid on each of the supplied items.
+	 *
+	 * @param items Identifiers of the items.
+	 *
+	 * @return Identifiers of the bidders by item identifier, items without bid
+	 * being absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	Map<Long, List<Long>> findBidders(Collection<Long> items) throws ModelException;
 }
@@ -0,0 +1,54 @@
+package fr.eikasus.objectsmyfriends.model.dal.interfaces;
+
+import fr.eikasus.objectsmyfriends.model.bo.CreditEntry;
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+
+/**
+ * Interface used for implementing the credit data access object.
+ * <p>
+ * This interface defines all the specific methods to handle the credit ledger
+ * and the credit of the users within the data access layer. It is supplied by
+ * the DAO factory object and used by its corresponding manager. The generic
+ * dao interface, that this interface implements too, implements the methods
+ * commun to all data access objects.
+ *
+ * @see #findCredit(User)
+ * @see #addCredit(User, int)
+ */
+
+public interface CreditDAO extends GenericDAO<CreditEntry, Long>
+{
+	/**
+	 * Find the credit of a user.
+	 * <p>
+	 * This method reads the current credit of the supplied user from the
+	 * database, without reading the user itself.
+	 *
+	 * @param user User to search for.
+	 *
+	 * @return Credit of the user.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	int findCredit(User user) throws ModelException;
+
+	/**
+	 * Add an amount to the credit of a user.
+	 * <p>
+	 * This method changes the credit of the supplied user in the database by
+	 * one request, so that changes made at the same time are all kept. The
+	 * amount can be negative, but the credit is not changed if it would become
+	 * negative. The user object itself is not changed.
+	 *
+	 * @param user   User whose credit changes.
+	 * @param amount Amount to add to the credit.
+	 *
+	 * @return true if the credit is changed, false if it is not enough.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	boolean addCredit(User user, int amount) throws ModelException;
+}
@@ -2,7 +2,9 @@ package fr.eikasus.objectsmyfriends.model.dal.interfaces;
 
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface used for implementing the commun part of data access object.
@@ -14,13 +16,18 @@ import java.util.List;
  *
  * @see #findByProperty(String, Object)
  * @see #find()
+ * @see #stream(int)
  * @see #find(Object)
+ * @see #find(Object, String)
  * @see #save(Object)
+ * @see #saveAll(Collection)
  * @see #update(Object)
+ * @see #updateAll(Collection)
  * @see #refresh(Object)
  * @see #detach(Object)
  * @see #deleteByProperty(String, Object)
  * @see #delete(Object)
+ * @see #deleteAll(Collection)
  * @see #deleteById(Object)
  */
 
@@ -56,6 +63,24 @@ public interface GenericDAO<T, U>
 
 	List<T> find() throws ModelException;
 
+	/**
+	 * Retrieve all the entities as a stream.
+	 * <p>
+	 * This method is used to go through all the entities of the database without
+	 * loading them in memory at once. Entities are read by blocks whose size is
+	 * supplied in parameter, and each entity is detached when the next one is
+	 * read, so lazy relations of already consumed entities can't be loaded
+	 * anymore. The returned stream must be closed after use.
+	 *
+	 * @param fetchSize Number of entities read from the database at once.
+	 *
+	 * @return Stream of entities.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	Stream<T> stream(int fetchSize) throws ModelException;
+
 	/**
 	 * Retrieve one entity.
 	 * <p>
@@ -71,6 +96,23 @@ public interface GenericDAO<T, U>
 
 	T find(U identifier) throws ModelException;
 
+	/**
+	 * Retrieve one entity with its associations.
+	 * <p>
+	 * This method is used to retrieve an entity form the database whose
+	 * identifier is supplied in parameter, together with the associations of the
+	 * entity graph whose name is also supplied, in the same request.
+	 *
+	 * @param identifier Identifier of the entity to find.
+	 * @param graph      Name of the entity graph to load.
+	 *
+	 * @return Asked entity.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	T find(U identifier, String graph) throws ModelException;
+
 	/**
 	 * Save an entity into the database.
 	 * <p>
@@ -84,6 +126,20 @@ public interface GenericDAO<T, U>
 
 	void save(T entity) throws ModelException;
 
+	/**
+	 * Save entities into the database.
+	 * <p>
+	 * The entities supplied in parameter are stored in the database in one
+	 * transaction, their rows being inserted by batches instead of one request
+	 * each. Their identifiers should be zero, otherwise an error occurs.
+	 *
+	 * @param entities The entities to save into the database.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	void saveAll(Collection<T> entities) throws ModelException;
+
 	/**
 	 * Update an entity into the database.
 	 * <p>
@@ -97,6 +153,19 @@ public interface GenericDAO<T, U>
 
 	void update(T entity) throws ModelException;
 
+	/**
+	 * Update entities into the database.
+	 * <p>
+	 * The entities supplied in parameter are updated in the database in one
+	 * transaction, their rows being updated by batches.
+	 *
+	 * @param entities The entities to update into the database.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	void updateAll(Collection<T> entities) throws ModelException;
+
 	/**
 	 * Refresh an entity from the database.
 	 * <p>
@@ -153,6 +222,19 @@ public interface GenericDAO<T, U>
 
 	void delete(T entity) throws ModelException;
 
+	/**
+	 * Delete entities from the database.
+	 * <p>
+	 * The entities supplied in parameter are deleted from the database in one
+	 * transaction, their rows being deleted by batches.
+	 *
+	 * @param entities Entities to delete from the database.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	void deleteAll(Collection<T> entities) throws ModelException;
+
 	/**
 	 * Delete an entity from the database.
 	 * <p>
@@ -1,6 +1,11 @@
 package fr.eikasus.objectsmyfriends.model.dal.interfaces;
 
 import fr.eikasus.objectsmyfriends.model.bo.Image;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Interface used for implementing the image data access object.
@@ -10,8 +15,42 @@ import fr.eikasus.objectsmyfriends.model.bo.Image;
  * used by its corresponding manager. The generic dao interface, that this
  * interface implements too, implements the methods commun to all data access
  * objects.
+ *
+ * @see #findPaths(Collection)
+ * @see #countReferences(Collection)
  */
 
 public interface ImageDAO extends GenericDAO<Image, Long>
 {
+	/**
+	 * Find the paths of the images of several items.
+	 * <p>
+	 * This method reads the paths of the images of all the supplied items by
+	 * one request, without reading the items nor the images themselves.
+	 *
+	 * @param items Identifiers of the items.
+	 *
+	 * @return Paths of the images by item identifier, items without image being
+	 * absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	Map<Long, List<String>> findPaths(Collection<Long> items) throws ModelException;
+
+	/**
+	 * Count the images pointing to several image files.
+	 * <p>
+	 * This method counts by one request the images whose path is one of the
+	 * supplied paths, an image file being shared by the images of the same
+	 * content.
+	 *
+	 * @param paths Paths of the image files.
+	 *
+	 * @return Number of images by path, paths without image being absent.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	Map<String, Long> countReferences(Collection<String> paths) throws ModelException;
 }
@@ -2,12 +2,18 @@ package fr.eikasus.objectsmyfriends.model.dal.interfaces;
 
 import fr.eikasus.objectsmyfriends.model.bo.Category;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.ItemCardView;
 import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.ItemState;
 import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import fr.eikasus.objectsmyfriends.model.misc.Page;
 import fr.eikasus.objectsmyfriends.model.misc.Search;
 import fr.eikasus.objectsmyfriends.model.misc.UserRole;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface used for implementing the item data access object.
@@ -18,7 +24,16 @@ import java.util.List;
  * implements too, implements the methods commun to all data access objects.
  *
  * @see #findByCriteria(User, UserRole, Search, Category, String)
+ * @see #findByCriteria(User, UserRole, Search, Category, String, Collection)
+ * @see #findByCriteria(User, UserRole, Search, Category, String, Collection, String, int)
+ * @see #findCardsByCriteria(User, UserRole, Search, Category, String, Collection, String, int)
+ * @see #streamByCriteria(User, UserRole, Search, Category, String, int)
  * @see #deleteByCriteria(User, UserRole, Search, Category, String)
+ * @see #findDates(Collection)
+ * @see #findSummaries(Collection)
+ * @see #updateState(List, ItemState, ItemState, Date)
+ * @see #recordBid(Item, User, int, int)
+ * @see #recountBids(Collection)
  */
 
 public interface ItemDAO extends GenericDAO<Item, Long>
@@ -43,6 +58,99 @@ public interface ItemDAO extends GenericDAO<Item, Long>
 
 	List<Item> findByCriteria(User user, UserRole role, Search search, Category category, String keywords) throws ModelException;
 
+	/**
+	 * Search items using criteria among some.
+	 * <p>
+	 * This method works like the one without identifiers, but only the items
+	 * whose identifiers are supplied can be found.
+	 *
+	 * @param user        User to search for.
+	 * @param role        Role of the supplied user (seller or buyer)
+	 * @param search      Searching criteria.
+	 * @param category    Category of items searched.
+	 * @param keywords    Keywords on item name.
+	 * @param identifiers Identifiers of the items to search among, null for
+	 *                    all.
+	 *
+	 * @return List of items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	List<Item> findByCriteria(User user, UserRole role, Search search, Category category, String keywords, Collection<Long> identifiers) throws ModelException;
+
+	/**
+	 * Search a page of items using criteria.
+	 * <p>
+	 * This method works like the non paginated one, but only returns a page of
+	 * the items found, sorted by bidding end date then by identifier. The next
+	 * page is obtained by supplying the token of the page returned, the first one
+	 * with a null token. Pages are located from the last item read and not from
+	 * an offset, so reading a page costs the same whatever its position.
+	 *
+	 * @param user        User to search for.
+	 * @param role        Role of the supplied user (seller or buyer)
+	 * @param search      Searching criteria.
+	 * @param category    Category of items searched.
+	 * @param keywords    Keywords on item name.
+	 * @param identifiers Identifiers of the items to search among, null for
+	 *                    all.
+	 * @param pageToken   Token of the page to read, null for the first one.
+	 * @param pageSize    Maximum number of items in the page.
+	 *
+	 * @return Page of items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	Page<Item> findByCriteria(User user, UserRole role, Search search, Category category, String keywords, Collection<Long> identifiers, String pageToken, int pageSize) throws ModelException;
+
+	/**
+	 * Search a page of item cards using criteria.
+	 * <p>
+	 * This method works like the paginated search of items, but returns read only
+	 * views of the items found instead of entities. All the values of a card,
+	 * including the best bid price and the first image, are read by one request
+	 * and nothing is added to the persistence context.
+	 *
+	 * @param user        User to search for.
+	 * @param role        Role of the supplied user (seller or buyer)
+	 * @param search      Searching criteria.
+	 * @param category    Category of items searched.
+	 * @param keywords    Keywords on item name.
+	 * @param identifiers Identifiers of the items to search among, null for
+	 *                    all.
+	 * @param pageToken   Token of the page to read, null for the first one.
+	 * @param pageSize    Maximum number of items in the page.
+	 *
+	 * @return Page of item cards found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	Page<ItemCardView> findCardsByCriteria(User user, UserRole role, Search search, Category category, String keywords, Collection<Long> identifiers, String pageToken, int pageSize) throws ModelException;
+
+	/**
+	 * Search items using criteria as a stream.
+	 * <p>
+	 * This method works like the non paginated search, but the items found are
+	 * read from the database by blocks instead of at once. The returned stream
+	 * must be closed after use.
+	 *
+	 * @param user      User to search for.
+	 * @param role      Role of the supplied user (seller or buyer)
+	 * @param search    Searching criteria.
+	 * @param category  Category of items searched.
+	 * @param keywords  Keywords on item name.
+	 * @param fetchSize Number of items read from the database at once.
+	 *
+	 * @return Stream of items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	Stream<Item> streamByCriteria(User user, UserRole role, Search search, Category category, String keywords, int fetchSize) throws ModelException;
+
 	/**
 	 * Delete items using criteria.
 	 * <p>
@@ -60,4 +168,91 @@ public interface ItemDAO extends GenericDAO<Item, Long>
 	 */
 
 	void deleteByCriteria(User user, UserRole role, Search search, Category category, String keywords) throws ModelException;
+
+	/**
+	 * Find the bidding dates of items.
+	 * <p>
+	 * This method reads in one request the identifier, the state and the
+	 * bidding dates of the items in the supplied states, without anything else.
+	 * The items given only hold these properties.
+	 *
+	 * @param states States of the items to read.
+	 *
+	 * @return Items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	List<Item> findDates(Collection<ItemState> states) throws ModelException;
+
+	/**
+	 * Find the values shown by the cards of items.
+	 * <p>
+	 * This method reads in one request the items in the supplied states with
+	 * the identifier and username of their seller and the identifier and label
+	 * of their category, without anything else. The items given only hold
+	 * these properties, their prices, dates, states and numbers of bids.
+	 *
+	 * @param states States of the items to read.
+	 *
+	 * @return Items found.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	List<Item> findSummaries(Collection<ItemState> states) throws ModelException;
+
+	/**
+	 * Change the state of items.
+	 * <p>
+	 * This method changes in one request the state of the items whose
+	 * identifiers are supplied in parameter. Only items that are still in the old
+	 * state are changed, and only if the date supplied is after the start of
+	 * their bidding (waiting items) or after the end of their bidding (other
+	 * items).
+	 *
+	 * @param identifiers Identifiers of the items to change.
+	 * @param oldState    State the items should have.
+	 * @param newState    State the items will have.
+	 * @param date        Date to compare the bidding dates to.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	void updateState(List<Long> identifiers, ItemState oldState, ItemState newState, Date date) throws ModelException;
+
+	/**
+	 * Record a new best bid on an item.
+	 * <p>
+	 * This method changes in one request the current price and leader of the
+	 * supplied item, and counts one more bid. It should be called in the same
+	 * transaction as the one saving the bid. The item is only changed if its
+	 * current price is still the expected one.
+	 *
+	 * @param item     Item bid on.
+	 * @param leader   User who made the bid.
+	 * @param price    Price of the bid.
+	 * @param expected Current price the item should have, 0 if there is no bid.
+	 *
+	 * @return true if the bid is recorded, false if the item received another
+	 * bid meanwhile.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	boolean recordBid(Item item, User leader, int price, int expected) throws ModelException;
+
+	/**
+	 * Compute again the current price, leader and number of bids of items.
+	 * <p>
+	 * This method reads the bids of the items whose identifiers are supplied in
+	 * parameter, and should be called when bids are deleted or saved without
+	 * being recorded.
+	 *
+	 * @param identifiers Identifiers of the items.
+	 *
+	 * @throws ModelException In case of pb.
+	 */
+
+	void recountBids(Collection<Long> identifiers) throws ModelException;
 }
@@ -13,6 +13,8 @@ import fr.eikasus.objectsmyfriends.model.misc.ModelException;
  *
  * @see #findByUsername(String)
  * @see #findByEmail(String)
+ * @see #findVersion(long)
+ * @see #updatePassword(User)
  */
 
 public interface UserDAO extends GenericDAO<User, Long>
@@ -46,4 +48,32 @@ public interface UserDAO extends GenericDAO<User, Long>
 	 */
 
 	User findByEmail(String email) throws ModelException;
+
+	/**
+	 * Find the version of a user.
+	 * <p>
+	 * This method only reads the version of the user whose identifier is
+	 * supplied, to know whether a copy of him is still the one of the database.
+	 *
+	 * @param identifier Identifier of the user.
+	 *
+	 * @return Version of the user, or null if he doesn't exist.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	Integer findVersion(long identifier) throws ModelException;
+
+	/**
+	 * Update the password of a user.
+	 * <p>
+	 * This method only writes the hashed password and the salt of the supplied
+	 * user into the database, leaving his other properties as they are.
+	 *
+	 * @param user User whose password is updated.
+	 *
+	 * @throws ModelException In case of problem.
+	 */
+
+	void updatePassword(User user) throws ModelException;
 }
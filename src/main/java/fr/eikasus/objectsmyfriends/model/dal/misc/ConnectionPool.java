@@ -0,0 +1,598 @@
+package fr.eikasus.objectsmyfriends.model.dal.misc;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class pooling the connections to the database.
+ * <p>
+ * Opening a connection to the database is expensive, so connections are kept
+ * open and given again to the application each time it needs one. The number
+ * of connections used at the same time is bounded: when all of them are used,
+ * the next request waits for one to be given back, and fails if it takes too
+ * long. A connection unused for a while is validated before being given
+ * again, and connections are renewed after a maximum lifetime. Connections
+ * kept by the application longer than a threshold are counted as probable
+ * leaks and logged as warnings, with the place they were taken from, through
+ * the logger named after this class.
+ * <p>
+ * Prepared statements are cached by the database driver for each connection
+ * (see the connection URL), which only pays off because connections are
+ * reused.
+ * <p>
+ * This class is given to Hibernate as connection provider in the persistence
+ * unit and is configured by its properties. The statistics of the pool can be
+ * read at any time.
+ *
+ * @see #getConnection()
+ * @see #closeConnection(Connection)
+ * @see #getStatistics()
+ */
+
+public class ConnectionPool implements ConnectionProvider, Configurable, Stoppable
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	private static final long serialVersionUID = 1L;
+
+	// Maximum number of connections.
+	public static final String MAXIMUM_SIZE = "objectsmyfriends.pool.maximum_size";
+
+	// Number of idle connections kept ready.
+	public static final String MINIMUM_IDLE = "objectsmyfriends.pool.minimum_idle";
+
+	// Maximum time to wait for a connection, in milliseconds.
+	public static final String CONNECTION_TIMEOUT = "objectsmyfriends.pool.connection_timeout";
+
+	// Maximum time to validate a connection, in seconds.
+	public static final String VALIDATION_TIMEOUT = "objectsmyfriends.pool.validation_timeout";
+
+	// Time after which an idle connection above the minimum is closed, in milliseconds.
+	public static final String IDLE_TIMEOUT = "objectsmyfriends.pool.idle_timeout";
+
+	// Maximum lifetime of a connection, in milliseconds.
+	public static final String MAXIMUM_LIFETIME = "objectsmyfriends.pool.maximum_lifetime";
+
+	// Time after which a connection not given back is reported, in milliseconds, 0 to disable.
+	public static final String LEAK_DETECTION_THRESHOLD = "objectsmyfriends.pool.leak_detection_threshold";
+
+	// A connection given back more recently is not validated again, in milliseconds.
+	private static final long VALIDATION_BYPASS = 500;
+
+	// Period of the pool maintenance, in milliseconds.
+	private static final long HOUSEKEEPING_PERIOD = 5000;
+
+	// Logger receiving the leak reports.
+	private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Connection opened by the pool.
+	 */
+
+	private static class Entry
+	{
+		public final Connection connection;
+		public final long created;
+		public volatile long lastUsed;
+
+		public Entry(Connection connection)
+		{
+			this.connection = connection;
+			this.created = this.lastUsed = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Connection given to the application.
+	 */
+
+	private static class Lease
+	{
+		public final Entry entry;
+		public final long borrowed;
+		public final Exception origin;
+		public boolean reported;
+
+		public Lease(Entry entry, Exception origin)
+		{
+			this.entry = entry;
+			this.borrowed = System.currentTimeMillis();
+			this.origin = origin;
+		}
+	}
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// URL of the database.
+	private String url;
+
+	// Properties given to the driver, including the user and his password.
+	private final Properties driverProperties = new Properties();
+
+	// Settings of the pool.
+	private int maximumSize = 10;
+	private int minimumIdle = 2;
+	private long connectionTimeout = 30000;
+	private int validationTimeout = 5;
+	private long idleTimeout = 600000;
+	private long maximumLifetime = 1800000;
+	private long leakDetectionThreshold = 60000;
+
+	// Connections ready to be used, the most recently used first.
+	private final LinkedBlockingDeque<Entry> idle = new LinkedBlockingDeque<>();
+
+	// Connections used by the application.
+	private final ConcurrentHashMap<Connection, Lease> leases = new ConcurrentHashMap<>();
+
+	// Permissions to use a connection, one per connection of the pool.
+	private Semaphore permits;
+
+	// Number of connections opened.
+	private final AtomicInteger total = new AtomicInteger();
+
+	// Number of threads waiting for a connection.
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	// Statistics counters.
+	private final LongAdder borrowed = new LongAdder();
+	private final LongAdder waitTime = new LongAdder();
+	private final AtomicLong maximumWaitTime = new AtomicLong();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder leaks = new LongAdder();
+	private final LongAdder validationFailures = new LongAdder();
+
+	// Thread maintaining the pool.
+	private ScheduledExecutorService housekeeper;
+
+	// Whether the pool was stopped.
+	private volatile boolean stopped = false;
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Configure the pool.
+	 * <p>
+	 * The database is given by the JDBC properties of the persistence unit and
+	 * the pool by its own properties, those missing keeping their default
+	 * value. No connection is opened here: the idle connections are opened in
+	 * background, so the pool can be started before the database.
+	 *
+	 * @param configuration Properties of the persistence unit.
+	 */
+
+	@SuppressWarnings("rawtypes") // Raw in the interface of Hibernate.
+	@Override public void configure(@NotNull Map configuration)
+	{
+		String driver = setting(configuration, AvailableSettings.DRIVER, AvailableSettings.JPA_JDBC_DRIVER);
+		String user = setting(configuration, AvailableSettings.USER, AvailableSettings.JPA_JDBC_USER);
+		String password = setting(configuration, AvailableSettings.PASS, AvailableSettings.JPA_JDBC_PASSWORD);
+
+		url = setting(configuration, AvailableSettings.URL, AvailableSettings.JPA_JDBC_URL);
+
+		if (user != null) driverProperties.setProperty("user", user);
+		if (password != null) driverProperties.setProperty("password", password);
+
+		// Settings of the pool.
+		maximumSize = (int) number(configuration, MAXIMUM_SIZE, maximumSize);
+		minimumIdle = (int) Math.min(maximumSize, number(configuration, MINIMUM_IDLE, minimumIdle));
+		connectionTimeout = number(configuration, CONNECTION_TIMEOUT, connectionTimeout);
+		validationTimeout = (int) number(configuration, VALIDATION_TIMEOUT, validationTimeout);
+		idleTimeout = number(configuration, IDLE_TIMEOUT, idleTimeout);
+		maximumLifetime = number(configuration, MAXIMUM_LIFETIME, maximumLifetime);
+		leakDetectionThreshold = number(configuration, LEAK_DETECTION_THRESHOLD, leakDetectionThreshold);
+
+		permits = new Semaphore(maximumSize, true);
+
+		try
+		{
+			// Web containers don't always register the drivers.
+			if (driver != null) Class.forName(driver);
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IllegalArgumentException("Unknown JDBC driver " + driver, e);
+		}
+
+		// Maintain the pool in background.
+		housekeeper = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		housekeeper.scheduleWithFixedDelay(this::housekeep, 0, HOUSEKEEPING_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Give a connection to the application.
+	 * <p>
+	 * An idle connection is given if there is one, otherwise a new one is
+	 * opened. If all the connections of the pool are used, this method waits for
+	 * one to be given back, at most the connection timeout.
+	 *
+	 * @return Connection to use.
+	 *
+	 * @throws SQLException If no connection could be given in time or opened.
+	 */
+
+	@Override public Connection getConnection() throws SQLException
+	{
+		boolean acquired;
+		long start = System.nanoTime();
+
+		if (stopped) throw new SQLException("The connection pool is stopped");
+
+		waiting.incrementAndGet();
+
+		try
+		{
+			// Wait for a connection of the pool to be available.
+			acquired = permits.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+
+			throw new SQLException("Interrupted while waiting for a connection", ie);
+		}
+		finally
+		{
+			waiting.decrementAndGet();
+		}
+
+		// Time spent waiting.
+		long wait = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		waitTime.add(wait);
+		maximumWaitTime.accumulateAndGet(wait, Math::max);
+
+		// If all the connections stayed used.
+		if (!acquired)
+		{
+			timeouts.increment();
+
+			throw new SQLTransientConnectionException(String.format("No connection available after %d ms (%d used)", connectionTimeout, leases.size()));
+		}
+
+		try
+		{
+			Entry entry = take();
+
+			// The place the connection is taken from is only kept to report a leak.
+			leases.put(entry.connection, new Lease(entry, (leakDetectionThreshold > 0) ? (new Exception("Connection taken here")) : (null)));
+
+			borrowed.increment();
+
+			return entry.connection;
+		}
+		catch (SQLException | RuntimeException e)
+		{
+			// The connection couldn't be given, so another request can try.
+			permits.release();
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Take back a connection from the application.
+	 * <p>
+	 * The connection is left as it was given, then kept for the next request,
+	 * unless it is broken, too old or the pool is stopped.
+	 *
+	 * @param connection Connection given back.
+	 *
+	 * @throws SQLException In case of problem.
+	 */
+
+	@Override public void closeConnection(@NotNull Connection connection) throws SQLException
+	{
+		Lease lease = leases.remove(connection);
+
+		// If the connection doesn't come from this pool.
+		if (lease == null)
+		{
+			connection.close();
+
+			return;
+		}
+
+		try
+		{
+			if ((stopped) || (connection.isClosed()) || (isExpired(lease.entry)) || (total.get() > maximumSize))
+			{
+				discard(lease.entry);
+			}
+			else
+			{
+				// An unfinished transaction is not given to the next user.
+				if (!connection.getAutoCommit())
+				{
+					connection.rollback();
+					connection.setAutoCommit(true);
+				}
+
+				lease.entry.lastUsed = System.currentTimeMillis();
+
+				idle.offerFirst(lease.entry);
+			}
+		}
+		catch (SQLException e)
+		{
+			discard(lease.entry);
+		}
+		finally
+		{
+			permits.release();
+		}
+	}
+
+	/**
+	 * Get the statistics of the pool.
+	 *
+	 * @return Current statistics.
+	 */
+
+	public PoolStatistics getStatistics()
+	{
+		return new PoolStatistics(maximumSize, total.get(), leases.size(), idle.size(), waiting.get(), borrowed.sum(), waitTime.sum(), maximumWaitTime.get(), timeouts.sum(), leaks.sum(), validationFailures.sum());
+	}
+
+	/**
+	 * Stop the pool.
+	 * <p>
+	 * Idle connections are closed at once, used ones when they are given back.
+	 */
+
+	@Override public void stop()
+	{
+		Entry entry;
+
+		stopped = true;
+
+		if (housekeeper != null) housekeeper.shutdownNow();
+
+		while ((entry = idle.pollFirst()) != null) discard(entry);
+	}
+
+	@Override public boolean supportsAggressiveRelease()
+	{
+		return false;
+	}
+
+	@SuppressWarnings("rawtypes") // Raw in the interface of Hibernate.
+	@Override public boolean isUnwrappableAs(Class unwrapType)
+	{
+		return (ConnectionProvider.class.equals(unwrapType)) || (ConnectionPool.class.isAssignableFrom(unwrapType));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override public <T> T unwrap(Class<T> unwrapType)
+	{
+		if (isUnwrappableAs(unwrapType)) return (T) this;
+
+		throw new UnknownUnwrapTypeException(unwrapType);
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Take a usable connection.
+	 * <p>
+	 * Idle connections are tried first, the broken or expired ones being closed.
+	 * If there is none left, a new connection is opened.
+	 *
+	 * @return Connection ready to be used.
+	 *
+	 * @throws SQLException If a connection can't be opened.
+	 */
+
+	private @NotNull Entry take() throws SQLException
+	{
+		Entry entry;
+
+		while ((entry = idle.pollFirst()) != null)
+		{
+			if (isUsable(entry)) return entry;
+
+			discard(entry);
+		}
+
+		return open();
+	}
+
+	/**
+	 * Check whether an idle connection can be given.
+	 *
+	 * @param entry Connection to check.
+	 *
+	 * @return True if the connection can be used.
+	 */
+
+	private boolean isUsable(@NotNull Entry entry)
+	{
+		if (isExpired(entry)) return false;
+
+		// A connection just given back is still valid.
+		if (System.currentTimeMillis() - entry.lastUsed < VALIDATION_BYPASS) return true;
+
+		try
+		{
+			if (entry.connection.isValid(validationTimeout)) return true;
+		}
+		catch (SQLException e)
+		{
+			// Considered as broken.
+		}
+
+		validationFailures.increment();
+
+		return false;
+	}
+
+	/**
+	 * Check whether a connection reached its maximum lifetime.
+	 *
+	 * @param entry Connection to check.
+	 *
+	 * @return True if the connection should be closed.
+	 */
+
+	private boolean isExpired(@NotNull Entry entry)
+	{
+		return (System.currentTimeMillis() - entry.created > maximumLifetime);
+	}
+
+	/**
+	 * Open a new connection.
+	 *
+	 * @return Connection opened.
+	 *
+	 * @throws SQLException If the database can't be reached.
+	 */
+
+	private @NotNull Entry open() throws SQLException
+	{
+		Entry entry = new Entry(DriverManager.getConnection(url, driverProperties));
+
+		total.incrementAndGet();
+
+		return entry;
+	}
+
+	/**
+	 * Close a connection of the pool.
+	 *
+	 * @param entry Connection to close.
+	 */
+
+	private void discard(@NotNull Entry entry)
+	{
+		total.decrementAndGet();
+
+		try
+		{
+			entry.connection.close();
+		}
+		catch (SQLException e)
+		{
+			// Nothing more can be done.
+		}
+	}
+
+	/**
+	 * Maintain the pool.
+	 * <p>
+	 * Connections kept too long by the application are reported once, idle
+	 * connections above the minimum or too old are closed, and idle connections
+	 * are opened to reach the minimum.
+	 */
+
+	private void housekeep()
+	{
+		long now = System.currentTimeMillis();
+
+		// Report the leaks.
+		if (leakDetectionThreshold > 0) for (Lease lease : leases.values())
+		{
+			if ((!lease.reported) && (now - lease.borrowed > leakDetectionThreshold))
+			{
+				lease.reported = true;
+				leaks.increment();
+
+				if (LOGGER.isLoggable(Level.WARNING)) LOGGER.log(Level.WARNING, "Connection not given back for " + (now - lease.borrowed) + " ms, probable leak", lease.origin);
+			}
+		}
+
+		// Close the useless idle connections, the least recently used first.
+		for (Entry entry : new ArrayList<>(idle))
+		{
+			boolean useless = (isExpired(entry)) || ((idle.size() > minimumIdle) && (now - entry.lastUsed > idleTimeout));
+
+			if ((useless) && (idle.removeLastOccurrence(entry))) discard(entry);
+		}
+
+		// Keep the minimum of idle connections ready.
+		while ((!stopped) && (idle.size() < minimumIdle) && (total.get() < maximumSize))
+		{
+			try
+			{
+				idle.offerLast(open());
+			}
+			catch (SQLException e)
+			{
+				// The database is not reachable, try again later.
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Read a setting.
+	 *
+	 * @param configuration Properties of the persistence unit.
+	 * @param name          Name of the setting.
+	 * @param alternative   Name of the setting if the first is not given.
+	 *
+	 * @return Value of the setting, null if there is none.
+	 */
+
+	private static String setting(@NotNull Map<?, ?> configuration, String name, String alternative)
+	{
+		Object value = configuration.get(name);
+
+		if (value == null) value = configuration.get(alternative);
+
+		return (value != null) ? (value.toString()) : (null);
+	}
+
+	/**
+	 * Read a numeric setting.
+	 *
+	 * @param configuration Properties of the persistence unit.
+	 * @param name          Name of the setting.
+	 * @param defaultValue  Value if the setting is not given.
+	 *
+	 * @return Value of the setting.
+	 */
+
+	private static long number(@NotNull Map<?, ?> configuration, String name, long defaultValue)
+	{
+		Object value = configuration.get(name);
+
+		return (value != null) ? (Long.parseLong(value.toString().trim())) : (defaultValue);
+	}
+}
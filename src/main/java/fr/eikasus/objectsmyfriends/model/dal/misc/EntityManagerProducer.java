@@ -1,6 +1,9 @@
 package fr.eikasus.objectsmyfriends.model.dal.misc;
 
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.enterprise.context.RequestScoped;
 import javax.enterprise.inject.Disposes;
@@ -16,12 +19,19 @@ import javax.persistence.Persistence;
  * the container. This EntityManager object can then be injected whenever it is
  * necessary by using the @Inject and @EntityManagerRequestScoped annotations.
  * His life cycle is the request.
+ * <p>
+ * Connections to the database are taken from the connection pool declared as
+ * connection provider in the persistence unit, whose statistics are available
+ * to the controllers.
+ *
+ * @see ConnectionPool
+ * @see #getPoolStatistics()
  */
 
 public class EntityManagerProducer
 {
 	// Entity manager factory commun to all instances.
-	static private EntityManagerFactory entityManagerFactory;
+	static private volatile EntityManagerFactory entityManagerFactory;
 
 	/**
 	 * Create an entity manager.
@@ -35,12 +45,8 @@ public class EntityManagerProducer
 	@Produces @RequestScoped @EntityManagerRequestScoped
 	public EntityManager createEntityManager()
 	{
-		// Create the entity manager factory if it is not already done.
-		if (entityManagerFactory == null)
-			entityManagerFactory = Persistence.createEntityManagerFactory("ObjectsMyFriends");
-
 		// Return a new entity manager.
-		return entityManagerFactory.createEntityManager();
+		return getEntityManagerFactory().createEntityManager();
 	}
 
 	/**
@@ -54,4 +60,41 @@ public class EntityManagerProducer
 		// Close the entity manager.
 		entityManager.close();
 	}
+
+	/**
+	 * Get the statistics of the connection pool.
+	 *
+	 * @return Current statistics, null if no connection was asked yet or if the
+	 *         connections are not provided by the pool.
+	 */
+
+	public static @Nullable PoolStatistics getPoolStatistics()
+	{
+		EntityManagerFactory factory = entityManagerFactory;
+
+		// If the persistence unit is not started.
+		if (factory == null) return null;
+
+		ConnectionProvider provider = factory.unwrap(SessionFactoryImplementor.class).getServiceRegistry().getService(ConnectionProvider.class);
+
+		return ((provider != null) && (provider.isUnwrappableAs(ConnectionPool.class))) ? (provider.unwrap(ConnectionPool.class).getStatistics()) : (null);
+	}
+
+	/**
+	 * Get the entity manager factory.
+	 * <p>
+	 * The factory, and so the connection pool, is created the first time it is
+	 * needed, only once even if several requests need it at the same time.
+	 *
+	 * @return Entity manager factory of the persistence unit.
+	 */
+
+	private static synchronized EntityManagerFactory getEntityManagerFactory()
+	{
+		// Create the entity manager factory if it is not already done.
+		if (entityManagerFactory == null)
+			entityManagerFactory = Persistence.createEntityManagerFactory("ObjectsMyFriends");
+
+		return entityManagerFactory;
+	}
 }
@@ -0,0 +1,164 @@
+package fr.eikasus.objectsmyfriends.model.dal.misc;
+
+/**
+ * Class representing the state of the connection pool at a given time.
+ * <p>
+ * The numbers of connections are those of the moment the statistics were
+ * taken, the counters and times are accumulated since the pool was started.
+ *
+ * @see ConnectionPool#getStatistics()
+ */
+
+public class PoolStatistics
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Maximum number of connections of the pool.
+	private final int maximumSize;
+
+	// Number of connections opened to the database.
+	private final int total;
+
+	// Number of connections used by the application.
+	private final int active;
+
+	// Number of connections ready to be used.
+	private final int idle;
+
+	// Number of threads waiting for a connection.
+	private final int waiting;
+
+	// Number of connections given to the application.
+	private final long borrowed;
+
+	// Total time spent waiting for a connection, in milliseconds.
+	private final long totalWaitTime;
+
+	// Longest time spent waiting for a connection, in milliseconds.
+	private final long maximumWaitTime;
+
+	// Number of times no connection was available in time.
+	private final long timeouts;
+
+	// Number of connections kept longer than the leak detection threshold.
+	private final long leaks;
+
+	// Number of connections found broken when validated.
+	private final long validationFailures;
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create the statistics of a pool.
+	 *
+	 * @param maximumSize        Maximum number of connections of the pool.
+	 * @param total              Number of connections opened.
+	 * @param active             Number of connections used.
+	 * @param idle               Number of connections ready to be used.
+	 * @param waiting            Number of threads waiting for a connection.
+	 * @param borrowed           Number of connections given.
+	 * @param totalWaitTime      Total waiting time in milliseconds.
+	 * @param maximumWaitTime    Longest waiting time in milliseconds.
+	 * @param timeouts           Number of connections not given in time.
+	 * @param leaks              Number of connections detected as leaked.
+	 * @param validationFailures Number of broken connections found.
+	 */
+
+	public PoolStatistics(int maximumSize, int total, int active, int idle, int waiting, long borrowed, long totalWaitTime, long maximumWaitTime, long timeouts, long leaks, long validationFailures)
+	{
+		this.maximumSize = maximumSize;
+		this.total = total;
+		this.active = active;
+		this.idle = idle;
+		this.waiting = waiting;
+		this.borrowed = borrowed;
+		this.totalWaitTime = totalWaitTime;
+		this.maximumWaitTime = maximumWaitTime;
+		this.timeouts = timeouts;
+		this.leaks = leaks;
+		this.validationFailures = validationFailures;
+	}
+
+	/* ******* */
+	/* Getters */
+	/* ******* */
+
+	public int getMaximumSize()
+	{
+		return maximumSize;
+	}
+
+	public int getTotal()
+	{
+		return total;
+	}
+
+	public int getActive()
+	{
+		return active;
+	}
+
+	public int getIdle()
+	{
+		return idle;
+	}
+
+	public int getWaiting()
+	{
+		return waiting;
+	}
+
+	public long getBorrowed()
+	{
+		return borrowed;
+	}
+
+	public long getTotalWaitTime()
+	{
+		return totalWaitTime;
+	}
+
+	public long getMaximumWaitTime()
+	{
+		return maximumWaitTime;
+	}
+
+	public double getAverageWaitTime()
+	{
+		return (borrowed + timeouts != 0) ? ((double) totalWaitTime / (borrowed + timeouts)) : (0);
+	}
+
+	public long getTimeouts()
+	{
+		return timeouts;
+	}
+
+	public long getLeaks()
+	{
+		return leaks;
+	}
+
+	public long getValidationFailures()
+	{
+		return validationFailures;
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get a string representation of the statistics.
+	 *
+	 * @return String representing the object.
+	 */
+
+	@Override public String toString()
+	{
+		return "PoolStatistics{" + "total=" + total + "/" + maximumSize + ", active=" + active + ", idle=" + idle + ", waiting=" + waiting + ", borrowed=" + borrowed + ", averageWaitTime=" + getAverageWaitTime() + ", maximumWaitTime=" + maximumWaitTime + ", timeouts=" + timeouts + ", leaks=" + leaks + ", validationFailures=" + validationFailures + '}';
+	}
+}
@@ -0,0 +1,86 @@
+package fr.eikasus.objectsmyfriends.model.dal.misc;
+
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Class representing the retries of the database actions at a given time.
+ * <p>
+ * Actions are counted by the error they would have given, which tells the
+ * kind of action, the units of work being counted with
+ * UNABLE_TO_COMPLETE_TRANSACTION. The counters are accumulated since the
+ * application was started.
+ *
+ * @see fr.eikasus.objectsmyfriends.model.dal.implementations.GenericDAOImpl#getRetryStatistics()
+ */
+
+public class RetryStatistics
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Number of times the actions were tried again.
+	private final Map<ModelError, Long> retries;
+
+	// Number of actions given up because the database stayed busy.
+	private final Map<ModelError, Long> abandons;
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create the statistics of the retries.
+	 *
+	 * @param retries  Number of retries of each kind of action.
+	 * @param abandons Number of actions given up of each kind.
+	 */
+
+	public RetryStatistics(Map<ModelError, Long> retries, Map<ModelError, Long> abandons)
+	{
+		this.retries = Collections.unmodifiableMap(retries);
+		this.abandons = Collections.unmodifiableMap(abandons);
+	}
+
+	/* ******* */
+	/* Getters */
+	/* ******* */
+
+	public Map<ModelError, Long> getRetries()
+	{
+		return retries;
+	}
+
+	public Map<ModelError, Long> getAbandons()
+	{
+		return abandons;
+	}
+
+	public long getTotalRetries()
+	{
+		return retries.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	public long getTotalAbandons()
+	{
+		return abandons.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get a string representation of the statistics.
+	 *
+	 * @return String representing the object.
+	 */
+
+	@Override public String toString()
+	{
+		return "RetryStatistics{" + "retries=" + retries + ", abandons=" + abandons + '}';
+	}
+}
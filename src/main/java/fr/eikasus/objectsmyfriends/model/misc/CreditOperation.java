@@ -0,0 +1,20 @@
+package fr.eikasus.objectsmyfriends.model.misc;
+
+/**
+ * List the operations recorded in the credit ledger.
+ * <p>
+ * A hold reserves the credit of a bid, a release gives it back when the bid is
+ * beaten, a transfer gives it to the seller of the item and an adjustment is a
+ * change made outside of bids.
+ */
+
+public enum CreditOperation
+{
+	HD("HOLD"), RL("RELEASE"), TR("TRANSFER"), AD("ADJUSTMENT");
+
+	private final String value;
+
+	CreditOperation(String value) {this.value = value;}
+
+	public String getValue() {return value;}
+}
@@ -0,0 +1,48 @@
+package fr.eikasus.objectsmyfriends.model.misc;
+
+/**
+ * List the algorithms used to hash the passwords.
+ * <p>
+ * The identifier of an algorithm is stored with each hashed password, so it
+ * must never change once used. A new algorithm is added with a new
+ * identifier, the old ones being kept to check the passwords not hashed again
+ * yet.
+ */
+
+public enum HashAlgorithm
+{
+	SHA1(1, "PBKDF2WithHmacSHA1", 128), SHA256(2, "PBKDF2WithHmacSHA256", 256);
+
+	private final int identifier;
+	private final String value;
+	private final int length;
+
+	HashAlgorithm(int identifier, String value, int length)
+	{
+		this.identifier = identifier;
+		this.value = value;
+		this.length = length;
+	}
+
+	public int getIdentifier() {return identifier;}
+
+	public String getValue() {return value;}
+
+	public int getLength() {return length;}
+
+	/**
+	 * Give the algorithm of an identifier.
+	 *
+	 * @param identifier Identifier stored with a password.
+	 *
+	 * @return Algorithm found, or null if unknown.
+	 */
+
+	public static HashAlgorithm fromIdentifier(int identifier)
+	{
+		for (HashAlgorithm algorithm : values())
+			if (algorithm.identifier == identifier) return algorithm;
+
+		return null;
+	}
+}
@@ -0,0 +1,148 @@
+package fr.eikasus.objectsmyfriends.model.misc;
+
+/**
+ * Class representing the activity of the password hasher.
+ * <p>
+ * Counters and times are accumulated since the hasher was started. A request
+ * is rejected when all the threads are busy and the queue is full, in which
+ * case it should be made again after the retry delay. The number of iterations
+ * is the one found by the calibration of the hasher.
+ */
+
+public class HashingStatistics
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Number of iterations used to hash the passwords.
+	private final int iterations;
+
+	// Number of threads hashing passwords.
+	private final int threads;
+
+	// Number of passwords waiting to be hashed.
+	private final int queued;
+
+	// Number of passwords hashed.
+	private final long hashes;
+
+	// Number of requests rejected because the queue was full.
+	private final long rejected;
+
+	// Total time spent hashing passwords, in milliseconds.
+	private final long totalHashingTime;
+
+	// Longest time spent hashing a password, in milliseconds.
+	private final long maximumHashingTime;
+
+	// Total time spent by passwords waiting in the queue, in milliseconds.
+	private final long totalWaitTime;
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create the statistics of the password hasher.
+	 *
+	 * @param iterations         Number of iterations.
+	 * @param threads            Number of threads.
+	 * @param queued             Number of passwords waiting.
+	 * @param hashes             Number of passwords hashed.
+	 * @param rejected           Number of requests rejected.
+	 * @param totalHashingTime   Total hashing time in milliseconds.
+	 * @param maximumHashingTime Longest hashing time in milliseconds.
+	 * @param totalWaitTime      Total waiting time in milliseconds.
+	 */
+
+	public HashingStatistics(int iterations, int threads, int queued, long hashes, long rejected, long totalHashingTime, long maximumHashingTime, long totalWaitTime)
+	{
+		this.iterations = iterations;
+		this.threads = threads;
+		this.queued = queued;
+		this.hashes = hashes;
+		this.rejected = rejected;
+		this.totalHashingTime = totalHashingTime;
+		this.maximumHashingTime = maximumHashingTime;
+		this.totalWaitTime = totalWaitTime;
+	}
+
+	/* ******* */
+	/* Getters */
+	/* ******* */
+
+	public int getIterations()
+	{
+		return iterations;
+	}
+
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	public int getQueued()
+	{
+		return queued;
+	}
+
+	public long getHashes()
+	{
+		return hashes;
+	}
+
+	public long getRejected()
+	{
+		return rejected;
+	}
+
+	public long getTotalHashingTime()
+	{
+		return totalHashingTime;
+	}
+
+	public long getMaximumHashingTime()
+	{
+		return maximumHashingTime;
+	}
+
+	public long getTotalWaitTime()
+	{
+		return totalWaitTime;
+	}
+
+	public double getMeanHashingTime()
+	{
+		return (hashes != 0) ? ((double) totalHashingTime / hashes) : (0);
+	}
+
+	/**
+	 * Get the time after which a rejected request should be made again.
+	 * <p>
+	 * This is the time needed to hash the passwords waiting, at least one
+	 * second.
+	 *
+	 * @return Delay in seconds.
+	 */
+
+	public int getRetryDelay()
+	{
+		return (int) Math.max(1, Math.ceil((queued + threads) * getMeanHashingTime() / threads / 1000));
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get a string representation of the statistics.
+	 *
+	 * @return String representing the object.
+	 */
+
+	@Override public String toString()
+	{
+		return "HashingStatistics{" + "iterations=" + iterations + ", threads=" + threads + ", queued=" + queued + ", hashes=" + hashes + ", rejected=" + rejected + ", totalHashingTime=" + totalHashingTime + ", maximumHashingTime=" + maximumHashingTime + ", totalWaitTime=" + totalWaitTime + '}';
+	}
+}
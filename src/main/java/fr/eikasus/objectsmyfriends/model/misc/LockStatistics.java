@@ -0,0 +1,103 @@
+package fr.eikasus.objectsmyfriends.model.misc;
+
+/**
+ * Class representing the contention of a set of locks.
+ * <p>
+ * Counters and times are accumulated since the locks were created. A lock
+ * acquisition is contended when the lock was held by another thread, which
+ * then had to wait for it.
+ */
+
+public class LockStatistics
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Number of locks.
+	private final int locks;
+
+	// Number of lock acquisitions.
+	private final long acquisitions;
+
+	// Number of acquisitions that had to wait.
+	private final long contended;
+
+	// Total time spent waiting for the locks, in milliseconds.
+	private final long totalWaitTime;
+
+	// Longest time spent waiting for a lock, in milliseconds.
+	private final long maximumWaitTime;
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create the statistics of a set of locks.
+	 *
+	 * @param locks           Number of locks.
+	 * @param acquisitions    Number of lock acquisitions.
+	 * @param contended       Number of acquisitions that had to wait.
+	 * @param totalWaitTime   Total waiting time in milliseconds.
+	 * @param maximumWaitTime Longest waiting time in milliseconds.
+	 */
+
+	public LockStatistics(int locks, long acquisitions, long contended, long totalWaitTime, long maximumWaitTime)
+	{
+		this.locks = locks;
+		this.acquisitions = acquisitions;
+		this.contended = contended;
+		this.totalWaitTime = totalWaitTime;
+		this.maximumWaitTime = maximumWaitTime;
+	}
+
+	/* ******* */
+	/* Getters */
+	/* ******* */
+
+	public int getLocks()
+	{
+		return locks;
+	}
+
+	public long getAcquisitions()
+	{
+		return acquisitions;
+	}
+
+	public long getContended()
+	{
+		return contended;
+	}
+
+	public double getContentionRate()
+	{
+		return (acquisitions != 0) ? ((double) contended / acquisitions) : (0);
+	}
+
+	public long getTotalWaitTime()
+	{
+		return totalWaitTime;
+	}
+
+	public long getMaximumWaitTime()
+	{
+		return maximumWaitTime;
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Get a string representation of the statistics.
+	 *
+	 * @return String representing the object.
+	 */
+
+	@Override public String toString()
+	{
+		return "LockStatistics{" + "locks=" + locks + ", acquisitions=" + acquisitions + ", contended=" + contended + ", totalWaitTime=" + totalWaitTime + ", maximumWaitTime=" + maximumWaitTime + '}';
+	}
+}
@@ -12,6 +12,8 @@ public enum ModelError
 	UNABLE_TO_RETRIEVE_ENTITY(0x10102),
 	UNABLE_TO_RETRIEVE_ENTITIES(0x10103),
 	UNABLE_TO_UPDATE_ENTITY(0x10104),
+	UNABLE_TO_COMPLETE_TRANSACTION(0x10105),
+	DATABASE_BUSY(0x10106),
 
 	// BLL error codes.
 	INVALID_USER_PSEUDO(0x10200),
@@ -73,7 +75,10 @@ public enum ModelError
 	BID_NOT_FOUND(0x10313),
 	UNABLE_TO_CREATE_IMAGE(0x10314),
 	UNABLE_TO_DELETE_IMAGE(0x10315),
-	IMAGE_NOT_FOUND(0x10316);
+	IMAGE_NOT_FOUND(0x10316),
+	UNABLE_TO_MOVE_CREDIT(0x10317),
+	PASSWORD_HASHER_BUSY(0x10318),
+	BID_CONFLICT(0x10319);
 
 	private final int value;
 
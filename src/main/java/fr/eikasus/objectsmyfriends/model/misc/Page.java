@@ -0,0 +1,63 @@
+package fr.eikasus.objectsmyfriends.model.misc;
+
+import java.util.List;
+
+/**
+ * Class representing a page of entities.
+ * <p>
+ * A page contains a limited number of entities and the token used to retrieve
+ * the next page. This token is an opaque string that should be supplied as is
+ * to the method that created the page. When there is no more entity to
+ * retrieve, the token is null.
+ *
+ * @param <T> Type of the entities.
+ */
+
+public class Page<T>
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Entities of the page.
+	private final List<T> entities;
+
+	// Token used to retrieve the next page.
+	private final String nextToken;
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create a page.
+	 *
+	 * @param entities  Entities of the page.
+	 * @param nextToken Token of the next page or null if it is the last.
+	 */
+
+	public Page(List<T> entities, String nextToken)
+	{
+		this.entities = entities;
+		this.nextToken = nextToken;
+	}
+
+	/* ******* */
+	/* Getters */
+	/* ******* */
+
+	public List<T> getEntities()
+	{
+		return entities;
+	}
+
+	public String getNextToken()
+	{
+		return nextToken;
+	}
+
+	public boolean hasNext()
+	{
+		return (nextToken != null);
+	}
+}
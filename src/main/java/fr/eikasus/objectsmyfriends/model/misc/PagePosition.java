@@ -0,0 +1,103 @@
+package fr.eikasus.objectsmyfriends.model.misc;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Class representing the position of the last item of a page.
+ * <p>
+ * Since pages of items are sorted by bidding end date then by identifier, these
+ * two values are enough to locate the next page. They are encoded in the page
+ * token given to the caller, so that a token made by the database can be used
+ * by the auction index and conversely.
+ *
+ * @see #decode(String)
+ * @see #encode(Date, long)
+ */
+
+public class PagePosition
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Position of the first page.
+	public static final PagePosition FIRST = new PagePosition(null, 0);
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Bidding end date of the last item of the page.
+	public final Date biddingEnd;
+
+	// Identifier of the last item of the page.
+	public final long identifier;
+
+	/* ************ */
+	/* Constructors */
+	/* ************ */
+
+	/**
+	 * Create a position.
+	 *
+	 * @param biddingEnd Bidding end date of the last item of a page.
+	 * @param identifier Identifier of the last item of a page.
+	 */
+
+	public PagePosition(Date biddingEnd, long identifier)
+	{
+		this.biddingEnd = biddingEnd;
+		this.identifier = identifier;
+	}
+
+	/* ******************* */
+	/* Methods implemented */
+	/* ******************* */
+
+	/**
+	 * Decode a page token.
+	 *
+	 * @param token Token to decode, null for the first page.
+	 *
+	 * @return Position the token refers to.
+	 *
+	 * @throws ModelException If the token is malformed.
+	 */
+
+	public static PagePosition decode(String token) throws ModelException
+	{
+		// No token means the first page.
+		if (token == null) return FIRST;
+
+		try
+		{
+			String[] values = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+
+			return new PagePosition(new Date(Long.parseLong(values[0])), Long.parseLong(values[1]));
+		}
+		catch (Exception e)
+		{
+			throw new ModelException(e, ModelError.UNABLE_TO_RETRIEVE_ENTITIES);
+		}
+	}
+
+	/**
+	 * Encode the position of an item into a page token.
+	 *
+	 * @param biddingEnd Bidding end date of the last item of a page.
+	 * @param identifier Identifier of the last item of a page.
+	 *
+	 * @return Token of the next page.
+	 */
+
+	public static String encode(@NotNull Date biddingEnd, long identifier)
+	{
+		String value = biddingEnd.getTime() + ":" + identifier;
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+	}
+}
@@ -20,6 +20,11 @@ public class Search
 	/* Getters/setters */
 	/* *************** */
 
+	public int getValue()
+	{
+		return value;
+	}
+
 	public boolean isOpenedBids()
 	{
 		return ((value & OPENED_BIDS) != 0);
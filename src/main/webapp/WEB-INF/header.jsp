@@ -1,4 +1,4 @@
-<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@ page language="java" session="false" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
 <%@ taglib prefix="fn" uri="http://java.sun.com/jsp/jstl/functions" %>
@@ -66,16 +66,16 @@
 			<div id="board">
 
 				<div id="identity">
-					<c:if test="${sessionScope.user != null}"><fmt:message key="CONNECTED_AS" bundle="${r}"/> ${sessionScope.user.username}
+					<c:if test="${requestScope.state.connected}"><fmt:message key="CONNECTED_AS" bundle="${r}"/> ${requestScope.connectedUser.username}
 					</c:if>
-					<c:if test="${sessionScope.user == null}"><fmt:message key="DISCONNECTED" bundle="${r}"/></c:if>
+					<c:if test="${!requestScope.state.connected}"><fmt:message key="DISCONNECTED" bundle="${r}"/></c:if>
 				</div>
 
 				<nav id="menu">
 					<ul class="firstLevel">
 						<li><span id="burger" class="material-symbols-outlined">menu</span>
 							<ul class="secondLevel">
-								<c:if test="${sessionScope.user == null}">
+								<c:if test="${!requestScope.state.connected}">
 									<li>
 										<a href="${pageContext.request.contextPath}/subscribe"><fmt:message key="SUBSCRIBE" bundle="${r}"/></a>
 									</li>
@@ -83,7 +83,7 @@
 									--><li><a href="${pageContext.request.contextPath}/login"><fmt:message key="LOG_IN" bundle="${r}"/></a></li>
 								</c:if>
 
-								<c:if test="${sessionScope.user != null && !sessionScope.user.admin}">
+								<c:if test="${requestScope.state.connected && !requestScope.state.admin}">
 									<li>
 										<a href="${pageContext.request.contextPath}/show_profile"><fmt:message key="PROFILE" bundle="${r}"/></a>
 									</li>
@@ -92,7 +92,7 @@
 									--><li><a href="${pageContext.request.contextPath}/logout"><fmt:message key="LOG_OUT" bundle="${r}"/></a></li>
 								</c:if>
 
-								<c:if test="${sessionScope.user != null && sessionScope.user.admin}">
+								<c:if test="${requestScope.state.connected && requestScope.state.admin}">
 									<li>
 										<a href="${pageContext.request.contextPath}/show_profile"><fmt:message key="PROFILE" bundle="${r}"/></a>
 									</li>
@@ -1,5 +1,5 @@
 <%@ page import="fr.eikasus.objectsmyfriends.misc.ControllerSupport" %>
-<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@ page language="java" session="false" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
 
@@ -14,7 +14,7 @@
 </jsp:include>
 
 <%-- A user can only make an offer if it is connected, not the seller of the item or not the best bidder. --%>
-<c:set var="canMakeOffer" value="${(sessionScope.user != null) && (sessionScope.user != sessionScope.item.seller) && (sessionScope.user != sessionScope.bestBid.user)}"/>
+<c:set var="canMakeOffer" value="${(requestScope.state.connected) && (requestScope.state.user != requestScope.item.seller.identifier) && (requestScope.state.user != requestScope.item.currentLeader.identifier)}"/>
 
 <form id="itemBid" class="formApp" method="post" action="${pageContext.request.contextPath}/item_bid">
 
@@ -37,28 +37,28 @@
 				<div>
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="ITEM" bundle="${r}"/></p>
-						<p id="name" class="propertyValue">${sessionScope.item.name}</p>
+						<p id="name" class="propertyValue">${requestScope.item.name}</p>
 					</div>
 				</div>
 
 				<div>
 					<div class="labelInputDiv topLabel">
 						<label for="description"><fmt:message key="DESCRIPTION" bundle="${r}"/></label>
-						<textarea id="description" name="description" cols="38" rows="4">${sessionScope.item.description}</textarea>
+						<textarea id="description" name="description" cols="38" rows="4">${requestScope.item.description}</textarea>
 					</div>
 				</div>
 
 				<div>
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="CATEGORY" bundle="${r}"/></p>
-						<p class="propertyValue" id="category">${sessionScope.item.category.label}</p>
+						<p class="propertyValue" id="category">${requestScope.item.category.label}</p>
 					</div>
 				</div>
 
 				<div>
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="SELLER" bundle="${r}"/></p>
-						<p class="propertyValue" id="seller">${sessionScope.item.seller.username}</p>
+						<p class="propertyValue" id="seller">${requestScope.item.seller.username}</p>
 					</div>
 				</div>
 			</fieldset>
@@ -70,8 +70,8 @@
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="STREET" bundle="${r}"/></p>
 						<p class="propertyValue" id="street">
-							<c:if test="${sessionScope.item.pickupPlace != null}">${sessionScope.item.pickupPlace.street}</c:if>
-							<c:if test="${sessionScope.item.pickupPlace == null}">${sessionScope.user.street}</c:if>
+							<c:if test="${requestScope.item.pickupPlace != null}">${requestScope.item.pickupPlace.street}</c:if>
+							<c:if test="${requestScope.item.pickupPlace == null}">${requestScope.connectedUser.street}</c:if>
 						</p>
 					</div>
 				</div>
@@ -80,8 +80,8 @@
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="ZIP_CODE" bundle="${r}"/></p>
 						<p class="propertyValue" id="zipCode">
-							<c:if test="${sessionScope.item.pickupPlace != null}">${sessionScope.item.pickupPlace.zipCode}</c:if>
-							<c:if test="${sessionScope.item.pickupPlace == null}">${sessionScope.user.zipCode}</c:if>
+							<c:if test="${requestScope.item.pickupPlace != null}">${requestScope.item.pickupPlace.zipCode}</c:if>
+							<c:if test="${requestScope.item.pickupPlace == null}">${requestScope.connectedUser.zipCode}</c:if>
 						</p>
 					</div>
 				</div>
@@ -90,8 +90,8 @@
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="CITY" bundle="${r}"/></p>
 						<p class="propertyValue" id="city">
-							<c:if test="${sessionScope.item.pickupPlace != null}">${sessionScope.item.pickupPlace.city}</c:if>
-							<c:if test="${sessionScope.item.pickupPlace == null}">${sessionScope.user.city}</c:if>
+							<c:if test="${requestScope.item.pickupPlace != null}">${requestScope.item.pickupPlace.city}</c:if>
+							<c:if test="${requestScope.item.pickupPlace == null}">${requestScope.connectedUser.city}</c:if>
 						</p>
 					</div>
 				</div>
@@ -103,14 +103,14 @@
 				<div>
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="INITIAL_PRICE" bundle="${r}"/></p>
-						<p class="propertyValue" id="initialPrice">${sessionScope.item.initialPrice}</p>
+						<p class="propertyValue" id="initialPrice">${requestScope.item.initialPrice}</p>
 					</div>
 				</div>
 
 				<div>
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="BID_END" bundle="${r}"/></p>
-						<p class="propertyValue" id="biddingEnd"><fmt:formatDate type="BOTH" value="${sessionScope.item.biddingEnd}" timeStyle="MEDIUM"/></p>
+						<p class="propertyValue" id="biddingEnd"><fmt:formatDate type="BOTH" value="${requestScope.item.biddingEnd}" timeStyle="MEDIUM"/></p>
 					</div>
 				</div>
 
@@ -118,8 +118,8 @@
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="BEST_BUYER" bundle="${r}"/></p>
 						<p class="propertyValue" id="bestBuyer">
-							<c:if test="${sessionScope.bestBid != null}">${sessionScope.bestBid.user.username}</c:if>
-							<c:if test="${sessionScope.bestBid == null}"><fmt:message key="NO_BIDDER" bundle="${r}"/></c:if>
+							<c:if test="${requestScope.item.currentLeader != null}">${requestScope.item.currentLeader.username}</c:if>
+							<c:if test="${requestScope.item.currentLeader == null}"><fmt:message key="NO_BIDDER" bundle="${r}"/></c:if>
 						</p>
 					</div>
 				</div>
@@ -128,8 +128,8 @@
 					<div class="labelInputDiv">
 						<p class="propertyName"><fmt:message key="BEST_OFFER" bundle="${r}"/></p>
 						<p class="propertyValue" id="bestOffer">
-							<c:if test="${sessionScope.bestBid != null}">${sessionScope.bestBid.price}</c:if>
-							<c:if test="${sessionScope.bestBid == null}"><fmt:message key="NO_OFFER" bundle="${r}"/></c:if>
+							<c:if test="${requestScope.item.bidCount != 0}">${requestScope.item.currentPrice}</c:if>
+							<c:if test="${requestScope.item.bidCount == 0}"><fmt:message key="NO_OFFER" bundle="${r}"/></c:if>
 						</p>
 					</div>
 				</div>
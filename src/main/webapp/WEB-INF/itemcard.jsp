@@ -1,4 +1,4 @@
-<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@ page language="java" session="false" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core"%>
 <%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt"%>
 
@@ -10,13 +10,15 @@
 	</div>
 	<div class="itemCardDiv" id="i${requestScope.itemCard.identifier}">
 		<div class="itemCardImageDiv">
-
+			<c:if test="${requestScope.itemCard.imagePath != null}">
+				<img class="itemCardImage" src="${requestScope.imagesUrl}${requestScope.itemCard.imagePath}" alt=""/>
+			</c:if>
 		</div>
 		<div class="itemCardPropertiesDiv">
 
 			<div class="itemCardPropertyDiv">
-				<p class="propertyName"><fmt:message key="INITIAL_PRICE" bundle="${r}"/></p>
-				<p class="propertyValue" id="initialPrice">${requestScope.itemCard.initialPrice}</p>
+				<p class="propertyName"><fmt:message key="PRICE" bundle="${r}"/></p>
+				<p class="propertyValue" id="price">${requestScope.itemCard.price}</p>
 			</div>
 
 			<div class="itemCardPropertyDiv">
@@ -24,12 +26,17 @@
 				<p class="propertyValue" id="biddingEnd"><fmt:formatDate type="BOTH" value="${requestScope.itemCard.biddingEnd}" timeStyle="MEDIUM"/></p>
 			</div>
 
+			<div class="itemCardPropertyDiv">
+				<p class="propertyName"><fmt:message key="CATEGORY" bundle="${r}"/></p>
+				<p class="propertyValue" id="category">${requestScope.itemCard.categoryLabel}</p>
+			</div>
+
 			<div class="itemCardPropertyDiv">
 				<p class="propertyName"><fmt:message key="SELLER" bundle="${r}"/></p>
 				<p class="propertyValue" id="seller">
-					<c:if test="${sessionScope.user != null}"> <a class="itemCardSellerLink" href="${pageContext.request.contextPath}/show_profile?identifier=${requestScope.itemCard.seller.identifier}"></c:if>
-					${requestScope.itemCard.seller.username}
-					<c:if test="${sessionScope.user != null}"></a></c:if>
+					<c:if test="${requestScope.state.connected}"> <a class="itemCardSellerLink" href="${pageContext.request.contextPath}/show_profile?identifier=${requestScope.itemCard.sellerIdentifier}"></c:if>
+					${requestScope.itemCard.sellerUsername}
+					<c:if test="${requestScope.state.connected}"></a></c:if>
 				</p>
 			</div>
 		</div>
@@ -0,0 +1,10 @@
+<%@ page language="java" session="false" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core"%>
+
+<c:forEach items="${requestScope.items}" var="item">
+
+	<c:set var="itemCard" value="${item}" scope="request"/>
+
+	<jsp:include page="itemcard.jsp"/>
+
+</c:forEach>
@@ -1,4 +1,4 @@
-<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@ page language="java" session="false" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
 
@@ -20,7 +20,8 @@
 				<input id="pseudo" name="pseudo" type="text" value="${cookie.username.value}"/>
 			</div>
 			<div class="error">
-				<c:if test="${requestScope.error != null}"><fmt:message key="WRONG_DATA" bundle="${r}"/></c:if>
+				<c:if test="${requestScope.error == 'busy'}"><fmt:message key="BUSY" bundle="${r}"/></c:if>
+				<c:if test="${(requestScope.error != null) && (requestScope.error != 'busy')}"><fmt:message key="WRONG_DATA" bundle="${r}"/></c:if>
 				<c:if test="${requestScope.error == null}">&nbsp;</c:if>
 			</div>
 		</div>
@@ -31,8 +32,8 @@
 				<input id="password" name="password" type="password"/>
 			</div>
 			<div class="error">
-				<c:if test="${requestScope.error != null}"><fmt:message key="WRONG_DATA" bundle="${r}"/></c:if>
-				<c:if test="${requestScope.error == null}">&nbsp;</c:if>
+				<c:if test="${(requestScope.error != null) && (requestScope.error != 'busy')}"><fmt:message key="WRONG_DATA" bundle="${r}"/></c:if>
+				<c:if test="${(requestScope.error == null) || (requestScope.error == 'busy')}">&nbsp;</c:if>
 			</div>
 		</div>
 
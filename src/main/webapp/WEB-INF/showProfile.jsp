@@ -1,4 +1,4 @@
-<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@ page language="java" session="false" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
 
@@ -56,7 +56,7 @@
 	</div>
 
 	<div id="buttonsDiv">
-		<c:if test="${requestScope.user.identifier == sessionScope.user.identifier}">
+		<c:if test="${requestScope.user.identifier == requestScope.state.user}">
 			<input id="modify" name="modify" type="submit" value="<fmt:message key="MODIFY" bundle="${r}"/>">
 		</c:if>
 		<input id="return" name="return" type="submit" value="<fmt:message key="RETURN" bundle="${r}"/>">
@@ -1,4 +1,4 @@
-<%@ page import="fr.eikasus.objectsmyfriends.misc.ControllerSupport" %>
+<%@ page import="fr.eikasus.objectsmyfriends.misc.ControllerSupport" session="false" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
 
@@ -6,11 +6,12 @@
 
 <c:set var="imagesUrl" value="<%=ControllerSupport.getUrlImageHandler(request)%>" scope="page"/>
 <c:set var="itemsUrl" value='<%=ControllerSupport.getUrlServlet(request, "item_bid")%>' scope="page"/>
+<c:set var="welcomeUrl" value='<%=ControllerSupport.getUrlServlet(request, "welcome")%>' scope="page"/>
 
 <jsp:include page="header.jsp">
 	<jsp:param name="cssFiles" value="forms,welcome,itemcard"/>
 	<jsp:param name="jsFiles" value="jquery,welcome"/>
-	<jsp:param name="jsInit" value="welcome,\"${pageScope.imagesUrl}\",\"${pageScope.itemsUrl}\""/>
+	<jsp:param name="jsInit" value="welcome,\"${pageScope.imagesUrl}\",\"${pageScope.itemsUrl}\",\"${pageScope.welcomeUrl}\""/>
 </jsp:include>
 
 <c:choose>
@@ -60,7 +61,7 @@
 				</div>
 			</fieldset>
 
-			<c:if test="${sessionScope.user != null}">
+			<c:if test="${requestScope.state.connected}">
 				<fieldset id="purchasesFieldset">
 					<legend>
 						<input type="radio" name="searchType" id="purchases" value="purchases" ${purchasesRadioButton}><label for="purchases"><fmt:message key="PURCHASES" bundle="${r}"/></label>
@@ -88,7 +89,7 @@
 		</div>
 
 		<div id="bottomPart">
-			<c:if test="${sessionScope.user != null}">
+			<c:if test="${requestScope.state.connected}">
 				<fieldset id="salesFieldset">
 					<legend>
 						<input type="radio" name="searchType" id="sales" value="sales" ${salesRadioButton}><label for="sales"><fmt:message key="MY_SALES" bundle="${r}"/></label>
@@ -124,15 +125,9 @@
 
 </div>
 
-<div id="itemsViewDiv">
+<div id="itemsViewDiv" data-next-page="${requestScope.nextPage}">
 
-	<c:forEach items="${requestScope.items}" var="item">
-
-		<c:set var="itemCard" value="${item}" scope="request"/>
-
-		<jsp:include page="itemcard.jsp"/>
-
-	</c:forEach>
+	<jsp:include page="itemcards.jsp"/>
 
 </div>
 
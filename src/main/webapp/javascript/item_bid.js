@@ -48,7 +48,7 @@ window.ItemBid = {};
 
 	object.loadItemImagesHandler = function ()
 	{
-		$.get(this.imageHandlerPath, result => this.loadItemImages(result));
+		$.get(this.imageHandlerPath, {size: "detail"}, result => this.loadItemImages(result));
 	}
 
 	/**
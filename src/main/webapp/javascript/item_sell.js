@@ -128,7 +128,7 @@ window.ItemSell = {};
 
 	object.loadItemImagesHandler = function ()
 	{
-		$.get(this.imageHandlerPath, result => this.loadItemImages(result));
+		$.get(this.imageHandlerPath, {size: "detail"}, result => this.loadItemImages(result));
 	}
 
 	/**
@@ -6,7 +6,7 @@ window.welcome = {};
 		 * Initialisation stuff for the search form.
 		 */
 
-		object.initialize = function (imagesPath, itemsPath)
+		object.initialize = function (imagesPath, itemsPath, welcomePath)
 		{
 			// URL to the items images handler.
 			this.imageHandlerPath = imagesPath;
@@ -14,11 +14,27 @@ window.welcome = {};
 			// URL to the items bid page.
 			this.itemsPath = itemsPath;
 
+			// URL to the welcome page, used to retrieve the next pages of items.
+			this.welcomePath = welcomePath;
+
+			// Token of the next page of items, empty if all items are shown.
+			this.nextPage = $("#itemsViewDiv").attr("data-next-page");
+
+			// Whether a page of items is being retrieved.
+			this.loadingPage = false;
+
 			// Handler for radio buttons to disable HTML elements not selectable.
 			$("#purchases,#sales").on("click", () => this.radioButtonsHandler());
 
-			// Handler for loading images after DOM loaded.
-			$(window).on("load", () => this.loadItemImages());
+			// Handler for loading images after DOM loaded, then more items if the view is not full.
+			$(window).on("load", () =>
+			{
+				this.loadItemImages($(".itemCardShadowDiv"));
+				this.loadNextPage();
+			});
+
+			// Handler for loading more items when the bottom of the view is reached.
+			$("#itemsViewDiv").on("scroll", () => this.loadNextPage());
 		}
 
 		/**
@@ -50,24 +66,75 @@ window.welcome = {};
 			}
 		}
 
+		/**
+		 * Load the next page of items.
+		 *
+		 * When the bottom of the items view is nearly reached, the next page of items is requested to the welcome page,
+		 * which only returns the cards of these items and the token of the following page in a header. The cards are then
+		 * added to the view and their images loaded. Nothing is done if a page is being retrieved or if all the items are
+		 * already shown.
+		 */
+
+		object.loadNextPage = function ()
+		{
+			// Items view.
+			const view = $("#itemsViewDiv")[0];
+
+			// If a page is being retrieved or if there is no more page.
+			if ((this.loadingPage) || (!this.nextPage)) return;
+
+			// If the bottom of the view is still far.
+			if (view.scrollTop + view.clientHeight < view.scrollHeight - view.clientHeight / 2) return;
+
+			this.loadingPage = true;
+
+			// Retrieve the next page.
+			$.get(this.welcomePath, {page: this.nextPage})
+				.done((html, status, request) =>
+				{
+					// Cards of the received items.
+					const cards = $($.parseHTML(html)).filter(".itemCardShadowDiv");
+
+					// Put them at the end of the view.
+					$(view).append(cards);
+
+					// Token of the following page.
+					this.nextPage = request.getResponseHeader("X-Next-Page");
+
+					// Load the images of the new items only.
+					this.loadItemImages(cards);
+
+					this.loadingPage = false;
+
+					// The view may still not be full.
+					this.loadNextPage();
+				})
+				.fail(() =>
+				{
+					// Stop there, the user can still reload the page.
+					this.nextPage = null;
+					this.loadingPage = false;
+				});
+		};
+
 		/**
 		 * Load images for item.
 		 *
-		 * Load all images associated to each item by querying the images handler of the application. Data received are in
-		 * JSON format as an array of URLs for the different item images. Images are downloaded by inserting in the DOM
-		 * img elements. Each element receive a handler for dealing with animation stage. When the animation of the front
-		 * image is done, this image is put back to his siblings and the new front image received an animation which is
-		 * started. The process then do the same for another iteration.
+		 * Load all images associated to the supplied items by querying the images handler of the application once for all
+		 * of them. Data received are in JSON format as an object giving, for each item identifier, an array of URLs for the
+		 * card sized thumbnails of the different item images. Images are then shown by each card.
+		 *
+		 * @param cards Item cards whose images need to be loaded.
 		 */
 
-		object.loadItemImages = function ()
+		object.loadItemImages = function (cards)
 		{
-			// For each item in the view.
-			$(".itemCardShadowDiv").each((index) =>
-			{
-				// Current item to deal with.
-				const current = $(".itemCardShadowDiv")[index];
+			// Identifiers of the items, with their cards.
+			const identifiers = [];
 
+			// For each item supplied.
+			cards.each((index, current) =>
+			{
 				// The element identifier is the item identifier.
 				let identifier = $(".itemCardDiv", current).attr("id").substring(1);
 
@@ -75,49 +142,76 @@ window.welcome = {};
 				$(".itemCardDiv", current).on("click", () => document.location.assign(this.itemsPath + "?item=" + identifier));
 				$(".itemCardTitleDiv", current).on("click", () => document.location.assign(this.itemsPath + "?item=" + identifier));
 
-				// Retrieve the images for that item.
-				$.get(this.imageHandlerPath + "?identifier=" + identifier)
-					.done((list) =>
+				identifiers.push(identifier);
+			});
+
+			// Nothing to retrieve.
+			if (identifiers.length === 0) return;
+
+			// Retrieve the images for all the items.
+			$.get(this.imageHandlerPath, {items: identifiers.join(","), size: "card"})
+				.done((lists) => cards.each((index, current) =>
+				{
+					// Images of the item of this card.
+					const list = lists[$(".itemCardDiv", current).attr("id").substring(1)];
+
+					if (list) this.showItemImages(current, list);
+				}));
+		};
+
+		/**
+		 * Show the images of an item.
+		 *
+		 * Images are downloaded by inserting in the DOM img elements. Each element receive a handler for dealing with
+		 * animation stage. When the animation of the front image is done, this image is put back to his siblings and the
+		 * new front image received an animation which is started. The process then do the same for another iteration.
+		 *
+		 * @param current Item card to deal with.
+		 * @param list    URLs of the images of the item.
+		 */
+
+		object.showItemImages = function (current, list)
+		{
+			// The first image shown with the card is replaced by the whole list, taken from the browser cache.
+			$(".itemCardImageDiv", current).empty();
+
+			// For each item images.
+			list.forEach((imgPath, index, list) =>
+			{
+				// Create an img element.
+				let image = $("<img>", {src: imgPath, class: 'itemCardImage'});
+
+				// Put it at the end of his parent.
+				$(".itemCardImageDiv", current).append(image);
+
+				// If there are more than one image, a handler need to be added for animation.
+				if (list.length > 1) image.on("load", function ()
+				{
+					// Attach a handler to the image.
+					this.on("animationend", () =>
 					{
-						// For each item images.
-						list.forEach((imgPath, index, list) =>
-						{
-							// Create an img element.
-							let image = $("<img>", {src: imgPath, class: 'itemCardImage'});
-
-							// Put it at the end of his parent.
-							$(".itemCardImageDiv", current).append(image);
-
-							// If there are more than one image, a handler need to be added for animation.
-							if (list.length > 1) image.on("load", function ()
-							{
-								// Attach a handler to the image.
-								this.on("animationend", () =>
-								{
-									// Image parent.
-									let parent = this.parent();
-
-									// Previous image sibling.
-									let prev = this.prev();
-
-									// Remove the image form the DOM. The image is invisible now, because the animation reach his end.
-									this.detach();
-
-									// Remove the animation from the image which will be placed under the other of the item.
-									this.removeClass("itemCardImageFront");
-
-									// Now, put this image back to the others.
-									parent.prepend(this);
-
-									// the new front image receive now the animation.
-									prev.addClass("itemCardImageFront");
-								});
-							}.bind(image));
-
-							// Animation is only applied to the last image when there is more than one.
-							//if ((index) && (index === list.length - 1)) image.addClass("itemCardImageFront");
-						});
+						// Image parent.
+						let parent = this.parent();
+
+						// Previous image sibling.
+						let prev = this.prev();
+
+						// Remove the image form the DOM. The image is invisible now, because the animation reach his end.
+						this.detach();
+
+						// Remove the animation from the image which will be placed under the other of the item.
+						this.removeClass("itemCardImageFront");
+
+						// Now, put this image back to the others.
+						parent.prepend(this);
+
+						// the new front image receive now the animation.
+						prev.addClass("itemCardImageFront");
 					});
+				}.bind(image));
+
+				// Animation is only applied to the last image when there is more than one.
+				//if ((index) && (index === list.length - 1)) image.addClass("itemCardImageFront");
 			});
 		};
 	}
@@ -0,0 +1,234 @@
+package fr.eikasus.objectsmyfriends.controller;
+
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to measure the sending of the item images.
+ * <p>
+ * The images of the application are sent many times to a stream throwing the
+ * bytes away, first by reading them into a buffer allocated for each request,
+ * as done by the default servlet, then through the file channel, as done by
+ * the item image servlet. The bytes sent per second and the bytes allocated
+ * per request are shown for both. This class is not run with the other tests,
+ * use "mvn test -Dtest=ItemImageServletBenchmark" to run it.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItemImageServletBenchmark
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Folder holding the images of the application.
+	private static final String IMAGES_FOLDER = "src/main/webapp/item_images";
+
+	// Number of times each image is sent, after as many to warm up.
+	private static final int ROUNDS = 200;
+
+	// Size of the buffer allocated for each request by the default servlet.
+	private static final int BUFFER_SIZE = 8192;
+
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Way of sending a file.
+	 */
+
+	@FunctionalInterface
+	private interface Sender
+	{
+		void send(Path file, OutputStream out) throws IOException;
+	}
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<Object> testSupport;
+
+	// Images sent.
+	private List<Path> files;
+
+	// Size of all the images.
+	private long size;
+
+	// Stream throwing the bytes away.
+	private final OutputStream discard = new OutputStream()
+	{
+		@Override public void write(int b)
+		{
+		}
+
+		@Override public void write(byte @NotNull [] b, int off, int len)
+		{
+		}
+	};
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper and find the images.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+
+		try (Stream<Path> paths = assertDoesNotThrow(() -> Files.list(Paths.get(IMAGES_FOLDER))))
+		{
+			files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+
+		for (Path file : files) size += assertDoesNotThrow(() -> Files.size(file));
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Compare the sending of the images by a stream and by the file channel.
+	 */
+
+	@Test void throughput()
+	{
+		testSupport.enterFunction();
+
+		List<List<String>> lines = new ArrayList<>();
+
+		testSupport.action("Sending the images through a buffer for each request");
+		double[] stream = run(this::sendByStream, lines, "default servlet");
+
+		testSupport.action("Sending the images through the file channel");
+		double[] channel = run(this::sendByChannel, lines, "item image servlet");
+
+		testSupport.displayTable(Arrays.asList("Sending", "Requests", "MB per second", "Bytes allocated per request"), lines);
+
+		assertTrue(channel[1] < stream[1]);
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Send all the images and measure the throughput and the allocations.
+	 *
+	 * @param sender Way of sending a file.
+	 * @param lines  Lines of the result table to complete.
+	 * @param label  Label of the way of sending.
+	 *
+	 * @return Bytes per second and bytes allocated per request.
+	 */
+
+	private double[] run(@NotNull Sender sender, @NotNull List<List<String>> lines, String label)
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		// Warm up.
+		send(sender);
+
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+
+		long bytes = send(sender);
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long requests = (long) ROUNDS * files.size();
+		double allocations = (double) (threads.getThreadAllocatedBytes(thread) - allocated) / requests;
+
+		lines.add(Arrays.asList(label, Long.toString(requests), String.format("%.0f", bytes / seconds / 1e6), String.format("%.0f", allocations)));
+
+		return new double[]{bytes / seconds, allocations};
+	}
+
+	/**
+	 * Send all the images the number of rounds.
+	 *
+	 * @param sender Way of sending a file.
+	 *
+	 * @return Number of bytes sent.
+	 */
+
+	private long send(@NotNull Sender sender)
+	{
+		// Nothing is allocated by the loop, so that only the sending is measured.
+		try
+		{
+			for (int round = 0; round < ROUNDS; round++)
+				for (Path file : files) sender.send(file, discard);
+		}
+		catch (IOException e)
+		{
+			fail(e);
+		}
+
+		return ROUNDS * size;
+	}
+
+	/**
+	 * Send a file by reading it into a buffer allocated for the request.
+	 *
+	 * @param file File to send.
+	 * @param out  Stream receiving the file.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	private void sendByStream(@NotNull Path file, @NotNull OutputStream out) throws IOException
+	{
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int length;
+
+		try (InputStream in = Files.newInputStream(file))
+		{
+			while ((length = in.read(buffer)) != -1) out.write(buffer, 0, length);
+		}
+	}
+
+	/**
+	 * Send a file through the file channel.
+	 *
+	 * @param file File to send.
+	 * @param out  Stream receiving the file.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	private void sendByChannel(@NotNull Path file, @NotNull OutputStream out) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ItemImageServlet.transfer(channel, 0, channel.size(), out);
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package fr.eikasus.objectsmyfriends.controller;
+
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the sending of the item images.
+ * <p>
+ * The parts of the servlet which don't need a server are tested, using
+ * temporary files.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItemImageServletTest
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<ItemImageServlet> testSupport;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test the ranges asked for by a browser.
+	 */
+
+	@Test void range()
+	{
+		testSupport.enterFunction();
+
+		testSupport.action("Reading valid ranges");
+		assertArrayEquals(new long[]{0, 99}, ItemImageServlet.parseRange("bytes=0-99", 1000));
+		assertArrayEquals(new long[]{500, 999}, ItemImageServlet.parseRange("bytes=500-", 1000));
+		assertArrayEquals(new long[]{900, 999}, ItemImageServlet.parseRange("bytes=-100", 1000));
+		assertArrayEquals(new long[]{0, 999}, ItemImageServlet.parseRange("bytes=-5000", 1000));
+		assertArrayEquals(new long[]{900, 999}, ItemImageServlet.parseRange("bytes=900-5000", 1000));
+
+		testSupport.action("Reading ranges giving the whole file");
+		assertNull(ItemImageServlet.parseRange(null, 1000));
+		assertNull(ItemImageServlet.parseRange("bytes=0-9,20-29", 1000));
+		assertNull(ItemImageServlet.parseRange("bytes=abc", 1000));
+		assertNull(ItemImageServlet.parseRange("bytes=50-10", 1000));
+		assertNull(ItemImageServlet.parseRange("lines=0-9", 1000));
+
+		testSupport.action("Reading ranges beyond the end of the file");
+		assertSame(ItemImageServlet.UNSATISFIABLE, ItemImageServlet.parseRange("bytes=1000-", 1000));
+		assertSame(ItemImageServlet.UNSATISFIABLE, ItemImageServlet.parseRange("bytes=2000-3000", 1000));
+		assertSame(ItemImageServlet.UNSATISFIABLE, ItemImageServlet.parseRange("bytes=-0", 1000));
+	}
+
+	/**
+	 * Test the entity tags sent back by a browser.
+	 */
+
+	@Test void tag()
+	{
+		testSupport.enterFunction();
+
+		Path file = assertDoesNotThrow(() -> Files.createTempFile("image", ".jpg"));
+
+		try
+		{
+			testSupport.action("Computing the tag of a file");
+			assertDoesNotThrow(() -> Files.write(file, new byte[]{1, 2, 3}));
+			String tag = assertDoesNotThrow(() -> ItemImageServlet.computeTag(file));
+			System.out.println(tag);
+
+			assertTrue(tag.startsWith("\"") && tag.endsWith("\""));
+			assertEquals(tag, assertDoesNotThrow(() -> ItemImageServlet.computeTag(file)));
+
+			testSupport.action("Matching the tag");
+			assertTrue(ItemImageServlet.matches(tag, tag));
+			assertTrue(ItemImageServlet.matches("\"other\", W/" + tag, tag));
+			assertTrue(ItemImageServlet.matches("*", tag));
+			assertFalse(ItemImageServlet.matches("\"other\"", tag));
+
+			testSupport.action("Changing the content of the file");
+			assertDoesNotThrow(() -> Files.write(file, new byte[]{1, 2, 4}));
+			assertNotEquals(tag, assertDoesNotThrow(() -> ItemImageServlet.computeTag(file)));
+		}
+		finally
+		{
+			assertDoesNotThrow(() -> Files.delete(file));
+		}
+	}
+
+	/**
+	 * Test that a file is sent in whole or in part.
+	 */
+
+	@Test void transfer()
+	{
+		testSupport.enterFunction();
+
+		byte[] content = new byte[100000];
+		for (int index = 0; index < content.length; index++) content[index] = (byte) index;
+
+		Path file = assertDoesNotThrow(() -> Files.createTempFile("image", ".jpg"));
+
+		try (FileChannel channel = assertDoesNotThrow(() -> FileChannel.open(Files.write(file, content), StandardOpenOption.READ)))
+		{
+			testSupport.action("Sending the whole file");
+			ByteArrayOutputStream whole = new ByteArrayOutputStream();
+			assertEquals(content.length, assertDoesNotThrow(() -> ItemImageServlet.transfer(channel, 0, content.length, whole)));
+			assertArrayEquals(content, whole.toByteArray());
+
+			testSupport.action("Sending a part of the file");
+			ByteArrayOutputStream part = new ByteArrayOutputStream();
+			assertEquals(20000, assertDoesNotThrow(() -> ItemImageServlet.transfer(channel, 12345, 20000, part)));
+			assertArrayEquals(Arrays.copyOfRange(content, 12345, 32345), part.toByteArray());
+		}
+		catch (Exception e)
+		{
+			fail(e);
+		}
+		finally
+		{
+			assertDoesNotThrow(() -> Files.delete(file));
+		}
+	}
+
+	/**
+	 * Test that the files are found from the urls.
+	 */
+
+	@Test void locate()
+	{
+		testSupport.enterFunction();
+
+		String name = String.join("", Collections.nCopies(8, "0123abcd")) + ".jpg";
+
+		testSupport.action("Locating the images of the store");
+		assertEquals("01/23/" + name, ItemImageServlet.locate(name));
+		assertEquals("card/01/23/" + name, ItemImageServlet.locate("card/" + name));
+
+		testSupport.action("Locating the images stored before");
+		assertEquals("1234_1.jpg", ItemImageServlet.locate("1234_1.jpg"));
+		assertEquals("detail/1234_1.jpg", ItemImageServlet.locate("detail/1234_1.jpg"));
+		assertEquals("other/" + name, ItemImageServlet.locate("other/" + name));
+	}
+}
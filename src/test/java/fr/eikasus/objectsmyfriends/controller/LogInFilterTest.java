@@ -0,0 +1,75 @@
+package fr.eikasus.objectsmyfriends.controller;
+
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.servlet.annotation.WebServlet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the targets the log in filter lets through
+ * without looking at the session.
+ * <p>
+ * The paths are given as the server would for the mappings of the servlets,
+ * so no server is needed.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LogInFilterTest
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<LogInFilter> testSupport;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test that the static files are found by their servlet path and path info.
+	 */
+
+	@Test void staticFiles()
+	{
+		testSupport.enterFunction();
+
+		// The servlet of the item images is mapped to a folder, whose name is the
+		// servlet path, the name of the file being the path info.
+		String mapping = ItemImageServlet.class.getAnnotation(WebServlet.class).value()[0];
+		assertTrue(mapping.endsWith("/*"));
+		String servletPath = mapping.substring(0, mapping.length() - 2);
+
+		testSupport.action("Asking for an item image");
+		assertTrue(LogInFilter.isStatic(servletPath, "/42_1.jpg"));
+
+		testSupport.action("Asking for files served by the container");
+		assertTrue(LogInFilter.isStatic("/css/global.css", null));
+		assertTrue(LogInFilter.isStatic("/javascript/item_bid.js", null));
+		assertTrue(LogInFilter.isStatic("/images/no_image.png", null));
+
+		testSupport.action("Asking for pages");
+		assertFalse(LogInFilter.isStatic("/welcome", null));
+		assertFalse(LogInFilter.isStatic("/WEB-INF/logIn.jsp", null));
+		assertFalse(LogInFilter.isStatic(servletPath, null));
+	}
+}
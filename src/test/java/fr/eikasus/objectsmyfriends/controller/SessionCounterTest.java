@@ -0,0 +1,126 @@
+package fr.eikasus.objectsmyfriends.controller;
+
+import fr.eikasus.objectsmyfriends.misc.SessionStatistics;
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the counter of sessions.
+ * <p>
+ * The minutes are given by the tests, so that they don't have to wait for the
+ * time to pass, and no server is needed.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SessionCounterTest
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<SessionCounter> testSupport;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test that sessions are counted by minute.
+	 */
+
+	@Test void count()
+	{
+		testSupport.enterFunction();
+
+		SessionCounter counter = new SessionCounter();
+		long minute = 1000;
+
+		testSupport.action("Creating sessions during three minutes");
+		for (int index = 0; index < 5; index++) counter.created(minute);
+		for (int index = 0; index < 2; index++) counter.created(minute + 1);
+		counter.created(minute + 2);
+		counter.sessionDestroyed(null);
+
+		SessionStatistics statistics = counter.getStatistics(minute + 2);
+		display(statistics);
+
+		assertEquals(1, statistics.getCurrentMinute());
+		assertEquals(2, statistics.getLastMinute());
+		assertEquals(5, statistics.getPeakMinute());
+		assertEquals(7.0 / SessionCounter.MINUTES, statistics.getAveragePerMinute());
+		assertEquals(8, statistics.getTotal());
+		assertEquals(7, statistics.getActive());
+	}
+
+	/**
+	 * Test that minutes older than the window are not counted anymore.
+	 */
+
+	@Test void window()
+	{
+		testSupport.enterFunction();
+
+		SessionCounter counter = new SessionCounter();
+		long minute = 1000;
+
+		testSupport.action("Creating sessions an hour apart");
+		counter.created(minute);
+		counter.created(minute + SessionCounter.MINUTES);
+		counter.created(minute + SessionCounter.MINUTES + 1);
+
+		testSupport.action("Reading the statistics at the end of the window");
+		SessionStatistics statistics = counter.getStatistics(minute + SessionCounter.MINUTES + 1);
+		display(statistics);
+
+		assertEquals(1, statistics.getCurrentMinute());
+		assertEquals(1, statistics.getLastMinute());
+		assertEquals(1, statistics.getPeakMinute());
+		assertEquals(1.0 / SessionCounter.MINUTES, statistics.getAveragePerMinute());
+		assertEquals(3, statistics.getTotal());
+
+		testSupport.action("Reading the statistics once the window has passed");
+		statistics = counter.getStatistics(minute + 3 * SessionCounter.MINUTES);
+		display(statistics);
+
+		assertEquals(0, statistics.getCurrentMinute());
+		assertEquals(0, statistics.getPeakMinute());
+		assertEquals(3, statistics.getTotal());
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Display statistics.
+	 *
+	 * @param statistics Statistics to display.
+	 */
+
+	private void display(SessionStatistics statistics)
+	{
+		testSupport.displayTable(Arrays.asList("Current minute", "Last minute", "Peak", "Average", "Total", "Active"), Collections.singletonList(Arrays.asList(Long.toString(statistics.getCurrentMinute()), Long.toString(statistics.getLastMinute()), Long.toString(statistics.getPeakMinute()), String.format("%.2f", statistics.getAveragePerMinute()), Long.toString(statistics.getTotal()), Long.toString(statistics.getActive()))));
+	}
+}
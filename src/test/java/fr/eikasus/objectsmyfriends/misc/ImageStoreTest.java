@@ -0,0 +1,289 @@
+package fr.eikasus.objectsmyfriends.misc;
+
+import fr.eikasus.objectsmyfriends.model.bll.ManagerFactory;
+import fr.eikasus.objectsmyfriends.model.bll.interfaces.ImageManager;
+import fr.eikasus.objectsmyfriends.model.bo.Image;
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the store of the item images.
+ * <p>
+ * The images are stored into a temporary folder, and the images of the
+ * database pointing to them are simulated, so these tests don't need a server
+ * nor a database.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ImageStoreTest
+{
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Manager simulating the images of the database.
+	 */
+
+	private static class References implements ImageManager
+	{
+		// Number of images pointing to each file.
+		private final Map<String, Long> counts = new HashMap<>();
+
+		@Override public void setManagerFactory(ManagerFactory managerFactory)
+		{
+		}
+
+		@Override public Image add(Item item, String path)
+		{
+			counts.merge(path, 1L, Long::sum);
+
+			return null;
+		}
+
+		@Override public List<Image> add(Item item, List<String> paths)
+		{
+			paths.forEach(path -> add(item, path));
+
+			return null;
+		}
+
+		@Override public void delete(@NotNull Image image)
+		{
+			counts.computeIfPresent(image.getPath(), (path, count) -> (count > 1) ? (count - 1) : (null));
+		}
+
+		@Override public Map<Long, List<String>> findPaths(@NotNull Collection<Long> items)
+		{
+			return new HashMap<>();
+		}
+
+		@Override public Map<String, Long> countReferences(@NotNull Collection<String> paths)
+		{
+			return paths.stream().filter(counts::containsKey).collect(Collectors.toMap(path -> path, counts::get));
+		}
+	}
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<ImageStore> testSupport;
+
+	// Folder receiving the images.
+	private Path folder;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper and create the folder of the images.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+
+		folder = assertDoesNotThrow(() -> Files.createTempDirectory("images"));
+	}
+
+	/**
+	 * Delete the folder of the images.
+	 */
+
+	@AfterAll public void afterAll()
+	{
+		try (Stream<Path> paths = assertDoesNotThrow(() -> Files.walk(folder)))
+		{
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> assertDoesNotThrow(() -> Files.delete(path)));
+		}
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test that the images are named after their content and spread in folders.
+	 */
+
+	@Test void store()
+	{
+		testSupport.enterFunction();
+
+		ImageStore store = new ImageStore(folder.resolve("store"));
+		assertDoesNotThrow(() -> Files.createDirectories(store.getFolder()));
+
+		byte[] content = content(1000000, 31);
+
+		testSupport.action("Storing an image");
+		String name = assertDoesNotThrow(() -> store.store(new ByteArrayInputStream(content), ".JPG"));
+		assertTrue(name.matches("^[0-9a-f]{64}\\.jpg$"));
+		assertEquals(name.substring(0, 2) + "/" + name.substring(2, 4) + "/" + name, ImageStore.locate(name));
+		assertArrayEquals(content, assertDoesNotThrow(() -> Files.readAllBytes(store.resolve(name))));
+
+		testSupport.action("Storing the same image again");
+		assertEquals(name, assertDoesNotThrow(() -> store.store(new ByteArrayInputStream(content), ".jpg")));
+
+		testSupport.action("Storing another image");
+		content[0]++;
+		assertNotEquals(name, assertDoesNotThrow(() -> store.store(new ByteArrayInputStream(content), ".jpg")));
+
+		assertEquals(2, countFiles(store.getFolder()));
+
+		testSupport.action("Locating the images stored before");
+		assertEquals("1234_1.jpg", ImageStore.locate("1234_1.jpg"));
+		assertEquals("u1234.jpg", ImageStore.locate("u1234.jpg"));
+	}
+
+	/**
+	 * Test that the empty and too big images are refused.
+	 */
+
+	@Test void refuse()
+	{
+		testSupport.enterFunction();
+
+		ImageStore store = new ImageStore(folder.resolve("refuse"));
+		assertDoesNotThrow(() -> Files.createDirectories(store.getFolder()));
+
+		testSupport.action("Storing an empty image");
+		assertThrows(IOException.class, () -> store.store(new ByteArrayInputStream(new byte[0]), ".png"));
+
+		testSupport.action("Storing a too big image");
+		byte[] content = new byte[(int) ImageStore.MAX_IMAGE_SIZE + 1];
+		assertThrows(IOException.class, () -> store.store(new ByteArrayInputStream(content), ".png"));
+
+		// Nothing is left behind.
+		assertEquals(0, countFiles(store.getFolder()));
+	}
+
+	/**
+	 * Test that an image is only deleted when nothing points to it anymore.
+	 */
+
+	@Test void release()
+	{
+		testSupport.enterFunction();
+
+		ImageStore store = new ImageStore(folder.resolve("release"));
+		assertDoesNotThrow(() -> Files.createDirectories(store.getFolder()));
+
+		References references = new References();
+		byte[] content = content(1000, 7);
+
+		testSupport.action("Uploading the same image by two users");
+		String name = assertDoesNotThrow(() -> store.store(new ByteArrayInputStream(content), ".jpg"));
+		assertDoesNotThrow(() -> store.store(new ByteArrayInputStream(content), ".jpg"));
+
+		testSupport.action("Giving up the image by the first user");
+		assertDoesNotThrow(() -> store.release(Collections.singletonList(name), references));
+		assertTrue(Files.exists(store.resolve(name)));
+
+		testSupport.action("Adding the image to an item by the second user");
+		references.add(null, name);
+		assertDoesNotThrow(() -> store.release(Collections.singletonList(name), references));
+		assertTrue(Files.exists(store.resolve(name)));
+
+		testSupport.action("Deleting the item");
+		references.counts.remove(name);
+		assertEquals(1, assertDoesNotThrow(() -> store.collect(references)));
+		assertFalse(Files.exists(store.resolve(name)));
+
+		testSupport.action("Giving up an image uploaded once");
+		String alone = assertDoesNotThrow(() -> store.store(new ByteArrayInputStream(content(1000, 11)), ".png"));
+		assertDoesNotThrow(() -> store.release(Collections.singletonList(alone), references));
+		assertFalse(Files.exists(store.resolve(alone)));
+	}
+
+	/**
+	 * Test that the maintenance process only deletes the images not used.
+	 */
+
+	@Test void collect()
+	{
+		testSupport.enterFunction();
+
+		ImageStore store = new ImageStore(folder.resolve("collect"));
+		assertDoesNotThrow(() -> Files.createDirectories(store.getFolder()));
+
+		References references = new References();
+
+		testSupport.action("Storing images used, held and no more used");
+		String used = assertDoesNotThrow(() -> store.store(new ByteArrayInputStream(content(1000, 3)), ".jpg"));
+		String held = assertDoesNotThrow(() -> store.store(new ByteArrayInputStream(content(1000, 5)), ".jpg"));
+		String unused = assertDoesNotThrow(() -> store.store(new ByteArrayInputStream(content(1000, 13)), ".jpg"));
+		assertDoesNotThrow(() -> Files.write(store.getFolder().resolve("1234_1.jpg"), new byte[]{1}));
+
+		references.add(null, used);
+		references.add(null, unused);
+		assertDoesNotThrow(() -> store.release(Arrays.asList(used, unused), references));
+
+		// The item of the image is deleted.
+		references.counts.remove(unused);
+		assertTrue(Files.exists(store.resolve(unused)));
+
+		testSupport.action("Collecting the images no more used");
+		assertEquals(1, assertDoesNotThrow(() -> store.collect(references)));
+		assertFalse(Files.exists(store.resolve(unused)));
+
+		assertTrue(Files.exists(store.resolve(used)));
+		assertTrue(Files.exists(store.resolve(held)));
+		assertTrue(Files.exists(store.getFolder().resolve("1234_1.jpg")));
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Make the content of an image.
+	 *
+	 * @param size Size of the content.
+	 * @param step Difference between two bytes.
+	 *
+	 * @return Content.
+	 */
+
+	private static byte[] content(int size, int step)
+	{
+		byte[] content = new byte[size];
+		for (int index = 0; index < size; index++) content[index] = (byte) (index * step);
+
+		return content;
+	}
+
+	/**
+	 * Count the files of a folder and of its folders.
+	 *
+	 * @param folder Folder to look into.
+	 *
+	 * @return Number of files.
+	 */
+
+	private long countFiles(@NotNull Path folder)
+	{
+		try (Stream<Path> paths = assertDoesNotThrow(() -> Files.walk(folder)))
+		{
+			return paths.filter(Files::isRegularFile).count();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package fr.eikasus.objectsmyfriends.misc;
+
+import fr.eikasus.objectsmyfriends.model.bo.*;
+import fr.eikasus.objectsmyfriends.model.misc.ItemState;
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the state kept in the session.
+ * <p>
+ * The size of a session is measured by serializing its attributes, as done by
+ * the server when the session is saved or sent to another server. The entities
+ * that were kept before are built in memory, so these tests don't need the
+ * database.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SessionStateTest
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<SessionState> testSupport;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test that a state is the same once encoded and decoded.
+	 */
+
+	@Test void encoding()
+	{
+		testSupport.enterFunction();
+
+		SessionState state = new SessionState();
+		state.logIn(new User().setIdentifier(12).setAdmin(true));
+		state.setItem(34);
+		state.addImage("image1.jpg");
+		state.addImage("image2.jpg");
+
+		testSupport.action("Encoding and decoding the state");
+		SessionState decoded = (SessionState) assertDoesNotThrow(() -> new ObjectInputStream(new ByteArrayInputStream(serialize(state))).readObject());
+		System.out.println(decoded);
+
+		assertEquals(12, decoded.getUser());
+		assertTrue(decoded.isAdmin());
+		assertEquals(34, decoded.getItem());
+		assertEquals(Arrays.asList("image1.jpg", "image2.jpg"), decoded.getImages());
+	}
+
+	/**
+	 * Compare the size of a session keeping entities and keeping the state.
+	 */
+
+	@Test void footprint()
+	{
+		testSupport.enterFunction();
+
+		testSupport.action("Building the entities kept before");
+		User seller = createUser(1, "Fabien");
+		User buyer = createUser(2, "Willy");
+
+		Item item = new Item("Velo", "Velo de course en bon etat, peu servi", new Date(), new Date(), 100, ItemState.AC, seller, null, new Category("Sport & Loisirs"));
+		item.setIdentifier(3).setPickupPlace(new PickupPlace(item, "12 rue de la formation", "59000", "Lille"));
+		for (int index = 0; index < 3; index++) item.addImage(new Image(item, "image" + index + ".jpg"));
+		for (int index = 0; index < 5; index++) item.addBid(new Bid(buyer, item, new Date(), 110 + index * 10));
+
+		Bid bestBid = item.getBids().get(item.getBids().size() - 1);
+		List<String> images = new ArrayList<>(Arrays.asList("upload1.jpg", "upload2.jpg"));
+
+		testSupport.action("Measuring both sessions");
+		int before = assertDoesNotThrow(() -> serialize(buyer, item, bestBid, images).length);
+
+		SessionState state = new SessionState();
+		state.logIn(buyer);
+		state.setItem(item.getIdentifier());
+		images.forEach(state::addImage);
+
+		int after = assertDoesNotThrow(() -> serialize(state).length);
+
+		testSupport.displayTable(Arrays.asList("Session", "Bytes"), Arrays.asList(Arrays.asList("Entities", Integer.toString(before)), Arrays.asList("State", Integer.toString(after))));
+
+		assertTrue(after * 10 < before);
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Create a user as read from the database.
+	 *
+	 * @param identifier Identifier of the user.
+	 * @param username   Name of the user.
+	 *
+	 * @return User created.
+	 */
+
+	private @NotNull User createUser(long identifier, String username)
+	{
+		User user = new User(username, username, username, username.toLowerCase() + "@email.fr", "0123456789", "10 rue de la formation", "59000", "Lille", null, 1000, false);
+
+		return user.setIdentifier(identifier).setPassword(new byte[37]).setSalt(new byte[User.MAX_LENGTH_SALT]);
+	}
+
+	/**
+	 * Serialize session attributes, like the server does.
+	 *
+	 * @param attributes Values of the attributes.
+	 *
+	 * @return Bytes written.
+	 *
+	 * @throws IOException In case of problem.
+	 */
+
+	private byte @NotNull [] serialize(Object @NotNull ... attributes) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			for (Object attribute : attributes) out.writeObject(attribute);
+		}
+
+		return bytes.toByteArray();
+	}
+}
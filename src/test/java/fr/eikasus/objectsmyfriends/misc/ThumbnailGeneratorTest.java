@@ -0,0 +1,208 @@
+package fr.eikasus.objectsmyfriends.misc;
+
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the thumbnails of the item images.
+ * <p>
+ * The images of the application are copied into a temporary folder, where
+ * their thumbnails are made, so these tests don't need a server.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ThumbnailGeneratorTest
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Folder holding the images of the application.
+	private static final String IMAGES_FOLDER = "src/main/webapp/item_images";
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<ThumbnailGenerator> testSupport;
+
+	// Folder receiving the thumbnails.
+	private Path folder;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper and create the folder of the thumbnails.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+
+		folder = assertDoesNotThrow(() -> Files.createTempDirectory("thumbnails"));
+	}
+
+	/**
+	 * Delete the folder of the thumbnails.
+	 */
+
+	@AfterAll public void afterAll()
+	{
+		try (Stream<Path> paths = assertDoesNotThrow(() -> Files.walk(folder)))
+		{
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> assertDoesNotThrow(() -> Files.delete(path)));
+		}
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test that the thumbnails fit their size and are smaller than the images.
+	 * <p>
+	 * The first image of each item, shown by the cards, is used.
+	 */
+
+	@Test void generate()
+	{
+		testSupport.enterFunction();
+
+		List<Path> images;
+		List<List<String>> lines = new ArrayList<>();
+		long[] total = new long[ThumbnailGenerator.Size.values().length + 1];
+
+		try (Stream<Path> paths = assertDoesNotThrow(() -> Files.list(Paths.get(IMAGES_FOLDER))))
+		{
+			images = paths.filter(path -> path.getFileName().toString().contains("_1.")).sorted().collect(Collectors.toList());
+		}
+
+		testSupport.action("Making the thumbnails of the images");
+
+		for (Path image : images)
+		{
+			String name = image.getFileName().toString();
+
+			assertDoesNotThrow(() -> Files.copy(image, folder.resolve(name)));
+			assertDoesNotThrow(() -> ThumbnailGenerator.generate(folder.toString(), name));
+
+			total[0] += assertDoesNotThrow(() -> Files.size(image));
+
+			for (ThumbnailGenerator.Size size : ThumbnailGenerator.Size.values())
+			{
+				Path thumbnail = ThumbnailGenerator.getThumbnail(folder.toString(), name, size);
+
+				BufferedImage read = assertDoesNotThrow(() -> ImageIO.read(thumbnail.toFile()));
+				assertTrue(Math.max(read.getWidth(), read.getHeight()) <= size.getDimension());
+
+				total[size.ordinal() + 1] += assertDoesNotThrow(() -> Files.size(thumbnail));
+			}
+		}
+
+		lines.add(Arrays.asList("images", Integer.toString(images.size()), Long.toString(total[0] / 1024)));
+		for (ThumbnailGenerator.Size size : ThumbnailGenerator.Size.values())
+			lines.add(Arrays.asList(size.getFolder(), Integer.toString(images.size()), Long.toString(total[size.ordinal() + 1] / 1024)));
+
+		testSupport.displayTable(Arrays.asList("Files", "Count", "Total (KB)"), lines);
+
+		assertTrue(total[ThumbnailGenerator.Size.CARD.ordinal() + 1] * 10 < total[0]);
+	}
+
+	/**
+	 * Test that the thumbnails follow their image.
+	 */
+
+	@Test void rename()
+	{
+		testSupport.enterFunction();
+
+		Path image = folder.resolve("1234.png");
+
+		testSupport.action("Making the thumbnails of an image");
+		BufferedImage content = new BufferedImage(1000, 500, BufferedImage.TYPE_INT_ARGB);
+		assertDoesNotThrow(() -> ImageIO.write(content, "png", image.toFile()));
+
+		assertDoesNotThrow(() -> ThumbnailGenerator.generate(folder.toString(), "1234.png"));
+
+		BufferedImage card = assertDoesNotThrow(() -> ImageIO.read(ThumbnailGenerator.getThumbnail(folder.toString(), "1234.png", ThumbnailGenerator.Size.CARD).toFile()));
+		assertEquals(256, card.getWidth());
+		assertEquals(128, card.getHeight());
+
+		testSupport.action("Renaming the thumbnails");
+		ThumbnailGenerator.rename(folder.toString(), "1234.png", "u1234.png");
+
+		for (ThumbnailGenerator.Size size : ThumbnailGenerator.Size.values())
+		{
+			assertFalse(Files.exists(ThumbnailGenerator.getThumbnail(folder.toString(), "1234.png", size)));
+			assertTrue(Files.exists(ThumbnailGenerator.getThumbnail(folder.toString(), "u1234.png", size)));
+		}
+
+		testSupport.action("Deleting the thumbnails");
+		ThumbnailGenerator.delete(folder.toString(), "u1234.png");
+
+		for (ThumbnailGenerator.Size size : ThumbnailGenerator.Size.values())
+			assertFalse(Files.exists(ThumbnailGenerator.getThumbnail(folder.toString(), "u1234.png", size)));
+	}
+
+	/**
+	 * Test that an unreadable image is refused.
+	 */
+
+	@Test void unreadable()
+	{
+		testSupport.enterFunction();
+
+		Path image = folder.resolve("broken.jpg");
+		assertDoesNotThrow(() -> Files.write(image, new byte[]{1, 2, 3}));
+
+		assertThrows(IOException.class, () -> ThumbnailGenerator.generate(folder.toString(), "broken.jpg"));
+		assertFalse(Files.exists(ThumbnailGenerator.getThumbnail(folder.toString(), "broken.jpg", ThumbnailGenerator.Size.CARD)));
+	}
+
+	/**
+	 * Test that only the images matching their name are accepted.
+	 */
+
+	@Test void format()
+	{
+		testSupport.enterFunction();
+
+		BufferedImage content = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+
+		testSupport.action("Checking images of the right format");
+		assertDoesNotThrow(() -> ImageIO.write(content, "png", folder.resolve("right.png").toFile()));
+		assertDoesNotThrow(() -> ImageIO.write(content, "jpeg", folder.resolve("right.jpg").toFile()));
+		assertTrue(assertDoesNotThrow(() -> ThumbnailGenerator.checkFormat(folder.resolve("right.png"))));
+		assertTrue(assertDoesNotThrow(() -> ThumbnailGenerator.checkFormat(folder.resolve("right.jpg"))));
+
+		testSupport.action("Checking images of the wrong format");
+		assertDoesNotThrow(() -> Files.copy(folder.resolve("right.png"), folder.resolve("wrong.jpg")));
+		assertDoesNotThrow(() -> Files.copy(folder.resolve("right.jpg"), folder.resolve("wrong.gif")));
+		assertDoesNotThrow(() -> Files.write(folder.resolve("short.png"), new byte[]{(byte) 0x89}));
+		assertFalse(assertDoesNotThrow(() -> ThumbnailGenerator.checkFormat(folder.resolve("wrong.jpg"))));
+		assertFalse(assertDoesNotThrow(() -> ThumbnailGenerator.checkFormat(folder.resolve("wrong.gif"))));
+		assertFalse(assertDoesNotThrow(() -> ThumbnailGenerator.checkFormat(folder.resolve("short.png"))));
+	}
+}
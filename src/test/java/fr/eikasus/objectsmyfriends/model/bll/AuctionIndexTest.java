@@ -0,0 +1,301 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.bo.Category;
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.ItemCardView;
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.*;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test functionalities of the auction index.
+ * <p>
+ * The index is filled with items that are not stored in the database, so these
+ * tests don't need it.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AuctionIndexTest
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<Item> testSupport;
+
+	// Index tested.
+	private AuctionIndex auctionIndex;
+
+	// Users selling and buying the items.
+	private User seller1, seller2, buyer;
+
+	// Categories of the items.
+	private Category sport, computer;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper and the users and categories of the items.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+
+		seller1 = new User().setIdentifier(1).setUsername("seller1");
+		seller2 = new User().setIdentifier(2).setUsername("seller2");
+		buyer = new User().setIdentifier(3).setUsername("buyer");
+
+		sport = new Category("Sport").setIdentifier(1);
+		computer = new Category("Informatique").setIdentifier(2);
+	}
+
+	/**
+	 * Fill the index for each test.
+	 * <p>
+	 * Items 1 to 4 are active, item 5 is waiting and item 6 is sold. Items 1
+	 * and 4 end at the same date.
+	 */
+
+	@BeforeEach public void setUp()
+	{
+		testSupport.action("Building the index");
+
+		auctionIndex = new AuctionIndex();
+
+		Map<Long, Integer> prices = new HashMap<>();
+		prices.put(2L, 150);
+
+		Map<Long, List<Long>> bidders = new HashMap<>();
+		bidders.put(2L, Collections.singletonList(buyer.getIdentifier()));
+
+		Map<Long, List<String>> paths = new HashMap<>();
+		paths.put(1L, Arrays.asList("1_1.jpg", "1_2.jpg"));
+
+		auctionIndex.rebuild(Arrays.asList(
+				item(1, ItemState.AC, 30, seller1, sport),
+				item(2, ItemState.AC, 10, seller1, sport),
+				item(3, ItemState.AC, 20, seller2, computer),
+				item(4, ItemState.AC, 30, seller2, sport),
+				item(5, ItemState.WT, 40, seller1, computer),
+				item(6, ItemState.SD, 5, seller2, sport)), prices, bidders, paths);
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test the ability to find the cards of the items, as the database would.
+	 */
+
+	@Test void findCards()
+	{
+		testSupport.enterFunction();
+
+		testSupport.action("Searching the available items");
+		Page<ItemCardView> page = assertDoesNotThrow(() -> auctionIndex.findCards(null, UserRole.BUYER, new Search().setOpenedBids(), null, null, null, 10));
+		assertEquals(Arrays.asList(2L, 3L, 1L, 4L), identifiersOf(page));
+		assertNull(page.getNextToken());
+
+		ItemCardView card = page.getEntities().get(0);
+		assertEquals(150, card.getPrice());
+		assertEquals("seller1", card.getSellerUsername());
+		assertEquals("Sport", card.getCategoryLabel());
+		assertEquals(100, page.getEntities().get(1).getPrice());
+		assertEquals("1_1.jpg", page.getEntities().get(2).getImagePath());
+
+		testSupport.action("Searching the available items of a category among some");
+		page = assertDoesNotThrow(() -> auctionIndex.findCards(null, UserRole.BUYER, new Search().setOpenedBids(), sport, Arrays.asList(4L, 3L, 2L), null, 10));
+		assertEquals(Arrays.asList(2L, 4L), identifiersOf(page));
+
+		testSupport.action("Searching the current bids of a user");
+		page = assertDoesNotThrow(() -> auctionIndex.findCards(buyer, UserRole.BUYER, new Search().setMyCurrentBids(), null, null, null, 10));
+		assertEquals(Collections.singletonList(2L), identifiersOf(page));
+
+		testSupport.action("Searching the current and waiting sales of a seller");
+		page = assertDoesNotThrow(() -> auctionIndex.findCards(seller1, UserRole.SELLER, new Search().setMyCurrentSales().setMyWaitingSales(), null, null, null, 10));
+		assertEquals(Arrays.asList(2L, 1L, 5L), identifiersOf(page));
+	}
+
+	/**
+	 * Test the ability to read the items page after page.
+	 */
+
+	@Test void pages()
+	{
+		testSupport.enterFunction();
+
+		List<Long> found = new ArrayList<>();
+		String token = null;
+
+		testSupport.action("Reading the available items by two");
+
+		do
+		{
+			String current = token;
+			Page<ItemCardView> page = assertDoesNotThrow(() -> auctionIndex.findCards(null, UserRole.BUYER, new Search().setOpenedBids(), null, null, current, 2));
+
+			assertTrue(page.getEntities().size() <= 2);
+			found.addAll(identifiersOf(page));
+
+			token = page.getNextToken();
+		}
+		while (token != null);
+
+		assertEquals(Arrays.asList(2L, 3L, 1L, 4L), found);
+
+		testSupport.action("Reading a malformed token");
+		assertThrows(ModelException.class, () -> auctionIndex.findCards(null, UserRole.BUYER, new Search().setOpenedBids(), null, null, "@@@", 2));
+	}
+
+	/**
+	 * Test the ability to keep the index up to date.
+	 */
+
+	@Test void update()
+	{
+		testSupport.enterFunction();
+
+		Search opened = new Search().setOpenedBids();
+
+		testSupport.action("Making a bid");
+		auctionIndex.bid(3, buyer.getIdentifier(), 120);
+		Page<ItemCardView> page = assertDoesNotThrow(() -> auctionIndex.findCards(buyer, UserRole.BUYER, new Search().setMyCurrentBids(), null, null, null, 10));
+		assertEquals(Arrays.asList(2L, 3L), identifiersOf(page));
+		assertEquals(120, page.getEntities().get(1).getPrice());
+
+		testSupport.action("Activating and selling items");
+		auctionIndex.transition(Arrays.asList(5L, 1L), ItemState.WT, ItemState.AC, date(40));
+		auctionIndex.transition(Arrays.asList(2L, 3L), ItemState.AC, ItemState.SD, date(15));
+		assertEquals(Arrays.asList(3L, 1L, 4L, 5L), identifiersOf(assertDoesNotThrow(() -> auctionIndex.findCards(null, UserRole.BUYER, opened, null, null, null, 10))));
+
+		testSupport.action("Creating, updating and deleting items");
+		auctionIndex.add(item(7, ItemState.AC, 1, seller2, computer));
+		auctionIndex.update(item(3, ItemState.CA, 20, seller2, computer));
+		auctionIndex.update(item(4, ItemState.AC, 50, seller2, computer));
+		auctionIndex.remove(1);
+		assertEquals(Arrays.asList(7L, 5L, 4L), identifiersOf(assertDoesNotThrow(() -> auctionIndex.findCards(null, UserRole.BUYER, opened, computer, null, null, 10))));
+		assertEquals(Collections.emptyList(), identifiersOf(assertDoesNotThrow(() -> auctionIndex.findCards(null, UserRole.BUYER, opened, sport, null, null, 10))));
+	}
+
+	/**
+	 * Test the searches answered by the index.
+	 */
+
+	@Test void covers()
+	{
+		testSupport.enterFunction();
+
+		assertTrue(auctionIndex.covers(null, UserRole.BUYER, new Search().setOpenedBids()));
+		assertTrue(auctionIndex.covers(buyer, UserRole.BUYER, new Search().setOpenedBids().setMyCurrentBids()));
+		assertTrue(auctionIndex.covers(seller1, UserRole.SELLER, new Search().setMyCurrentSales().setMyWaitingSales()));
+
+		assertFalse(auctionIndex.covers(null, UserRole.BUYER, new Search().setMyCurrentBids()));
+		assertFalse(auctionIndex.covers(buyer, UserRole.BUYER, new Search().setOpenedBids().setMyWonBids()));
+		assertFalse(auctionIndex.covers(seller1, UserRole.SELLER, new Search().setMyCurrentSales().setMyEndedSales()));
+		assertFalse(auctionIndex.covers(seller1, UserRole.SELLER, new Search().setMyCanceledSales()));
+	}
+
+	/**
+	 * Test that the index is searched and changed while it is built again,
+	 * without losing the changes.
+	 */
+
+	@Test void rebuild()
+	{
+		testSupport.enterFunction();
+
+		Search opened = new Search().setOpenedBids();
+		List<Long> found = new ArrayList<>();
+
+		Iterator<Item> items = Stream.of(item(1, ItemState.AC, 30, seller1, sport), item(2, ItemState.AC, 10, seller1, sport)).peek(item ->
+		{
+			if (item.getIdentifier() != 1) return;
+
+			// The previous content is searched by another thread meanwhile.
+			Thread thread = new Thread(() -> found.addAll(identifiersOf(assertDoesNotThrow(() -> auctionIndex.findCards(null, UserRole.BUYER, opened, null, null, null, 10)))));
+			thread.start();
+			assertDoesNotThrow(() -> thread.join(1000));
+			assertFalse(thread.isAlive());
+
+			auctionIndex.bid(2, buyer.getIdentifier(), 150);
+			auctionIndex.add(item(7, ItemState.AC, 1, seller2, computer));
+			auctionIndex.remove(1);
+		}).iterator();
+
+		testSupport.action("Building the index while searching and changing it");
+		auctionIndex.rebuild(new AbstractCollection<Item>()
+		{
+			@Override public @NotNull Iterator<Item> iterator() { return items; }
+
+			@Override public int size() { return 2; }
+		}, new HashMap<>(), new HashMap<>(), new HashMap<>());
+
+		assertEquals(Arrays.asList(2L, 3L, 1L, 4L), found);
+
+		Page<ItemCardView> page = assertDoesNotThrow(() -> auctionIndex.findCards(null, UserRole.BUYER, opened, null, null, null, 10));
+		assertEquals(Arrays.asList(7L, 2L), identifiersOf(page));
+		assertEquals(150, page.getEntities().get(1).getPrice());
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Create an item that is not stored in the database.
+	 * <p>
+	 * Its bidding starts ten days before it ends, and its initial price is 100.
+	 *
+	 * @param identifier Identifier of the item.
+	 * @param state      State of the item.
+	 * @param end        Day on which the bidding ends.
+	 * @param seller     Seller of the item.
+	 * @param category   Category of the item.
+	 *
+	 * @return Item created.
+	 */
+
+	private Item item(long identifier, ItemState state, int end, User seller, Category category)
+	{
+		return new Item("Item " + identifier, "Description", date(end - 10), date(end), 100, state, seller, null, category).setIdentifier(identifier);
+	}
+
+	/**
+	 * Give a date of the test.
+	 *
+	 * @param day Number of days after the reference date.
+	 *
+	 * @return Date.
+	 */
+
+	private static Date date(int day)
+	{
+		return new Date(1_700_000_000_000L + day * 86_400_000L);
+	}
+
+	/**
+	 * Give the identifiers of the items of a page.
+	 *
+	 * @param page Page of item cards.
+	 *
+	 * @return Identifiers of the items, in the order of the page.
+	 */
+
+	private static List<Long> identifiersOf(Page<ItemCardView> page)
+	{
+		return page.getEntities().stream().map(ItemCardView::getIdentifier).collect(Collectors.toList());
+	}
+}
@@ -5,6 +5,8 @@ import fr.eikasus.objectsmyfriends.model.bo.Bid;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.dal.DAOFactory;
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
 import fr.eikasus.objectsmyfriends.model.misc.Search;
 import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
 import fr.eikasus.objectsmyfriends.model.misc.UserRole;
@@ -15,12 +17,9 @@ import org.junit.jupiter.api.*;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 @EnableAutoWeld
 @ActivateScopes({RequestScoped.class})
@@ -138,10 +137,215 @@ public class BidManagerTest
 		testSupport.displayTable(tableHeader, tableLines);
 	}
 
+	@Test void recordBid()
+	{
+		testSupport.enterFunction();
+
+		Item item = reload(searchItem());
+		int price = item.getCurrentPrice(), count = item.getBidCount();
+
+		testSupport.action("Recording a bid against a price which is no more the current one");
+		assertFalse(assertDoesNotThrow(() -> daoFactory.getItemDAO().recordBid(item, buyer1, 500, price + 1)));
+
+		// The item is unchanged.
+		Item unchanged = reload(item);
+		assertEquals(price, unchanged.getCurrentPrice());
+		assertEquals(count, unchanged.getBidCount());
+
+		testSupport.action("Recording a bid against the current price");
+		assertTrue(assertDoesNotThrow(() -> daoFactory.getItemDAO().recordBid(unchanged, buyer1, 500, price)));
+
+		// The bid is the best one of the item.
+		assertLeader(reload(unchanged), buyer1, 500, count + 1);
+	}
+
+	@Test void conflict()
+	{
+		testSupport.enterFunction();
+
+		Item item = reload(searchItem());
+		int count = item.getBidCount();
+
+		testSupport.action("Saving a bid made by another server on an item already read");
+		assertDoesNotThrow(() -> daoFactory.transaction(() ->
+		{
+			assertTrue(daoFactory.getItemDAO().recordBid(item, buyer2, 600, item.getCurrentPrice()));
+			managerFactory.getCreditManager().hold(buyer2, item, 600);
+			daoFactory.getBidDAO().save(new Bid(buyer2, item, new Date(), 600));
+		}));
+
+		testSupport.waitFor(500);
+
+		// The bid is checked against the new best bid, not the price of the item
+		// read before.
+		testSupport.action("Bidding under the bid of the other server");
+		ModelException me = assertThrows(ModelException.class, () -> bidManager.add(buyer1, item, 550));
+		assertTrue(me.hasError(ModelError.INVALID_BID_PRICE));
+
+		testSupport.action("Bidding over the bid of the other server");
+		assertDoesNotThrow(() -> bidManager.add(buyer1, item, 700));
+
+		assertLeader(reload(item), buyer1, 700, count + 2);
+	}
+
+	@Test void retry()
+	{
+		testSupport.enterFunction();
+
+		Item item = reload(searchItem());
+		int count = item.getBidCount();
+
+		// The current price of the item is changed without saving the bid, so it
+		// never matches the best bid, as if another server recorded a bid each
+		// time it is tried.
+		testSupport.action("Recording a bid without saving it");
+		assertTrue(assertDoesNotThrow(() -> daoFactory.getItemDAO().recordBid(item, buyer2, 600, item.getCurrentPrice())));
+
+		testSupport.action("Bidding while the best bid of the item keeps changing");
+		ModelException me = assertThrows(ModelException.class, () -> bidManager.add(buyer1, item, 700));
+		assertTrue(me.hasError(ModelError.BID_CONFLICT));
+
+		testSupport.action("Computing again the best bid of the item");
+		assertDoesNotThrow(() -> daoFactory.getItemDAO().recountBids(Collections.singletonList(item.getIdentifier())));
+
+		testSupport.action("Bidding again");
+		assertDoesNotThrow(() -> bidManager.add(buyer1, item, 700));
+
+		assertLeader(reload(item), buyer1, 700, count + 1);
+	}
+
+	@Test void leader()
+	{
+		testSupport.enterFunction();
+
+		Item item = reload(searchItem());
+		int count = item.getBidCount();
+
+		testSupport.action("Making a bid");
+		assertDoesNotThrow(() -> bidManager.add(buyer1, item, 500));
+
+		// The leader as read again for each request, the second time from memory.
+		testSupport.action("Reading again the leader");
+		assertDoesNotThrow(() -> managerFactory.getUserManager().refresh(buyer1.getIdentifier()));
+		User leader = assertDoesNotThrow(() -> managerFactory.getUserManager().refresh(buyer1.getIdentifier()));
+		assertNotSame(buyer1, leader);
+
+		testSupport.action("Bidding again on the item as its leader");
+		ModelException me = assertThrows(ModelException.class, () -> bidManager.add(leader, item, 600));
+		assertTrue(me.hasError(ModelError.INVALID_BID_USER));
+
+		assertLeader(reload(item), buyer1, 500, count + 1);
+	}
+
+	@Test void credit()
+	{
+		testSupport.enterFunction();
+
+		Item item = reload(searchItem());
+		int count = item.getBidCount();
+		int credit = assertDoesNotThrow(() -> managerFactory.getCreditManager().getBalance(buyer1));
+
+		// The credit kept in memory is not changed.
+		testSupport.action("Giving credit to the buyer from another server");
+		assertTrue(assertDoesNotThrow(() -> daoFactory.getCreditDAO().addCredit(buyer1, 200)));
+
+		testSupport.action("Bidding over the credit kept in memory");
+		assertDoesNotThrow(() -> bidManager.add(buyer1, item, credit + 100));
+
+		assertLeader(reload(item), buyer1, credit + 100, count + 1);
+	}
+
+	@Test void recountBids()
+	{
+		testSupport.enterFunction();
+
+		Item item = reload(searchItem());
+		int count = item.getBidCount();
+
+		testSupport.action("Making two bids");
+		assertDoesNotThrow(() -> bidManager.add(buyer1, item, 500));
+		testSupport.waitFor(500);
+		assertDoesNotThrow(() -> bidManager.add(buyer2, item, 600));
+
+		testSupport.action("Deleting the best bid without changing the item");
+		Bid best = assertDoesNotThrow(() -> daoFactory.getBidDAO().findBestBid(item));
+		assertNotNull(best);
+		assertDoesNotThrow(() -> daoFactory.getBidDAO().delete(best));
+		item.removeBid(best);
+
+		// The item still shows the deleted bid.
+		assertLeader(reload(item), buyer2, 600, count + 2);
+
+		testSupport.action("Computing again the best bid of the item");
+		assertDoesNotThrow(() -> daoFactory.getItemDAO().recountBids(Collections.singletonList(item.getIdentifier())));
+
+		assertLeader(reload(item), buyer1, 500, count + 1);
+	}
+
 	/* ************** */
 	/* Helper methods */
 	/* ************** */
 
+	/**
+	 * Search for the item to bid on.
+	 * <p>
+	 * This method searches for the buyers and the first item sold by the seller,
+	 * which has no bid.
+	 *
+	 * @return Item to bid on.
+	 */
+
+	@SuppressWarnings("unchecked")
+	private Item searchItem()
+	{
+		// Search for seller and its active items.
+		sellerData = testSupport.searchItem(managerFactory, UserRole.SELLER, "Fabien", "P@ssw0rd", new Search().setMyCurrentSales());
+
+		testSupport.action("Searching for the buyers");
+		assertDoesNotThrow(() -> buyer1 = managerFactory.getUserManager().find("Willy", null, "P@ssw0rd"));
+		assertDoesNotThrow(() -> buyer2 = managerFactory.getUserManager().find("AnneC", null, "P@ssw0rd"));
+
+		return ((List<Item>) sellerData.get("items")).get(0);
+	}
+
+	/**
+	 * Read an item again from the database.
+	 * <p>
+	 * The item is detached first, so that the changes made by requests are
+	 * read instead of the ones kept in memory.
+	 *
+	 * @param item Item to read.
+	 *
+	 * @return Item as saved in the database.
+	 */
+
+	private Item reload(Item item)
+	{
+		assertDoesNotThrow(() -> daoFactory.getItemDAO().detach(item));
+
+		Item found = assertDoesNotThrow(() -> daoFactory.getItemDAO().find(item.getIdentifier()));
+		assertNotNull(found);
+
+		return found;
+	}
+
+	/**
+	 * Check the best bid of an item.
+	 *
+	 * @param item   Item to check.
+	 * @param leader User expected to make the best bid.
+	 * @param price  Price expected.
+	 * @param count  Number of bids expected.
+	 */
+
+	private void assertLeader(Item item, User leader, int price, int count)
+	{
+		assertEquals(price, item.getCurrentPrice());
+		assertNotNull(item.getCurrentLeader());
+		assertEquals(leader.getIdentifier(), item.getCurrentLeader().getIdentifier());
+		assertEquals(count, item.getBidCount());
+	}
+
 	/**
 	 * Try to make a bid.
 	 * <p></p>
@@ -188,6 +392,10 @@ public class BidManagerTest
 
 			bidManager.add(user, item, myPrice);
 
+			// The item keeps its best bid.
+			assertEquals(myPrice, item.getCurrentPrice());
+			assertSame(user, item.getCurrentLeader());
+
 			// Retrieve the "new" state information.
 			afterBid = user.getCredit();
 			newOwner = user.getUsername();
@@ -0,0 +1,130 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.bll.interfaces.CreditManager;
+import fr.eikasus.objectsmyfriends.model.bo.CreditEntry;
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.dal.DAOFactory;
+import fr.eikasus.objectsmyfriends.model.misc.*;
+import org.jboss.weld.junit5.auto.ActivateScopes;
+import org.jboss.weld.junit5.auto.AddPackages;
+import org.jboss.weld.junit5.auto.EnableAutoWeld;
+import org.junit.jupiter.api.*;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the credit manager.
+ * <p>
+ * Each change of credit should be found in the ledger and in the credit of the
+ * user read again from the database.
+ */
+
+@EnableAutoWeld
+@ActivateScopes({RequestScoped.class})
+@AddPackages({ManagerFactory.class, DAOFactory.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CreditManagerTest
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<CreditEntry> testSupport;
+
+	// Injected DAO factory by weld junit extension.
+	@Inject private DAOFactory daoFactory;
+
+	// Injected manager factory by weld junit extension.
+	@Inject private ManagerFactory managerFactory;
+
+	private CreditManager creditManager;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper and CreditManager objects.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+
+		// Unique credit manager instance.
+		creditManager = managerFactory.getCreditManager();
+
+		// Clean the database.
+		afterEach();
+	}
+
+	/**
+	 * Populate database for each test.
+	 */
+
+	@BeforeEach void setUp()
+	{
+		testSupport.action("Populating the database");
+
+		testSupport.populateDatabase(daoFactory);
+	}
+
+	/**
+	 * Clear the database after each test.
+	 */
+
+	@AfterEach public void afterEach()
+	{
+		testSupport.action("Cleaning the database");
+
+		// Empty the database.
+		testSupport.clearDatabase(daoFactory);
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	@SuppressWarnings("unchecked")
+	@Test void all()
+	{
+		testSupport.enterFunction();
+
+		// Search for seller and its active items.
+		HashMap<String, Object> sellerData = testSupport.searchItem(managerFactory, UserRole.SELLER, "Fabien", "P@ssw0rd", new Search().setMyCurrentSales());
+		Item item = ((List<Item>) sellerData.get("items")).get(0);
+
+		testSupport.action("Searching for the buyer");
+		User buyer = assertDoesNotThrow(() -> managerFactory.getUserManager().find("Willy", null, "P@ssw0rd"));
+		int credit = assertDoesNotThrow(() -> creditManager.getBalance(buyer));
+
+		testSupport.action("Reserving credit");
+		assertDoesNotThrow(() -> creditManager.hold(buyer, item, 100));
+		assertEquals(credit - 100, buyer.getCredit());
+
+		testSupport.action("Reserving more credit than available");
+		ModelException exception = assertThrows(ModelException.class, () -> creditManager.hold(buyer, item, credit));
+		assertTrue(exception.hasError(ModelError.INVALID_USER_CREDITS));
+
+		testSupport.action("Giving back the credit");
+		assertDoesNotThrow(() -> creditManager.release(buyer, item, 100));
+		assertEquals(credit, assertDoesNotThrow(() -> creditManager.getBalance(buyer)));
+
+		testSupport.action("Reading the credit from the database");
+		assertEquals(credit, assertDoesNotThrow(() -> daoFactory.getCreditDAO().findCredit(buyer)));
+
+		testSupport.action("Reading the ledger");
+		List<CreditEntry> entries = assertDoesNotThrow(() -> daoFactory.getCreditDAO().findByProperty("user", buyer));
+		entries.forEach(System.out::println);
+		assertEquals(2, entries.size());
+		assertEquals(0, entries.stream().mapToInt(CreditEntry::getAmount).sum());
+	}
+}
@@ -2,6 +2,7 @@ package fr.eikasus.objectsmyfriends.model.bll;
 
 import fr.eikasus.objectsmyfriends.model.bll.interfaces.ImageManager;
 import fr.eikasus.objectsmyfriends.model.bo.Bid;
+import fr.eikasus.objectsmyfriends.model.bo.Image;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
 import fr.eikasus.objectsmyfriends.model.dal.DAOFactory;
 import fr.eikasus.objectsmyfriends.model.misc.Search;
@@ -14,10 +15,10 @@ import org.junit.jupiter.api.*;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.*;
 
 @EnableAutoWeld
 @ActivateScopes({RequestScoped.class})
@@ -111,4 +112,67 @@ public class ImageManagerTest
 		testSupport.action(String.format("Displaying all images of item <<%s>>", item.getName()));
 		item.getImages().forEach(System.out::println);
 	}
+
+	/**
+	 * Test that the image paths of several items are read at once.
+	 */
+
+	@SuppressWarnings("unchecked")
+	@Test void paths()
+	{
+		testSupport.enterFunction();
+
+		// Search for seller and its active items.
+		HashMap<String, Object> sellerData = testSupport.searchItem(managerFactory, UserRole.SELLER, "Fabien", "P@ssw0rd", new Search().setMyCurrentSales());
+
+		List<Item> items = (List<Item>) sellerData.get("items");
+		Item first = items.get(0);
+
+		testSupport.action(String.format("Adding images to item <<%s>>", first.getName()));
+		assertDoesNotThrow(() -> imageManager.add(first, "image1.jpg"));
+		assertDoesNotThrow(() -> imageManager.add(first, "image2.jpg"));
+
+		testSupport.action("Reading the image paths of the items");
+		List<Long> identifiers = items.stream().map(Item::getIdentifier).collect(Collectors.toList());
+		identifiers.add(0L);
+
+		Map<Long, List<String>> paths = assertDoesNotThrow(() -> imageManager.findPaths(identifiers));
+		paths.forEach((identifier, list) -> System.out.println(identifier + " " + list));
+
+		assertTrue(paths.get(first.getIdentifier()).containsAll(Arrays.asList("image1.jpg", "image2.jpg")));
+		assertFalse(paths.containsKey(0L));
+		items.forEach(item -> assertEquals(item.getImages().size(), paths.getOrDefault(item.getIdentifier(), Collections.emptyList()).size()));
+
+		testSupport.action("Reading the image paths of no item");
+		assertTrue(assertDoesNotThrow(() -> imageManager.findPaths(Collections.emptyList())).isEmpty());
+	}
+
+	/**
+	 * Test that the images sharing a file are counted.
+	 */
+
+	@SuppressWarnings("unchecked")
+	@Test void references()
+	{
+		testSupport.enterFunction();
+
+		// Search for seller and its active items.
+		HashMap<String, Object> sellerData = testSupport.searchItem(managerFactory, UserRole.SELLER, "Fabien", "P@ssw0rd", new Search().setMyCurrentSales());
+
+		List<Item> items = (List<Item>) sellerData.get("items");
+
+		testSupport.action("Adding the same image twice");
+		assertDoesNotThrow(() -> imageManager.add(items.get(0), "shared.jpg"));
+		assertDoesNotThrow(() -> imageManager.add(items.get(items.size() - 1), "shared.jpg"));
+
+		Map<String, Long> references = assertDoesNotThrow(() -> imageManager.countReferences(Arrays.asList("shared.jpg", "unknown.jpg")));
+		assertEquals(2L, references.get("shared.jpg"));
+		assertFalse(references.containsKey("unknown.jpg"));
+
+		testSupport.action("Deleting one of the images");
+		Image image = items.get(0).getImages().stream().filter(i -> i.getPath().equals("shared.jpg")).findFirst().orElseThrow(IllegalStateException::new);
+		assertDoesNotThrow(() -> imageManager.delete(image));
+
+		assertEquals(1L, assertDoesNotThrow(() -> imageManager.countReferences(Collections.singletonList("shared.jpg"))).get("shared.jpg"));
+	}
 }
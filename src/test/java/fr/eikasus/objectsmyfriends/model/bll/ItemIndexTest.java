@@ -0,0 +1,161 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.bo.Bid;
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * This class is used to test functionalities of the item index.
+ * <p>
+ * The index is filled with items that are not stored in the database, so these
+ * tests don't need it.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItemIndexTest
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<Bid> testSupport;
+
+	// Index tested.
+	private ItemIndex itemIndex;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+	}
+
+	/**
+	 * Fill the index for each test.
+	 */
+
+	@BeforeEach public void setUp()
+	{
+		testSupport.action("Building the index");
+
+		itemIndex = new ItemIndex();
+
+		itemIndex.rebuild(Stream.of(
+				item(1, "Vélo de course", "Cadre carbone"),
+				item(2, "Veste", "Veste de vélo en cuir"),
+				item(3, "Casque", "Casque pour le vélo"),
+				item(4, "Ordinateur portable", "Ecran abimé")));
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test the ability to find items by word prefixes, sorted by relevance.
+	 */
+
+	@Test void search()
+	{
+		testSupport.enterFunction();
+
+		testSupport.action("Searching a whole word without accent");
+		assertEquals(Arrays.asList(1L, 2L, 3L), assertDoesNotThrow(() -> itemIndex.search("velo")));
+
+		testSupport.action("Searching a prefix");
+		assertEquals(Arrays.asList(2L, 1L, 3L), assertDoesNotThrow(() -> itemIndex.search("ve")));
+
+		testSupport.action("Searching several keywords");
+		assertEquals(Arrays.asList(3L, 1L, 2L), assertDoesNotThrow(() -> itemIndex.search("VÉLO casque")));
+
+		testSupport.action("Searching an unknown word");
+		assertEquals(Collections.emptyList(), assertDoesNotThrow(() -> itemIndex.search("guitare")));
+	}
+
+	/**
+	 * Test the ability to keep the index up to date.
+	 */
+
+	@Test void update()
+	{
+		testSupport.enterFunction();
+
+		testSupport.action("Renaming an item");
+		itemIndex.add(item(4, "Guitare", "Guitare électrique"));
+		assertEquals(Collections.singletonList(4L), assertDoesNotThrow(() -> itemIndex.search("guitare")));
+		assertEquals(Collections.emptyList(), assertDoesNotThrow(() -> itemIndex.search("ordinateur")));
+
+		testSupport.action("Removing an item");
+		itemIndex.remove(1);
+		assertEquals(Arrays.asList(2L, 3L), assertDoesNotThrow(() -> itemIndex.search("velo")));
+	}
+
+	/**
+	 * Test that the index is searched and changed while it is built again,
+	 * without losing the changes.
+	 */
+
+	@Test void rebuild()
+	{
+		testSupport.enterFunction();
+
+		List<Long> found = new ArrayList<>();
+
+		testSupport.action("Building the index while searching and changing it");
+		itemIndex.rebuild(Stream.of(item(1, "Vélo de course", "Cadre carbone"), item(2, "Veste", "Veste de vélo en cuir")).peek(item ->
+		{
+			if (item.getIdentifier() != 1) return;
+
+			// The previous content is searched by another thread meanwhile.
+			Thread thread = new Thread(() -> found.addAll(assertDoesNotThrow(() -> itemIndex.search("casque"))));
+			thread.start();
+			assertDoesNotThrow(() -> thread.join(1000));
+			assertFalse(thread.isAlive());
+
+			itemIndex.add(item(5, "Guitare", "Guitare électrique"));
+			itemIndex.remove(2);
+		}));
+
+		assertEquals(Collections.singletonList(3L), found);
+		assertEquals(Collections.singletonList(1L), assertDoesNotThrow(() -> itemIndex.search("velo")));
+		assertEquals(Collections.singletonList(5L), assertDoesNotThrow(() -> itemIndex.search("guitare")));
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Create an item that is not stored in the database.
+	 *
+	 * @param identifier  Identifier of the item.
+	 * @param name        Name of the item.
+	 * @param description Description of the item.
+	 *
+	 * @return Item created.
+	 */
+
+	private Item item(long identifier, String name, String description)
+	{
+		return new Item(name, description, null, null, 0, null, null, null, null).setIdentifier(identifier);
+	}
+}
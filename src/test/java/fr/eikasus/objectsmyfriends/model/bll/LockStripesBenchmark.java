@@ -0,0 +1,157 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.misc.LockStatistics;
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class is used to measure the throughput of bids made at the same time.
+ * <p>
+ * Several threads make bids on random items, each bid holding the lock of its
+ * item during database round trips, simulated by waiting. Bids are made with a
+ * single global lock, as it was done before, then with the striped locks of
+ * the bid manager. The throughput and the contention of the locks are shown
+ * for both. This class is not run with the other tests, use
+ * "mvn test -Dtest=LockStripesBenchmark" to run it.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LockStripesBenchmark
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Number of threads making bids.
+	private static final int THREADS = 16;
+
+	// Number of bids made by each thread.
+	private static final int BIDS = 200;
+
+	// Number of items on which bids are made.
+	private static final int ITEMS = 200;
+
+	// Number of database round trips made while an item is locked.
+	private static final int ROUND_TRIPS = 3;
+
+	// Duration of a database round trip, in microseconds.
+	private static final long ROUND_TRIP_TIME = 500;
+
+	// Number of locks used by the bid manager.
+	private static final int STRIPES = 64;
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<Object> testSupport;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Compare the throughput of bids with a global lock and with striped locks.
+	 */
+
+	@Test void throughput()
+	{
+		testSupport.enterFunction();
+
+		List<List<String>> lines = new ArrayList<>();
+
+		testSupport.action("Making bids with a global lock");
+		double global = run(new LockStripes(1), lines, "global lock");
+
+		testSupport.action("Making bids with striped locks");
+		double striped = run(new LockStripes(STRIPES), lines, String.format("%d striped locks", STRIPES));
+
+		testSupport.displayTable(Arrays.asList("Locks", "Bids per second", "Contended", "Total wait (ms)", "Maximum wait (ms)"), lines);
+
+		assertTrue(striped > global);
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Make all the bids and measure the throughput.
+	 *
+	 * @param locks Locks of the items.
+	 * @param lines Lines of the result table to complete.
+	 * @param label Label of the locks.
+	 *
+	 * @return Number of bids per second.
+	 */
+
+	private double run(@NotNull LockStripes locks, @NotNull List<List<String>> lines, String label)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+
+		long start = System.nanoTime();
+
+		for (int thread = 0; thread < THREADS; thread++)
+		{
+			Random random = new Random(thread);
+
+			futures.add(executor.submit(() ->
+			{
+				for (int bid = 0; bid < BIDS; bid++)
+				{
+					long item = random.nextInt(ITEMS);
+
+					locks.lock(item);
+
+					try
+					{
+						for (int trip = 0; trip < ROUND_TRIPS; trip++) LockSupport.parkNanos(ROUND_TRIP_TIME * 1000);
+					}
+					finally
+					{
+						locks.unlock(item);
+					}
+				}
+			}));
+		}
+
+		for (Future<?> future : futures) assertDoesNotThrow(() -> future.get());
+
+		executor.shutdown();
+
+		double throughput = (THREADS * BIDS) / ((System.nanoTime() - start) / 1e9);
+
+		LockStatistics statistics = locks.getStatistics();
+
+		lines.add(Arrays.asList(label, String.format("%.0f", throughput), String.format("%.1f %%", statistics.getContentionRate() * 100), Long.toString(statistics.getTotalWaitTime()), Long.toString(statistics.getMaximumWaitTime())));
+
+		return throughput;
+	}
+}
@@ -0,0 +1,209 @@
+package fr.eikasus.objectsmyfriends.model.bll;
+
+import fr.eikasus.objectsmyfriends.model.bo.User;
+import fr.eikasus.objectsmyfriends.model.misc.HashingStatistics;
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.junit.jupiter.api.*;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the password hasher.
+ * <p>
+ * Passwords are hashed and checked without accessing the database, so these
+ * tests don't need it.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PasswordHasherTest
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<User> testSupport;
+
+	// Hasher tested.
+	private PasswordHasher passwordHasher;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+	}
+
+	/**
+	 * Start a hasher for each test.
+	 */
+
+	@BeforeEach public void setUp()
+	{
+		passwordHasher = new PasswordHasher();
+		passwordHasher.initialize();
+	}
+
+	/**
+	 * Stop the hasher after each test.
+	 */
+
+	@AfterEach public void afterEach()
+	{
+		passwordHasher.shutdown();
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test that a password hashed apart is the same as one hashed at once.
+	 */
+
+	@Test void hash()
+	{
+		testSupport.enterFunction();
+
+		User user = new User().setPlainPassword("P@ssw0rd");
+
+		testSupport.action("Hashing a password apart");
+		CompletableFuture<User> future = assertDoesNotThrow(() -> passwordHasher.submit(() ->
+		{
+			user.hashPassword();
+
+			return user;
+		}));
+		assertSame(user, assertDoesNotThrow(() -> PasswordHasher.await(future)));
+
+		testSupport.action("Checking the password at once");
+		assertTrue(assertDoesNotThrow(() -> user.checkPassword("P@ssw0rd")));
+		assertFalse(assertDoesNotThrow(() -> user.checkPassword("P@ssw0rD")));
+
+		assertEquals(1, passwordHasher.getStatistics().getHashes());
+	}
+
+	/**
+	 * Test that passwords hashed with older parameters are found stale.
+	 */
+
+	@Test void upgrade()
+	{
+		testSupport.enterFunction();
+
+		int iterations = passwordHasher.getIterations();
+
+		testSupport.action("Calibrating the hashing");
+		testSupport.displayTable(Arrays.asList("Least iterations", "Calibrated iterations"), Collections.singletonList(Arrays.asList(Integer.toString(User.HASH_ITERATIONS), Integer.toString(iterations))));
+		assertTrue(iterations >= User.HASH_ITERATIONS);
+
+		testSupport.action("Checking a password stored without its parameters");
+		User legacy = new User().setSalt(new byte[User.MAX_LENGTH_SALT]);
+		legacy.setPassword(assertDoesNotThrow(() -> SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1").generateSecret(new PBEKeySpec("P@ssw0rd".toCharArray(), legacy.getSalt(), 65536, 128)).getEncoded()));
+		assertTrue(assertDoesNotThrow(() -> legacy.checkPassword("P@ssw0rd")));
+		assertFalse(assertDoesNotThrow(() -> legacy.checkPassword("P@ssw0rD")));
+		assertTrue(legacy.isPasswordStale(User.HASH_ITERATIONS));
+
+		testSupport.action("Checking a password stored without its parameters that looks like it has some");
+		legacy.setPassword(new byte[]{2, 0x7f, -1, -1, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+		assertFalse(assertDoesNotThrow(() -> legacy.checkPassword("P@ssw0rd")));
+		assertTrue(legacy.isPasswordStale(iterations));
+
+		testSupport.action("Checking a password stored with its parameters but not its whole hash");
+		legacy.setPassword(new byte[]{2, 0, 1, 0, 0, 0});
+		ModelException exception = assertThrows(ModelException.class, () -> legacy.checkPassword("P@ssw0rd"));
+		assertTrue(exception.hasError(ModelError.UNABLE_TO_HASH_USER_PASSWORD));
+
+		testSupport.action("Checking a password stored with its parameters");
+		User user = new User().setPlainPassword("P@ssw0rd");
+		assertDoesNotThrow(() -> user.hashPassword(iterations));
+		assertTrue(assertDoesNotThrow(() -> user.checkPassword("P@ssw0rd")));
+		assertFalse(user.isPasswordStale(iterations));
+		assertTrue(user.isPasswordStale(iterations + 1));
+	}
+
+	/**
+	 * Test that the exception of a work is given back.
+	 */
+
+	@Test void failure()
+	{
+		testSupport.enterFunction();
+
+		CompletableFuture<User> future = assertDoesNotThrow(() -> passwordHasher.submit(() ->
+		{
+			throw new ModelException(null, ModelError.UNABLE_TO_HASH_USER_PASSWORD);
+		}));
+
+		ModelException exception = assertThrows(ModelException.class, () -> PasswordHasher.await(future));
+		assertTrue(exception.hasError(ModelError.UNABLE_TO_HASH_USER_PASSWORD));
+	}
+
+	/**
+	 * Test that requests are rejected at once when too many are waiting.
+	 */
+
+	@Test void busy()
+	{
+		testSupport.enterFunction();
+
+		CountDownLatch latch = new CountDownLatch(1);
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+		ModelException exception = null;
+
+		testSupport.action("Filling the threads and the queue");
+
+		while (exception == null)
+		{
+			try
+			{
+				futures.add(passwordHasher.submit(() ->
+				{
+					try
+					{
+						latch.await();
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+
+					return true;
+				}));
+			}
+			catch (ModelException me)
+			{
+				exception = me;
+			}
+		}
+
+		HashingStatistics statistics = passwordHasher.getStatistics();
+		testSupport.displayTable(Arrays.asList("Threads", "Queued", "Rejected", "Retry delay (s)"), Arrays.asList(Arrays.asList(Integer.toString(statistics.getThreads()), Integer.toString(statistics.getQueued()), Long.toString(statistics.getRejected()), Integer.toString(statistics.getRetryDelay()))));
+
+		assertTrue(exception.hasError(ModelError.PASSWORD_HASHER_BUSY));
+		assertEquals(1, statistics.getRejected());
+		assertTrue(statistics.getRetryDelay() >= 1);
+
+		testSupport.action("Releasing the threads");
+		latch.countDown();
+		futures.forEach(future -> assertTrue(assertDoesNotThrow(() -> PasswordHasher.await(future))));
+	}
+}
@@ -16,6 +16,7 @@ import javax.inject.Inject;
 import java.util.HashMap;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -172,11 +173,18 @@ class UserManagerTest
 		testSupport.action("Trying to updating a user with good data");
 		/* --------------------------------------------------------- */
 
+		assertEquals("second", assertDoesNotThrow(() -> userManager.refresh(user.getIdentifier())).getFirstName());
+
 		properties.clear();
 		properties.put("firstName", "SECOND");
 		assertDoesNotThrow(() -> userManager.update(user, properties));
 		System.out.println(user.toString());
 
+		testSupport.action("Reading the updated user again");
+		/* ------------------------------------------------ */
+
+		assertEquals("SECOND", assertDoesNotThrow(() -> userManager.refresh(user.getIdentifier())).getFirstName());
+
 		testSupport.action("Trying to delete the user");
 		/* ------------------------------------------ */
 
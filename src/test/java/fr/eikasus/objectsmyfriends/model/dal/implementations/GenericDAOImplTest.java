@@ -0,0 +1,292 @@
+package fr.eikasus.objectsmyfriends.model.dal.implementations;
+
+import fr.eikasus.objectsmyfriends.model.dal.DAOFactory;
+import fr.eikasus.objectsmyfriends.model.misc.ModelError;
+import fr.eikasus.objectsmyfriends.model.misc.ModelException;
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.junit.jupiter.api.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.PersistenceException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the retries of the actions of the data access
+ * objects.
+ * <p>
+ * The entity manager is simulated and the actions fail as the database would,
+ * so these tests don't need it.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class GenericDAOImplTest
+{
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<Object> testSupport;
+
+	// Data access object tested.
+	private GenericDAOImpl<Object, Long> dao;
+
+	// Factory whose units of work are tested.
+	private DAOFactory daoFactory;
+
+	// Whether the transaction of the entity manager is started.
+	private final boolean[] active = {false};
+
+	// Number of transactions committed and rolled back, and of persistence
+	// contexts cleared.
+	private int commits, rollbacks, clears;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper, the data access object and the factory.
+	 */
+
+	@BeforeAll public void beforeAll() throws ReflectiveOperationException
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+
+		EntityTransaction transaction = (EntityTransaction) Proxy.newProxyInstance(EntityTransaction.class.getClassLoader(), new Class<?>[]{EntityTransaction.class}, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "begin": active[0] = true; return null;
+				case "commit": active[0] = false; commits++; return null;
+				case "rollback": active[0] = false; rollbacks++; return null;
+				case "isActive": return active[0];
+				default: return null;
+			}
+		});
+
+		EntityManager entityManager = (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(), new Class<?>[]{EntityManager.class}, (proxy, method, args) ->
+		{
+			if ("clear".equals(method.getName())) clears++;
+
+			return ("getTransaction".equals(method.getName())) ? (transaction) : (null);
+		});
+
+		dao = new GenericDAOImpl<Object, Long>(Object.class) { };
+		dao.entityManager = entityManager;
+
+		// The factory is not injected, so is its entity manager.
+		daoFactory = new DAOFactory();
+		Field field = DAOFactory.class.getDeclaredField("entityManager");
+		field.setAccessible(true);
+		field.set(daoFactory, entityManager);
+	}
+
+	/**
+	 * Reset the transaction for each test.
+	 */
+
+	@BeforeEach public void setUp()
+	{
+		active[0] = false;
+		commits = rollbacks = clears = 0;
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test that an action failed by a deadlock is done again.
+	 */
+
+	@Test void retry()
+	{
+		testSupport.enterFunction();
+
+		long retries = retriesOf(ModelError.UNABLE_TO_UPDATE_ENTITY);
+		int[] calls = {0};
+
+		testSupport.action("Doing an action failed twice by a deadlock");
+		assertDoesNotThrow(() -> dao.execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () ->
+		{
+			if (++calls[0] <= 2) throw busy(1213, "40001");
+		}));
+
+		assertEquals(3, calls[0]);
+		assertEquals(1, commits);
+		assertEquals(2, rollbacks);
+		assertEquals(retries + 2, retriesOf(ModelError.UNABLE_TO_UPDATE_ENTITY));
+	}
+
+	/**
+	 * Test that an action is given up with its own error when the database stays
+	 * busy.
+	 */
+
+	@Test void giveUp()
+	{
+		testSupport.enterFunction();
+
+		int[] calls = {0};
+
+		testSupport.action("Doing an action always failed by a lock wait timeout");
+		ModelException exception = assertThrows(ModelException.class, () -> dao.execute(true, ModelError.UNABLE_TO_DELETE_ENTITY, () ->
+		{
+			calls[0]++;
+
+			throw busy(1205, "HY000");
+		}));
+
+		assertEquals(4, calls[0]);
+		assertTrue(exception.hasError(ModelError.UNABLE_TO_DELETE_ENTITY));
+		assertTrue(exception.hasError(ModelError.DATABASE_BUSY));
+		assertTrue(GenericDAOImpl.getRetryStatistics().getAbandons().get(ModelError.UNABLE_TO_DELETE_ENTITY) >= 1);
+	}
+
+	/**
+	 * Test that the actions that can't be done again are done once.
+	 */
+
+	@Test void once()
+	{
+		testSupport.enterFunction();
+
+		int[] calls = {0};
+
+		testSupport.action("Doing an action failed for another reason");
+		ModelException exception = assertThrows(ModelException.class, () -> dao.execute(true, ModelError.UNABLE_TO_CREATE_ENTITY, () ->
+		{
+			calls[0]++;
+
+			throw new PersistenceException(new SQLException("Duplicate entry", "23000", 1062));
+		}));
+
+		assertEquals(1, calls[0]);
+		assertFalse(exception.hasError(ModelError.DATABASE_BUSY));
+
+		testSupport.action("Doing an action changing the entities");
+		exception = assertThrows(ModelException.class, () -> dao.executeOnce(true, ModelError.UNABLE_TO_CREATE_ENTITY, () ->
+		{
+			calls[0]++;
+
+			throw busy(1213, "40001");
+		}));
+
+		assertEquals(2, calls[0]);
+		assertTrue(exception.hasError(ModelError.DATABASE_BUSY));
+
+		testSupport.action("Doing an action inside a unit of work");
+		active[0] = true;
+		rollbacks = 0;
+		exception = assertThrows(ModelException.class, () -> dao.execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () ->
+		{
+			calls[0]++;
+
+			throw busy(1213, "40001");
+		}));
+
+		assertEquals(3, calls[0]);
+		assertTrue(exception.hasError(ModelError.DATABASE_BUSY));
+		assertEquals(0, rollbacks);
+	}
+
+	/**
+	 * Test that a unit of work failed by a deadlock is done again from its
+	 * beginning.
+	 */
+
+	@Test void unitOfWork()
+	{
+		testSupport.enterFunction();
+
+		long retries = retriesOf(ModelError.UNABLE_TO_COMPLETE_TRANSACTION);
+		int[] calls = {0}, saved = {0};
+
+		testSupport.action("Doing a unit of work failed twice by a deadlock");
+		assertDoesNotThrow(() -> daoFactory.transaction(() ->
+		{
+			calls[0]++;
+
+			// An action of the unit of work gives up at once.
+			dao.execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () ->
+			{
+				if (calls[0] <= 2) throw busy(1213, "40001");
+			});
+
+			daoFactory.afterCommit(() -> saved[0]++);
+		}));
+
+		assertEquals(3, calls[0]);
+		assertEquals(1, saved[0]);
+		assertEquals(1, commits);
+		assertEquals(2, rollbacks);
+		assertEquals(2, clears);
+		assertEquals(retries + 2, retriesOf(ModelError.UNABLE_TO_COMPLETE_TRANSACTION));
+
+		testSupport.action("Doing a unit of work always failed by a lock wait timeout");
+		ModelException exception = assertThrows(ModelException.class, () -> daoFactory.transaction(() ->
+		{
+			calls[0]++;
+
+			daoFactory.afterCommit(() -> saved[0]++);
+
+			dao.execute(true, ModelError.UNABLE_TO_UPDATE_ENTITY, () -> { throw busy(1205, "HY000"); });
+		}));
+
+		assertEquals(7, calls[0]);
+		assertEquals(1, saved[0]);
+		assertTrue(exception.hasError(ModelError.UNABLE_TO_UPDATE_ENTITY));
+		assertTrue(exception.hasError(ModelError.DATABASE_BUSY));
+		assertTrue(GenericDAOImpl.getRetryStatistics().getAbandons().get(ModelError.UNABLE_TO_COMPLETE_TRANSACTION) >= 1);
+
+		testSupport.action("Doing a unit of work failed for another reason");
+		exception = assertThrows(ModelException.class, () -> daoFactory.transaction(() ->
+		{
+			calls[0]++;
+
+			throw new ModelException(null, ModelError.BID_CONFLICT);
+		}));
+
+		assertEquals(8, calls[0]);
+		assertTrue(exception.hasError(ModelError.BID_CONFLICT));
+		assertFalse(exception.hasError(ModelError.DATABASE_BUSY));
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Make the exception thrown by the database when it is busy.
+	 *
+	 * @param errorCode MySQL error.
+	 * @param sqlState  SQL state.
+	 *
+	 * @return Exception.
+	 */
+
+	private static PersistenceException busy(int errorCode, String sqlState)
+	{
+		return new PersistenceException(new SQLException("Busy", sqlState, errorCode));
+	}
+
+	/**
+	 * Give the number of retries of a kind of action.
+	 *
+	 * @param errorCode Error of the action.
+	 *
+	 * @return Number of retries.
+	 */
+
+	private static long retriesOf(ModelError errorCode)
+	{
+		return GenericDAOImpl.getRetryStatistics().getRetries().getOrDefault(errorCode, 0L);
+	}
+}
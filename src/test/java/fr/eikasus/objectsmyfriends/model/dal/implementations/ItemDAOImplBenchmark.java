@@ -0,0 +1,208 @@
+package fr.eikasus.objectsmyfriends.model.dal.implementations;
+
+import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.dal.DAOFactory;
+import fr.eikasus.objectsmyfriends.model.dal.interfaces.ItemDAO;
+import fr.eikasus.objectsmyfriends.model.dal.misc.EntityManagerRequestScoped;
+import fr.eikasus.objectsmyfriends.model.misc.Search;
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import fr.eikasus.objectsmyfriends.model.misc.UserRole;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jboss.weld.junit5.auto.ActivateScopes;
+import org.jboss.weld.junit5.auto.AddPackages;
+import org.jboss.weld.junit5.auto.EnableAutoWeld;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class is used to measure the query plan reuse of the item searches.
+ * <p>
+ * The same mix of keyword searches is run with keywords written in the request,
+ * as it was done before, then with keywords bound as parameters by the item
+ * data access object. The query plan cache statistics of Hibernate are shown
+ * for both. This class is not run with the other tests, use
+ * "mvn test -Dtest=ItemDAOImplBenchmark" to run it.
+ */
+
+@EnableAutoWeld
+@ActivateScopes({RequestScoped.class})
+@AddPackages({DAOFactory.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItemDAOImplBenchmark
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// Number of searches done.
+	private static final int SEARCHES = 5000;
+
+	// Words searched that no item contains.
+	private static final String[] UNKNOWN_WORDS = {"lampe", "velo", "guitare", "montre", "tapis", "cadre", "vase", "disque", "radio", "casque"};
+
+	// Request used before, keywords being added to it.
+	private static final String JPQL_SELECT1 = "SELECT i FROM Item i WHERE ((i.state = 'AC'))";
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<Item> testSupport;
+
+	// Injected DAO factory by weld junit extension.
+	@Inject private DAOFactory daoFactory;
+
+	// Entity manager used by the data access objects.
+	@Inject @EntityManagerRequestScoped private EntityManager entityManager;
+
+	// DAO object for accessing database.
+	private ItemDAO itemDAO;
+
+	// Keywords of each search.
+	private final List<String> searches = new ArrayList<>();
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Populate the database and create the searches.
+	 */
+
+	@BeforeAll public void beforeAll()
+	{
+		List<String> words = new ArrayList<>();
+		Random random = new Random(42);
+
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+
+		// Retrieve DAO object.
+		itemDAO = daoFactory.getItemDAO();
+
+		testSupport.action("Populating the database");
+		testSupport.clearDatabase(daoFactory);
+		testSupport.populateDatabase(daoFactory);
+
+		// Words searched are those of the item names, plus some unknown ones.
+		for (Item item : assertDoesNotThrow(() -> itemDAO.find()))
+			for (String word : item.getName().toLowerCase().split("[^\\p{L}0-9]+")) if (!word.isEmpty()) words.add(word);
+		words.addAll(Arrays.asList(UNKNOWN_WORDS));
+
+		// Some words are searched much more often than others, and a search has one to four words.
+		for (int index = 0; index < SEARCHES; index++)
+		{
+			StringJoiner keywords = new StringJoiner(" ");
+
+			for (int count = 1 + random.nextInt(4); count != 0; count--)
+				keywords.add(words.get((int) (words.size() * Math.pow(random.nextDouble(), 3))));
+
+			searches.add(keywords.toString());
+		}
+	}
+
+	/**
+	 * Clear the database after the benchmark.
+	 */
+
+	@AfterAll public void afterAll()
+	{
+		testSupport.action("Cleaning the database");
+
+		testSupport.clearDatabase(daoFactory);
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Compare the query plan cache misses of both ways of searching keywords.
+	 */
+
+	@Test void planCacheMisses()
+	{
+		testSupport.enterFunction();
+
+		Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		List<List<String>> lines = new ArrayList<>();
+
+		statistics.setStatisticsEnabled(true);
+
+		testSupport.action("Searching with keywords in the request");
+		long literalMisses = run(statistics, lines, "keywords in request", keywords -> entityManager.createQuery(JPQL_SELECT1 + literalKeywords(keywords), Item.class).getResultList());
+
+		testSupport.action("Searching with keywords as parameters");
+		long parameterMisses = run(statistics, lines, "keywords as parameters", keywords -> itemDAO.findByCriteria(null, UserRole.BUYER, new Search().setOpenedBids(), null, keywords));
+
+		testSupport.displayTable(Arrays.asList("Searches", "Plan cache misses", "Plan cache hits", "Time (ms)"), lines);
+
+		assertTrue(parameterMisses < literalMisses);
+	}
+
+	/* ************** */
+	/* Helper methods */
+	/* ************** */
+
+	/**
+	 * Search action used by the benchmark.
+	 */
+
+	private interface SearchAction
+	{
+		void execute(String keywords) throws Exception;
+	}
+
+	/**
+	 * Run all the searches and measure the query plan cache use.
+	 *
+	 * @param statistics Hibernate statistics.
+	 * @param lines      Lines of the result table to complete.
+	 * @param label      Label of the searches.
+	 * @param action     Search to perform with the keywords.
+	 *
+	 * @return Number of query plan cache misses.
+	 */
+
+	private long run(@NotNull Statistics statistics, @NotNull List<List<String>> lines, String label, SearchAction action)
+	{
+		statistics.clear();
+
+		long start = System.nanoTime();
+
+		for (String keywords : searches) assertDoesNotThrow(() -> action.execute(keywords));
+
+		long time = (System.nanoTime() - start) / 1000000;
+
+		lines.add(Arrays.asList(label, Long.toString(statistics.getQueryPlanCacheMissCount()), Long.toString(statistics.getQueryPlanCacheHitCount()), Long.toString(time)));
+
+		return statistics.getQueryPlanCacheMissCount();
+	}
+
+	/**
+	 * Add keywords to a request the way it was done before.
+	 *
+	 * @param keywords Keywords to add.
+	 *
+	 * @return String to add to the request.
+	 */
+
+	private @NotNull String literalKeywords(@NotNull String keywords)
+	{
+		StringJoiner sj = new StringJoiner(" OR ", " AND (", ")");
+
+		for (String keyword : keywords.split(" ")) sj.add("(i.name LIKE '%" + keyword + "%')");
+
+		return sj.toString();
+	}
+}
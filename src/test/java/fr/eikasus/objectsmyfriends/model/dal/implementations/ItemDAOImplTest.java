@@ -3,13 +3,16 @@ package fr.eikasus.objectsmyfriends.model.dal.implementations;
 import fr.eikasus.objectsmyfriends.model.bo.Bid;
 import fr.eikasus.objectsmyfriends.model.bo.Category;
 import fr.eikasus.objectsmyfriends.model.bo.Item;
+import fr.eikasus.objectsmyfriends.model.bo.ItemCardView;
 import fr.eikasus.objectsmyfriends.model.bo.User;
 import fr.eikasus.objectsmyfriends.model.dal.DAOFactory;
 import fr.eikasus.objectsmyfriends.model.dal.interfaces.BidDAO;
 import fr.eikasus.objectsmyfriends.model.dal.interfaces.CategoryDAO;
 import fr.eikasus.objectsmyfriends.model.dal.interfaces.ItemDAO;
 import fr.eikasus.objectsmyfriends.model.dal.interfaces.UserDAO;
+import fr.eikasus.objectsmyfriends.model.dal.misc.EntityManagerRequestScoped;
 import fr.eikasus.objectsmyfriends.model.misc.ItemState;
+import fr.eikasus.objectsmyfriends.model.misc.Page;
 import fr.eikasus.objectsmyfriends.model.misc.Search;
 import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
 import fr.eikasus.objectsmyfriends.model.misc.UserRole;
@@ -21,10 +24,18 @@ import org.junit.jupiter.api.*;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * This class is used to test functionalities of the item data access object.
@@ -46,6 +57,9 @@ class ItemDAOImplTest
 	// Injected DAO factory by weld junit extension.
 	@Inject private DAOFactory daoFactory;
 
+	// Entity manager used by the data access objects.
+	@Inject @EntityManagerRequestScoped private EntityManager entityManager;
+
 	// DAO objects for accessing database.
 	private CategoryDAO categoryDAO;
 	private UserDAO userDAO;
@@ -140,6 +154,157 @@ class ItemDAOImplTest
 		for (int index = 2; index < users.size(); index++) itemsRelatedToUser(users.get(index));
 	}
 
+	/**
+	 * Test that items are found by criteria with their associations in one
+	 * request, whatever the number of items found.
+	 */
+
+	@Test void findByCriteriaStatements()
+	{
+		testSupport.enterFunction();
+
+		testSupport.action("Counting the requests for items currently in selling");
+		assertEquals(1, testSupport.countStatements(entityManager, () -> showItems(itemDAO.findByCriteria(null, UserRole.BUYER, new Search().setOpenedBids(), null, null))));
+
+		testSupport.action("Counting the requests for items on which a specific user bid");
+		assertEquals(1, testSupport.countStatements(entityManager, () -> showItems(itemDAO.findByCriteria(users.get(0), UserRole.BUYER, new Search().setMyCurrentBids(), null, null))));
+
+		for (int index = 2; index < users.size(); index++)
+		{
+			User user = users.get(index);
+
+			testSupport.action(String.format("Counting the requests for items sold by user %s", user.getUsername()));
+			assertEquals(1, testSupport.countStatements(entityManager, () -> showItems(itemDAO.findByCriteria(user, UserRole.SELLER, new Search().setMyWaitingSales().setMyCurrentSales().setMyEndedSales(), null, null))));
+		}
+	}
+
+	/**
+	 * Test the ability to find items by keywords, wildcards being searched as
+	 * they are.
+	 */
+
+	@Test void findByKeywords()
+	{
+		testSupport.enterFunction();
+
+		Item active = items.stream().filter(Item::isActive).findFirst().orElseThrow(AssertionError::new);
+		String keyword = active.getName().split("\\s+")[0];
+
+		testSupport.action("Searching items currently in selling by a word of their name");
+		List<Item> found = assertDoesNotThrow(() -> itemDAO.findByCriteria(null, UserRole.BUYER, new Search().setOpenedBids(), null, keyword));
+		assertTrue(found.stream().anyMatch(item -> item.getIdentifier() == active.getIdentifier()));
+
+		testSupport.action("Searching items currently in selling by wildcards");
+		assertEquals(0, assertDoesNotThrow(() -> itemDAO.findByCriteria(null, UserRole.BUYER, new Search().setOpenedBids(), null, "% _")).size());
+	}
+
+	/**
+	 * Test the ability to read the bidding dates of items in one request.
+	 */
+
+	@Test void findDates()
+	{
+		testSupport.enterFunction();
+
+		List<Item> expected = items.stream().filter(item -> (item.isWaiting()) || (item.isActive())).collect(Collectors.toList());
+		List<Item> found = new ArrayList<>();
+
+		testSupport.action("Reading the bidding dates of the items waiting or in selling");
+		assertEquals(1, testSupport.countStatements(entityManager, () -> found.addAll(itemDAO.findDates(Arrays.asList(ItemState.WT, ItemState.AC)))));
+		assertEquals(expected.size(), found.size());
+
+		for (Item item : expected)
+		{
+			Item dates = found.stream().filter(other -> other.getIdentifier() == item.getIdentifier()).findFirst().orElseThrow(AssertionError::new);
+
+			assertEquals(item.getState(), dates.getState());
+			assertEquals(item.getBiddingStart().getTime(), dates.getBiddingStart().getTime());
+			assertEquals(item.getBiddingEnd().getTime(), dates.getBiddingEnd().getTime());
+		}
+	}
+
+	/**
+	 * Test the ability to find items by criteria, page by page.
+	 */
+
+	@Test void findByCriteriaByPage()
+	{
+		testSupport.enterFunction();
+
+		List<Long> expected = new ArrayList<>();
+		List<Long> found = new ArrayList<>();
+		String pageToken = null;
+
+		// Active items, in the order of the pages.
+		items.stream().filter(Item::isActive).sorted(Comparator.comparing(Item::getBiddingEnd).thenComparing(Item::getIdentifier)).forEach(item -> expected.add(item.getIdentifier()));
+
+		testSupport.action("Reading items currently in selling by pages of two");
+		do
+		{
+			String token = pageToken;
+
+			Page<Item> page = assertDoesNotThrow(() -> itemDAO.findByCriteria(null, UserRole.BUYER, new Search().setOpenedBids(), null, null, null, token, 2));
+
+			page.getEntities().forEach(item -> found.add(item.getIdentifier()));
+
+			pageToken = page.getNextToken();
+		}
+		while (pageToken != null);
+
+		assertEquals(expected, found);
+	}
+
+	/**
+	 * Test the ability to find item cards by criteria.
+	 */
+
+	@Test void findCardsByCriteria()
+	{
+		testSupport.enterFunction();
+
+		testSupport.action("Reading the cards of items currently in selling");
+		Page<ItemCardView> page = assertDoesNotThrow(() -> itemDAO.findCardsByCriteria(null, UserRole.BUYER, new Search().setOpenedBids(), null, null, null, null, items.size()));
+
+		// All active items are found, in the order of the pages.
+		assertEquals(items.stream().filter(Item::isActive).sorted(Comparator.comparing(Item::getBiddingEnd).thenComparing(Item::getIdentifier)).map(Item::getIdentifier).collect(Collectors.toList()),
+				page.getEntities().stream().map(ItemCardView::getIdentifier).collect(Collectors.toList()));
+
+		for (ItemCardView card : page.getEntities())
+		{
+			Item item = items.stream().filter(i -> i.getIdentifier() == card.getIdentifier()).findFirst().orElseThrow(AssertionError::new);
+
+			// The price is the best bid or the initial price.
+			int price = bids.stream().filter(bid -> bid.getItem() == item).mapToInt(Bid::getPrice).max().orElse(item.getInitialPrice());
+
+			assertEquals(item.getName(), card.getName());
+			assertEquals(price, card.getPrice());
+			assertEquals(item.getSeller().getUsername(), card.getSellerUsername());
+			assertEquals(item.getCategory().getLabel(), card.getCategoryLabel());
+		}
+	}
+
+	/**
+	 * Test the ability to find items by criteria as a stream.
+	 */
+
+	@Test void streamByCriteria()
+	{
+		testSupport.enterFunction();
+
+		List<Long> expected = items.stream().filter(Item::isActive).map(Item::getIdentifier).sorted().collect(Collectors.toList());
+
+		testSupport.action("Streaming items currently in selling");
+		List<Long> found = assertDoesNotThrow(() ->
+		{
+			try (Stream<Item> stream = itemDAO.streamByCriteria(null, UserRole.BUYER, new Search().setOpenedBids(), null, null, 2))
+			{
+				return stream.map(Item::getIdentifier).sorted().collect(Collectors.toList());
+			}
+		});
+
+		assertEquals(expected, found);
+	}
+
 	/**
 	 * Test the ability to find items by property.
 	 */
@@ -152,10 +317,62 @@ class ItemDAOImplTest
 		categories.forEach(this::itemsRelatedToCategory);
 	}
 
+	/**
+	 * Test the ability to change the state of items.
+	 */
+
+	@Test void updateState()
+	{
+		testSupport.enterFunction();
+
+		List<Long> identifiers = new ArrayList<>();
+
+		// Take all the waiting items.
+		items.forEach(item -> { if (item.isWaiting()) identifiers.add(item.getIdentifier()); });
+
+		testSupport.action("Activating waiting items whose bidding didn't start");
+		assertDoesNotThrow(() -> itemDAO.updateState(identifiers, ItemState.WT, ItemState.AC, new Date(0)));
+		itemsInState(identifiers, ItemState.WT);
+
+		testSupport.action("Activating waiting items whose bidding started");
+		assertDoesNotThrow(() -> itemDAO.updateState(identifiers, ItemState.WT, ItemState.AC, testSupport.daysAfter(new Date(), 365)));
+		itemsInState(identifiers, ItemState.AC);
+	}
+
 	/* ************** */
 	/* Helper methods */
 	/* ************** */
 
+	/**
+	 * Read what an item list shows of items.
+	 *
+	 * @param items Items to show.
+	 */
+
+	private void showItems(@NotNull List<Item> items)
+	{
+		items.forEach(item -> System.out.println(item.getName() + " " + item.getSeller().getUsername() + " " + item.getCategory().getLabel() + " " + item.getPickupPlace()));
+	}
+
+	/**
+	 * Verify the state of items read again from the database.
+	 *
+	 * @param identifiers Identifiers of the items to check.
+	 * @param state       State the items should have.
+	 */
+
+	private void itemsInState(@NotNull List<Long> identifiers, ItemState state)
+	{
+		for (Long identifier : identifiers)
+		{
+			Item item = assertDoesNotThrow(() -> itemDAO.find(identifier));
+
+			assertDoesNotThrow(() -> itemDAO.refresh(item));
+
+			assertEquals(state, item.getState());
+		}
+	}
+
 	/**
 	 * Verify the success of retrieving items bought by a user.
 	 *
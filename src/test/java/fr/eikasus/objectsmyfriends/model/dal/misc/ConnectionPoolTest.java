@@ -0,0 +1,237 @@
+package fr.eikasus.objectsmyfriends.model.dal.misc;
+
+import fr.eikasus.objectsmyfriends.model.misc.TestSupport;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test functionalities of the connection pool.
+ * <p>
+ * Connections are given by a driver registered by the test, which doesn't
+ * access any database, so these tests don't need it.
+ */
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ConnectionPoolTest
+{
+	/* ******************************* */
+	/* Constants defined for the class */
+	/* ******************************* */
+
+	// URL accepted by the test driver.
+	private static final String URL = "jdbc:stub:objectsmyfriends";
+
+	/* ***************** */
+	/* Class definitions */
+	/* ***************** */
+
+	/**
+	 * Driver giving connections that don't access any database.
+	 */
+
+	private static class StubDriver implements Driver
+	{
+		@Override public Connection connect(String url, Properties info)
+		{
+			if (!acceptsURL(url)) return null;
+
+			boolean[] closed = {false};
+
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) ->
+			{
+				switch (method.getName())
+				{
+					case "close": closed[0] = true; return null;
+					case "isClosed": return closed[0];
+					case "isValid": return !closed[0];
+					case "getAutoCommit": return true;
+					case "hashCode": return System.identityHashCode(proxy);
+					case "equals": return proxy == args[0];
+					default: return null;
+				}
+			});
+		}
+
+		@Override public boolean acceptsURL(String url)
+		{
+			return url.startsWith("jdbc:stub:");
+		}
+
+		@Override public DriverPropertyInfo[] getPropertyInfo(String url, Properties info)
+		{
+			return new DriverPropertyInfo[0];
+		}
+
+		@Override public int getMajorVersion()
+		{
+			return 1;
+		}
+
+		@Override public int getMinorVersion()
+		{
+			return 0;
+		}
+
+		@Override public boolean jdbcCompliant()
+		{
+			return false;
+		}
+
+		@Override public Logger getParentLogger()
+		{
+			return Logger.getGlobal();
+		}
+	}
+
+	/* ************* */
+	/* Class members */
+	/* ************* */
+
+	// Class used for test facilities.
+	private TestSupport<Connection> testSupport;
+
+	// Driver used by the pool.
+	private final StubDriver driver = new StubDriver();
+
+	// Pool tested.
+	private ConnectionPool connectionPool;
+
+	/* ******************************* */
+	/* Before and after tester methods */
+	/* ******************************* */
+
+	/**
+	 * Instantiate test helper and register the driver.
+	 */
+
+	@BeforeAll public void beforeAll() throws SQLException
+	{
+		// Class used for testing purposes.
+		testSupport = new TestSupport<>();
+
+		DriverManager.registerDriver(driver);
+	}
+
+	/**
+	 * Unregister the driver.
+	 */
+
+	@AfterAll public void afterAll() throws SQLException
+	{
+		DriverManager.deregisterDriver(driver);
+	}
+
+	/**
+	 * Create a pool of two connections for each test.
+	 */
+
+	@BeforeEach public void setUp()
+	{
+		Map<String, Object> configuration = new HashMap<>();
+
+		testSupport.action("Starting the pool");
+
+		configuration.put(AvailableSettings.JPA_JDBC_URL, URL);
+		configuration.put(ConnectionPool.MAXIMUM_SIZE, "2");
+		configuration.put(ConnectionPool.MINIMUM_IDLE, "0");
+		configuration.put(ConnectionPool.CONNECTION_TIMEOUT, "100");
+
+		connectionPool = new ConnectionPool();
+		connectionPool.configure(configuration);
+	}
+
+	/**
+	 * Stop the pool after each test.
+	 */
+
+	@AfterEach public void afterEach()
+	{
+		testSupport.action("Stopping the pool");
+
+		connectionPool.stop();
+	}
+
+	/* ************** */
+	/* Tester methods */
+	/* ************** */
+
+	/**
+	 * Test that a connection given back is used again.
+	 */
+
+	@Test void reuse()
+	{
+		testSupport.enterFunction();
+
+		testSupport.action("Taking and giving back a connection");
+		Connection first = assertDoesNotThrow(() -> connectionPool.getConnection());
+		assertDoesNotThrow(() -> connectionPool.closeConnection(first));
+
+		testSupport.action("Taking a connection again");
+		Connection second = assertDoesNotThrow(() -> connectionPool.getConnection());
+		assertSame(first, second);
+
+		PoolStatistics statistics = connectionPool.getStatistics();
+		assertEquals(1, statistics.getTotal());
+		assertEquals(1, statistics.getActive());
+		assertEquals(2, statistics.getBorrowed());
+	}
+
+	/**
+	 * Test that the number of connections used at the same time is bounded.
+	 */
+
+	@Test void bounded()
+	{
+		testSupport.enterFunction();
+
+		testSupport.action("Taking all the connections");
+		Connection first = assertDoesNotThrow(() -> connectionPool.getConnection());
+		assertDoesNotThrow(() -> connectionPool.getConnection());
+
+		testSupport.action("Taking one more connection");
+		assertThrows(SQLTransientConnectionException.class, () -> connectionPool.getConnection());
+
+		PoolStatistics statistics = connectionPool.getStatistics();
+		assertEquals(2, statistics.getActive());
+		assertEquals(1, statistics.getTimeouts());
+		assertTrue(statistics.getMaximumWaitTime() >= 100);
+
+		testSupport.action("Taking a connection given back");
+		assertDoesNotThrow(() -> connectionPool.closeConnection(first));
+		assertSame(first, assertDoesNotThrow(() -> connectionPool.getConnection()));
+	}
+
+	/**
+	 * Test that connections are closed when the pool is stopped.
+	 */
+
+	@Test void stop()
+	{
+		testSupport.enterFunction();
+
+		Connection first = assertDoesNotThrow(() -> connectionPool.getConnection());
+		Connection second = assertDoesNotThrow(() -> connectionPool.getConnection());
+		assertDoesNotThrow(() -> connectionPool.closeConnection(first));
+
+		testSupport.action("Stopping the pool with a connection used");
+		connectionPool.stop();
+		assertTrue(assertDoesNotThrow(first::isClosed));
+		assertFalse(assertDoesNotThrow(second::isClosed));
+
+		testSupport.action("Giving back the last connection");
+		assertDoesNotThrow(() -> connectionPool.closeConnection(second));
+		assertTrue(assertDoesNotThrow(second::isClosed));
+		assertEquals(0, connectionPool.getStatistics().getTotal());
+		assertThrows(SQLException.class, () -> connectionPool.getConnection());
+	}
+}
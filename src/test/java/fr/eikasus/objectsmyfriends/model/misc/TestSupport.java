@@ -7,9 +7,14 @@ import fr.eikasus.objectsmyfriends.model.dal.interfaces.CategoryDAO;
 import fr.eikasus.objectsmyfriends.model.dal.interfaces.ItemDAO;
 import fr.eikasus.objectsmyfriends.model.dal.interfaces.UserDAO;
 import fr.eikasus.objectsmyfriends.model.dal.misc.ResultList;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.function.Executable;
 
+import javax.persistence.EntityManager;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -31,6 +36,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * @see #populateDatabase(DAOFactory)
  * @see #clearDatabase(DAOFactory)
  * @see #executeAndCompare(String, List, ResultList)
+ * @see #countStatements(EntityManager, Executable)
  * @see #daysAfter(Date, int)
  * @see #daysBefore(Date, int)
  * @see #searchItem(ManagerFactory, UserRole, String, String, Search)
@@ -461,6 +467,7 @@ public class TestSupport<T>
 	 * <p>
 	 * This method fill the database with data. It will add categories, user,
 	 * items, images, bids and pickup places. All data are in good associated.
+	 * Each kind of data is inserted by batches.
 	 * See {@code clearDatabase()} to clear the database.
 	 *
 	 * @param daoFactory DaoFactory used to access the database.
@@ -471,22 +478,25 @@ public class TestSupport<T>
 	public void populateDatabase(DAOFactory daoFactory)
 	{
 		List<Category> categories = createCategoryList();
-		categories.forEach(category -> assertDoesNotThrow(() -> daoFactory.getCategoryDAO().save(category)));
+		assertDoesNotThrow(() -> daoFactory.getCategoryDAO().saveAll(categories));
 
 		List<User> users = createUserList();
-		users.forEach(user -> assertDoesNotThrow(() -> daoFactory.getUserDAO().save(user)));
+		assertDoesNotThrow(() -> daoFactory.getUserDAO().saveAll(users));
 
 		List<Item> items = createItemList(users, categories);
-		items.forEach(item -> assertDoesNotThrow(() -> daoFactory.getItemDAO().save(item)));
+		assertDoesNotThrow(() -> daoFactory.getItemDAO().saveAll(items));
 
 		List<Image> images = createImageList(items);
-		images.forEach(image -> assertDoesNotThrow(() -> daoFactory.getImageDAO().save(image)));
+		assertDoesNotThrow(() -> daoFactory.getImageDAO().saveAll(images));
 
 		List<PickupPlace> pickupPlaces = createPickupPlaceList(items);
-		pickupPlaces.forEach(pickupPlace -> assertDoesNotThrow(() -> daoFactory.getPickupDAO().save(pickupPlace)));
+		assertDoesNotThrow(() -> daoFactory.getPickupDAO().saveAll(pickupPlaces));
 
 		List<Bid> bids = createBidList(items, users);
-		bids.forEach(bid -> assertDoesNotThrow(() -> daoFactory.getBidDAO().save(bid)));
+		assertDoesNotThrow(() -> daoFactory.getBidDAO().saveAll(bids));
+
+		// The bids are saved without the bid manager, so the items need to be told.
+		assertDoesNotThrow(() -> daoFactory.getItemDAO().recountBids(items.stream().map(Item::getIdentifier).collect(Collectors.toList())));
 	}
 
 	/**
@@ -508,7 +518,7 @@ public class TestSupport<T>
 		{
 			// Delete items which imply images, bids, pickup places.
 			ItemDAO itemDAO = daoFactory.getItemDAO();
-			for (Item item : itemDAO.find()) itemDAO.delete(item);
+			itemDAO.deleteAll(itemDAO.find());
 
 			// Delete categories.
 			CategoryDAO categoryDAO = daoFactory.getCategoryDAO();
@@ -551,6 +561,36 @@ public class TestSupport<T>
 		result.forEach(System.out::println);
 	}
 
+	/**
+	 * Count the statements sent to the database by an action.
+	 * <p>
+	 * The persistence context is cleared before executing the supplied action,
+	 * so entities already read don't hide the requests that would be needed to
+	 * load them again.
+	 *
+	 * @param entityManager Entity manager used by the action.
+	 * @param action        Action to execute.
+	 *
+	 * @return Number of statements prepared while executing the action.
+	 */
+
+	public long countStatements(@NotNull EntityManager entityManager, @NotNull Executable action)
+	{
+		Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+		// Start from an empty persistence context.
+		entityManager.clear();
+
+		// Count from now on.
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+
+		// Execute the action.
+		assertDoesNotThrow(action);
+
+		return statistics.getPrepareStatementCount();
+	}
+
 	/**
 	 * Compute a date that is days after.
 	 * <p>